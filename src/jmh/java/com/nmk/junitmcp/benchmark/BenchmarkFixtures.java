@@ -0,0 +1,217 @@
+package com.nmk.junitmcp.benchmark;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.internal.flow.ClassProbesAdapter;
+import org.jacoco.core.internal.flow.ClassProbesVisitor;
+import org.jacoco.core.internal.flow.MethodProbesVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Deterministic inputs for the benchmarks: the same parameters always produce the same logs, classes and probes
+final class BenchmarkFixtures {
+    static final long SEED = 42L;
+    private static final int METHODS_PER_CLASS = 12;
+    private static final int CLASSES_PER_PACKAGE = 50;
+
+    private BenchmarkFixtures() {
+    }
+
+    // Surefire console output for the given number of test classes; about one in twenty classes has a failure
+    static List<String> mavenLog(int testClasses) {
+        Random random = new Random(SEED);
+        List<String> lines = new ArrayList<>();
+        lines.add("[INFO] Scanning for projects...");
+        lines.add("[INFO] --- surefire:3.5.3:test (default-test) @ bench ---");
+        lines.add("[INFO] -------------------------------------------------------");
+        lines.add("[INFO]  T E S T S");
+        lines.add("[INFO] -------------------------------------------------------");
+        for (int i = 0; i < testClasses; i++) {
+            String testClass = className(i) + "Test";
+            int tests = 1 + random.nextInt(20);
+            boolean failing = random.nextInt(20) == 0;
+            lines.add("[INFO] Running " + testClass);
+            for (int line = 0; line < random.nextInt(10); line++) {
+                lines.add("12:00:00.000 [main] INFO " + testClass + " -- log line " + line);
+            }
+            if (failing) {
+                lines.add("[ERROR] Tests run: " + tests + ", Failures: 1, Errors: 0, Skipped: 0, Time elapsed: 0.123 s <<< FAILURE! -- in " + testClass);
+                lines.add("[ERROR] " + testClass + ".method0 -- Time elapsed: 0.01 s <<< FAILURE!");
+                lines.add("org.opentest4j.AssertionFailedError: expected: <1> but was: <2>");
+                for (int frame = 0; frame < 30; frame++) {
+                    lines.add("\tat " + testClass + ".method0(" + simpleName(testClass) + ".java:" + (10 + frame) + ")");
+                }
+                lines.add("");
+            } else {
+                lines.add("[INFO] Tests run: " + tests + ", Failures: 0, Errors: 0, Skipped: 0, Time elapsed: 0.123 s -- in " + testClass);
+            }
+        }
+        lines.add("[INFO] BUILD SUCCESS");
+        return lines;
+    }
+
+    // Gradle console output with per-test events, as printed by testLogging { events "passed", "failed", "skipped" }
+    static List<String> gradleLog(int testClasses) {
+        Random random = new Random(SEED);
+        List<String> lines = new ArrayList<>();
+        lines.add("> Task :compileJava UP-TO-DATE");
+        lines.add("> Task :compileTestJava");
+        lines.add("> Task :test");
+        for (int i = 0; i < testClasses; i++) {
+            String testClass = className(i) + "Test";
+            int tests = 1 + random.nextInt(20);
+            for (int test = 0; test < tests; test++) {
+                boolean failing = random.nextInt(100) == 0;
+                lines.add("");
+                lines.add(testClass + " > method" + test + "() " + (failing ? "FAILED" : "PASSED"));
+                if (failing) {
+                    lines.add("    org.opentest4j.AssertionFailedError at " + simpleName(testClass) + ".java:" + (10 + test));
+                }
+            }
+        }
+        lines.add("");
+        lines.add("BUILD SUCCESSFUL in 12s");
+        return lines;
+    }
+
+    // Writes compiled classes with branches and line numbers below classesDir and returns their execution data, with
+    // roughly the given share of probes hit
+    static ExecutionDataStore generateClasses(Path classesDir, int classes, double hitRatio) throws IOException {
+        Random random = new Random(SEED);
+        ExecutionDataStore store = new ExecutionDataStore();
+        for (int i = 0; i < classes; i++) {
+            String internalName = className(i).replace('.', '/');
+            byte[] bytes = generateClass(internalName);
+            Path file = classesDir.resolve(internalName + ".class");
+            Files.createDirectories(file.getParent());
+            Files.write(file, bytes);
+
+            boolean[] probes = new boolean[probeCount(bytes)];
+            for (int p = 0; p < probes.length; p++) {
+                probes[p] = random.nextDouble() < hitRatio;
+            }
+            store.put(new ExecutionData(CRC64.classId(bytes), internalName, probes));
+        }
+        return store;
+    }
+
+    static void writeExecFile(ExecutionDataStore store, Path execFile) throws IOException {
+        Files.createDirectories(execFile.getParent());
+        try (OutputStream out = Files.newOutputStream(execFile)) {
+            ExecutionDataWriter writer = new ExecutionDataWriter(out);
+            writer.visitSessionInfo(new SessionInfo("benchmark", 0L, 0L));
+            store.accept(writer);
+        }
+    }
+
+    static void deleteRecursively(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static String className(int index) {
+        return "com.example.bench.p" + (index / CLASSES_PER_PACKAGE) + ".Generated" + index;
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    // public int methodN(int x) { if (x > N) { return x * 2; } return x + 1; }
+    private static byte[] generateClass(String internalName) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, internalName, null, "java/lang/Object", null);
+        writer.visitSource(internalName.substring(internalName.lastIndexOf('/') + 1) + ".java", null);
+
+        int line = 1;
+        MethodVisitor init = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        line = lineNumber(init, line);
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        for (int m = 0; m < METHODS_PER_CLASS; m++) {
+            MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, "method" + m, "(I)I", null, null);
+            method.visitCode();
+            Label otherwise = new Label();
+            line = lineNumber(method, line + 1);
+            method.visitVarInsn(Opcodes.ILOAD, 1);
+            method.visitIntInsn(Opcodes.BIPUSH, m);
+            method.visitJumpInsn(Opcodes.IF_ICMPLE, otherwise);
+            line = lineNumber(method, line);
+            method.visitVarInsn(Opcodes.ILOAD, 1);
+            method.visitInsn(Opcodes.ICONST_2);
+            method.visitInsn(Opcodes.IMUL);
+            method.visitInsn(Opcodes.IRETURN);
+            method.visitLabel(otherwise);
+            line = lineNumber(method, line);
+            method.visitVarInsn(Opcodes.ILOAD, 1);
+            method.visitInsn(Opcodes.ICONST_1);
+            method.visitInsn(Opcodes.IADD);
+            method.visitInsn(Opcodes.IRETURN);
+            method.visitMaxs(0, 0);
+            method.visitEnd();
+        }
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static int lineNumber(MethodVisitor method, int line) {
+        Label label = new Label();
+        method.visitLabel(label);
+        method.visitLineNumber(line, label);
+        return line + 1;
+    }
+
+    // The number of probes JaCoCo inserts into the class, which the execution data has to match
+    private static int probeCount(byte[] bytes) {
+        int[] count = new int[1];
+        ClassProbesVisitor counter = new ClassProbesVisitor() {
+            @Override
+            public MethodProbesVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                return null;
+            }
+
+            @Override
+            public void visitTotalProbeCount(int total) {
+                count[0] = total;
+            }
+        };
+        new ClassReader(bytes).accept(new ClassProbesAdapter(counter, false), 0);
+        return count[0];
+    }
+}
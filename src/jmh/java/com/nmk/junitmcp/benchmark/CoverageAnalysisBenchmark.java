@@ -0,0 +1,65 @@
+package com.nmk.junitmcp.benchmark;
+
+import com.nmk.junitmcp.junit_platform.ClassCoverage;
+import com.nmk.junitmcp.junit_platform.CoverageAnalysisCache;
+import com.nmk.junitmcp.junit_platform.CoverageAnalyzer;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+// CoverageAnalyzer.analyze over a generated classes directory: cold analyzes every class, warm repeats a run whose
+// bytecode and probes are unchanged, so every class is served from the analysis cache
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CoverageAnalysisBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    private int classes;
+
+    private Path classesDir;
+    private ExecutionDataStore executionData;
+    private CoverageAnalysisCache warmCache;
+
+    @Setup
+    public void generateClasses() throws IOException {
+        classesDir = Files.createTempDirectory("junit-mcp-bench-classes");
+        executionData = BenchmarkFixtures.generateClasses(classesDir, classes, 0.6);
+        warmCache = new CoverageAnalysisCache();
+        new CoverageAnalyzer(executionData, classesDir.toString(), warmCache).analyze();
+    }
+
+    @TearDown
+    public void deleteClasses() throws IOException {
+        BenchmarkFixtures.deleteRecursively(classesDir);
+    }
+
+    @Benchmark
+    public SortedMap<String, ClassCoverage> cold() throws IOException {
+        return new CoverageAnalyzer(executionData, classesDir.toString(), new CoverageAnalysisCache()).analyze();
+    }
+
+    @Benchmark
+    public SortedMap<String, ClassCoverage> warm() throws IOException {
+        return new CoverageAnalyzer(executionData, classesDir.toString(), warmCache).analyze();
+    }
+}
@@ -0,0 +1,53 @@
+package com.nmk.junitmcp.benchmark;
+
+import com.nmk.junitmcp.service.TestOutputParser;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Parsing of build output the way ExternalTestRunner streams it: one accept per line, then finish
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OutputParserBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int testClasses;
+
+    @Param({"MAVEN", "GRADLE"})
+    private ProjectPathResolver.ProjectType projectType;
+
+    private List<String> log;
+
+    @Setup
+    public void generateLog() {
+        log = projectType == ProjectPathResolver.ProjectType.MAVEN
+                ? BenchmarkFixtures.mavenLog(testClasses)
+                : BenchmarkFixtures.gradleLog(testClasses);
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        TestOutputParser parser = TestOutputParser.forProjectType(projectType, blackhole::consume);
+        for (String line : log) {
+            parser.accept(line);
+        }
+        parser.finish();
+    }
+}
@@ -0,0 +1,95 @@
+package com.nmk.junitmcp.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nmk.junitmcp.dto.CoverageCounter;
+import com.nmk.junitmcp.dto.CoverageQuery;
+import com.nmk.junitmcp.dto.RunResponse;
+import com.nmk.junitmcp.service.CoverageQueryService;
+import com.nmk.junitmcp.service.CoverageReport;
+import com.nmk.junitmcp.service.CoverageService;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The coverage part of a run request end to end on a generated Maven project: loading target/jacoco.exec, analysis,
+// and serializing the result either as the RunResponse coverage map or through the streamed coverage query
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestPathBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    private int classes;
+
+    private Path projectDir;
+    private ProjectPathResolver pathResolver;
+    private CoverageService coverageService;
+    private CoverageReport report;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CoverageQueryService coverageQueryService = new CoverageQueryService(objectMapper);
+    private final CoverageQuery query = new CoverageQuery();
+
+    @Setup
+    public void generateProject() throws IOException {
+        projectDir = Files.createTempDirectory("junit-mcp-bench-project");
+        Files.writeString(projectDir.resolve("pom.xml"), "<project/>");
+        ExecutionDataStore executionData = BenchmarkFixtures.generateClasses(
+                projectDir.resolve("target").resolve("classes"), classes, 0.6);
+        BenchmarkFixtures.writeExecFile(executionData, projectDir.resolve("target").resolve("jacoco.exec"));
+
+        pathResolver = new ProjectPathResolver(projectDir.toString());
+        // Shared across invocations like the service bean, so repeated loads hit the analysis cache as they would
+        coverageService = new CoverageService();
+        report = loadCoverage();
+
+        query.setCounters(List.of(CoverageCounter.LINE, CoverageCounter.BRANCH));
+        query.setLines(true);
+        query.setLimit(1000);
+    }
+
+    @TearDown
+    public void deleteProject() throws IOException {
+        BenchmarkFixtures.deleteRecursively(projectDir);
+    }
+
+    @Benchmark
+    public CoverageReport loadCoverage() throws IOException {
+        return coverageService.analyze(coverageService.loadExecutionData(pathResolver), pathResolver);
+    }
+
+    @Benchmark
+    public byte[] serializeRunResponse() throws IOException {
+        RunResponse response = new RunResponse();
+        response.setCoverage(report.coverage());
+        response.setCoverageTotals(report.totals());
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public int writeCoverageQuery() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        coverageQueryService.write(report.classes(), query, out);
+        return out.size();
+    }
+}
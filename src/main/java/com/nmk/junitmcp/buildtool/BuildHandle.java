@@ -0,0 +1,8 @@
+package com.nmk.junitmcp.buildtool;
+
+// A running build that can be stopped, whether it is a process of its own or a build inside a daemon
+public interface BuildHandle {
+
+    void cancel();
+
+}
@@ -0,0 +1,7 @@
+package com.nmk.junitmcp.buildtool;
+
+// startupMs is what the tool needed before doing any work (JVM start, daemon connection, project configuration),
+// executionMs the rest. cpuMs and peakChildProcesses cover the build's own process tree, so they stay 0 for builds
+// that run inside a daemon
+public record BuildInvocation(int exitCode, long startupMs, long executionMs, long cpuMs, int peakChildProcesses) {
+}
@@ -0,0 +1,19 @@
+package com.nmk.junitmcp.buildtool;
+
+import com.nmk.junitmcp.dto.TestResult;
+
+// Receives what a build tool reports while it runs; all callbacks are optional
+public interface BuildListener {
+    BuildListener NONE = new BuildListener() {
+    };
+
+    default void started(BuildHandle handle) {
+    }
+
+    default void outputLine(String line) {
+    }
+
+    // Only called by tools that report structured test events
+    default void testFinished(TestResult result) {
+    }
+}
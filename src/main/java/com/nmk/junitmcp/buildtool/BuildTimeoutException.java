@@ -0,0 +1,9 @@
+package com.nmk.junitmcp.buildtool;
+
+// A build that ran past its wall-clock deadline or went quiet for too long; its process tree has been killed
+public class BuildTimeoutException extends RuntimeException {
+
+    public BuildTimeoutException(String message) {
+        super(message);
+    }
+}
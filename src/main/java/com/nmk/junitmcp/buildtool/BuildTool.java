@@ -0,0 +1,20 @@
+package com.nmk.junitmcp.buildtool;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+// One way of invoking Maven or Gradle; implementations differ in how much of the tool stays warm between builds
+public interface BuildTool {
+
+    // Reported with the build timings, e.g. "mvn", "mvnd", "gradle-tooling-api"
+    String getName();
+
+    // Whether test results arrive through BuildListener.testFinished; otherwise callers parse them from the output
+    boolean reportsTestEvents();
+
+    // args are the command-line arguments without the executable: goals or tasks, options and properties
+    BuildInvocation run(File projectDir, List<String> args, Duration timeout, BuildListener listener)
+            throws IOException, InterruptedException;
+}
@@ -0,0 +1,76 @@
+package com.nmk.junitmcp.buildtool;
+
+import com.nmk.junitmcp.config.BuildToolProperties;
+import com.nmk.junitmcp.config.ProcessProperties;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+// Picks how builds of a project are run: a warm daemon where one is available, a cold process otherwise
+@Service
+public class BuildTools {
+    private final BuildToolProperties properties;
+    // Shared by every process-based build tool
+    private final ProcessSupervisor supervisor;
+    private final GradleToolingBuildTool gradleToolingBuildTool;
+    private volatile Optional<BuildTool> mavenDaemon;
+
+    public BuildTools(BuildToolProperties properties, ProcessSupervisor supervisor, ProcessProperties processProperties) {
+        this.properties = properties;
+        this.supervisor = supervisor;
+        this.gradleToolingBuildTool = new GradleToolingBuildTool(processProperties);
+    }
+
+    public BuildTool forProject(ProjectPathResolver pathResolver) {
+        if (pathResolver.getProjectType() == ProjectPathResolver.ProjectType.GRADLE) {
+            if (properties.isGradleToolingApi()) {
+                return gradleToolingBuildTool;
+            }
+            return new ProcessBuildTool("gradle", List.of(pathResolver.getBuildCommand()),
+                    line -> line.startsWith("> Task ") || line.startsWith("> Configure "), supervisor);
+        }
+        return getMavenDaemon().orElseGet(() -> new ProcessBuildTool("mvn", List.of(pathResolver.getBuildCommand()),
+                line -> true, supervisor));
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        gradleToolingBuildTool.closeAll();
+    }
+
+    // mvnd prints the same plain log as mvn in batch mode, so the output parsers work unchanged
+    private Optional<BuildTool> getMavenDaemon() {
+        Optional<BuildTool> daemon = mavenDaemon;
+        if (daemon == null) {
+            daemon = findOnPath(properties.getMavenDaemon())
+                    .map(executable -> new ProcessBuildTool("mvnd", List.of(executable.toString(), "-B"), line -> true,
+                            supervisor));
+            mavenDaemon = daemon;
+        }
+        return daemon;
+    }
+
+    private static Optional<Path> findOnPath(String executable) {
+        String path = System.getenv("PATH");
+        if (executable == null || executable.isBlank() || path == null) {
+            return Optional.empty();
+        }
+        boolean windows = System.getProperty("os.name").toLowerCase().contains("win");
+        for (String directory : path.split(File.pathSeparator)) {
+            if (directory.isBlank()) {
+                continue;
+            }
+            Path candidate = Path.of(directory, windows ? executable + ".cmd" : executable);
+            if (Files.isExecutable(candidate)) {
+                return Optional.of(candidate);
+            }
+        }
+        return Optional.empty();
+    }
+}
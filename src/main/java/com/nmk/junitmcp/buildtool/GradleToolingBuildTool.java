@@ -0,0 +1,228 @@
+package com.nmk.junitmcp.buildtool;
+
+import com.nmk.junitmcp.config.ProcessProperties;
+import com.nmk.junitmcp.dto.TestResult;
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.BuildException;
+import org.gradle.tooling.CancellationTokenSource;
+import org.gradle.tooling.Failure;
+import org.gradle.tooling.GradleConnectionException;
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.ProjectConnection;
+import org.gradle.tooling.ResultHandler;
+import org.gradle.tooling.events.OperationType;
+import org.gradle.tooling.events.ProgressEvent;
+import org.gradle.tooling.events.test.JvmTestKind;
+import org.gradle.tooling.events.test.JvmTestOperationDescriptor;
+import org.gradle.tooling.events.test.TestFailureResult;
+import org.gradle.tooling.events.test.TestFinishEvent;
+import org.gradle.tooling.events.test.TestOperationResult;
+import org.gradle.tooling.events.test.TestSkippedResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+// Runs Gradle builds over the Tooling API. Connections stay open per project, so builds go straight to a warm daemon
+// instead of starting a client JVM each time, and test results arrive as progress events instead of console output.
+// The same wall-clock and idle deadlines as for build processes apply, with output and progress events as activity
+public class GradleToolingBuildTool implements BuildTool {
+    // How long a cancelled build gets to stop before the connection to its daemon is dropped
+    private static final long CANCEL_GRACE_MS = 5000;
+
+    private final ProcessProperties properties;
+    private final Map<File, ProjectConnection> connections = new ConcurrentHashMap<>();
+
+    public GradleToolingBuildTool(ProcessProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public String getName() {
+        return "gradle-tooling-api";
+    }
+
+    @Override
+    public boolean reportsTestEvents() {
+        return true;
+    }
+
+    @Override
+    public BuildInvocation run(File projectDir, List<String> args, Duration timeout, BuildListener listener)
+            throws IOException, InterruptedException {
+        long startedAt = System.nanoTime();
+        ProjectConnection connection = connections.computeIfAbsent(projectDir.getCanonicalFile(),
+                dir -> GradleConnector.newConnector().forProjectDirectory(dir).connect());
+
+        CancellationTokenSource cancellation = GradleConnector.newCancellationTokenSource();
+        listener.started(cancellation::cancel);
+
+        // Configuration runs before the first task or test starts, so it counts as startup like a cold client's boot
+        AtomicLong executionStartedAt = new AtomicLong();
+        AtomicLong lastActivityAt = new AtomicLong(startedAt);
+        CompletableFuture<Integer> exitCode = new CompletableFuture<>();
+        try (LineOutputStream output = new LineOutputStream(line -> {
+            lastActivityAt.set(System.nanoTime());
+            listener.outputLine(line);
+        })) {
+            connection.newBuild()
+                    .withArguments(args)
+                    .setStandardOutput(output)
+                    .setStandardError(output)
+                    .withCancellationToken(cancellation.token())
+                    .addProgressListener(event -> {
+                        long now = System.nanoTime();
+                        executionStartedAt.compareAndSet(0, now);
+                        lastActivityAt.set(now);
+                        if (event instanceof TestFinishEvent testEvent) {
+                            TestResult result = toTestResult(testEvent);
+                            if (result != null) {
+                                listener.testFinished(result);
+                            }
+                        }
+                    }, EnumSet.of(OperationType.TASK, OperationType.TEST))
+                    .run(new ResultHandler<Void>() {
+                        @Override
+                        public void onComplete(Void result) {
+                            exitCode.complete(0);
+                        }
+
+                        @Override
+                        public void onFailure(GradleConnectionException failure) {
+                            if (!(failure instanceof BuildException) && !(failure instanceof BuildCancelledException)) {
+                                // The daemon went away or the connection broke; reconnect next time
+                                closeConnection(projectDir);
+                            }
+                            listener.outputLine(failure.getMessage());
+                            exitCode.complete(1);
+                        }
+                    });
+
+            Integer code = null;
+            try {
+                while (code == null) {
+                    try {
+                        code = exitCode.get(properties.getSampleInterval().toMillis(), TimeUnit.MILLISECONDS);
+                    } catch (TimeoutException e) {
+                        long now = System.nanoTime();
+                        if (now - startedAt > timeout.toNanos()) {
+                            cancel(projectDir, cancellation, exitCode);
+                            throw new BuildTimeoutException(getName() + " did not finish within " + ProcessSupervisor.describe(timeout));
+                        }
+                        if (now - lastActivityAt.get() > properties.getIdleTimeout().toNanos()) {
+                            cancel(projectDir, cancellation, exitCode);
+                            throw new BuildTimeoutException(getName() + " reported no output or progress for "
+                                    + ProcessSupervisor.describe(properties.getIdleTimeout()) + " and was taken as hung");
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                cancellation.cancel();
+                throw e;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+
+            long finishedAt = System.nanoTime();
+            long executionStart = executionStartedAt.get() != 0 ? executionStartedAt.get() : finishedAt;
+            return new BuildInvocation(code, TimeUnit.NANOSECONDS.toMillis(executionStart - startedAt),
+                    TimeUnit.NANOSECONDS.toMillis(finishedAt - executionStart), 0, 0);
+        }
+    }
+
+    public void closeAll() {
+        connections.values().forEach(ProjectConnection::close);
+        connections.clear();
+    }
+
+    // Asks the daemon to stop the build; one that does not within the grace period, e.g. stuck in a test that ignores
+    // interrupts, is left behind with its connection so the next build does not queue up behind it
+    private void cancel(File projectDir, CancellationTokenSource cancellation, CompletableFuture<Integer> exitCode)
+            throws InterruptedException {
+        cancellation.cancel();
+        try {
+            exitCode.get(CANCEL_GRACE_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            closeConnection(projectDir);
+        }
+    }
+
+    private void closeConnection(File projectDir) {
+        try {
+            ProjectConnection connection = connections.remove(projectDir.getCanonicalFile());
+            if (connection != null) {
+                connection.close();
+            }
+        } catch (IOException e) {
+            // Nothing was cached under that path
+        }
+    }
+
+    // Same "Class#method" ids and statuses as the other runners; suites and non-JVM tests are skipped
+    private static TestResult toTestResult(TestFinishEvent event) {
+        if (!(event.getDescriptor() instanceof JvmTestOperationDescriptor descriptor)
+                || descriptor.getJvmTestKind() != JvmTestKind.ATOMIC || descriptor.getClassName() == null) {
+            return null;
+        }
+        TestOperationResult outcome = event.getResult();
+        TestResult result = new TestResult();
+        result.setTest(descriptor.getClassName() + "#" + descriptor.getMethodName());
+        result.setDurationMs(outcome.getEndTime() - outcome.getStartTime());
+        if (outcome instanceof TestFailureResult failure) {
+            result.setStatus("FAILED");
+            result.setError(failure.getFailures().stream()
+                    .map(Failure::getDescription)
+                    .collect(Collectors.joining("\n")));
+        } else if (outcome instanceof TestSkippedResult) {
+            result.setStatus("SKIPPED");
+        } else {
+            result.setStatus("PASSED");
+        }
+        return result;
+    }
+
+    // Splits the build's console output into lines for BuildListener.outputLine
+    private static class LineOutputStream extends OutputStream {
+        private final Consumer<String> lines;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        LineOutputStream(Consumer<String> lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (b == '\n') {
+                flushLine();
+            } else if (b != '\r') {
+                line.write(b);
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            if (line.size() > 0) {
+                flushLine();
+            }
+        }
+
+        private void flushLine() {
+            lines.accept(line.toString(StandardCharsets.UTF_8));
+            line.reset();
+        }
+    }
+}
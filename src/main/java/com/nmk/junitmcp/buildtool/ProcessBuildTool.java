@@ -0,0 +1,62 @@
+package com.nmk.junitmcp.buildtool;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+// Starts the build tool as a process of its own for every build: a cold mvn or gradle client, or the mvnd client
+// that hands the build to a resident Maven daemon
+public class ProcessBuildTool implements BuildTool {
+    private final String name;
+    private final List<String> commandPrefix;
+    // First output line that shows the tool is past its startup and doing actual work
+    private final Predicate<String> executionStarted;
+    private final ProcessSupervisor supervisor;
+
+    public ProcessBuildTool(String name, List<String> commandPrefix, Predicate<String> executionStarted,
+                            ProcessSupervisor supervisor) {
+        this.name = name;
+        this.commandPrefix = commandPrefix;
+        this.executionStarted = executionStarted;
+        this.supervisor = supervisor;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean reportsTestEvents() {
+        return false;
+    }
+
+    @Override
+    public BuildInvocation run(File projectDir, List<String> args, Duration timeout, BuildListener listener)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(commandPrefix);
+        command.addAll(args);
+
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.directory(projectDir);
+
+        long startedAt = System.nanoTime();
+        AtomicLong executionStartedAt = new AtomicLong();
+        ProcessSupervisor.Outcome outcome = supervisor.run(processBuilder, name, timeout, listener::started, line -> {
+            if (executionStartedAt.get() == 0 && executionStarted.test(line)) {
+                executionStartedAt.set(System.nanoTime());
+            }
+            listener.outputLine(line);
+        });
+
+        long finishedAt = System.nanoTime();
+        long executionStart = executionStartedAt.get() != 0 ? executionStartedAt.get() : finishedAt;
+        return new BuildInvocation(outcome.exitCode(), TimeUnit.NANOSECONDS.toMillis(executionStart - startedAt),
+                TimeUnit.NANOSECONDS.toMillis(finishedAt - executionStart), outcome.cpuMs(), outcome.peakChildProcesses());
+    }
+}
@@ -0,0 +1,138 @@
+package com.nmk.junitmcp.buildtool;
+
+import com.nmk.junitmcp.config.ProcessProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Runs build processes under deadlines. Output is drained on a virtual thread of its own, so the wall-clock and
+// idle-output deadlines are enforced even while a hung test keeps the pipe open, and a timed out or cancelled build
+// is killed together with everything it started: forked Surefire JVMs, Gradle workers and their children
+@Service
+@RequiredArgsConstructor
+public class ProcessSupervisor {
+    // How long output may stall after exit before the pipe is taken as held by a process that outlived the build
+    private static final long DRAIN_GRACE_MS = 2000;
+
+    private final ProcessProperties properties;
+
+    // cpuMs sums the CPU time of the process and every descendant seen while sampling
+    public record Outcome(int exitCode, long cpuMs, int peakChildProcesses) {
+    }
+
+    public Outcome run(ProcessBuilder processBuilder, String name, Duration timeout, Consumer<BuildHandle> started,
+                       Consumer<String> output) throws IOException, InterruptedException {
+        processBuilder.redirectErrorStream(true);
+        Process process = processBuilder.start();
+        started.accept(() -> killTree(process.toHandle()));
+
+        long startedAt = System.nanoTime();
+        // Last time a line was read or forwarded
+        AtomicLong lastOutputAt = new AtomicLong(startedAt);
+        Object outputLock = new Object();
+        AtomicBoolean forwarding = new AtomicBoolean(true);
+        Thread drain = Thread.ofVirtual().name(name + "-output-" + process.pid()).start(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lastOutputAt.set(System.nanoTime());
+                    synchronized (outputLock) {
+                        if (!forwarding.get()) {
+                            return;
+                        }
+                        output.accept(line);
+                    }
+                    lastOutputAt.set(System.nanoTime());
+                }
+            } catch (IOException e) {
+                // The pipe broke when the process was killed
+            }
+        });
+
+        // Peak CPU time per pid: a process that exits between samples keeps what it was last seen with
+        Map<Long, Long> cpuNanos = new HashMap<>();
+        Set<ProcessHandle> descendantsSeen = new HashSet<>();
+        int peakChildren = 0;
+        try {
+            while (!process.waitFor(properties.getSampleInterval().toMillis(), TimeUnit.MILLISECONDS)) {
+                List<ProcessHandle> descendants = process.descendants().toList();
+                descendantsSeen.addAll(descendants);
+                peakChildren = Math.max(peakChildren, descendants.size());
+                sampleCpu(process.toHandle(), cpuNanos);
+                descendants.forEach(handle -> sampleCpu(handle, cpuNanos));
+
+                long now = System.nanoTime();
+                if (now - startedAt > timeout.toNanos()) {
+                    killTree(process.toHandle());
+                    throw new BuildTimeoutException(name + " did not finish within " + describe(timeout));
+                }
+                if (now - lastOutputAt.get() > properties.getIdleTimeout().toNanos()) {
+                    killTree(process.toHandle());
+                    throw new BuildTimeoutException(name + " printed nothing for " + describe(properties.getIdleTimeout())
+                            + " and was taken as hung");
+                }
+            }
+        } catch (InterruptedException e) {
+            killTree(process.toHandle());
+            throw e;
+        } finally {
+            drainRemaining(drain, descendantsSeen, lastOutputAt, outputLock, forwarding, output);
+        }
+        sampleCpu(process.toHandle(), cpuNanos);
+
+        long cpuMs = TimeUnit.NANOSECONDS.toMillis(cpuNanos.values().stream().mapToLong(Long::longValue).sum());
+        return new Outcome(process.exitValue(), cpuMs, peakChildren);
+    }
+
+    // Reads on until the end of the pipe while output keeps coming. Something that outlived the build, like a daemon
+    // it launched, can hold the pipe open long after it exits; closing it would block behind the pending read, so once
+    // such a process is alive or the pipe stays silent for the grace period, the reader is left to end with the pipe
+    // and only stops forwarding
+    private static void drainRemaining(Thread drain, Set<ProcessHandle> descendantsSeen, AtomicLong lastOutputAt,
+                                       Object outputLock, AtomicBoolean forwarding, Consumer<String> output)
+            throws InterruptedException {
+        while (true) {
+            drain.join(DRAIN_GRACE_MS);
+            if (!drain.isAlive()) {
+                return;
+            }
+            boolean held = descendantsSeen.stream().anyMatch(ProcessHandle::isAlive);
+            if (held || System.nanoTime() - lastOutputAt.get() > TimeUnit.MILLISECONDS.toNanos(DRAIN_GRACE_MS)) {
+                break;
+            }
+        }
+        synchronized (outputLock) {
+            if (forwarding.getAndSet(false)) {
+                output.accept("[junit-mcp] Output truncated: a process started by the build still holds its output open");
+            }
+        }
+    }
+
+    // Children first so nothing is re-parented and left running, then the process, then whatever it spawned meanwhile
+    public static void killTree(ProcessHandle process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+    }
+
+    private static void sampleCpu(ProcessHandle handle, Map<Long, Long> cpuNanos) {
+        handle.info().totalCpuDuration().ifPresent(cpu -> cpuNanos.merge(handle.pid(), cpu.toNanos(), Math::max));
+    }
+
+    public static String describe(Duration duration) {
+        return duration.toMinutes() > 0 ? duration.toMinutes() + " minutes" : duration.toSeconds() + " seconds";
+    }
+}
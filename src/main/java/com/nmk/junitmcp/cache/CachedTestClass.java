@@ -0,0 +1,14 @@
+package com.nmk.junitmcp.cache;
+
+import com.nmk.junitmcp.dto.TestResult;
+import org.jacoco.core.data.ExecutionDataStore;
+
+import java.util.List;
+
+// Outcome of running one test class: its results, the coverage the class contributed to the run and, for the per-test
+// coverage index, each test's own share in the order the tests finished
+public record CachedTestClass(List<TestResult> results, ExecutionDataStore coverage, List<TestData> testCoverage) {
+
+    public record TestData(String testId, ExecutionDataStore data) {
+    }
+}
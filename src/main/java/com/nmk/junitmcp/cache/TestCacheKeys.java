@@ -0,0 +1,176 @@
+package com.nmk.junitmcp.cache;
+
+import com.nmk.junitmcp.util.ClassHashes;
+import com.nmk.junitmcp.util.ClassReferences;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import org.jacoco.core.internal.data.CRC64;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Content-addressed keys for cached test outcomes. The unit is a test class: its key hashes the bytecode of every
+// project class it reaches through bytecode references, the project's resources and the run environment (JVM,
+// dependency jars, mode). Classes loaded only by name are not seen, which is what RunRequest.uncachedTests is for
+public class TestCacheKeys {
+    // Test frameworks that find configuration and components by scanning packages; their tests depend on the whole project
+    private static final List<String> SCANNING_FRAMEWORKS = List.of("org.springframework.test.", "org.springframework.boot.test.");
+
+    // Resource checksums keyed by absolute path, reused while size and mtime are unchanged
+    private static final Map<Path, ResourceHash> RESOURCE_HASH_CACHE = new ConcurrentHashMap<>();
+
+    private final Map<String, ClassFile> classes = new HashMap<>();
+    private final Path testClassesRoot;
+    private final String baseHash;
+
+    private TestCacheKeys(ProjectPathResolver pathResolver, ClassHashes classHashes, String environment) throws IOException {
+        Path classesRoot = Path.of(pathResolver.getClassesPath());
+        this.testClassesRoot = Path.of(pathResolver.getTestClassesPath());
+        classHashes.getMainClasses().forEach((name, id) -> classes.put(name, new ClassFile(classFile(classesRoot, name), id)));
+        classHashes.getTestClasses().forEach((name, id) -> classes.put(name, new ClassFile(classFile(testClassesRoot, name), id)));
+
+        MessageDigest digest = sha256();
+        update(digest, environment);
+        hashResources(digest, "M", classesRoot);
+        hashResources(digest, "T", testClassesRoot);
+        this.baseHash = HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static TestCacheKeys compute(ProjectPathResolver pathResolver, ClassHashes classHashes, String environment) throws IOException {
+        return new TestCacheKeys(pathResolver, classHashes, environment);
+    }
+
+    // Every test class the JUnit Platform could find when scanning test-classes
+    public Set<String> getTestClasses() throws IOException {
+        Set<String> testClasses = new TreeSet<>();
+        for (Map.Entry<String, ClassFile> entry : classes.entrySet()) {
+            if (isTestClass(entry.getKey())) {
+                testClasses.add(entry.getKey());
+            }
+        }
+        return testClasses;
+    }
+
+    public boolean isTestClass(String className) throws IOException {
+        ClassFile file = classes.get(className);
+        return file != null && file.path().startsWith(testClassesRoot) && ClassReferences.read(file.path()).runnable();
+    }
+
+    // The test class whose run reports tests of the given class: itself, or the nearest enclosing test class for
+    // @Nested classes. Null when the class is not part of this project's test classes
+    public String testClassOf(String className) throws IOException {
+        String candidate = className;
+        while (!isTestClass(candidate)) {
+            int dollar = candidate.lastIndexOf('$');
+            if (dollar < 0) {
+                return null;
+            }
+            candidate = candidate.substring(0, dollar);
+        }
+        return candidate;
+    }
+
+    // Method selections go into the key, so "FooTest#a" and "FooTest" are cached separately
+    public String key(String testClass, String selector) throws IOException {
+        MessageDigest digest = sha256();
+        update(digest, baseHash);
+        update(digest, selector);
+        for (String name : dependencies(testClass)) {
+            update(digest, name + " " + Long.toHexString(classes.get(name).classId()));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // The test class with its nested classes and every project class reachable from them
+    private Set<String> dependencies(String testClass) throws IOException {
+        Set<String> reached = new TreeSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        for (String name : classes.keySet()) {
+            if (name.equals(testClass) || name.startsWith(testClass + "$")) {
+                reached.add(name);
+                pending.add(name);
+            }
+        }
+        while (!pending.isEmpty()) {
+            for (String reference : ClassReferences.read(classes.get(pending.poll()).path()).references()) {
+                if (classes.containsKey(reference)) {
+                    if (reached.add(reference)) {
+                        pending.add(reference);
+                    }
+                } else if (SCANNING_FRAMEWORKS.stream().anyMatch(reference::startsWith)) {
+                    return new TreeSet<>(classes.keySet());
+                }
+            }
+        }
+        return reached;
+    }
+
+    // Resources end up on the test classpath next to the classes; any change to one invalidates every key
+    private static void hashResources(MessageDigest digest, String kind, Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        Map<String, Long> resources = new TreeMap<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (!file.getFileName().toString().endsWith(".class")) {
+                    resources.put(root.relativize(file).toString().replace('\\', '/'), hashResource(file, attrs));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        resources.forEach((name, checksum) -> update(digest, kind + " " + name + " " + Long.toHexString(checksum)));
+    }
+
+    private static long hashResource(Path file, BasicFileAttributes attrs) throws IOException {
+        long size = attrs.size();
+        long modified = attrs.lastModifiedTime().toMillis();
+        ResourceHash cached = RESOURCE_HASH_CACHE.get(file);
+        if (cached != null && cached.size() == size && cached.modified() == modified) {
+            return cached.checksum();
+        }
+        long checksum = CRC64.classId(Files.readAllBytes(file));
+        RESOURCE_HASH_CACHE.put(file, new ResourceHash(size, modified, checksum));
+        return checksum;
+    }
+
+    private static Path classFile(Path root, String className) {
+        return root.resolve(className.replace('.', '/') + ".class");
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record ClassFile(Path path, long classId) {
+    }
+
+    private record ResourceHash(long size, long modified, long checksum) {
+    }
+}
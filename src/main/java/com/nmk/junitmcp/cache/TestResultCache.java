@@ -0,0 +1,210 @@
+package com.nmk.junitmcp.cache;
+
+import com.nmk.junitmcp.dto.TestResult;
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Size-bounded store of test class outcomes, one file per key. The least recently used entries are evicted first;
+// the order survives restarts through the files' mtimes, which every hit bumps.
+//
+//   <format> <result count> (<test> <status> <durationMs> <error?>)*   followed by JaCoCo exec data: one session
+//   "*" with the class's coverage, then one session per test id
+public class TestResultCache {
+    private static final int FORMAT = 1;
+    private static final String SUFFIX = ".entry";
+    private static final String CLASS_SESSION = "*";
+
+    private final Path directory;
+    private final long maxBytes;
+    // Entry sizes in access order, least recently used first
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private TestResultCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    public static TestResultCache open(Path directory, long maxBytes) throws IOException {
+        TestResultCache cache = new TestResultCache(directory, maxBytes);
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).toList();
+        }
+        List<Map.Entry<Path, FileTime>> byAge = new ArrayList<>();
+        for (Path file : files) {
+            byAge.add(Map.entry(file, Files.getLastModifiedTime(file)));
+        }
+        byAge.sort(Map.Entry.comparingByValue(Comparator.naturalOrder()));
+        for (Map.Entry<Path, FileTime> file : byAge) {
+            String name = file.getKey().getFileName().toString();
+            long size = Files.size(file.getKey());
+            cache.entries.put(name.substring(0, name.length() - SUFFIX.length()), size);
+            cache.totalBytes += size;
+        }
+        cache.evict();
+        return cache;
+    }
+
+    public synchronized Optional<CachedTestClass> get(String key) {
+        if (entries.get(key) == null) {
+            return Optional.empty();
+        }
+        Path file = entryFile(key);
+        try {
+            CachedTestClass entry = read(file);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return Optional.of(entry);
+        } catch (IOException e) {
+            // Deleted behind our back or cut short; treat as a miss and let the next run replace it
+            remove(key);
+            return Optional.empty();
+        }
+    }
+
+    public synchronized void put(String key, CachedTestClass entry) throws IOException {
+        Path file = entryFile(key);
+        Path temp = directory.resolve(key + ".tmp");
+        write(temp, entry);
+        long size = Files.size(temp);
+        if (size > maxBytes) {
+            Files.delete(temp);
+            return;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Long previous = entries.put(key, size);
+        totalBytes += size - (previous != null ? previous : 0);
+        evict();
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getSize() {
+        return totalBytes;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.getValue();
+            deleteQuietly(entryFile(eldest.getKey()));
+        }
+    }
+
+    private void remove(String key) {
+        Long size = entries.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        deleteQuietly(entryFile(key));
+    }
+
+    private Path entryFile(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+
+    private static void write(Path file, CachedTestClass entry) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(FORMAT);
+            out.writeInt(entry.results().size());
+            for (TestResult result : entry.results()) {
+                writeString(out, result.getTest());
+                writeString(out, result.getStatus());
+                out.writeLong(result.getDurationMs());
+                out.writeBoolean(result.getError() != null);
+                if (result.getError() != null) {
+                    writeString(out, result.getError());
+                }
+            }
+
+            ExecutionDataWriter writer = new ExecutionDataWriter(out);
+            writer.visitSessionInfo(new SessionInfo(CLASS_SESSION, 0, 0));
+            entry.coverage().accept(writer);
+            for (CachedTestClass.TestData test : entry.testCoverage()) {
+                writer.visitSessionInfo(new SessionInfo(test.testId(), 0, 0));
+                test.data().accept(writer);
+            }
+        }
+    }
+
+    private static CachedTestClass read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FORMAT) {
+                throw new IOException("Unsupported cache entry format " + file);
+            }
+            int count = in.readInt();
+            List<TestResult> results = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                TestResult result = new TestResult();
+                result.setTest(readString(in));
+                result.setStatus(readString(in));
+                result.setDurationMs(in.readLong());
+                if (in.readBoolean()) {
+                    result.setError(readString(in));
+                }
+                results.add(result);
+            }
+
+            ExecutionDataStore coverage = new ExecutionDataStore();
+            List<CachedTestClass.TestData> testCoverage = new ArrayList<>();
+            ExecutionDataStore[] current = {coverage};
+            ExecutionDataReader reader = new ExecutionDataReader(in);
+            reader.setSessionInfoVisitor(session -> {
+                if (!CLASS_SESSION.equals(session.getId())) {
+                    current[0] = new ExecutionDataStore();
+                    testCoverage.add(new CachedTestClass.TestData(session.getId(), current[0]));
+                }
+            });
+            reader.setExecutionDataVisitor(data -> current[0].visitClassExecution(data));
+            reader.read();
+            return new CachedTestClass(results, coverage, testCoverage);
+        }
+    }
+
+    // Failure messages carry whole stack traces, longer than writeUTF allows
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Not tracked any more either way; the next open picks it up again
+        }
+    }
+}
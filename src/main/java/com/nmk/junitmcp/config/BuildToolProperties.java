@@ -0,0 +1,19 @@
+package com.nmk.junitmcp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "junit-mcp.build-tools")
+public class BuildToolProperties {
+    // Maven daemon client, used when found on the PATH; empty always starts a cold mvn
+    private String mavenDaemon = "mvnd";
+    // Gradle builds go through the Tooling API to a warm daemon; false starts gradlew/gradle per build instead
+    private boolean gradleToolingApi = true;
+    // Changes limited to .java sources are compiled in this JVM with javac instead of running the build tool
+    private boolean fastCompile = true;
+    // External runs start the JUnit Platform console launcher with the resolved test classpath instead of running the
+    // build tool's test task. Off by default: Surefire and Gradle test task settings (argLine, system properties,
+    // includes) do not apply to such runs
+    private boolean directLaunch = false;
+}
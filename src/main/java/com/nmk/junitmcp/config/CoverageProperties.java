@@ -0,0 +1,22 @@
+package com.nmk.junitmcp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "junit-mcp.coverage")
+public class CoverageProperties {
+    // How external runs hand over coverage: FILE reads the exec files they leave behind, TCP has their JaCoCo agents
+    // connect to this server and stream execution data into memory
+    private Transport transport = Transport.FILE;
+    // TCP only: how often running agents are asked for a dump, which is analyzed into a coverage snapshot
+    private Duration snapshotInterval = Duration.ofSeconds(10);
+    // TCP only: how long to wait after the test processes exit for their agents' final dump
+    private Duration dumpTimeout = Duration.ofSeconds(5);
+
+    public enum Transport {
+        FILE, TCP
+    }
+}
@@ -0,0 +1,15 @@
+package com.nmk.junitmcp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "junit-mcp.history")
+public class HistoryProperties {
+    // Outside the build directories so a clean build does not wipe it
+    private String directory = Path.of(System.getProperty("user.home"), ".junit-mcp", "history").toString();
+    private Duration compactionInterval = Duration.ofMinutes(10);
+}
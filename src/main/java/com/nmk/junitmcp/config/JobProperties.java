@@ -0,0 +1,13 @@
+package com.nmk.junitmcp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "junit-mcp.jobs")
+public class JobProperties {
+    private int maxConcurrentRuns = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private Duration retention = Duration.ofHours(1);
+}
@@ -0,0 +1,15 @@
+package com.nmk.junitmcp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "junit-mcp.logs")
+public class LogProperties {
+    // Latest lines of each run kept on heap; older ones are read back from the log file
+    private int tailLines = 200;
+    private int maxPageLines = 5000;
+    private Duration retention = Duration.ofHours(1);
+}
@@ -0,0 +1,18 @@
+package com.nmk.junitmcp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "junit-mcp.processes")
+public class ProcessProperties {
+    // Wall-clock limits per build-tool invocation, counted from process start
+    private Duration buildTimeout = Duration.ofMinutes(5);
+    private Duration testTimeout = Duration.ofMinutes(10);
+    // A build that prints nothing for this long is taken as hung, e.g. a test stuck in a deadlock
+    private Duration idleTimeout = Duration.ofMinutes(5);
+    // How often deadlines are checked and the process tree is sampled for CPU time and child count
+    private Duration sampleInterval = Duration.ofSeconds(1);
+}
@@ -0,0 +1,16 @@
+package com.nmk.junitmcp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+@Data
+@ConfigurationProperties(prefix = "junit-mcp.result-cache")
+public class ResultCacheProperties {
+    private boolean enabled = true;
+    // Shared by all projects; entries are keyed by content, not by project
+    private String directory = Path.of(System.getProperty("user.home"), ".junit-mcp", "result-cache").toString();
+    private DataSize maxSize = DataSize.ofMegabytes(512);
+}
@@ -0,0 +1,12 @@
+package com.nmk.junitmcp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "junit-mcp.sharding")
+public class ShardingProperties {
+    private int maxShards = Runtime.getRuntime().availableProcessors();
+    // Assumed for test classes that have not run yet
+    private long defaultClassDurationMs = 1000L;
+}
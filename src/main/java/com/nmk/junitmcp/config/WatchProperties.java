@@ -0,0 +1,15 @@
+package com.nmk.junitmcp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "junit-mcp.watch")
+public class WatchProperties {
+    // Quiet period after the last file change before a run starts, so a save of many files triggers one run
+    private Duration debounce = Duration.ofMillis(300);
+    // Sessions nobody has queried for this long are closed
+    private Duration idleTimeout = Duration.ofMinutes(30);
+}
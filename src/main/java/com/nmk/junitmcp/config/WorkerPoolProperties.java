@@ -0,0 +1,22 @@
+package com.nmk.junitmcp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "junit-mcp.worker-pool")
+public class WorkerPoolProperties {
+    private int maxWorkersPerProject = 2;
+    private int maxRunsPerWorker = 50;
+    private Duration idleTimeout = Duration.ofMinutes(10);
+    private Duration evictionInterval = Duration.ofMinutes(1);
+    private Duration startupTimeout = Duration.ofSeconds(30);
+    private List<String> jvmArgs = new ArrayList<>();
+    // worker.log in the work directory is rotated once it grows past this
+    private DataSize maxLogSize = DataSize.ofMegabytes(10);
+}
@@ -1,96 +1,186 @@
 package com.nmk.junitmcp.controller;
 
-import com.nmk.junitmcp.dto.CoverageResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nmk.junitmcp.dto.CoverageQuery;
+import com.nmk.junitmcp.dto.CoveringTests;
+import com.nmk.junitmcp.dto.LogPage;
+import com.nmk.junitmcp.dto.RunJob;
 import com.nmk.junitmcp.dto.RunRequest;
 import com.nmk.junitmcp.dto.RunResponse;
-import com.nmk.junitmcp.dto.TestResult;
-import com.nmk.junitmcp.junit_platform.CoverageAnalyzer;
-import com.nmk.junitmcp.service.ExternalProjectService;
-import com.nmk.junitmcp.service.ExternalTestRunner;
+import com.nmk.junitmcp.dto.TestCoverage;
+import com.nmk.junitmcp.dto.TestHistory;
+import com.nmk.junitmcp.dto.WatchSession;
+import com.nmk.junitmcp.junit_platform.ClassCoverage;
+import com.nmk.junitmcp.service.CoverageQueryService;
+import com.nmk.junitmcp.service.CoverageService;
+import com.nmk.junitmcp.service.RunJobService;
+import com.nmk.junitmcp.service.RunListener;
+import com.nmk.junitmcp.service.RunLogService;
+import com.nmk.junitmcp.service.TestCoverageIndexService;
+import com.nmk.junitmcp.service.TestHistoryService;
+import com.nmk.junitmcp.service.WatchSessionService;
 import com.nmk.junitmcp.util.ProjectPathResolver;
 import lombok.RequiredArgsConstructor;
-import org.jacoco.core.tools.ExecFileLoader;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.SortedMap;
 
 @RestController
 @RequestMapping("/mcp/junit")
 @RequiredArgsConstructor
 public class JUnitMcpController {
-    private final ExternalProjectService externalProjectService;
-    private final ExternalTestRunner externalTestRunner;
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+
+    private final RunJobService runJobService;
+    private final TestCoverageIndexService testCoverageIndexService;
+    private final TestHistoryService testHistoryService;
+    private final RunLogService runLogService;
+    private final WatchSessionService watchSessionService;
+    private final CoverageService coverageService;
+    private final CoverageQueryService coverageQueryService;
+    private final ObjectMapper objectMapper;
     
     @PostMapping
     public RunResponse runTests(@RequestBody RunRequest request) throws Exception {
-        ProjectPathResolver pathResolver = new ProjectPathResolver(request.getProjectPath());
-
-        // Use external process approach for external projects
-        return runExternalProjectTests(request, pathResolver);
-    }
-
-    private RunResponse runExternalProjectTests(RunRequest request, ProjectPathResolver pathResolver) throws Exception {
-        // 1. Build external project if needed
-        externalProjectService.buildProject(pathResolver);
-        
-        // 2. Run tests via external process
-        List<TestResult> testResults = externalTestRunner.runTests(pathResolver, request.getTests());
-        
-        // 3. Load coverage data
-        Map<String, CoverageResult> coverageMap = loadCoverageData(pathResolver);
-        
-        // 4. Create response
-        RunResponse response = new RunResponse();
-        response.setResults(testResults);
-        response.setCoverage(coverageMap);
-        return response;
+        return runJobService.runAndWait(request, RunListener.NONE);
     }
-    
-    private Map<String, CoverageResult> loadCoverageData(ProjectPathResolver pathResolver) throws IOException {
-        Map<String, CoverageResult> coverageMap = new HashMap<>();
-        ExecFileLoader loader = new ExecFileLoader();
-        boolean foundCoverage = false;
-        
-        // Try primary JaCoCo exec file location
-        String execFilePath = pathResolver.getJaCoCoExecPath();
-        File execFile = new File(execFilePath);
-        if (execFile.exists()) {
-            loader.load(execFile);
-            foundCoverage = true;
-        }
-        
-        // For Gradle, also try alternative locations
-        if (pathResolver.getProjectType() == ProjectPathResolver.ProjectType.GRADLE) {
-            // Try test.exec in jacoco folder
-            String altPath1 = pathResolver.getProjectPath() + File.separator + "build" + File.separator + "jacoco" + File.separator + "test.exec";
-            File altFile1 = new File(altPath1);
-            if (altFile1.exists()) {
-                loader.load(altFile1);
-                foundCoverage = true;
-            }
-            
-            // Try jacoco.exec in build folder
-            String altPath2 = pathResolver.getProjectPath() + File.separator + "build" + File.separator + "jacoco.exec";
-            File altFile2 = new File(altPath2);
-            if (altFile2.exists()) {
-                loader.load(altFile2);
-                foundCoverage = true;
-            }
-        }
-        
-        if (foundCoverage) {
-            CoverageAnalyzer analyzer = new CoverageAnalyzer(loader, pathResolver.getClassesPath());
-            coverageMap = analyzer.analyze();
+
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTests(@RequestBody RunRequest request) {
+        SseEmitter emitter = new SseEmitter(0L);
+        RunEventStream events = new RunEventStream(event ->
+                emitter.send(SseEmitter.event().name(event.getType()).data(event.getData())));
+
+        Thread.ofVirtual().name("run-stream").start(() -> {
+            streamRun(request, events);
+            emitter.complete();
+        });
+        return emitter;
+    }
+
+    @PostMapping(value = "/stream", produces = NDJSON_VALUE)
+    public StreamingResponseBody streamTestsNdjson(@RequestBody RunRequest request) {
+        return out -> {
+            RunEventStream events = new RunEventStream(event -> {
+                out.write(objectMapper.writeValueAsBytes(event));
+                out.write('\n');
+                out.flush();
+            });
+            streamRun(request, events);
+        };
+    }
+
+    @PostMapping("/jobs")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public RunJob submitJob(@RequestBody RunRequest request) {
+        return runJobService.submit(request);
+    }
+
+    @GetMapping("/jobs/{id}")
+    public RunJob getJob(@PathVariable String id) {
+        return runJobService.getJob(id).orElseThrow(() -> jobNotFound(id));
+    }
+
+    @GetMapping("/jobs/{id}/result")
+    public RunResponse getJobResult(@PathVariable String id) {
+        RunJob job = getJob(id);
+        return runJobService.getResult(id).orElseThrow(() ->
+                new ResponseStatusException(HttpStatus.CONFLICT, "Job " + id + " has no result, status is " + job.getStatus()));
+    }
+
+    @DeleteMapping("/jobs/{id}")
+    public RunJob cancelJob(@PathVariable String id) {
+        return runJobService.cancel(id).orElseThrow(() -> jobNotFound(id));
+    }
+
+    // Watches the project and re-runs the request in the background after every change
+    @PostMapping("/watches")
+    public WatchSession startWatch(@RequestBody RunRequest request) throws IOException {
+        return watchSessionService.register(request);
+    }
+
+    @GetMapping("/watches/{id}")
+    public WatchSession getWatch(@PathVariable String id) {
+        return watchSessionService.getSession(id).orElseThrow(() -> watchNotFound(id));
+    }
+
+    // The latest result; with wait it first waits for the run picking up the changes seen so far
+    @GetMapping("/watches/{id}/result")
+    public RunResponse getWatchResult(@PathVariable String id, @RequestParam(defaultValue = "true") boolean wait) throws Exception {
+        WatchSession watch = getWatch(id);
+        return watchSessionService.getResult(id, wait).orElseThrow(() ->
+                new ResponseStatusException(HttpStatus.CONFLICT, "Watch " + id + " has no result yet, status is " + watch.getStatus()));
+    }
+
+    @DeleteMapping("/watches/{id}")
+    public WatchSession stopWatch(@PathVariable String id) {
+        return watchSessionService.close(id).orElseThrow(() -> watchNotFound(id));
+    }
+
+    @GetMapping("/coverage-index/tests")
+    public TestCoverage getTestCoverage(@RequestParam String projectPath, @RequestParam String test) throws IOException {
+        return testCoverageIndexService.getTestCoverage(new ProjectPathResolver(projectPath), test).orElseThrow(() ->
+                new ResponseStatusException(HttpStatus.NOT_FOUND, "No per-test coverage recorded for " + test));
+    }
+
+    @GetMapping("/coverage-index/classes")
+    public CoveringTests getCoveringTests(@RequestParam String projectPath, @RequestParam String className) throws IOException {
+        return testCoverageIndexService.getCoveringTests(new ProjectPathResolver(projectPath), className).orElseThrow(() ->
+                new ResponseStatusException(HttpStatus.NOT_FOUND, "No per-test coverage recorded for " + projectPath));
+    }
+
+    // Filtered, paginated coverage of the project's latest run, written as it is serialized
+    @GetMapping(value = "/coverage", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody queryCoverage(CoverageQuery query) {
+        SortedMap<String, ClassCoverage> coverage = coverageService.getLatestCoverage(new ProjectPathResolver(query.getProjectPath()))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No coverage analyzed yet for " + query.getProjectPath()));
+        return out -> coverageQueryService.write(coverage, query, out);
+    }
+
+    // Pages through the build and test output of a run (RunResponse.logId), also while it is still running
+    @GetMapping("/logs/{id}")
+    public LogPage getLog(@PathVariable String id, @RequestParam(defaultValue = "0") long from,
+                          @RequestParam(defaultValue = "500") int count) throws IOException {
+        return runLogService.getLines(id, from, count).orElseThrow(() ->
+                new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown or expired log " + id));
+    }
+
+    // Per-test outcomes across runs, failing and flaky tests first; tests narrows it like RunRequest.tests
+    @GetMapping("/history")
+    public List<TestHistory> getHistory(@RequestParam String projectPath,
+                                        @RequestParam(required = false) List<String> tests) throws IOException {
+        return testHistoryService.getHistory(new ProjectPathResolver(projectPath), tests);
+    }
+
+    private static ResponseStatusException jobNotFound(String id) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown job " + id);
+    }
+
+    private static ResponseStatusException watchNotFound(String id) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown watch " + id);
+    }
+
+    private void streamRun(RunRequest request, RunEventStream events) {
+        try {
+            events.complete(runJobService.runAndWait(request, events));
+        } catch (Exception e) {
+            events.error(e);
         }
-        
-        return coverageMap;
     }
 
 }
@@ -0,0 +1,82 @@
+package com.nmk.junitmcp.controller;
+
+import com.nmk.junitmcp.dto.CoverageResult;
+import com.nmk.junitmcp.dto.RunEvent;
+import com.nmk.junitmcp.dto.RunPhase;
+import com.nmk.junitmcp.dto.RunResponse;
+import com.nmk.junitmcp.dto.RunSummary;
+import com.nmk.junitmcp.dto.TestResult;
+import com.nmk.junitmcp.service.RunListener;
+
+import java.io.IOException;
+import java.util.Map;
+
+// Turns run progress into events for a streaming response; counts results instead of keeping them
+class RunEventStream implements RunListener {
+
+    @FunctionalInterface
+    interface EventSink {
+        void send(RunEvent event) throws IOException;
+    }
+
+    private final EventSink sink;
+    private final RunSummary summary = new RunSummary();
+    private volatile boolean closed;
+
+    RunEventStream(EventSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public void phaseStarted(RunPhase phase) {
+        send("phase", phase);
+    }
+
+    @Override
+    public void buildProgress(String line) {
+        send("build", line);
+    }
+
+    @Override
+    public synchronized void testFinished(TestResult result) {
+        summary.setTotal(summary.getTotal() + 1);
+        switch (result.getStatus()) {
+            case "PASSED" -> summary.setPassed(summary.getPassed() + 1);
+            case "FAILED" -> summary.setFailed(summary.getFailed() + 1);
+            default -> summary.setSkipped(summary.getSkipped() + 1);
+        }
+        send("test", result);
+    }
+
+    @Override
+    public void coverageReady(Map<String, CoverageResult> coverage) {
+        send("coverage", coverage);
+    }
+
+    @Override
+    public void coverageSnapshot(CoverageResult totals) {
+        send("coverage-snapshot", totals);
+    }
+
+    void complete(RunResponse response) {
+        summary.setBuildMode(response.getBuildMode());
+        summary.setMode(response.getMode());
+        send("complete", summary);
+    }
+
+    void error(Exception e) {
+        send("error", e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+    }
+
+    private synchronized void send(String type, Object data) {
+        if (closed) {
+            return;
+        }
+        try {
+            sink.send(new RunEvent(type, data));
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; let the run finish without it
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.nmk.junitmcp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One build-tool invocation of a run; startupMs is what a warm daemon saves
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BuildTiming {
+    private RunPhase phase;
+    private String tool;
+    private long startupMs;
+    private long executionMs;
+    private long cpuMs; // build process and its forked JVMs; 0 when the build ran inside a daemon
+    private int peakChildProcesses;
+}
@@ -0,0 +1,10 @@
+package com.nmk.junitmcp.dto;
+
+import lombok.Data;
+
+@Data
+public class ClassProbeCoverage {
+    private String className;
+    private int coveredProbes;
+    private int totalProbes;
+}
@@ -0,0 +1,13 @@
+package com.nmk.junitmcp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CoverageCacheStats {
+    private int hits;
+    private int misses;
+}
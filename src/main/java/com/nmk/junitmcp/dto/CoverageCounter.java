@@ -0,0 +1,6 @@
+package com.nmk.junitmcp.dto;
+
+// Same names as JaCoCo's counter entities
+public enum CoverageCounter {
+    LINE, BRANCH, INSTRUCTION, METHOD, COMPLEXITY
+}
@@ -0,0 +1,17 @@
+package com.nmk.junitmcp.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+// Query parameters of GET /mcp/junit/coverage
+@Data
+public class CoverageQuery {
+    private String projectPath;
+    private List<String> packages; // package prefixes, e.g. "com.example.service" also matches its subpackages
+    private List<String> classes; // class patterns like RunRequest.tests: simple or qualified names, '*' wildcards
+    private List<CoverageCounter> counters = List.of(CoverageCounter.LINE);
+    private boolean lines; // include the covered/missed line bitsets of each class
+    private int offset;
+    private int limit = 100;
+}
@@ -0,0 +1,11 @@
+package com.nmk.junitmcp.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CoveringTests {
+    private String className;
+    private List<String> tests;
+}
@@ -0,0 +1,8 @@
+package com.nmk.junitmcp.dto;
+
+public enum ExecutionMode {
+    EXTERNAL,
+    // Runs on this server's JUnit Platform and Jupiter, so only projects on the same JUnit release can use it
+    IN_PROCESS,
+    WORKER
+}
@@ -0,0 +1,5 @@
+package com.nmk.junitmcp.dto;
+
+public enum JobStatus {
+    QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED
+}
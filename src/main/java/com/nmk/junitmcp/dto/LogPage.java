@@ -0,0 +1,14 @@
+package com.nmk.junitmcp.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class LogPage {
+    private String logId;
+    private long from; // index of the first returned line
+    private List<String> lines;
+    private long totalLines; // lines written so far
+    private boolean complete; // the run has finished, totalLines is final
+}
@@ -0,0 +1,11 @@
+package com.nmk.junitmcp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class RunEvent {
+    private String type; // phase, build, test, coverage-snapshot, coverage, complete or error
+    private Object data;
+}
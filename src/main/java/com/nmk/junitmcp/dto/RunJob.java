@@ -0,0 +1,16 @@
+package com.nmk.junitmcp.dto;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class RunJob {
+    private String id;
+    private String projectPath;
+    private JobStatus status;
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error;
+}
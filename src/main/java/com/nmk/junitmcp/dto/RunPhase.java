@@ -0,0 +1,5 @@
+package com.nmk.junitmcp.dto;
+
+public enum RunPhase {
+    BUILD, TEST, COVERAGE
+}
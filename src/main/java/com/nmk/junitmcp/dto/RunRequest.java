@@ -8,4 +8,13 @@ import java.util.List;
 public class RunRequest {
     private List<String> tests; // e.g. ["com.example.UserServiceTest#shouldCreateUser"]
     private String projectPath; // optional path to external project directory
+    private ExecutionMode mode; // defaults to EXTERNAL, which multi-module builds need; IN_PROCESS needs the project on this server's JUnit release
+    private List<String> modules; // EXTERNAL only: build and test just these modules, e.g. ["core"] or [":services:api"]; Maven also builds what they depend on
+    private boolean affectedOnly; // run only tests affected by classes changed since the last passing run
+    private int shards; // EXTERNAL only: split the run across this many parallel build processes
+    private boolean failedFirst; // run test classes with tests that failed last time, or changed since the last passing run, before the rest
+    private boolean failFast; // stop the run at the first failed test
+    private boolean omitClassCoverage; // leave RunResponse.coverage out; GET /mcp/junit/coverage queries it instead
+    private boolean perTestCoverage; // record coverage per test into the project's index (IN_PROCESS and WORKER only)
+    private List<String> uncachedTests; // IN_PROCESS and WORKER cache unchanged test classes; these always run, ["*"] bypasses the cache
 }
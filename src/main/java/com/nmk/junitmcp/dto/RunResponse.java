@@ -8,5 +8,14 @@ import java.util.Map;
 @Data
 public class RunResponse {
     private List<TestResult> results;
-    private Map<String, CoverageResult> coverage;
+    private int cachedTests; // results replayed from the result cache
+    private Map<String, CoverageResult> coverage; // line coverage per class, unless RunRequest.omitClassCoverage
+    private CoverageResult coverageTotals; // line coverage of all classes together
+    private CoverageCacheStats coverageCache;
+    private TestImpact impact; // set for affectedOnly runs
+    private BuildMode buildMode;
+    private String logId; // full build and test output: GET /mcp/junit/logs/{logId}
+    private List<BuildTiming> buildTimings; // one entry per build-tool invocation
+    private Map<RunPhase, Long> phaseDurationsMs; // wall time per phase; repeated phases add up
+    private ExecutionMode mode;
 }
@@ -0,0 +1,13 @@
+package com.nmk.junitmcp.dto;
+
+import lombok.Data;
+
+@Data
+public class RunSummary {
+    private BuildMode buildMode;
+    private ExecutionMode mode;
+    private int total;
+    private int passed;
+    private int failed;
+    private int skipped;
+}
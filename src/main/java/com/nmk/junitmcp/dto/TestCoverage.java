@@ -0,0 +1,11 @@
+package com.nmk.junitmcp.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class TestCoverage {
+    private String test;
+    private List<ClassProbeCoverage> classes;
+}
@@ -0,0 +1,18 @@
+package com.nmk.junitmcp.dto;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class TestHistory {
+    private String test;
+    private int runs;
+    private int failures;
+    private String lastStatus;
+    private Instant lastRunAt;
+    private Instant lastFailedAt;
+    private long averageDurationMs;
+    private String recentOutcomes; // oldest first, P = passed, F = failed
+    private double flakiness; // share of recent runs whose outcome differed from the run before
+}
@@ -0,0 +1,12 @@
+package com.nmk.junitmcp.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class TestImpact {
+    private List<String> changedClasses;
+    private List<String> selectedTests; // null when the full suite ran
+    private String fallbackReason; // why the full suite ran instead, if it did
+}
@@ -8,4 +8,5 @@ public class TestResult {
     private String status;
     private String error;
     private long durationMs;
+    private boolean cached; // replayed from the result cache instead of run
 }
@@ -0,0 +1,16 @@
+package com.nmk.junitmcp.dto;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class WatchSession {
+    private String id;
+    private String projectPath;
+    private WatchStatus status; // CURRENT once the latest result covers every change seen so far
+    private int runs; // background runs finished so far
+    private Instant lastChangeAt; // latest source or build file change
+    private Instant lastRunFinishedAt;
+    private String error; // why the latest run failed, e.g. a compilation error
+}
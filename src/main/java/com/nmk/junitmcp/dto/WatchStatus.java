@@ -0,0 +1,5 @@
+package com.nmk.junitmcp.dto;
+
+public enum WatchStatus {
+    PENDING, RUNNING, CURRENT, FAILED, CLOSED
+}
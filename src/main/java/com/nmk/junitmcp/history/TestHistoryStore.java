@@ -0,0 +1,187 @@
+package com.nmk.junitmcp.history;
+
+import com.nmk.junitmcp.dto.TestHistory;
+import com.nmk.junitmcp.dto.TestResult;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Append-only log of test outcomes for one project. Each run appends one line per executed test and compaction
+// folds the log into one summary line per test; the aggregates are kept in memory and rebuilt from the file on open.
+//
+//   R <timestamp> <P|F> <durationMs> <test>
+//   S <runs> <failures> <P|F> <lastRunAt> <lastFailedAt> <averageDurationMs> <recentOutcomes> <test>
+public class TestHistoryStore implements Closeable {
+    // Outcomes of the most recent runs are kept as bits, 1 = failed, newest in the lowest bit
+    private static final int RECENT_RUNS = 32;
+    // Weight of the newest duration in the moving average
+    private static final double DURATION_WEIGHT = 0.3;
+
+    private final Path file;
+    private final Map<String, Stats> stats = new HashMap<>();
+    private BufferedWriter writer;
+    private long records;
+
+    private TestHistoryStore(Path file) {
+        this.file = file;
+    }
+
+    public static TestHistoryStore open(Path file) throws IOException {
+        TestHistoryStore store = new TestHistoryStore(file);
+        Files.createDirectories(file.getParent());
+        if (Files.isRegularFile(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    store.replay(line);
+                }
+            }
+        }
+        store.writer = openWriter(file);
+        return store;
+    }
+
+    // Skipped tests say nothing about health or duration, so only passed and failed outcomes are recorded
+    public synchronized void append(Collection<TestResult> results, long timestamp) throws IOException {
+        for (TestResult result : results) {
+            boolean failed = "FAILED".equals(result.getStatus());
+            if (!failed && !"PASSED".equals(result.getStatus())) {
+                continue;
+            }
+            String test = sanitize(result.getTest());
+            writer.write(String.join("\t", "R", Long.toString(timestamp), failed ? "F" : "P",
+                    Long.toString(result.getDurationMs()), test));
+            writer.newLine();
+            stats.computeIfAbsent(test, key -> new Stats()).record(failed, result.getDurationMs(), timestamp);
+            records++;
+        }
+        writer.flush();
+    }
+
+    public synchronized Optional<TestHistory> get(String test) {
+        return Optional.ofNullable(stats.get(test)).map(entry -> entry.toHistory(test));
+    }
+
+    public synchronized List<TestHistory> getAll() {
+        List<TestHistory> history = new ArrayList<>(stats.size());
+        stats.forEach((test, entry) -> history.add(entry.toHistory(test)));
+        return history;
+    }
+
+    public synchronized boolean needsCompaction() {
+        return records > 2L * stats.size() + 1024;
+    }
+
+    public synchronized void compact() throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp)) {
+            for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+                Stats s = entry.getValue();
+                out.write(String.join("\t", "S", Integer.toString(s.runs), Integer.toString(s.failures),
+                        s.lastFailed ? "F" : "P", Long.toString(s.lastRunAt), Long.toString(s.lastFailedAt),
+                        Long.toString(s.averageDurationMs), Integer.toString(s.recentOutcomes), entry.getKey()));
+                out.newLine();
+            }
+        }
+        writer.close();
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        writer = openWriter(file);
+        records = stats.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private void replay(String line) {
+        String[] fields = line.split("\t");
+        try {
+            if (fields.length == 5 && fields[0].equals("R")) {
+                stats.computeIfAbsent(fields[4], key -> new Stats())
+                        .record(fields[2].equals("F"), Long.parseLong(fields[3]), Long.parseLong(fields[1]));
+            } else if (fields.length == 9 && fields[0].equals("S")) {
+                Stats s = new Stats();
+                s.runs = Integer.parseInt(fields[1]);
+                s.failures = Integer.parseInt(fields[2]);
+                s.lastFailed = fields[3].equals("F");
+                s.lastRunAt = Long.parseLong(fields[4]);
+                s.lastFailedAt = Long.parseLong(fields[5]);
+                s.averageDurationMs = Long.parseLong(fields[6]);
+                s.recentOutcomes = Integer.parseInt(fields[7]);
+                stats.put(fields[8], s);
+            } else {
+                return;
+            }
+            records++;
+        } catch (NumberFormatException e) {
+            // A line torn by a crash mid-write; everything before it is still valid
+        }
+    }
+
+    private static BufferedWriter openWriter(Path file) throws IOException {
+        return Files.newBufferedWriter(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static String sanitize(String test) {
+        return test.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private static class Stats {
+        private int runs;
+        private int failures;
+        private boolean lastFailed;
+        private long lastRunAt;
+        private long lastFailedAt;
+        private long averageDurationMs;
+        private int recentOutcomes;
+
+        void record(boolean failed, long durationMs, long timestamp) {
+            averageDurationMs = runs == 0 ? durationMs
+                    : Math.round(DURATION_WEIGHT * durationMs + (1 - DURATION_WEIGHT) * averageDurationMs);
+            runs++;
+            recentOutcomes = (recentOutcomes << 1) | (failed ? 1 : 0);
+            lastFailed = failed;
+            lastRunAt = timestamp;
+            if (failed) {
+                failures++;
+                lastFailedAt = timestamp;
+            }
+        }
+
+        TestHistory toHistory(String test) {
+            int window = Math.min(runs, RECENT_RUNS);
+            StringBuilder outcomes = new StringBuilder(window);
+            for (int i = window - 1; i >= 0; i--) {
+                outcomes.append((recentOutcomes >>> i & 1) == 1 ? 'F' : 'P');
+            }
+            // Adjacent bits that differ are outcome flips between consecutive runs
+            int flips = window < 2 ? 0 : Integer.bitCount((recentOutcomes ^ (recentOutcomes >>> 1)) & (-1 >>> (33 - window)));
+
+            TestHistory history = new TestHistory();
+            history.setTest(test);
+            history.setRuns(runs);
+            history.setFailures(failures);
+            history.setLastStatus(lastFailed ? "FAILED" : "PASSED");
+            history.setLastRunAt(Instant.ofEpochMilli(lastRunAt));
+            history.setLastFailedAt(lastFailedAt > 0 ? Instant.ofEpochMilli(lastFailedAt) : null);
+            history.setAverageDurationMs(averageDurationMs);
+            history.setRecentOutcomes(outcomes.toString());
+            history.setFlakiness(window < 2 ? 0.0 : (double) flips / (window - 1));
+            return history;
+        }
+    }
+}
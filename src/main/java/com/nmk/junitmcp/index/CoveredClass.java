@@ -0,0 +1,27 @@
+package com.nmk.junitmcp.index;
+
+// Probes of one class hit by one test; probes is a little-endian bitset of probeCount bits
+public record CoveredClass(String className, long classId, int probeCount, long[] probes) {
+
+    public int getCoveredProbes() {
+        int covered = 0;
+        for (long word : probes) {
+            covered += Long.bitCount(word);
+        }
+        return covered;
+    }
+
+    static int wordCount(int probeCount) {
+        return (probeCount + 63) >>> 6;
+    }
+
+    static long[] toWords(boolean[] probes) {
+        long[] words = new long[wordCount(probes.length)];
+        for (int i = 0; i < probes.length; i++) {
+            if (probes[i]) {
+                words[i >>> 6] |= 1L << (i & 63);
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,182 @@
+package com.nmk.junitmcp.index;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.IntFunction;
+
+// Read-only view of a test coverage index file. The file is memory-mapped and only ever read with absolute gets, so
+// nothing proportional to the number of tests or classes lives on heap and one instance can be shared by all threads.
+//
+// Layout (all ints big-endian, offsets absolute):
+//   header        MAGIC, VERSION, testCount, classCount, then the offsets of the sections below
+//   class table   classCount x (long classId, int nameOffset, int probeCount, int firstPosting, int postingCount)
+//   test table    testCount x (int nameOffset, int recordOffset, int recordCount)
+//   class order   classCount x int, class indices sorted by name
+//   test order    testCount x int, test indices sorted by id
+//   postings      int test indices, grouped by class (the reverse mapping)
+//   strings       (int length, UTF-8 bytes)
+//   records       per test: recordCount x (int classIndex, int probeCount, long[] probe words)
+public class TestCoverageIndex {
+    static final int MAGIC = 0x4A4D4349;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 11 * Integer.BYTES;
+    static final int CLASS_ENTRY_SIZE = Long.BYTES + 4 * Integer.BYTES;
+    static final int TEST_ENTRY_SIZE = 3 * Integer.BYTES;
+
+    private final MappedByteBuffer buffer;
+    private final int testCount;
+    private final int classCount;
+    private final int classTable;
+    private final int testTable;
+    private final int classOrder;
+    private final int testOrder;
+    private final int postings;
+    private final int strings;
+
+    private TestCoverageIndex(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a test coverage index (or written by another version)");
+        }
+        testCount = buffer.getInt(8);
+        classCount = buffer.getInt(12);
+        classTable = buffer.getInt(16);
+        testTable = buffer.getInt(20);
+        classOrder = buffer.getInt(24);
+        testOrder = buffer.getInt(28);
+        postings = buffer.getInt(32);
+        strings = buffer.getInt(36);
+    }
+
+    public static TestCoverageIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            return new TestCoverageIndex(buffer);
+        }
+    }
+
+    public int getTestCount() {
+        return testCount;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public Optional<List<CoveredClass>> getCoverage(String testId) {
+        int test = find(testOrder, testCount, testId, this::testName);
+        return test < 0 ? Optional.empty() : Optional.of(readRecords(test));
+    }
+
+    public List<String> getTestsCovering(String className) {
+        int classIndex = find(classOrder, classCount, className, this::className);
+        if (classIndex < 0) {
+            return List.of();
+        }
+        int entry = classTable + classIndex * CLASS_ENTRY_SIZE;
+        int first = buffer.getInt(entry + 16);
+        int count = buffer.getInt(entry + 20);
+        List<String> tests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tests.add(testName(buffer.getInt(postings + (first + i) * Integer.BYTES)));
+        }
+        return tests;
+    }
+
+    // True when any test of the class or its nested classes was recorded ("testClass#..." or "testClass$...")
+    public boolean containsTestsOf(String testClass) {
+        String prefix = testClass + "#";
+        int low = 0;
+        int high = testCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (testName(buffer.getInt(testOrder + mid * Integer.BYTES)).compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        // '$' sorts right after '#', so nested classes follow the class's own tests
+        if (low == testCount) {
+            return false;
+        }
+        String first = testName(buffer.getInt(testOrder + low * Integer.BYTES));
+        return first.startsWith(prefix) || first.startsWith(testClass + "$");
+    }
+
+    String testName(int test) {
+        return readString(buffer.getInt(testTable + test * TEST_ENTRY_SIZE));
+    }
+
+    String className(int classIndex) {
+        return readString(buffer.getInt(classTable + classIndex * CLASS_ENTRY_SIZE + 8));
+    }
+
+    long classId(int classIndex) {
+        return buffer.getLong(classTable + classIndex * CLASS_ENTRY_SIZE);
+    }
+
+    // Parameterized invocations share an id and may have been recorded as separate records, so those are merged
+    List<CoveredClass> readRecords(int test) {
+        int entry = testTable + test * TEST_ENTRY_SIZE;
+        int position = buffer.getInt(entry + 4);
+        int count = buffer.getInt(entry + 8);
+
+        Map<Integer, CoveredClass> classes = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            int classIndex = buffer.getInt(position);
+            int probeCount = buffer.getInt(position + 4);
+            long[] words = new long[CoveredClass.wordCount(probeCount)];
+            for (int w = 0; w < words.length; w++) {
+                words[w] = buffer.getLong(position + 8 + w * Long.BYTES);
+            }
+            position += 8 + words.length * Long.BYTES;
+
+            CoveredClass previous = classes.get(classIndex);
+            if (previous != null && previous.probeCount() == probeCount) {
+                for (int w = 0; w < words.length; w++) {
+                    words[w] |= previous.probes()[w];
+                }
+            }
+            classes.put(classIndex, new CoveredClass(className(classIndex), classId(classIndex), probeCount, words));
+        }
+        return new ArrayList<>(classes.values());
+    }
+
+    private int find(int orderSection, int count, String name, IntFunction<String> names) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int index = buffer.getInt(orderSection + mid * Integer.BYTES);
+            int comparison = names.apply(index).compareTo(name);
+            if (comparison == 0) {
+                return index;
+            } else if (comparison < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return -1;
+    }
+
+    private String readString(int offset) {
+        int position = strings + offset;
+        byte[] bytes = new byte[buffer.getInt(position)];
+        buffer.get(position + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
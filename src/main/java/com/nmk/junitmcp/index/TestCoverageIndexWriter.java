@@ -0,0 +1,277 @@
+package com.nmk.junitmcp.index;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+// Builds a TestCoverageIndex file. Per-test records are spilled to a scratch file as tests come in, so recording a
+// run only keeps the class table and the reverse postings on heap
+public class TestCoverageIndexWriter implements Closeable {
+    private final Path spillFile;
+    private final DataOutputStream spill;
+    private long spillSize;
+    private final Map<String, Integer> classIndices = new HashMap<>();
+    private final List<ClassEntry> classes = new ArrayList<>();
+    private final Map<String, TestEntry> tests = new LinkedHashMap<>();
+
+    public TestCoverageIndexWriter(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        spillFile = Files.createTempFile(directory, "test-coverage", ".spill");
+        spill = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spillFile)));
+    }
+
+    public synchronized void addTest(String testId, ExecutionDataStore executionData) throws IOException {
+        TestEntry test = tests.computeIfAbsent(testId, id -> new TestEntry(id, tests.size()));
+        for (ExecutionData data : executionData.getContents()) {
+            if (data.hasHits()) {
+                int classIndex = classIndex(data.getName().replace('/', '.'), data.getId(), true);
+                writeRecord(test, classIndex, data.getProbes().length, CoveredClass.toWords(data.getProbes()));
+            }
+        }
+    }
+
+    // Carries over the tests of an older index that this run did not execute
+    public synchronized void addMissingTests(TestCoverageIndex previous) throws IOException {
+        for (int index = 0; index < previous.getTestCount(); index++) {
+            String testId = previous.testName(index);
+            if (tests.containsKey(testId)) {
+                continue;
+            }
+            TestEntry test = new TestEntry(testId, tests.size());
+            tests.put(testId, test);
+            for (CoveredClass covered : previous.readRecords(index)) {
+                int classIndex = classIndex(covered.className(), covered.classId(), false);
+                writeRecord(test, classIndex, covered.probeCount(), covered.probes());
+            }
+        }
+    }
+
+    public synchronized void finish(Path target) throws IOException {
+        spill.flush();
+        int testCount = tests.size();
+        int classCount = classes.size();
+        List<TestEntry> testList = new ArrayList<>(tests.values());
+
+        ByteArrayOutputStream stringBytes = new ByteArrayOutputStream();
+        DataOutputStream stringData = new DataOutputStream(stringBytes);
+        int[] classNames = new int[classCount];
+        for (int i = 0; i < classCount; i++) {
+            classNames[i] = writeString(stringData, classes.get(i).name);
+        }
+        int[] testNames = new int[testCount];
+        for (int i = 0; i < testCount; i++) {
+            testNames[i] = writeString(stringData, testList.get(i).id);
+        }
+
+        long postingCount = 0;
+        for (ClassEntry entry : classes) {
+            entry.sortPostings();
+            postingCount += entry.postingCount;
+        }
+
+        long classTable = TestCoverageIndex.HEADER_SIZE;
+        long testTable = classTable + (long) classCount * TestCoverageIndex.CLASS_ENTRY_SIZE;
+        long classOrder = testTable + (long) testCount * TestCoverageIndex.TEST_ENTRY_SIZE;
+        long testOrder = classOrder + (long) classCount * Integer.BYTES;
+        long postings = testOrder + (long) testCount * Integer.BYTES;
+        long strings = postings + postingCount * Integer.BYTES;
+        long records = strings + stringBytes.size();
+        if (records + spillSize > Integer.MAX_VALUE) {
+            throw new IOException("Test coverage index would exceed 2 GB (" + (records + spillSize) + " bytes)");
+        }
+
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16));
+             RandomAccessFile spillIn = new RandomAccessFile(spillFile.toFile(), "r")) {
+            out.writeInt(TestCoverageIndex.MAGIC);
+            out.writeInt(TestCoverageIndex.VERSION);
+            out.writeInt(testCount);
+            out.writeInt(classCount);
+            for (long offset : new long[]{classTable, testTable, classOrder, testOrder, postings, strings, records}) {
+                out.writeInt((int) offset);
+            }
+
+            int firstPosting = 0;
+            for (int i = 0; i < classCount; i++) {
+                ClassEntry entry = classes.get(i);
+                out.writeLong(entry.classId);
+                out.writeInt(classNames[i]);
+                out.writeInt(entry.probeCount);
+                out.writeInt(firstPosting);
+                out.writeInt(entry.postingCount);
+                firstPosting += entry.postingCount;
+            }
+
+            long recordOffset = records;
+            for (int i = 0; i < testCount; i++) {
+                TestEntry test = testList.get(i);
+                out.writeInt(testNames[i]);
+                out.writeInt((int) recordOffset);
+                out.writeInt(test.recordCount);
+                recordOffset += test.byteCount();
+            }
+
+            for (int index : sortedBy(classCount, i -> classes.get(i).name)) {
+                out.writeInt(index);
+            }
+            for (int index : sortedBy(testCount, i -> testList.get(i).id)) {
+                out.writeInt(index);
+            }
+            for (ClassEntry entry : classes) {
+                for (int p = 0; p < entry.postingCount; p++) {
+                    out.writeInt(entry.postings[p]);
+                }
+            }
+            stringBytes.writeTo(out);
+
+            // Records are copied segment by segment, grouping each test's records together
+            byte[] copyBuffer = new byte[1 << 16];
+            for (TestEntry test : testList) {
+                for (long[] segment : test.segments) {
+                    spillIn.seek(segment[0]);
+                    long remaining = segment[1];
+                    while (remaining > 0) {
+                        int read = spillIn.read(copyBuffer, 0, (int) Math.min(copyBuffer.length, remaining));
+                        out.write(copyBuffer, 0, read);
+                        remaining -= read;
+                    }
+                }
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        spill.close();
+        Files.deleteIfExists(spillFile);
+    }
+
+    private int classIndex(String name, long classId, boolean current) {
+        Integer index = classIndices.get(name);
+        if (index == null) {
+            index = classes.size();
+            classIndices.put(name, index);
+            classes.add(new ClassEntry(name, classId));
+        } else if (current) {
+            // The class was rebuilt since older records were written; the index reports its current id
+            classes.get(index).classId = classId;
+        }
+        return index;
+    }
+
+    private void writeRecord(TestEntry test, int classIndex, int probeCount, long[] words) throws IOException {
+        long start = spillSize;
+        spill.writeInt(classIndex);
+        spill.writeInt(probeCount);
+        for (long word : words) {
+            spill.writeLong(word);
+        }
+        spillSize += 8 + (long) words.length * Long.BYTES;
+        test.addSegment(start, spillSize - start);
+
+        ClassEntry entry = classes.get(classIndex);
+        entry.probeCount = Math.max(entry.probeCount, probeCount);
+        entry.addPosting(test.index);
+    }
+
+    private static int writeString(DataOutputStream out, String value) throws IOException {
+        int offset = out.size();
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        return offset;
+    }
+
+    private static int[] sortedBy(int count, IntFunction<String> name) {
+        return IntStream.range(0, count)
+                .boxed()
+                .sorted(Comparator.comparing(name::apply))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static class ClassEntry {
+        private final String name;
+        private long classId;
+        private int probeCount;
+        private int[] postings = new int[4];
+        private int postingCount;
+
+        ClassEntry(String name, long classId) {
+            this.name = name;
+            this.classId = classId;
+        }
+
+        void addPosting(int test) {
+            if (postingCount > 0 && postings[postingCount - 1] == test) {
+                return;
+            }
+            if (postingCount == postings.length) {
+                postings = Arrays.copyOf(postings, postingCount * 2);
+            }
+            postings[postingCount++] = test;
+        }
+
+        // Records of one test may be interleaved with others, which leaves duplicates out of order
+        void sortPostings() {
+            Arrays.sort(postings, 0, postingCount);
+            int unique = 0;
+            for (int i = 0; i < postingCount; i++) {
+                if (unique == 0 || postings[unique - 1] != postings[i]) {
+                    postings[unique++] = postings[i];
+                }
+            }
+            postingCount = unique;
+        }
+    }
+
+    private static class TestEntry {
+        private final String id;
+        private final int index;
+        private final List<long[]> segments = new ArrayList<>();
+        private int recordCount;
+
+        TestEntry(String id, int index) {
+            this.id = id;
+            this.index = index;
+        }
+
+        void addSegment(long start, long length) {
+            recordCount++;
+            long[] last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (last != null && last[0] + last[1] == start) {
+                last[1] += length;
+            } else {
+                segments.add(new long[]{start, length});
+            }
+        }
+
+        long byteCount() {
+            long bytes = 0;
+            for (long[] segment : segments) {
+                bytes += segment[1];
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.nmk.junitmcp.junit_platform;
+
+import com.nmk.junitmcp.dto.CoverageCounter;
+import com.nmk.junitmcp.dto.CoverageResult;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.ICoverageNode;
+import org.jacoco.core.analysis.ISourceNode;
+
+// Compact analysis result of one class: covered and missed counts per counter, and line status as two bitsets where
+// bit i stands for line firstLine + i. A partly covered line is set in both
+public record ClassCoverage(String name, int[] counters, int firstLine, long[] coveredLines, long[] missedLines) {
+
+    public int getCovered(CoverageCounter counter) {
+        return counters[counter.ordinal() * 2];
+    }
+
+    public int getMissed(CoverageCounter counter) {
+        return counters[counter.ordinal() * 2 + 1];
+    }
+
+    public String getPackageName() {
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(0, dot);
+    }
+
+    public CoverageResult toResult() {
+        int covered = getCovered(CoverageCounter.LINE);
+        int total = covered + getMissed(CoverageCounter.LINE);
+
+        CoverageResult cr = new CoverageResult();
+        cr.setCoveredLines(covered);
+        cr.setTotalLines(total);
+        cr.setCoveragePercent(total == 0 ? 0.0 : (covered * 100.0 / total));
+        return cr;
+    }
+
+    static ClassCoverage of(IClassCoverage cc) {
+        CoverageCounter[] kinds = CoverageCounter.values();
+        int[] counters = new int[kinds.length * 2];
+        for (CoverageCounter kind : kinds) {
+            ICounter counter = cc.getCounter(ICoverageNode.CounterEntity.valueOf(kind.name()));
+            counters[kind.ordinal() * 2] = counter.getCoveredCount();
+            counters[kind.ordinal() * 2 + 1] = counter.getMissedCount();
+        }
+
+        // Classes compiled without debug information have no line numbers
+        int firstLine = cc.getFirstLine();
+        if (firstLine == ISourceNode.UNKNOWN_LINE) {
+            return new ClassCoverage(cc.getName().replace("/", "."), counters, 0, new long[0], new long[0]);
+        }
+        int lineCount = cc.getLastLine() - firstLine + 1;
+        long[] covered = new long[(lineCount + 63) / 64];
+        long[] missed = new long[covered.length];
+        for (int i = 0; i < lineCount; i++) {
+            int status = cc.getLine(firstLine + i).getStatus();
+            if (status == ICounter.FULLY_COVERED || status == ICounter.PARTLY_COVERED) {
+                covered[i / 64] |= 1L << (i % 64);
+            }
+            if (status == ICounter.NOT_COVERED || status == ICounter.PARTLY_COVERED) {
+                missed[i / 64] |= 1L << (i % 64);
+            }
+        }
+        return new ClassCoverage(cc.getName().replace("/", "."), counters, firstLine, covered, missed);
+    }
+}
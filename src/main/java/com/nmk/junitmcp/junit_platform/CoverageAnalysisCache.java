@@ -0,0 +1,45 @@
+package com.nmk.junitmcp.junit_platform;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-class analysis results kept between runs of one classes directory. A class is keyed by its JaCoCo class id
+// (a CRC64 of the bytecode) and a result is reused while the probes recorded for that id are identical
+public class CoverageAnalysisCache {
+    // Class ids keyed by absolute path, reused while size and mtime are unchanged so untouched files are not re-read
+    private final Map<String, FileStamp> files = new ConcurrentHashMap<>();
+    private final Map<Long, AnalyzedClass> classes = new ConcurrentHashMap<>();
+
+    Long getClassId(String file, long size, long modified) {
+        FileStamp stamp = files.get(file);
+        return stamp != null && stamp.size() == size && stamp.modified() == modified ? stamp.classId() : null;
+    }
+
+    void putClassId(String file, long size, long modified, long classId) {
+        files.put(file, new FileStamp(size, modified, classId));
+    }
+
+    AnalyzedClass get(long classId, boolean[] probes) {
+        AnalyzedClass analyzed = classes.get(classId);
+        return analyzed != null && Arrays.equals(analyzed.probes(), probes) ? analyzed : null;
+    }
+
+    void put(long classId, AnalyzedClass analyzed) {
+        classes.put(classId, analyzed);
+    }
+
+    // Drops entries for files and classes that are gone, so the cache never outgrows the current classes directory
+    void retain(Set<String> liveFiles, Set<Long> liveClassIds) {
+        files.keySet().retainAll(liveFiles);
+        classes.keySet().retainAll(liveClassIds);
+    }
+
+    private record FileStamp(long size, long modified, long classId) {
+    }
+
+    // name and coverage are null for classes JaCoCo does not report, e.g. interfaces without code
+    record AnalyzedClass(boolean[] probes, String name, ClassCoverage coverage) {
+    }
+}
@@ -1,48 +1,127 @@
 package com.nmk.junitmcp.junit_platform;
 
-import com.nmk.junitmcp.dto.CoverageResult;
 import org.jacoco.core.analysis.Analyzer;
 import org.jacoco.core.analysis.CoverageBuilder;
-import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.data.CRC64;
 import org.jacoco.core.tools.ExecFileLoader;
 
-import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 public class CoverageAnalyzer {
-    private final ExecFileLoader loader;
+    private final ExecutionDataStore executionData;
     private final String classesDirectory;
+    private final CoverageAnalysisCache cache;
+    private final AtomicInteger cacheHits = new AtomicInteger();
+    private final AtomicInteger cacheMisses = new AtomicInteger();
 
     public CoverageAnalyzer(ExecFileLoader loader, String classesDirectory) {
-        this.loader = loader;
+        this(loader.getExecutionDataStore(), classesDirectory);
+    }
+
+    public CoverageAnalyzer(ExecutionDataStore executionData, String classesDirectory) {
+        this(executionData, classesDirectory, new CoverageAnalysisCache());
+    }
+
+    public CoverageAnalyzer(ExecutionDataStore executionData, String classesDirectory, CoverageAnalysisCache cache) {
+        this.executionData = executionData;
         this.classesDirectory = classesDirectory;
+        this.cache = cache;
     }
 
-    public Map<String, CoverageResult> analyze() throws IOException {
-        Map<String, CoverageResult> results = new HashMap<>();
+    public SortedMap<String, ClassCoverage> analyze() throws IOException {
+        Map<String, ClassCoverage> results = new ConcurrentHashMap<>();
+        Set<String> liveFiles = ConcurrentHashMap.newKeySet();
+        Set<Long> liveClassIds = ConcurrentHashMap.newKeySet();
 
-        CoverageBuilder coverageBuilder = new CoverageBuilder();
-        Analyzer analyzer = new Analyzer(loader.getExecutionDataStore(), coverageBuilder);
+        List<Path> classFiles;
+        try (Stream<Path> paths = Files.walk(Path.of(classesDirectory))) {
+            classFiles = paths.filter(path -> path.toString().endsWith(".class") && Files.isRegularFile(path)).toList();
+        }
 
-        // analyze compiled classes
-        File classesDir = new File(classesDirectory);
-        analyzer.analyzeAll(classesDir);
+        // analyze compiled classes, each on its own so unchanged ones come straight from the cache
+        try {
+            classFiles.parallelStream().forEach(file -> {
+                String key = file.toAbsolutePath().toString();
+                liveFiles.add(key);
+                CoverageAnalysisCache.AnalyzedClass analyzed = analyzeClass(file, key, liveClassIds);
+                if (analyzed.coverage() != null) {
+                    results.put(analyzed.name(), analyzed.coverage());
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        cache.retain(liveFiles, liveClassIds);
 
-        for (IClassCoverage cc : coverageBuilder.getClasses()) {
-            int covered = cc.getLineCounter().getCoveredCount();
-            int total = cc.getLineCounter().getTotalCount();
-            double percent = total == 0 ? 0.0 : (covered * 100.0 / total);
+        // Sorted by name so queries can page through it
+        return new TreeMap<>(results);
+    }
 
-            CoverageResult cr = new CoverageResult();
-            cr.setCoveredLines(covered);
-            cr.setTotalLines(total);
-            cr.setCoveragePercent(percent);
+    public int getCacheHits() {
+        return cacheHits.get();
+    }
 
-            results.put(cc.getName().replace("/", "."), cr);
+    public int getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    private CoverageAnalysisCache.AnalyzedClass analyzeClass(Path file, String key, Set<Long> liveClassIds) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            long size = attrs.size();
+            long modified = attrs.lastModifiedTime().toMillis();
+
+            byte[] bytes = null;
+            Long classId = cache.getClassId(key, size, modified);
+            if (classId == null) {
+                bytes = Files.readAllBytes(file);
+                classId = CRC64.classId(bytes);
+                cache.putClassId(key, size, modified, classId);
+            }
+            liveClassIds.add(classId);
+
+            ExecutionData data = executionData.get(classId);
+            boolean[] probes = data != null ? data.getProbes() : null;
+            CoverageAnalysisCache.AnalyzedClass cached = cache.get(classId, probes);
+            if (cached != null) {
+                cacheHits.incrementAndGet();
+                return cached;
+            }
+            cacheMisses.incrementAndGet();
+
+            if (bytes == null) {
+                bytes = Files.readAllBytes(file);
+            }
+            CoverageBuilder coverageBuilder = new CoverageBuilder();
+            new Analyzer(executionData, coverageBuilder).analyzeClass(bytes, key);
+
+            CoverageAnalysisCache.AnalyzedClass analyzed = coverageBuilder.getClasses().stream()
+                    .findFirst()
+                    .map(cc -> new CoverageAnalysisCache.AnalyzedClass(copy(probes), cc.getName().replace("/", "."), ClassCoverage.of(cc)))
+                    .orElseGet(() -> new CoverageAnalysisCache.AnalyzedClass(copy(probes), null, null));
+            cache.put(classId, analyzed);
+            return analyzed;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+    }
 
-        return results;
+    // Probe arrays belong to the live execution data and keep changing, so the cache holds its own copy
+    private static boolean[] copy(boolean[] probes) {
+        return probes != null ? probes.clone() : null;
     }
 }
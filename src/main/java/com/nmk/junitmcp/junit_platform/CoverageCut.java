@@ -0,0 +1,7 @@
+package com.nmk.junitmcp.junit_platform;
+
+// Where a run's execution data is cut for a coverage listener: after every test, which needs a dump of the probes per
+// test, or only after every test class
+public enum CoverageCut {
+    TEST, TEST_CLASS
+}
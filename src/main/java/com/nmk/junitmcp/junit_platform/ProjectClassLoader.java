@@ -0,0 +1,98 @@
+package com.nmk.junitmcp.junit_platform;
+
+import org.jacoco.core.instr.Instrumenter;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Child-first class loader for a target project. JUnit Platform types are shared with the
+ * server so that the launcher and the project's tests agree on them; classes from the main
+ * classes directory are instrumented for coverage when an instrumenter is supplied. Sharing
+ * them means the project runs on the server's JUnit release, whatever version it declares.
+ */
+public class ProjectClassLoader extends URLClassLoader {
+    private static final String[] SHARED_PACKAGES = {
+            "java.", "javax.", "jdk.", "sun.", "org.junit.", "junit.", "org.opentest4j.", "org.apiguardian."
+    };
+
+    private final Path instrumentedRoot;
+    private final Instrumenter instrumenter;
+
+    public ProjectClassLoader(URL[] urls, ClassLoader parent, Path instrumentedRoot, Instrumenter instrumenter) {
+        super(urls, parent);
+        this.instrumentedRoot = instrumentedRoot;
+        this.instrumenter = instrumenter;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> loaded = findLoadedClass(name);
+            if (loaded == null) {
+                if (isShared(name)) {
+                    try {
+                        loaded = getParent().loadClass(name);
+                    } catch (ClassNotFoundException e) {
+                        loaded = findClass(name);
+                    }
+                } else {
+                    try {
+                        loaded = findClass(name);
+                    } catch (ClassNotFoundException e) {
+                        loaded = getParent().loadClass(name);
+                    }
+                }
+            }
+            if (resolve) {
+                resolveClass(loaded);
+            }
+            return loaded;
+        }
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        if (instrumenter != null && instrumentedRoot != null) {
+            Path classFile = instrumentedRoot.resolve(name.replace('.', '/') + ".class");
+            if (Files.isRegularFile(classFile)) {
+                try {
+                    byte[] instrumented = instrumenter.instrument(Files.readAllBytes(classFile), name);
+                    definePackageFor(name);
+                    return defineClass(name, instrumented, 0, instrumented.length);
+                } catch (IOException e) {
+                    throw new ClassNotFoundException("Failed to instrument " + name, e);
+                }
+            }
+        }
+        return super.findClass(name);
+    }
+
+    @Override
+    public URL getResource(String name) {
+        URL resource = findResource(name);
+        return resource != null ? resource : super.getResource(name);
+    }
+
+    private void definePackageFor(String className) {
+        int lastDot = className.lastIndexOf('.');
+        if (lastDot > 0) {
+            String packageName = className.substring(0, lastDot);
+            if (getDefinedPackage(packageName) == null) {
+                definePackage(packageName, null, null, null, null, null, null, null);
+            }
+        }
+    }
+
+    private static boolean isShared(String className) {
+        for (String prefix : SHARED_PACKAGES) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
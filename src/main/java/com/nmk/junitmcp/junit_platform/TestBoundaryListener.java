@@ -0,0 +1,17 @@
+package com.nmk.junitmcp.junit_platform;
+
+// Called around every executed test, before its result is reported, and after every test class, once the results of
+// its tests are; used to cut execution data at test or test class boundaries
+public interface TestBoundaryListener {
+    TestBoundaryListener NONE = new TestBoundaryListener() {
+    };
+
+    default void testStarted(String testId) {
+    }
+
+    default void testFinished(String testId) {
+    }
+
+    default void classFinished(String className) {
+    }
+}
@@ -2,26 +2,66 @@ package com.nmk.junitmcp.junit_platform;
 
 import com.nmk.junitmcp.dto.TestResult;
 import lombok.Getter;
+import org.junit.platform.engine.CancellationToken;
 import org.junit.platform.engine.TestExecutionResult;
+import org.junit.platform.engine.support.descriptor.ClassSource;
+import org.junit.platform.engine.support.descriptor.MethodSource;
 import org.junit.platform.launcher.TestExecutionListener;
 import org.junit.platform.launcher.TestIdentifier;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 public class TestResultCollector implements TestExecutionListener {
     @Getter
-    private final List<TestResult> results = new ArrayList<>();
-    private final Map<String, Long> startTimes = new HashMap<>();
+    private final List<TestResult> results = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, Long> startTimes = new ConcurrentHashMap<>();
+    private final Consumer<TestResult> resultCallback;
+    private final TestBoundaryListener boundaryListener;
+    private volatile CancellationToken cancelOnFailure;
+
+    public TestResultCollector() {
+        this(result -> {
+        });
+    }
+
+    public TestResultCollector(Consumer<TestResult> resultCallback) {
+        this(resultCallback, TestBoundaryListener.NONE);
+    }
+
+    public TestResultCollector(Consumer<TestResult> resultCallback, TestBoundaryListener boundaryListener) {
+        this.resultCallback = resultCallback;
+        this.boundaryListener = boundaryListener;
+    }
+
+    // Fail-fast: the first failed test cancels the rest of the run, which the launcher then reports as skipped
+    public void cancelOnFailure(CancellationToken cancellationToken) {
+        this.cancelOnFailure = cancellationToken;
+    }
 
     @Override
     public void executionStarted(TestIdentifier testIdentifier) {
         if (testIdentifier.isTest()) {
             startTimes.put(testIdentifier.getUniqueId(), System.currentTimeMillis());
+            boundaryListener.testStarted(testName(testIdentifier));
+        }
+    }
+
+    @Override
+    public void executionSkipped(TestIdentifier testIdentifier, String reason) {
+        if (testIdentifier.isTest()) {
+            TestResult result = new TestResult();
+            result.setTest(testName(testIdentifier));
+            result.setStatus("SKIPPED");
+            result.setError(reason);
+            result.setDurationMs(0L);
+            addResult(result);
         }
     }
 
@@ -29,9 +69,11 @@ public class TestResultCollector implements TestExecutionListener {
     public void executionFinished(TestIdentifier testIdentifier, TestExecutionResult testExecutionResult) {
         if (testIdentifier.isTest()) {
             TestResult result = new TestResult();
-            result.setTest(testIdentifier.getDisplayName());
-            result.setStatus(testExecutionResult.getStatus().name());
-            result.setDurationMs(System.currentTimeMillis() - startTimes.get(testIdentifier.getUniqueId()));
+            result.setTest(testName(testIdentifier));
+            boundaryListener.testFinished(result.getTest());
+            result.setStatus(status(testExecutionResult.getStatus()));
+            Long startTime = startTimes.remove(testIdentifier.getUniqueId());
+            result.setDurationMs(startTime != null ? System.currentTimeMillis() - startTime : 0L);
 
             testExecutionResult.getThrowable().ifPresent(t -> {
                 StringWriter sw = new StringWriter();
@@ -39,7 +81,37 @@ public class TestResultCollector implements TestExecutionListener {
                 t.printStackTrace(pw);  // Write stack trace to PrintWriter
                 result.setError(sw.toString());
             });
-            results.add(result);
+            addResult(result);
+        } else {
+            testIdentifier.getSource()
+                    .filter(ClassSource.class::isInstance)
+                    .map(ClassSource.class::cast)
+                    .ifPresent(source -> boundaryListener.classFinished(source.getClassName()));
+        }
+    }
+
+    private void addResult(TestResult result) {
+        results.add(result);
+        resultCallback.accept(result);
+        if (cancelOnFailure != null && "FAILED".equals(result.getStatus())) {
+            cancelOnFailure.cancel();
         }
     }
+
+    // Use the same "Class#method" ids and statuses as the external runners
+    private static String testName(TestIdentifier testIdentifier) {
+        return testIdentifier.getSource()
+                .filter(MethodSource.class::isInstance)
+                .map(MethodSource.class::cast)
+                .map(source -> source.getClassName() + "#" + source.getMethodName())
+                .orElse(testIdentifier.getDisplayName());
+    }
+
+    private static String status(TestExecutionResult.Status status) {
+        return switch (status) {
+            case SUCCESSFUL -> "PASSED";
+            case FAILED -> "FAILED";
+            case ABORTED -> "SKIPPED";
+        };
+    }
 }
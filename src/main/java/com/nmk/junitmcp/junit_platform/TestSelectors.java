@@ -0,0 +1,37 @@
+package com.nmk.junitmcp.junit_platform;
+
+import org.junit.platform.engine.DiscoverySelector;
+import org.junit.platform.engine.discovery.DiscoverySelectors;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public final class TestSelectors {
+
+    private TestSelectors() {
+    }
+
+    public static List<DiscoverySelector> create(List<String> tests, ClassLoader classLoader, String testClassesPath) {
+        List<DiscoverySelector> selectors = new ArrayList<>();
+        if (tests == null || tests.isEmpty()) {
+            selectors.addAll(DiscoverySelectors.selectClasspathRoots(Set.of(Path.of(testClassesPath))));
+            return selectors;
+        }
+
+        for (String test : tests) {
+            int hashIndex = test.indexOf('#');
+            if (hashIndex < 0) {
+                selectors.add(DiscoverySelectors.selectClass(classLoader, test));
+                continue;
+            }
+            // Same "Class#method1+method2" syntax as Surefire's -Dtest filter
+            String className = test.substring(0, hashIndex);
+            for (String method : test.substring(hashIndex + 1).split("\\+")) {
+                selectors.add(DiscoverySelectors.selectMethod(classLoader, className + "#" + method));
+            }
+        }
+        return selectors;
+    }
+}
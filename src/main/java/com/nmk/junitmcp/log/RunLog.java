@@ -0,0 +1,165 @@
+package com.nmk.junitmcp.log;
+
+import lombok.Getter;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Build and test output of one run, written to a file as it arrives. The heap only holds a ring of the latest lines
+// and a sparse line index (the byte offset of every INDEX_STRIDE-th line); line ranges are read back by mapping just
+// the part of the file that holds them
+public class RunLog implements Closeable {
+    private static final int INDEX_STRIDE = 64;
+    private static final byte NEWLINE = '\n';
+
+    @Getter
+    private final String id;
+    @Getter
+    private final Path file;
+    private final OutputStream out;
+    private final String[] tail;
+    private long[] index = new long[256];
+    private long lineCount;
+    private long size;
+    private long firstErrorLine = -1;
+    @Getter
+    private volatile long closedAt;
+
+    private RunLog(String id, Path file, int tailLines) throws IOException {
+        this.id = id;
+        this.file = file;
+        this.tail = new String[Math.max(1, tailLines)];
+        Files.createDirectories(file.getParent());
+        this.out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+    }
+
+    public static RunLog create(String id, Path file, int tailLines) throws IOException {
+        return new RunLog(id, file, tailLines);
+    }
+
+    public synchronized void append(String line) {
+        if (closedAt != 0) {
+            return;
+        }
+        if (lineCount % INDEX_STRIDE == 0) {
+            int slot = (int) (lineCount / INDEX_STRIDE);
+            if (slot == index.length) {
+                index = Arrays.copyOf(index, index.length * 2);
+            }
+            index[slot] = size;
+        }
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        try {
+            out.write(bytes);
+            out.write(NEWLINE);
+        } catch (IOException e) {
+            // A full disk loses log lines, not the run
+            return;
+        }
+        size += bytes.length + 1;
+        tail[(int) (lineCount % tail.length)] = line;
+        if (firstErrorLine < 0 && isErrorLine(line)) {
+            firstErrorLine = lineCount;
+        }
+        lineCount++;
+    }
+
+    public synchronized long getLineCount() {
+        return lineCount;
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public boolean isComplete() {
+        return closedAt != 0;
+    }
+
+    // Lines [from, from + count), clamped to what has been written so far
+    public synchronized List<String> readLines(long from, int count) throws IOException {
+        long start = Math.max(0, from);
+        long end = Math.min(lineCount, start + Math.max(0, count));
+        if (start >= end) {
+            return List.of();
+        }
+        // Lines still in the ring need no disk access
+        if (lineCount - start <= tail.length) {
+            List<String> lines = new ArrayList<>((int) (end - start));
+            for (long line = start; line < end; line++) {
+                lines.add(tail[(int) (line % tail.length)]);
+            }
+            return lines;
+        }
+        if (closedAt == 0) {
+            out.flush();
+        }
+
+        long startOffset = index[(int) (start / INDEX_STRIDE)];
+        long endSlot = (end + INDEX_STRIDE - 1) / INDEX_STRIDE;
+        long endOffset = endSlot * INDEX_STRIDE < lineCount ? index[(int) endSlot] : size;
+        if (endOffset - startOffset > Integer.MAX_VALUE) {
+            throw new IOException("Requested log range of " + id + " spans more than 2 GB");
+        }
+
+        List<String> lines = new ArrayList<>((int) (end - start));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, startOffset, endOffset - startOffset);
+            long line = start / INDEX_STRIDE * INDEX_STRIDE;
+            int lineStart = 0;
+            for (int position = 0; position < buffer.limit() && line < end; position++) {
+                if (buffer.get(position) != NEWLINE) {
+                    continue;
+                }
+                if (line >= start) {
+                    byte[] bytes = new byte[position - lineStart];
+                    buffer.get(lineStart, bytes);
+                    lines.add(new String(bytes, StandardCharsets.UTF_8));
+                }
+                line++;
+                lineStart = position + 1;
+            }
+        }
+        return lines;
+    }
+
+    // The lines around the first error the build tool printed, or the latest lines when it printed none
+    public synchronized String getFailureContext(int before, int lines) throws IOException {
+        long from = firstErrorLine >= 0 ? Math.max(0, firstErrorLine - before) : Math.max(0, lineCount - lines);
+        List<String> context = readLines(from, lines);
+        StringBuilder text = new StringBuilder();
+        if (from > 0) {
+            text.append("... ").append(from).append(" lines before ...\n");
+        }
+        context.forEach(line -> text.append(line).append("\n"));
+        long after = lineCount - from - context.size();
+        if (after > 0) {
+            text.append("... ").append(after).append(" lines after ...\n");
+        }
+        return text.toString();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closedAt == 0) {
+            closedAt = System.currentTimeMillis();
+            out.close();
+        }
+    }
+
+    // Maven's [ERROR] lines and Gradle's failure banner
+    private static boolean isErrorLine(String line) {
+        return line.startsWith("[ERROR]") || line.startsWith("FAILURE:") || line.startsWith("* What went wrong");
+    }
+}
@@ -0,0 +1,13 @@
+package com.nmk.junitmcp.service;
+
+import lombok.Getter;
+
+@Getter
+public class BuildFailedException extends RuntimeException {
+    private final int exitCode;
+
+    public BuildFailedException(int exitCode, String output) {
+        super("Build failed with exit code " + exitCode + (output != null ? ". Output: " + output : ""));
+        this.exitCode = exitCode;
+    }
+}
@@ -0,0 +1,129 @@
+package com.nmk.junitmcp.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nmk.junitmcp.dto.CoverageCounter;
+import com.nmk.junitmcp.dto.CoverageQuery;
+import com.nmk.junitmcp.junit_platform.ClassCoverage;
+import com.nmk.junitmcp.util.TestSelection;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+// Writes filtered, paginated coverage straight to the response stream, so a large report is never held as a
+// response object or a JSON string
+//
+// { "totalClasses": n, "offset": o, "limit": l,
+//   "totals": { "LINE": { "covered": c, "missed": m, "percent": p }, ... },
+//   "classes": [ { "name": "...", "counters": { ... },
+//                  "lines": { "first": f, "covered": "<base64>", "missed": "<base64>" } }, ... ] }
+//
+// Line bitsets are base64 of little-endian 64-bit words: bit i (byte i / 8, bit i % 8) stands for line first + i.
+// A partly covered line is set in both
+@Service
+@RequiredArgsConstructor
+public class CoverageQueryService {
+    private static final int MAX_LIMIT = 1000;
+    private static final int FLUSH_EVERY = 64;
+
+    private final ObjectMapper objectMapper;
+
+    public void write(SortedMap<String, ClassCoverage> coverage, CoverageQuery query, OutputStream out) throws IOException {
+        List<CoverageCounter> counters = query.getCounters() == null || query.getCounters().isEmpty()
+                ? List.of(CoverageCounter.LINE) : query.getCounters();
+        int offset = Math.max(0, query.getOffset());
+        int limit = Math.min(Math.max(0, query.getLimit()), MAX_LIMIT);
+
+        // First pass only counts and sums; the page itself is written while iterating again
+        List<Map.Entry<String, ClassCoverage>> matching = new ArrayList<>();
+        long[] totals = new long[CoverageCounter.values().length * 2];
+        for (Map.Entry<String, ClassCoverage> entry : coverage.entrySet()) {
+            ClassCoverage classCoverage = entry.getValue();
+            if (matches(query, classCoverage)) {
+                matching.add(entry);
+                for (CoverageCounter counter : counters) {
+                    totals[counter.ordinal() * 2] += classCoverage.getCovered(counter);
+                    totals[counter.ordinal() * 2 + 1] += classCoverage.getMissed(counter);
+                }
+            }
+        }
+
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.writeStartObject();
+            json.writeNumberField("totalClasses", matching.size());
+            json.writeNumberField("offset", offset);
+            json.writeNumberField("limit", limit);
+
+            json.writeObjectFieldStart("totals");
+            for (CoverageCounter counter : counters) {
+                writeCounter(json, counter, totals[counter.ordinal() * 2], totals[counter.ordinal() * 2 + 1]);
+            }
+            json.writeEndObject();
+
+            json.writeArrayFieldStart("classes");
+            int end = (int) Math.min(matching.size(), (long) offset + limit);
+            for (int i = offset; i < end; i++) {
+                ClassCoverage classCoverage = matching.get(i).getValue();
+                json.writeStartObject();
+                // Module-qualified ("module:class") in multi-module builds
+                json.writeStringField("name", matching.get(i).getKey());
+                json.writeObjectFieldStart("counters");
+                for (CoverageCounter counter : counters) {
+                    writeCounter(json, counter, classCoverage.getCovered(counter), classCoverage.getMissed(counter));
+                }
+                json.writeEndObject();
+                if (query.isLines()) {
+                    json.writeObjectFieldStart("lines");
+                    json.writeNumberField("first", classCoverage.firstLine());
+                    json.writeStringField("covered", encode(classCoverage.coveredLines()));
+                    json.writeStringField("missed", encode(classCoverage.missedLines()));
+                    json.writeEndObject();
+                }
+                json.writeEndObject();
+                if ((i - offset + 1) % FLUSH_EVERY == 0) {
+                    json.flush();
+                }
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+
+    private static boolean matches(CoverageQuery query, ClassCoverage classCoverage) {
+        if (query.getPackages() != null && !query.getPackages().isEmpty()) {
+            String packageName = classCoverage.getPackageName();
+            boolean inPackage = query.getPackages().stream()
+                    .anyMatch(prefix -> packageName.equals(prefix) || packageName.startsWith(prefix + "."));
+            if (!inPackage) {
+                return false;
+            }
+        }
+        return TestSelection.matchesAny(query.getClasses(), classCoverage.name());
+    }
+
+    private static void writeCounter(JsonGenerator json, CoverageCounter counter, long covered, long missed) throws IOException {
+        long total = covered + missed;
+        json.writeObjectFieldStart(counter.name());
+        json.writeNumberField("covered", covered);
+        json.writeNumberField("missed", missed);
+        json.writeNumberField("percent", total == 0 ? 0.0 : (covered * 100.0 / total));
+        json.writeEndObject();
+    }
+
+    private static String encode(long[] words) {
+        ByteBuffer bytes = ByteBuffer.allocate(words.length * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (long word : words) {
+            bytes.putLong(word);
+        }
+        return Base64.getEncoder().encodeToString(bytes.array());
+    }
+}
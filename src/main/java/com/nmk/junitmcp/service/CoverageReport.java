@@ -0,0 +1,39 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.dto.CoverageCacheStats;
+import com.nmk.junitmcp.dto.CoverageResult;
+import com.nmk.junitmcp.junit_platform.ClassCoverage;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+public record CoverageReport(SortedMap<String, ClassCoverage> classes, CoverageCacheStats cacheStats) {
+
+    static CoverageReport empty() {
+        return new CoverageReport(new TreeMap<>(), new CoverageCacheStats());
+    }
+
+    // Line coverage per class, the shape RunResponse.coverage has always had
+    public Map<String, CoverageResult> coverage() {
+        Map<String, CoverageResult> coverage = new HashMap<>();
+        classes.forEach((name, classCoverage) -> coverage.put(name, classCoverage.toResult()));
+        return coverage;
+    }
+
+    public CoverageResult totals() {
+        int covered = 0;
+        int total = 0;
+        for (ClassCoverage classCoverage : classes.values()) {
+            CoverageResult result = classCoverage.toResult();
+            covered += result.getCoveredLines();
+            total += result.getTotalLines();
+        }
+        CoverageResult totals = new CoverageResult();
+        totals.setCoveredLines(covered);
+        totals.setTotalLines(total);
+        totals.setCoveragePercent(total == 0 ? 0.0 : (covered * 100.0 / total));
+        return totals;
+    }
+}
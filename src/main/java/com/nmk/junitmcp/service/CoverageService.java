@@ -0,0 +1,171 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.dto.CoverageCacheStats;
+import com.nmk.junitmcp.junit_platform.ClassCoverage;
+import com.nmk.junitmcp.junit_platform.CoverageAnalysisCache;
+import com.nmk.junitmcp.junit_platform.CoverageAnalyzer;
+import com.nmk.junitmcp.util.ProjectModule;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.tools.ExecFileLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@Service
+public class CoverageService {
+
+    // Analysis results per classes directory; classes whose bytecode and probes are unchanged are not re-analyzed
+    private final Map<String, CoverageAnalysisCache> caches = new ConcurrentHashMap<>();
+    // Latest analysis per project, served by coverage queries
+    private final Map<String, SortedMap<String, ClassCoverage>> latest = new ConcurrentHashMap<>();
+
+    // Every module's exec files load as a task of their own. Tests in one module also cover classes of the modules it
+    // depends on, so the data is merged before any module is analyzed. Null when no module has an exec file
+    public ExecutionDataStore loadExecutionData(ProjectPathResolver pathResolver) throws IOException {
+        List<ExecutionDataStore> loaded = forEachModule(pathResolver.getModules(),
+                module -> loadExecFiles(pathResolver.forModule(module)));
+        ExecutionDataStore executionData = null;
+        for (ExecutionDataStore store : loaded) {
+            if (store == null) {
+                continue;
+            }
+            if (executionData == null) {
+                executionData = store;
+            } else {
+                store.accept(executionData);
+            }
+        }
+        return executionData;
+    }
+
+    // Analyzes every module's classes concurrently; in a multi-module build keys are "module:class"
+    public CoverageReport analyze(ExecutionDataStore executionData, ProjectPathResolver pathResolver) throws IOException {
+        List<ProjectModule> modules = pathResolver.getModules();
+        List<ModuleCoverage> analyzed = forEachModule(modules,
+                module -> analyzeModule(executionData, pathResolver.forModule(module)));
+
+        SortedMap<String, ClassCoverage> classes = new TreeMap<>();
+        int cacheHits = 0;
+        int cacheMisses = 0;
+        boolean foundClasses = false;
+        for (int i = 0; i < modules.size(); i++) {
+            ModuleCoverage moduleCoverage = analyzed.get(i);
+            if (moduleCoverage == null) {
+                continue;
+            }
+            foundClasses = true;
+            cacheHits += moduleCoverage.cacheHits();
+            cacheMisses += moduleCoverage.cacheMisses();
+            String prefix = modules.size() > 1 && !modules.get(i).isRoot() ? modules.get(i).name() + ":" : "";
+            moduleCoverage.classes().forEach((name, classCoverage) -> classes.put(prefix + name, classCoverage));
+        }
+        if (!foundClasses) {
+            return CoverageReport.empty();
+        }
+        latest.put(pathResolver.getCanonicalPath(), classes);
+        return new CoverageReport(classes, new CoverageCacheStats(cacheHits, cacheMisses));
+    }
+
+    public Optional<SortedMap<String, ClassCoverage>> getLatestCoverage(ProjectPathResolver pathResolver) {
+        return Optional.ofNullable(latest.get(pathResolver.getCanonicalPath()));
+    }
+
+    // Null when the module has no exec file
+    private static ExecutionDataStore loadExecFiles(ProjectPathResolver pathResolver) throws IOException {
+        ExecFileLoader loader = new ExecFileLoader();
+        boolean foundCoverage = false;
+        
+        // Try primary JaCoCo exec file location
+        String execFilePath = pathResolver.getJaCoCoExecPath();
+        File execFile = new File(execFilePath);
+        if (execFile.exists()) {
+            loader.load(execFile);
+            foundCoverage = true;
+        }
+        
+        // For Gradle, also try alternative locations
+        if (pathResolver.getProjectType() == ProjectPathResolver.ProjectType.GRADLE) {
+            // Try test.exec in jacoco folder
+            String altPath1 = pathResolver.getProjectPath() + File.separator + "build" + File.separator + "jacoco" + File.separator + "test.exec";
+            File altFile1 = new File(altPath1);
+            if (altFile1.exists()) {
+                loader.load(altFile1);
+                foundCoverage = true;
+            }
+            
+            // Try jacoco.exec in build folder
+            String altPath2 = pathResolver.getProjectPath() + File.separator + "build" + File.separator + "jacoco.exec";
+            File altFile2 = new File(altPath2);
+            if (altFile2.exists()) {
+                loader.load(altFile2);
+                foundCoverage = true;
+            }
+        }
+        
+        return foundCoverage ? loader.getExecutionDataStore() : null;
+    }
+
+    // Null when the module has no compiled classes
+    private ModuleCoverage analyzeModule(ExecutionDataStore executionData, ProjectPathResolver pathResolver) throws IOException {
+        File classesDir = new File(pathResolver.getClassesPath());
+        if (!classesDir.isDirectory()) {
+            return null;
+        }
+        CoverageAnalysisCache cache = caches.computeIfAbsent(classesDir.getCanonicalPath(), key -> new CoverageAnalysisCache());
+        CoverageAnalyzer analyzer = new CoverageAnalyzer(executionData, pathResolver.getClassesPath(), cache);
+        SortedMap<String, ClassCoverage> classes = analyzer.analyze();
+        return new ModuleCoverage(classes, analyzer.getCacheHits(), analyzer.getCacheMisses());
+    }
+
+    // One task per module; a single-module project runs inline
+    private static <T> List<T> forEachModule(List<ProjectModule> modules, ModuleTask<T> task) throws IOException {
+        if (modules.size() == 1) {
+            return Collections.singletonList(task.run(modules.get(0)));
+        }
+        List<Future<T>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (ProjectModule module : modules) {
+                futures.add(executor.submit(() -> task.run(module)));
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while analyzing coverage");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private interface ModuleTask<T> {
+        T run(ProjectModule module) throws IOException;
+    }
+
+    private record ModuleCoverage(SortedMap<String, ClassCoverage> classes, int cacheHits, int cacheMisses) {
+    }
+
+}
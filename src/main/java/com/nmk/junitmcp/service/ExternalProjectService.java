@@ -1,53 +1,107 @@
 package com.nmk.junitmcp.service;
 
+import com.nmk.junitmcp.buildtool.BuildHandle;
+import com.nmk.junitmcp.buildtool.BuildInvocation;
+import com.nmk.junitmcp.buildtool.BuildListener;
+import com.nmk.junitmcp.buildtool.BuildTool;
+import com.nmk.junitmcp.buildtool.BuildTools;
+import com.nmk.junitmcp.config.ProcessProperties;
+import com.nmk.junitmcp.dto.BuildMode;
+import com.nmk.junitmcp.dto.BuildTiming;
+import com.nmk.junitmcp.dto.RunPhase;
+import com.nmk.junitmcp.util.BuildFingerprint;
 import com.nmk.junitmcp.util.ProjectPathResolver;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.nio.file.Files;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
+@RequiredArgsConstructor
 public class ExternalProjectService {
-    
-    public void buildProject(ProjectPathResolver pathResolver) throws IOException, InterruptedException {
-        String buildCommand = pathResolver.getBuildCommand();
-        String[] buildArgs = pathResolver.getBuildArgs();
-        String projectPath = pathResolver.getProjectPath();
-        
-        List<String> command = new ArrayList<>();
-        command.add(buildCommand);
-        Collections.addAll(command, buildArgs);
-
-        ProcessBuilder processBuilder = new ProcessBuilder(command);
-        processBuilder.directory(new File(projectPath));
-        processBuilder.redirectErrorStream(true);
-
-        Process process = processBuilder.start();
-        
-        StringBuilder output = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
-            }
-        }
+    private final BuildTools buildTools;
+    private final ProcessProperties processProperties;
+    private final FastCompiler fastCompiler;
+
+    // Fingerprint of the last successful build per canonical project path
+    private final Map<String, BuildFingerprint> builtFingerprints = new ConcurrentHashMap<>();
+
+    public BuildMode buildProject(ProjectPathResolver pathResolver) throws IOException, InterruptedException {
+        return buildProject(pathResolver, RunListener.NONE);
+    }
 
-        boolean finished = process.waitFor(5, TimeUnit.MINUTES);
-        if (!finished) {
-            process.destroyForcibly();
-            throw new RuntimeException("Build process timed out after 5 minutes");
+    public BuildMode buildProject(ProjectPathResolver pathResolver, RunListener listener) throws IOException, InterruptedException {
+        String projectKey = buildKey(pathResolver);
+        BuildFingerprint fingerprint = BuildFingerprint.compute(pathResolver.getProjectPath());
+        BuildFingerprint previous = builtFingerprints.get(projectKey);
+        if (previous != null && previous.getHash().equals(fingerprint.getHash()) && hasBuildOutput(pathResolver)) {
+            return BuildMode.SKIPPED;
         }
+        // Edits to .java sources alone skip the build tool entirely
+        if (previous != null && hasBuildOutput(pathResolver) && fastCompiler.compile(pathResolver, previous, fingerprint, listener)) {
+            builtFingerprints.put(projectKey, fingerprint);
+            return BuildMode.FAST_COMPILE;
+        }
+
+        BuildTool buildTool = buildTools.forProject(pathResolver);
+        BuildInvocation invocation = buildTool.run(new File(pathResolver.getProjectPath()),
+                List.of(pathResolver.getBuildArgs()), processProperties.getBuildTimeout(), new BuildListener() {
+                    @Override
+                    public void started(BuildHandle handle) {
+                        listener.buildStarted(handle);
+                    }
 
-        int exitCode = process.exitValue();
+                    @Override
+                    public void outputLine(String line) {
+                        listener.buildOutput(line);
+                        if (isProgressLine(line)) {
+                            listener.buildProgress(line);
+                        }
+                    }
+                });
+        listener.buildFinished(new BuildTiming(RunPhase.BUILD, buildTool.getName(), invocation.startupMs(), invocation.executionMs(),
+                invocation.cpuMs(), invocation.peakChildProcesses()));
+
+        int exitCode = invocation.exitCode();
         if (exitCode != 0) {
-            throw new RuntimeException("Build failed with exit code " + exitCode + ". Output: " + output);
+            builtFingerprints.remove(projectKey);
+            // The output went to the listener; whoever keeps the run's log adds the relevant part of it
+            throw new BuildFailedException(exitCode, null);
         }
+
+        builtFingerprints.put(projectKey, fingerprint);
+        return BuildMode.INCREMENTAL;
+    }
+
+    public BuildFingerprint getBuiltFingerprint(ProjectPathResolver pathResolver) {
+        return builtFingerprints.get(buildKey(pathResolver));
+    }
+
+    // A build of some modules says nothing about the others, so each module selection has its own fingerprint
+    private static String buildKey(ProjectPathResolver pathResolver) {
+        List<String> modules = pathResolver.getSelectedModules();
+        return modules == null ? pathResolver.getCanonicalPath() : pathResolver.getCanonicalPath() + "#" + String.join(",", modules);
+    }
+
+    // Module headers and mojo/task starts, not the full build log
+    private static boolean isProgressLine(String line) {
+        return line.startsWith("> Task ")
+                || line.startsWith("[INFO] Building ")
+                || line.startsWith("[INFO] --- ");
+    }
+
+    // Every module with main or test sources has the matching output; aggregator modules have neither
+    private boolean hasBuildOutput(ProjectPathResolver pathResolver) {
+        return pathResolver.getModules().stream().allMatch(module -> {
+            ProjectPathResolver moduleResolver = pathResolver.forModule(module);
+            return (!Files.isDirectory(module.directory().resolve("src/main")) || new File(moduleResolver.getClassesPath()).isDirectory())
+                    && (!Files.isDirectory(module.directory().resolve("src/test")) || new File(moduleResolver.getTestClassesPath()).isDirectory());
+        });
     }
 
 }
\ No newline at end of file
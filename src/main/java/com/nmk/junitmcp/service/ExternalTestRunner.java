@@ -1,67 +1,153 @@
 package com.nmk.junitmcp.service;
 
+import com.nmk.junitmcp.buildtool.BuildHandle;
+import com.nmk.junitmcp.buildtool.BuildInvocation;
+import com.nmk.junitmcp.buildtool.BuildListener;
+import com.nmk.junitmcp.buildtool.BuildTool;
+import com.nmk.junitmcp.buildtool.BuildTools;
+import com.nmk.junitmcp.buildtool.ProcessSupervisor;
+import com.nmk.junitmcp.config.BuildToolProperties;
+import com.nmk.junitmcp.config.ProcessProperties;
+import com.nmk.junitmcp.dto.BuildTiming;
+import com.nmk.junitmcp.dto.RunPhase;
 import com.nmk.junitmcp.dto.TestResult;
+import com.nmk.junitmcp.util.BuildFingerprint;
+import com.nmk.junitmcp.util.ForkedJvmClasspath;
 import com.nmk.junitmcp.util.ProjectPathResolver;
+import com.nmk.junitmcp.util.TestSelection;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
+@RequiredArgsConstructor
 public class ExternalTestRunner {
     
-    private static final Pattern MAVEN_TEST_PATTERN = Pattern.compile("Tests run: (\\d+), Failures: (\\d+), Errors: (\\d+), Skipped: (\\d+)");
-    private static final Pattern MAVEN_TEST_NAME_PATTERN = Pattern.compile("Running (.+)");
-    
-    // Gradle patterns
-    private static final Pattern GRADLE_TEST_STARTED = Pattern.compile("(.+) > (.+) STARTED");
-    private static final Pattern GRADLE_TEST_PASSED = Pattern.compile("(.+) > (.+) PASSED");
-    private static final Pattern GRADLE_TEST_FAILED = Pattern.compile("(.+) > (.+) FAILED");
-    private static final Pattern GRADLE_TEST_SKIPPED = Pattern.compile("(.+) > (.+) SKIPPED");
+    // Report timestamps have coarse resolution on some file systems
+    private static final long REPORT_MTIME_TOLERANCE_MS = 2000L;
+
+    private static final String CONSOLE_LAUNCHER = "org.junit.platform.console.ConsoleLauncher";
+    // Classes whose jars a direct run needs in addition to the project's own test classpath
+    private static final List<String> CONSOLE_RUNTIME_CLASSES = List.of(
+            CONSOLE_LAUNCHER,
+            "org.junit.platform.reporting.legacy.xml.LegacyXmlReportGeneratingListener",
+            "org.junit.platform.launcher.core.LauncherFactory",
+            "org.junit.platform.engine.discovery.DiscoverySelectors",
+            "org.junit.platform.commons.util.ReflectionUtils",
+            "org.junit.jupiter.engine.JupiterTestEngine",
+            "org.opentest4j.AssertionFailedError");
+
+    private final TestReportReader testReportReader;
+    private final BuildTools buildTools;
+    private final ProcessProperties processProperties;
+    private final BuildToolProperties buildToolProperties;
+    private final ExternalProjectService externalProjectService;
+    private final TestClasspathResolver classpathResolver;
+    private final ProcessSupervisor processSupervisor;
 
     public List<TestResult> runTests(ProjectPathResolver pathResolver, List<String> tests) throws IOException, InterruptedException {
-        String buildCommand = pathResolver.getBuildCommand();
-        String[] testArgs = pathResolver.getTestArgs(tests);
-        String projectPath = pathResolver.getProjectPath();
-        
-        List<String> command = new ArrayList<>();
-        command.add(buildCommand);
-        command.addAll(Arrays.asList(testArgs));
+        return runTests(pathResolver, tests, RunListener.NONE);
+    }
 
-        ProcessBuilder processBuilder = new ProcessBuilder(command);
-        processBuilder.directory(new File(projectPath));
-        processBuilder.redirectErrorStream(true);
+    public List<TestResult> runTests(ProjectPathResolver pathResolver, List<String> tests, RunListener listener) throws IOException, InterruptedException {
+        long startedAt = System.currentTimeMillis();
+        ProcessOutcome outcome = runProcess(pathResolver, List.of(pathResolver.getTestArgs(tests)), listener);
+        return collectResults(pathResolver, tests, outcome, startedAt, listener);
+    }
 
-        Process process = processBuilder.start();
-        
-        List<TestResult> results = new ArrayList<>();
-        StringBuilder output = new StringBuilder();
-        
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            if (pathResolver.getProjectType() == ProjectPathResolver.ProjectType.MAVEN) {
-                results = parseMavenOutput(reader, output);
-            } else if (pathResolver.getProjectType() == ProjectPathResolver.ProjectType.GRADLE) {
-                results = parseGradleOutput(reader, output);
-            }
+    // Without the build tool when direct launches are enabled and the run needs nothing only the build tool can do.
+    // A direct run reports its results when it ends, so fail-fast runs keep the build tool's streamed results
+    public List<TestResult> runTests(ProjectPathResolver pathResolver, List<String> tests, boolean failFast,
+                                     RunListener listener) throws IOException, InterruptedException {
+        BuildFingerprint fingerprint = externalProjectService.getBuiltFingerprint(pathResolver);
+        if (!buildToolProperties.isDirectLaunch() || failFast || fingerprint == null || pathResolver.isMultiModule()
+                || !ForkedJvmClasspath.isAvailable(CONSOLE_LAUNCHER) || !supportsDirectSelection(tests)) {
+            return runTests(pathResolver, tests, listener);
+        }
+        String classpath;
+        try {
+            classpath = ForkedJvmClasspath.build(classpathResolver.resolve(pathResolver, fingerprint), CONSOLE_RUNTIME_CLASSES);
+        } catch (IllegalStateException e) {
+            // E.g. a project on an older JUnit Platform than the console launcher this server has
+            listener.buildOutput("Running tests through the build tool: " + e.getMessage());
+            return runTests(pathResolver, tests, listener);
         }
+        long startedAt = System.currentTimeMillis();
+        ProcessOutcome outcome = runDirect(pathResolver, classpath, tests, listener);
+        return collectResults(pathResolver, tests, outcome, startedAt, listener);
+    }
+
+    // Runs one build-tool invocation, streaming the results it reports to the listener
+    ProcessOutcome runProcess(ProjectPathResolver pathResolver, List<String> args, RunListener listener) throws IOException, InterruptedException {
+        BuildTool buildTool = buildTools.forProject(pathResolver);
+
+        // Daemon builds report from the tooling threads
+        List<TestResult> parsedResults = Collections.synchronizedList(new ArrayList<>());
+        Consumer<TestResult> resultListener = result -> {
+            parsedResults.add(result);
+            listener.testFinished(result);
+        };
+        TestOutputParser parser = buildTool.reportsTestEvents() ? null
+                : TestOutputParser.forProjectType(pathResolver.getProjectType(), resultListener);
 
-        boolean finished = process.waitFor(10, TimeUnit.MINUTES);
-        if (!finished) {
-            process.destroyForcibly();
-            throw new RuntimeException("Test execution timed out after 10 minutes");
+        BuildInvocation invocation = buildTool.run(new File(pathResolver.getProjectPath()), args, processProperties.getTestTimeout(), new BuildListener() {
+            @Override
+            public void started(BuildHandle handle) {
+                listener.buildStarted(handle);
+            }
+
+            @Override
+            public void outputLine(String line) {
+                listener.buildOutput(line);
+                if (parser != null) {
+                    parser.accept(line);
+                }
+            }
+
+            @Override
+            public void testFinished(TestResult result) {
+                resultListener.accept(result);
+            }
+        });
+        if (parser != null) {
+            parser.finish();
         }
+        listener.buildFinished(new BuildTiming(RunPhase.TEST, buildTool.getName(), invocation.startupMs(), invocation.executionMs(),
+                invocation.cpuMs(), invocation.peakChildProcesses()));
 
-        int exitCode = process.exitValue();
+        return new ProcessOutcome(invocation.exitCode(), new ArrayList<>(parsedResults));
+    }
+
+    // Turns what the processes of one run printed into its final results
+    List<TestResult> collectResults(ProjectPathResolver pathResolver, List<String> tests, ProcessOutcome outcome,
+                                    long startedAt, RunListener listener) throws IOException {
+        return collectResults(tests, outcome, testReportReader.readReports(pathResolver, startedAt - REPORT_MTIME_TOLERANCE_MS),
+                listener);
+    }
+
+    // The same, for runs whose reports went somewhere of their own
+    List<TestResult> collectResults(List<String> tests, ProcessOutcome outcome, List<TestResult> reportResults,
+                                    RunListener listener) {
+        int exitCode = outcome.exitCode();
+        List<TestResult> parsedResults = outcome.parsedResults();
+        boolean streamed = !parsedResults.isEmpty();
+
+        // Prefer the per-method XML reports over what could be scraped from stdout
+        List<TestResult> results = parsedResults;
+        if (!reportResults.isEmpty()) {
+            results = reportResults;
+        }
         
         // If no results were parsed but exit code indicates failure, create a generic failure result
         if (results.isEmpty() && exitCode != 0) {
@@ -83,162 +169,88 @@ public class ExternalTestRunner {
                 results.add(result);
             }
         }
-        
-        return results;
-    }
-    
-    private List<TestResult> parseMavenOutput(BufferedReader reader, StringBuilder output) throws IOException {
-        List<TestResult> results = new ArrayList<>();
-        String line;
-        String currentTest = null;
-        long startTime = System.currentTimeMillis();
-        
-        while ((line = reader.readLine()) != null) {
-            output.append(line).append("\n");
-            
-            Matcher testNameMatcher = MAVEN_TEST_NAME_PATTERN.matcher(line);
-            if (testNameMatcher.find()) {
-                currentTest = testNameMatcher.group(1);
-                startTime = System.currentTimeMillis();
-            }
-            
-            Matcher testResultMatcher = MAVEN_TEST_PATTERN.matcher(line);
-            if (testResultMatcher.find() && currentTest != null) {
-                int failures = Integer.parseInt(testResultMatcher.group(2));
-                int errors = Integer.parseInt(testResultMatcher.group(3));
-                
-                TestResult result = new TestResult();
-                result.setTest(currentTest);
-                result.setDurationMs(System.currentTimeMillis() - startTime);
-                
-                if (failures > 0 || errors > 0) {
-                    result.setStatus("FAILED");
-                    result.setError(extractErrorMessage(output.toString(), currentTest));
-                } else {
-                    result.setStatus("PASSED");
-                }
-                
-                results.add(result);
-                currentTest = null;
-            }
+
+        // Listeners only saw live output so far; hand them whatever was found afterwards
+        if (!streamed) {
+            results.forEach(listener::testFinished);
         }
         
         return results;
     }
-    
-    private List<TestResult> parseGradleOutput(BufferedReader reader, StringBuilder output) throws IOException {
-        List<TestResult> results = new ArrayList<>();
-        Map<String, Long> testStartTimes = new HashMap<>();
-        String line;
-        
-        while ((line = reader.readLine()) != null) {
-            output.append(line).append("\n");
-            
-            // Check for test started
-            Matcher startedMatcher = GRADLE_TEST_STARTED.matcher(line);
-            if (startedMatcher.find()) {
-                String testClass = startedMatcher.group(1);
-                String testMethod = startedMatcher.group(2);
-                String fullTestName = testClass + "#" + testMethod;
-                testStartTimes.put(fullTestName, System.currentTimeMillis());
-                continue;
-            }
-            
-            // Check for test results
-            TestResult result = null;
-            String fullTestName = null;
-            
-            Matcher passedMatcher = GRADLE_TEST_PASSED.matcher(line);
-            if (passedMatcher.find()) {
-                String testClass = passedMatcher.group(1);
-                String testMethod = passedMatcher.group(2);
-                fullTestName = testClass + "#" + testMethod;
-                
-                result = new TestResult();
-                result.setTest(fullTestName);
-                result.setStatus("PASSED");
-            }
-            
-            Matcher failedMatcher = GRADLE_TEST_FAILED.matcher(line);
-            if (failedMatcher.find()) {
-                String testClass = failedMatcher.group(1);
-                String testMethod = failedMatcher.group(2);
-                fullTestName = testClass + "#" + testMethod;
-                
-                result = new TestResult();
-                result.setTest(fullTestName);
-                result.setStatus("FAILED");
-                result.setError(extractGradleErrorMessage(output.toString(), fullTestName));
-            }
-            
-            Matcher skippedMatcher = GRADLE_TEST_SKIPPED.matcher(line);
-            if (skippedMatcher.find()) {
-                String testClass = skippedMatcher.group(1);
-                String testMethod = skippedMatcher.group(2);
-                fullTestName = testClass + "#" + testMethod;
-                
-                result = new TestResult();
-                result.setTest(fullTestName);
-                result.setStatus("SKIPPED");
-            }
-            
-            // Set duration and add result
-            if (result != null) {
-                Long startTime = testStartTimes.get(fullTestName);
-                if (startTime != null) {
-                    result.setDurationMs(System.currentTimeMillis() - startTime);
-                    testStartTimes.remove(fullTestName);
-                } else {
-                    result.setDurationMs(0L);
+
+    // One JVM with the console launcher and the JaCoCo agent. The agent writes the exec file the build tool's
+    // JaCoCo setup would, or streams to the run's live coverage server, and the launcher's XML reports go to the
+    // work directory
+    private ProcessOutcome runDirect(ProjectPathResolver pathResolver, String classpath, List<String> tests,
+                                     RunListener listener) throws IOException, InterruptedException {
+        Path reportsDir = Path.of(pathResolver.getWorkDirectory(), "console-reports");
+        deleteReports(reportsDir);
+        Files.createDirectories(reportsDir);
+
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        String agentOutput = pathResolver.getLiveCoveragePort() != 0
+                ? "output=tcpclient,address=" + InetAddress.getLoopbackAddress().getHostAddress() + ",port=" + pathResolver.getLiveCoveragePort()
+                : "destfile=" + pathResolver.getJaCoCoExecPath() + ",append=false";
+        command.add("-javaagent:" + ForkedJvmClasspath.getAgentJar().getAbsolutePath() + "=" + agentOutput
+                + ",excludes=org.junit.*:junit.*:org.opentest4j.*");
+        command.add("-cp");
+        command.add(classpath);
+        command.add(CONSOLE_LAUNCHER);
+        command.add("execute");
+        command.add("--disable-banner");
+        command.add("--disable-ansi-colors");
+        command.add("--details=summary");
+        command.add("--reports-dir=" + reportsDir);
+        if (TestSelection.selectsAll(tests)) {
+            command.add("--scan-class-path=" + pathResolver.getTestClassesPath());
+        } else {
+            for (String test : tests) {
+                int hash = test.indexOf('#');
+                if (hash < 0) {
+                    command.add("--select-class=" + test);
+                    continue;
+                }
+                for (String method : test.substring(hash + 1).split("\\+")) {
+                    command.add("--select-method=" + test.substring(0, hash) + "#" + method);
                 }
-                results.add(result);
             }
         }
-        
-        return results;
-    }
-    
-    private String extractErrorMessage(String output, String testName) {
-        String[] lines = output.split("\n");
-        StringBuilder errorMsg = new StringBuilder();
-        boolean inError = false;
-        
-        for (String line : lines) {
-            if (line.contains(testName) && (line.contains("FAILURE") || line.contains("ERROR"))) {
-                inError = true;
-            } else if (inError && (line.trim().isEmpty() || line.contains("Tests run:"))) {
-                break;
-            } else if (inError) {
-                errorMsg.append(line).append("\n");
+
+        long startedAt = System.nanoTime();
+        ProcessSupervisor.Outcome outcome = processSupervisor.run(
+                new ProcessBuilder(command).directory(new File(pathResolver.getProjectPath())), "console-launcher",
+                processProperties.getTestTimeout(), listener::buildStarted, listener::buildOutput);
+        listener.buildFinished(new BuildTiming(RunPhase.TEST, "junit-console-launcher", 0,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt), outcome.cpuMs(), outcome.peakChildProcesses()));
+
+        List<TestResult> results = testReportReader.readReports(reportsDir);
+        for (TestResult result : results) {
+            // The launcher's reports name methods with their parameter list, "shouldWork()"; the build tools do not
+            if (result.getTest().endsWith("()")) {
+                result.setTest(result.getTest().substring(0, result.getTest().length() - 2));
             }
+            listener.testFinished(result);
         }
-        
-        return !errorMsg.isEmpty() ? errorMsg.toString().trim() : "Test failed";
+        return new ProcessOutcome(outcome.exitCode(), results);
     }
-    
-    private String extractGradleErrorMessage(String output, String testName) {
-        String[] lines = output.split("\n");
-        StringBuilder errorMsg = new StringBuilder();
-        boolean inTestFailure = false;
-        
-        for (String line : lines) {
-            // Look for test failure section
-            if (line.contains(testName) && line.contains("FAILED")) {
-                inTestFailure = true;
-                continue;
-            }
-            
-            // Stop when we hit another test or summary
-            if (inTestFailure && (line.contains(" > ") || line.contains("BUILD FAILED") || line.trim().isEmpty())) {
-                break;
-            }
-            
-            // Collect error lines
-            if (inTestFailure) {
-                errorMsg.append(line.trim()).append("\n");
+
+    // The launcher selects classes and methods by name; wildcard patterns need the build tool's filters
+    private static boolean supportsDirectSelection(List<String> tests) {
+        return TestSelection.selectsAll(tests) || tests.stream().noneMatch(test -> test.contains("*"));
+    }
+
+    static void deleteReports(Path reportsDir) throws IOException {
+        if (!Files.isDirectory(reportsDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(reportsDir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
             }
         }
-        
-        return !errorMsg.isEmpty() ? errorMsg.toString().trim() : "Test failed";
+    }
+
+    record ProcessOutcome(int exitCode, List<TestResult> parsedResults) {
     }
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.buildtool.BuildHandle;
+import com.nmk.junitmcp.dto.TestResult;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Stops external runs at the first failed test by cancelling their builds, which kills build processes together with
+// their forked test JVMs. In-process and worker runs cancel through their launcher instead
+class FailFastRunListener extends ForwardingRunListener {
+    private final Set<BuildHandle> builds = ConcurrentHashMap.newKeySet();
+    private volatile boolean failed;
+
+    FailFastRunListener(RunListener delegate) {
+        super(delegate);
+    }
+
+    @Override
+    public void buildStarted(BuildHandle handle) {
+        super.buildStarted(handle);
+        builds.add(handle);
+        if (failed) {
+            handle.cancel();
+        }
+    }
+
+    @Override
+    public void testFinished(TestResult result) {
+        super.testFinished(result);
+        if (!failed && "FAILED".equals(result.getStatus())) {
+            failed = true;
+            builds.forEach(BuildHandle::cancel);
+        }
+    }
+}
@@ -0,0 +1,563 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.config.BuildToolProperties;
+import com.nmk.junitmcp.dto.BuildTiming;
+import com.nmk.junitmcp.dto.RunPhase;
+import com.nmk.junitmcp.util.BuildFingerprint;
+import com.nmk.junitmcp.util.ClassReferences;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import lombok.RequiredArgsConstructor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.springframework.stereotype.Service;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+
+// Compiles changed .java sources, plus the classes that depend on an API they changed, with the JDK's compiler in this
+// JVM against the cached main and test classpaths, and moves the classes into the build's own output directories once all of
+// them compiled. Anything it cannot reproduce exactly (deleted sources, resources, build files, annotation processors,
+// compiler options, modules, multi-module builds, compile errors) is left to the build tool
+@Service
+@RequiredArgsConstructor
+public class FastCompiler {
+    private static final String MAIN_SOURCES = "src/main/java/";
+    private static final String TEST_SOURCES = "src/test/java/";
+    private static final String PROCESSOR_SERVICE = "META-INF/services/javax.annotation.processing.Processor";
+    // Build file settings that change what javac accepts or produces
+    private static final List<String> COMPILER_OPTION_MARKERS = List.of("compilerArgs", "compilerArgument",
+            "enablePreview", "--enable-preview", "failOnWarning", "-Werror", "--module-path", "modularity.inferModulePath",
+            "<fork>", "options.fork", "<compilerId>");
+    private static final Pattern NON_UTF8_ENCODING = Pattern.compile("(?i)encoding\\W+(?!utf-?8)[a-z]");
+
+    private final BuildToolProperties properties;
+    private final TestClasspathResolver classpathResolver;
+
+    // Whether the project runs annotation processors, or sets compiler options, keyed by project and build files hash
+    private final Map<String, Boolean> usesProcessors = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> usesOptions = new ConcurrentHashMap<>();
+
+    // True when the change was compiled; false when the build tool has to build it
+    public boolean compile(ProjectPathResolver pathResolver, BuildFingerprint previous, BuildFingerprint current,
+                           RunListener listener) throws IOException, InterruptedException {
+        if (!properties.isFastCompile() || previous == null || pathResolver.getSelectedModules() != null
+                || pathResolver.isMultiModule()) {
+            return false;
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null || !previous.getBuildFilesHash().equals(current.getBuildFilesHash())) {
+            return false;
+        }
+
+        Path root = Path.of(pathResolver.getProjectPath()).toAbsolutePath().normalize();
+        List<Path> mainSources = new ArrayList<>();
+        List<Path> testSources = new ArrayList<>();
+        for (Map.Entry<String, String> entry : current.getFileHashes().entrySet()) {
+            if (entry.getValue().equals(previous.getFileHashes().get(entry.getKey()))) {
+                continue;
+            }
+            String path = entry.getKey();
+            if (!path.endsWith(".java")) {
+                return false;
+            } else if (path.startsWith(MAIN_SOURCES)) {
+                mainSources.add(root.resolve(path));
+            } else if (path.startsWith(TEST_SOURCES)) {
+                testSources.add(root.resolve(path));
+            } else {
+                return false;
+            }
+        }
+        // A deleted source leaves classes behind that only a full build removes
+        if (!current.getFileHashes().keySet().containsAll(previous.getFileHashes().keySet())
+                || (mainSources.isEmpty() && testSources.isEmpty())) {
+            return false;
+        }
+
+        // Module descriptors bring module path handling the cached classpath does not model
+        if (current.getFileHashes().keySet().stream().anyMatch(path -> path.endsWith("module-info.java"))
+                || usesCompilerOptions(pathResolver, current)) {
+            return false;
+        }
+
+        long startedAt = System.nanoTime();
+        List<String> classpath;
+        List<String> mainClasspath;
+        try {
+            classpath = classpathResolver.resolve(pathResolver, current);
+            // Main sources must not see test classes or test-scoped jars, or a reference to one would compile here
+            // and fail in the build tool
+            mainClasspath = mainSources.isEmpty() ? List.of() : classpathResolver.resolveMain(pathResolver, current);
+        } catch (RuntimeException e) {
+            return false;
+        }
+        if (usesAnnotationProcessors(pathResolver, current, classpath)) {
+            return false;
+        }
+        Path classesDir = Path.of(pathResolver.getClassesPath());
+        Path testClassesDir = Path.of(pathResolver.getTestClassesPath());
+        List<String> options = compilerOptions(classesDir, testClassesDir);
+        if (options == null) {
+            return false;
+        }
+
+        // Everything is compiled into a staging directory first, so a failure leaves the build's output untouched
+        Path stagingDir = Path.of(pathResolver.getWorkDirectory(), "fast-compile");
+        deleteTree(stagingDir);
+        Path stagedClasses = stagingDir.resolve("classes");
+        Path stagedTestClasses = stagingDir.resolve("test-classes");
+
+        Compilation main = compileWithDependents(compiler, mainSources, root.resolve(MAIN_SOURCES), classesDir, Set.of(),
+                options, mainClasspath, listener);
+        if (main == null) {
+            return false;
+        }
+        write(stagedClasses, main.classes());
+        // The test sources compile against the staged main classes, ahead of the ones they replace
+        List<String> testClasspath = new ArrayList<>();
+        testClasspath.add(stagedClasses.toString());
+        testClasspath.addAll(classpath);
+        Compilation test = compileWithDependents(compiler, testSources, root.resolve(TEST_SOURCES), testClassesDir,
+                main.changedApi(), options, testClasspath, listener);
+        if (test == null) {
+            return false;
+        }
+        write(stagedTestClasses, test.classes());
+
+        install(stagedClasses, classesDir, main.classes().keySet());
+        install(stagedTestClasses, testClassesDir, test.classes().keySet());
+        deleteTree(stagingDir);
+
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        int changed = mainSources.size() + testSources.size();
+        int dependents = main.sourceCount() + test.sourceCount() - changed;
+        listener.buildOutput("[junit-mcp] Compiled " + changed + " changed source file(s)"
+                + (dependents > 0 ? " and " + dependents + " dependent(s)" : "") + " in-process in " + elapsedMs + " ms");
+        listener.buildFinished(new BuildTiming(RunPhase.BUILD, "javac", 0, elapsedMs, 0, 0));
+        return true;
+    }
+
+    // Compiles the sources plus every class of outputDir that uses an API this compile changed, or upstreamChanged
+    // lists, so none keeps a stale signature or an inlined constant. Null when that cannot be done in-process
+    private Compilation compileWithDependents(JavaCompiler compiler, List<Path> sources, Path sourceRoot, Path outputDir,
+                                              Set<String> upstreamChanged, List<String> options, List<String> classpath,
+                                              RunListener listener) throws IOException {
+        Set<Path> toCompile = new LinkedHashSet<>(sources);
+        Map<String, byte[]> classes = Map.of();
+        Set<String> changedApi = new HashSet<>(upstreamChanged);
+        if (!toCompile.isEmpty()) {
+            classes = compile(compiler, toCompile, options, classpath, listener);
+            if (classes == null) {
+                return null;
+            }
+            Set<String> changed = apiChanges(outputDir, classes);
+            if (changed == null) {
+                return null;
+            }
+            changedApi.addAll(changed);
+        }
+
+        Set<String> dependents = dependents(outputDir, changedApi, topLevelClasses(classes.keySet()));
+        if (!dependents.isEmpty()) {
+            for (String dependent : dependents) {
+                Path source = sourceRoot.resolve(dependent.replace('.', '/') + ".java");
+                // A class declared in a file of another name cannot be traced back to its source
+                if (!Files.isRegularFile(source)) {
+                    return null;
+                }
+                toCompile.add(source);
+            }
+            classes = compile(compiler, toCompile, options, classpath, listener);
+            if (classes == null) {
+                return null;
+            }
+            Set<String> secondRound = apiChanges(outputDir, classes);
+            if (secondRound == null) {
+                return null;
+            }
+            // A dependent whose own API changed would need yet another round
+            for (String className : secondRound) {
+                if (dependents.contains(topLevelClass(className))) {
+                    return null;
+                }
+            }
+            changedApi.addAll(secondRound);
+        }
+        return new Compilation(classes, changedApi, toCompile.size());
+    }
+
+    private Map<String, byte[]> compile(JavaCompiler compiler, Collection<Path> sources, List<String> options,
+                                        List<String> classpath, RunListener listener) throws IOException {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8);
+        try (InMemoryFileManager fileManager = new InMemoryFileManager(standardFileManager)) {
+            List<String> arguments = new ArrayList<>(options);
+            arguments.addAll(List.of("-classpath", String.join(File.pathSeparator, classpath)));
+            Iterable<? extends JavaFileObject> units = standardFileManager.getJavaFileObjectsFromPaths(sources);
+            boolean success = compiler.getTask(null, fileManager, diagnostics, arguments, null, units).call();
+            if (!success) {
+                // The build tool reports the errors in its own format, in the run's log
+                for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                    if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                        listener.buildOutput("[junit-mcp] " + diagnostic.getMessage(null));
+                    }
+                }
+                return null;
+            }
+            Map<String, byte[]> classes = new LinkedHashMap<>();
+            fileManager.outputs.forEach((className, bytes) -> classes.put(className, bytes.toByteArray()));
+            return classes;
+        }
+    }
+
+    // Classes whose API differs from what outputDir holds: added, changed, or nested classes a recompiled type no
+    // longer has. Null when a constant changed: javac inlines constants, so their users hold no reference to find
+    private static Set<String> apiChanges(Path outputDir, Map<String, byte[]> classes) throws IOException {
+        Map<String, String> before = new HashMap<>();
+        for (String topLevelClass : topLevelClasses(classes.keySet())) {
+            for (Path file : classFiles(outputDir, topLevelClass)) {
+                before.put(className(outputDir, file), api(Files.readAllBytes(file)));
+            }
+        }
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            String api = api(entry.getValue());
+            String previous = before.remove(entry.getKey());
+            if (previous != null && !constants(api).equals(constants(previous))) {
+                return null;
+            }
+            if (!api.equals(previous)) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String removed : before.values()) {
+            if (!constants(removed).isEmpty()) {
+                return null;
+            }
+        }
+        changed.addAll(before.keySet());
+        return changed;
+    }
+
+    // What other classes compile against: the class header and its non-private members, constant values included
+    private static String api(byte[] classFile) {
+        List<String> members = new ArrayList<>();
+        new ClassReader(classFile).accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                members.add("class " + access + " " + signature + " " + superName + " " + Arrays.toString(interfaces));
+            }
+
+            @Override
+            public void visitPermittedSubclass(String permittedSubclass) {
+                members.add("permits " + permittedSubclass);
+            }
+
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                if ((access & Opcodes.ACC_PRIVATE) == 0) {
+                    members.add((value != null ? "constant " : "field ") + access + " " + name + " " + descriptor + " " + signature + " " + value);
+                }
+                return null;
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                if ((access & Opcodes.ACC_PRIVATE) == 0) {
+                    members.add("method " + access + " " + name + " " + descriptor + " " + signature + " " + Arrays.toString(exceptions));
+                }
+                return null;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        Collections.sort(members);
+        return String.join("\n", members);
+    }
+
+    private static List<String> constants(String api) {
+        return api.lines().filter(member -> member.startsWith("constant ")).toList();
+    }
+
+    // Top-level classes of outputDir, other than the excluded ones, that reference one of the given classes
+    private static Set<String> dependents(Path outputDir, Set<String> classes, Set<String> excluded) throws IOException {
+        Set<String> dependents = new TreeSet<>();
+        if (classes.isEmpty() || !Files.isDirectory(outputDir)) {
+            return dependents;
+        }
+        List<Path> classFiles;
+        try (Stream<Path> files = Files.walk(outputDir)) {
+            classFiles = files.filter(file -> file.toString().endsWith(".class")).toList();
+        }
+        for (Path file : classFiles) {
+            String topLevelClass = topLevelClass(className(outputDir, file));
+            if (excluded.contains(topLevelClass) || dependents.contains(topLevelClass)) {
+                continue;
+            }
+            if (ClassReferences.read(file).references().stream().anyMatch(classes::contains)) {
+                dependents.add(topLevelClass);
+            }
+        }
+        return dependents;
+    }
+
+    private static void write(Path dir, Map<String, byte[]> classes) throws IOException {
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            Path classFile = dir.resolve(entry.getKey().replace('.', '/') + ".class");
+            Files.createDirectories(classFile.getParent());
+            Files.write(classFile, entry.getValue());
+        }
+    }
+
+    // Replaces the recompiled types in the output directory with the staged ones. Nested classes of a recompiled type
+    // may have been renamed or removed, so all of its old class files go first
+    private static void install(Path stagedDir, Path outputDir, Set<String> classNames) throws IOException {
+        for (String topLevelClass : topLevelClasses(classNames)) {
+            for (Path file : classFiles(outputDir, topLevelClass)) {
+                Files.delete(file);
+            }
+        }
+        for (String className : classNames) {
+            String relative = className.replace('.', '/') + ".class";
+            Path target = outputDir.resolve(relative);
+            Files.createDirectories(target.getParent());
+            Files.move(stagedDir.resolve(relative), target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // The class file of a top-level class and those of its nested classes
+    private static List<Path> classFiles(Path outputDir, String topLevelClass) throws IOException {
+        Path classFile = outputDir.resolve(topLevelClass.replace('.', '/') + ".class");
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(classFile.getParent())) {
+            return files;
+        }
+        if (Files.isRegularFile(classFile)) {
+            files.add(classFile);
+        }
+        String simpleName = classFile.getFileName().toString().replace(".class", "");
+        try (DirectoryStream<Path> nested = Files.newDirectoryStream(classFile.getParent(), simpleName + "$*.class")) {
+            nested.forEach(files::add);
+        }
+        return files;
+    }
+
+    private static String className(Path outputDir, Path classFile) {
+        String relative = outputDir.relativize(classFile).toString().replace(File.separatorChar, '/');
+        return relative.substring(0, relative.length() - ".class".length()).replace('/', '.');
+    }
+
+    private static String topLevelClass(String className) {
+        int dollar = className.indexOf('$');
+        return dollar < 0 ? className : className.substring(0, dollar);
+    }
+
+    private static Set<String> topLevelClasses(Collection<String> classNames) {
+        Set<String> topLevelClasses = new HashSet<>();
+        classNames.forEach(className -> topLevelClasses.add(topLevelClass(className)));
+        return topLevelClasses;
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        List<Path> paths;
+        try (Stream<Path> files = Files.walk(dir)) {
+            paths = files.sorted(Comparator.reverseOrder()).toList();
+        }
+        for (Path path : paths) {
+            Files.delete(path);
+        }
+    }
+
+    // Compiler settings in the build file beyond the release, debug info and -parameters, which are read off the
+    // classes the build produced, cannot be reproduced here
+    private boolean usesCompilerOptions(ProjectPathResolver pathResolver, BuildFingerprint fingerprint) throws IOException {
+        String key = pathResolver.getCanonicalPath() + "#" + fingerprint.getBuildFilesHash();
+        Boolean cached = usesOptions.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        boolean options = false;
+        for (String buildFile : fingerprint.getFileHashes().keySet()) {
+            if (BuildFingerprint.isBuildFile(buildFile)) {
+                String content = Files.readString(Path.of(pathResolver.getProjectPath(), buildFile));
+                if (COMPILER_OPTION_MARKERS.stream().anyMatch(content::contains) || NON_UTF8_ENCODING.matcher(content).find()) {
+                    options = true;
+                    break;
+                }
+            }
+        }
+        usesOptions.put(key, options);
+        return options;
+    }
+
+    // Processors in the build file or on the classpath (Lombok, MapStruct, ...) would not run with -proc:none
+    private boolean usesAnnotationProcessors(ProjectPathResolver pathResolver, BuildFingerprint fingerprint,
+                                             List<String> classpath) throws IOException {
+        String key = pathResolver.getCanonicalPath() + "#" + fingerprint.getBuildFilesHash();
+        Boolean cached = usesProcessors.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        boolean processors = false;
+        for (String buildFile : fingerprint.getFileHashes().keySet()) {
+            if (BuildFingerprint.isBuildFile(buildFile)) {
+                String content = Files.readString(Path.of(pathResolver.getProjectPath(), buildFile));
+                if (content.contains("annotationProcessor")) {
+                    processors = true;
+                    break;
+                }
+            }
+        }
+        for (int i = 0; i < classpath.size() && !processors; i++) {
+            processors = providesProcessor(Path.of(classpath.get(i)));
+        }
+        usesProcessors.put(key, processors);
+        return processors;
+    }
+
+    private static boolean providesProcessor(Path entry) {
+        if (Files.isDirectory(entry)) {
+            return Files.isRegularFile(entry.resolve(PROCESSOR_SERVICE));
+        }
+        if (!Files.isRegularFile(entry)) {
+            return false;
+        }
+        try (ZipFile jar = new ZipFile(entry.toFile())) {
+            return jar.getEntry(PROCESSOR_SERVICE) != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // javac options matching what the build produced: the release from the class file version, -parameters when its
+    // methods carry parameter names. Null for preview features, which need the exact JDK the build used
+    private static List<String> compilerOptions(Path... outputDirs) throws IOException {
+        Integer release = null;
+        Boolean parameters = null;
+        for (Path outputDir : outputDirs) {
+            if (!Files.isDirectory(outputDir)) {
+                continue;
+            }
+            List<Path> classFiles;
+            try (Stream<Path> files = Files.walk(outputDir)) {
+                classFiles = files.filter(file -> file.toString().endsWith(".class")).toList();
+            }
+            for (int i = 0; i < classFiles.size() && (release == null || parameters == null); i++) {
+                byte[] bytes = Files.readAllBytes(classFiles.get(i));
+                if (bytes.length < 8 || ByteBuffer.wrap(bytes).getInt() != 0xCAFEBABE) {
+                    continue;
+                }
+                if (ByteBuffer.wrap(bytes).getShort(4) == (short) 0xFFFF) {
+                    return null;
+                }
+                if (release == null) {
+                    release = ByteBuffer.wrap(bytes).getShort(6) - 44;
+                }
+                if (parameters == null) {
+                    parameters = hasParameterNames(bytes);
+                }
+            }
+        }
+        if (release == null) {
+            return null;
+        }
+        // -g keeps line numbers and locals like Maven and Gradle do; coverage needs the line numbers
+        List<String> options = new ArrayList<>(List.of("--release", Integer.toString(release), "-g", "-proc:none",
+                "-implicit:none", "-encoding", "UTF-8"));
+        if (Boolean.TRUE.equals(parameters)) {
+            options.add("-parameters");
+        }
+        return options;
+    }
+
+    // Whether the plain methods of the class carry a MethodParameters attribute; null when it has no such method.
+    // Constructors, enums and records are left out, since javac records their mandated parameters either way
+    private static Boolean hasParameterNames(byte[] classFile) {
+        ClassReader reader = new ClassReader(classFile);
+        if ("java/lang/Enum".equals(reader.getSuperName()) || "java/lang/Record".equals(reader.getSuperName())) {
+            return null;
+        }
+        Boolean[] found = {null};
+        reader.accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                if (found[0] != null || name.startsWith("<") || descriptor.startsWith("()")
+                        || (access & (Opcodes.ACC_SYNTHETIC | Opcodes.ACC_BRIDGE)) != 0) {
+                    return null;
+                }
+                found[0] = false;
+                return new MethodVisitor(Opcodes.ASM9) {
+                    @Override
+                    public void visitParameter(String parameterName, int parameterAccess) {
+                        found[0] = true;
+                    }
+                };
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return found[0];
+    }
+
+    private record Compilation(Map<String, byte[]> classes, Set<String> changedApi, int sourceCount) {
+    }
+
+    // Collects compiled classes in memory, so nothing is written unless the whole batch compiles
+    private static class InMemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, ByteArrayOutputStream> outputs = new LinkedHashMap<>();
+
+        InMemoryFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                   FileObject sibling) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            outputs.put(className, bytes);
+            return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return bytes;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.buildtool.BuildHandle;
+import com.nmk.junitmcp.dto.BuildTiming;
+import com.nmk.junitmcp.dto.CoverageResult;
+import com.nmk.junitmcp.dto.RunPhase;
+import com.nmk.junitmcp.dto.TestResult;
+
+import java.util.Map;
+
+public class ForwardingRunListener implements RunListener {
+    private final RunListener delegate;
+
+    public ForwardingRunListener(RunListener delegate) {
+        this.delegate = delegate;
+    }
+
+    // Where events go; subclasses can redirect them while the run is in progress
+    protected RunListener delegate() {
+        return delegate;
+    }
+
+    @Override
+    public void phaseStarted(RunPhase phase) {
+        delegate().phaseStarted(phase);
+    }
+
+    @Override
+    public void buildStarted(BuildHandle handle) {
+        delegate().buildStarted(handle);
+    }
+
+    @Override
+    public void buildFinished(BuildTiming timing) {
+        delegate().buildFinished(timing);
+    }
+
+    @Override
+    public void buildProgress(String line) {
+        delegate().buildProgress(line);
+    }
+
+    @Override
+    public void buildOutput(String line) {
+        delegate().buildOutput(line);
+    }
+
+    @Override
+    public void testFinished(TestResult result) {
+        delegate().testFinished(result);
+    }
+
+    @Override
+    public void coverageReady(Map<String, CoverageResult> coverage) {
+        delegate().coverageReady(coverage);
+    }
+
+    @Override
+    public void coverageSnapshot(CoverageResult totals) {
+        delegate().coverageSnapshot(totals);
+    }
+}
@@ -0,0 +1,218 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.buildtool.BuildHandle;
+import com.nmk.junitmcp.buildtool.BuildTimeoutException;
+import com.nmk.junitmcp.buildtool.ProcessSupervisor;
+import com.nmk.junitmcp.config.ProcessProperties;
+import com.nmk.junitmcp.dto.TestResult;
+import com.nmk.junitmcp.junit_platform.CoverageCut;
+import com.nmk.junitmcp.junit_platform.ProjectClassLoader;
+import com.nmk.junitmcp.junit_platform.TestBoundaryListener;
+import com.nmk.junitmcp.junit_platform.TestResultCollector;
+import com.nmk.junitmcp.junit_platform.TestSelectors;
+import com.nmk.junitmcp.util.BuildFingerprint;
+import com.nmk.junitmcp.util.JUnitVersions;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.runtime.LoggerRuntime;
+import org.jacoco.core.runtime.RuntimeData;
+import org.junit.platform.engine.CancellationToken;
+import org.junit.platform.engine.DiscoverySelector;
+import org.junit.platform.launcher.Launcher;
+import org.junit.platform.launcher.LauncherDiscoveryRequest;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherExecutionRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+@Service
+@RequiredArgsConstructor
+public class InProcessTestRunner {
+    private final TestClasspathResolver classpathResolver;
+    private final ProcessProperties processProperties;
+
+    // One loader per project, replaced whenever the project is rebuilt
+    private final Map<String, LoadedProject> loadedProjects = new ConcurrentHashMap<>();
+
+    public List<TestResult> runTests(ProjectPathResolver pathResolver, BuildFingerprint fingerprint, List<String> tests,
+                                     IExecutionDataVisitor coverageData, Consumer<TestResult> resultListener,
+                                     BiConsumer<String, ExecutionDataStore> testCoverageListener, CoverageCut cut,
+                                     boolean failFast, Consumer<BuildHandle> started) throws Exception {
+        LoadedProject project = loadProject(pathResolver, fingerprint);
+
+        synchronized (project) {
+            List<DiscoverySelector> selectors = TestSelectors.create(tests, project.classLoader(), pathResolver.getTestClassesPath());
+            LauncherDiscoveryRequest discoveryRequest = LauncherDiscoveryRequestBuilder.request()
+                    .selectors(selectors)
+                    .build();
+
+            RuntimeData runtimeData = project.runtimeData();
+            TestBoundaryListener boundaryListener = testCoverageListener == null ? TestBoundaryListener.NONE
+                    : cut == CoverageCut.TEST_CLASS ? new TestBoundaryListener() {
+                @Override
+                public void classFinished(String className) {
+                    // Class setup and static initializers count for the class they ran for
+                    cut(runtimeData, coverageData, testCoverageListener, className);
+                }
+            } : new TestBoundaryListener() {
+                @Override
+                public void testStarted(String testId) {
+                    // Whatever ran between tests (class setup, static initializers) only counts for the run
+                    collect(runtimeData, coverageData);
+                }
+
+                @Override
+                public void testFinished(String testId) {
+                    cut(runtimeData, coverageData, testCoverageListener, testId);
+                }
+            };
+            TestResultCollector collector = new TestResultCollector(resultListener, boundaryListener);
+            CancellationToken cancellationToken = CancellationToken.create();
+            if (failFast) {
+                collector.cancelOnFailure(cancellationToken);
+            }
+
+            // A hung test would hold the project forever. A job cancel or the test deadline cancels the rest of the
+            // run and interrupts the test in progress, which runs on this thread unless it opted into parallel execution
+            Thread thread = Thread.currentThread();
+            AtomicReference<Stop> stop = new AtomicReference<>();
+            started.accept(() -> stop(stop, Stop.CANCELLED, cancellationToken, thread));
+            Thread deadline = Thread.ofVirtual().name("in-process-deadline").start(() -> {
+                try {
+                    Thread.sleep(processProperties.getTestTimeout());
+                    stop(stop, Stop.TIMED_OUT, cancellationToken, thread);
+                } catch (InterruptedException e) {
+                    // Finished in time
+                }
+            });
+
+            ClassLoader previousLoader = thread.getContextClassLoader();
+            thread.setContextClassLoader(project.classLoader());
+            try {
+                // Created under the project's loader, so engines and extensions are discovered on its classpath
+                Launcher launcher = LauncherFactory.create();
+                launcher.execute(LauncherExecutionRequestBuilder.request(discoveryRequest)
+                        .listeners(collector)
+                        .cancellationToken(cancellationToken)
+                        .build());
+            } finally {
+                deadline.interrupt();
+                thread.setContextClassLoader(previousLoader);
+                collect(runtimeData, coverageData);
+            }
+
+            // Once finished, a late cancel or deadline must not interrupt whatever this thread does next
+            if (!stop.compareAndSet(null, Stop.FINISHED)) {
+                Thread.interrupted();
+                if (stop.get() == Stop.TIMED_OUT) {
+                    throw new BuildTimeoutException("In-process tests did not finish within "
+                            + ProcessSupervisor.describe(processProperties.getTestTimeout()));
+                }
+                throw new CancellationException("In-process test run was cancelled");
+            }
+            return new ArrayList<>(collector.getResults());
+        }
+    }
+
+    private static void stop(AtomicReference<Stop> stop, Stop reason, CancellationToken cancellationToken, Thread thread) {
+        if (stop.compareAndSet(null, reason)) {
+            cancellationToken.cancel();
+            thread.interrupt();
+        }
+    }
+
+    // Hands what was collected since the previous cut to the listener, and a copy of it to the run's coverage
+    private static void cut(RuntimeData runtimeData, IExecutionDataVisitor coverageData,
+                            BiConsumer<String, ExecutionDataStore> listener, String id) {
+        ExecutionDataStore cutData = new ExecutionDataStore();
+        collect(runtimeData, cutData);
+        cutData.getContents().forEach(data -> coverageData.visitClassExecution(copy(data)));
+        listener.accept(id, cutData);
+    }
+
+    // RuntimeData hands out its live probe arrays and then resets them, so the target store gets copies
+    private static void collect(RuntimeData runtimeData, IExecutionDataVisitor target) {
+        runtimeData.collect(data -> target.visitClassExecution(copy(data)), new SessionInfoStore(), true);
+    }
+
+    private static ExecutionData copy(ExecutionData data) {
+        return new ExecutionData(data.getId(), data.getName(), data.getProbes().clone());
+    }
+
+    private LoadedProject loadProject(ProjectPathResolver pathResolver, BuildFingerprint fingerprint) throws Exception {
+        String projectKey = pathResolver.getCanonicalPath();
+        LoadedProject current = loadedProjects.get(projectKey);
+        if (current != null && current.fingerprint().equals(fingerprint.getHash())) {
+            return current;
+        }
+
+        List<String> classpath = classpathResolver.resolve(pathResolver, fingerprint);
+        // JUnit loads from this server (see ProjectClassLoader), so a project on another release would mix versions
+        String mismatch = JUnitVersions.mismatchWithServer(classpath);
+        if (mismatch != null) {
+            throw new IllegalStateException("In-process runs need this server's JUnit release, but " + mismatch
+                    + "; use mode EXTERNAL");
+        }
+        URL[] urls = new URL[classpath.size()];
+        for (int i = 0; i < classpath.size(); i++) {
+            urls[i] = new File(classpath.get(i)).toURI().toURL();
+        }
+
+        LoggerRuntime runtime = new LoggerRuntime();
+        RuntimeData runtimeData = new RuntimeData();
+        runtime.startup(runtimeData);
+        ProjectClassLoader classLoader = new ProjectClassLoader(urls, getClass().getClassLoader(),
+                Path.of(pathResolver.getClassesPath()), new Instrumenter(runtime));
+
+        LoadedProject loaded = new LoadedProject(fingerprint.getHash(), classLoader, runtime, runtimeData);
+        LoadedProject previous = loadedProjects.put(projectKey, loaded);
+        if (previous != null) {
+            close(previous);
+        }
+        return loaded;
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        loadedProjects.values().forEach(this::close);
+        loadedProjects.clear();
+    }
+
+    private void close(LoadedProject project) {
+        synchronized (project) {
+            project.runtime().shutdown();
+            try {
+                project.classLoader().close();
+            } catch (IOException e) {
+                // Loader is discarded either way
+            }
+        }
+    }
+
+    private enum Stop {
+        FINISHED, CANCELLED, TIMED_OUT
+    }
+
+    private record LoadedProject(String fingerprint, ProjectClassLoader classLoader, LoggerRuntime runtime,
+                                 RuntimeData runtimeData) {
+    }
+}
@@ -0,0 +1,222 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.config.CoverageProperties;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import lombok.RequiredArgsConstructor;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.runtime.RemoteControlReader;
+import org.jacoco.core.runtime.RemoteControlWriter;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+// Collects coverage of external runs over the JaCoCo agent's TCP protocol: each run gets a loopback server socket,
+// the agents of its test JVMs connect to it in tcpclient mode and their execution data lands in memory. No exec file
+// is written or read, so data of earlier runs cannot leak in, and running agents can be asked for snapshots
+@Service
+@RequiredArgsConstructor
+public class LiveCoverageService {
+    // How often the acceptor looks up from a pending accept to see whether the run is finishing
+    private static final int ACCEPT_POLL_MS = 100;
+
+    private final CoverageProperties properties;
+    private final CoverageService coverageService;
+
+    // Null when external runs hand over coverage through exec files
+    public Session start(ProjectPathResolver pathResolver, RunListener listener) throws IOException {
+        if (properties.getTransport() != CoverageProperties.Transport.TCP) {
+            return null;
+        }
+        return new Session(pathResolver, listener);
+    }
+
+    public class Session implements AutoCloseable {
+        private final ProjectPathResolver pathResolver;
+        private final RunListener listener;
+        private final ServerSocket serverSocket;
+        private final List<AgentConnection> connections = new CopyOnWriteArrayList<>();
+        private final ExecutionDataStore executionData = new ExecutionDataStore();
+        private final Thread acceptor;
+        private final Thread snapshots;
+        private volatile boolean finishing;
+        // Bumped by every class of execution data received, so unchanged data is not analyzed again
+        private long version;
+        private long analyzedVersion;
+
+        private Session(ProjectPathResolver pathResolver, RunListener listener) throws IOException {
+            this.pathResolver = pathResolver;
+            this.listener = listener;
+            this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            serverSocket.setSoTimeout(ACCEPT_POLL_MS);
+            this.acceptor = Thread.ofVirtual().name("coverage-server-" + getPort()).start(this::acceptAgents);
+            this.snapshots = Thread.ofVirtual().name("coverage-snapshots-" + getPort()).start(this::takeSnapshots);
+        }
+
+        public int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        // Called once the test processes are gone: waits for the final dump of every agent and returns what they
+        // sent, or null when no agent connected (a build that ignores the agent settings) so exec files are read
+        public ExecutionDataStore finish() throws InterruptedException {
+            snapshots.interrupt();
+            long deadline = System.nanoTime() + properties.getDumpTimeout().toNanos();
+            // An agent whose JVM exited right after connecting may still wait in the backlog with its final dump
+            finishing = true;
+            acceptor.join(properties.getDumpTimeout().toMillis() + 1);
+            for (AgentConnection connection : connections) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining > 0) {
+                    connection.reader().join(TimeUnit.NANOSECONDS.toMillis(remaining) + 1);
+                }
+            }
+            close();
+            return version() == 0 ? null : copy();
+        }
+
+        @Override
+        public void close() {
+            snapshots.interrupt();
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                // Stops the acceptor either way
+            }
+            for (AgentConnection connection : connections) {
+                connection.close();
+            }
+        }
+
+        private void acceptAgents() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    connections.add(new AgentConnection(socket));
+                } catch (SocketTimeoutException e) {
+                    if (finishing) {
+                        // The backlog is empty
+                        return;
+                    }
+                } catch (IOException e) {
+                    // Closed by close()
+                }
+            }
+        }
+
+        private void takeSnapshots() {
+            long interval = properties.getSnapshotInterval().toMillis();
+            try {
+                while (true) {
+                    Thread.sleep(interval);
+                    // Analyze what the previous dump brought, then ask for the next one
+                    publishSnapshot();
+                    for (AgentConnection connection : connections) {
+                        connection.requestDump();
+                    }
+                }
+            } catch (InterruptedException e) {
+                // The run is over
+            }
+        }
+
+        private void publishSnapshot() {
+            long current = version();
+            if (current == analyzedVersion) {
+                return;
+            }
+            analyzedVersion = current;
+            try {
+                listener.coverageSnapshot(coverageService.analyze(copy(), pathResolver).totals());
+            } catch (IOException | RuntimeException e) {
+                // Snapshots are best effort; the final analysis reports real problems
+            }
+        }
+
+        private long version() {
+            synchronized (executionData) {
+                return version;
+            }
+        }
+
+        // Readers may still be merging into the live store, so analysis works on a copy
+        private ExecutionDataStore copy() {
+            ExecutionDataStore copy = new ExecutionDataStore();
+            synchronized (executionData) {
+                for (ExecutionData data : executionData.getContents()) {
+                    copy.put(new ExecutionData(data.getId(), data.getName(), data.getProbes().clone()));
+                }
+            }
+            return copy;
+        }
+
+        // Agents send a dump on request and a final one when their JVM exits; dumps are cumulative, and merging
+        // probe arrays only ever adds hits, so every dump can simply be merged in
+        private class AgentConnection {
+            private final Socket socket;
+            private final RemoteControlWriter writer;
+            private final Thread reader;
+
+            AgentConnection(Socket socket) throws IOException {
+                this.socket = socket;
+                RemoteControlReader remoteReader = new RemoteControlReader(socket.getInputStream());
+                remoteReader.setSessionInfoVisitor(info -> {
+                });
+                remoteReader.setExecutionDataVisitor(data -> {
+                    synchronized (executionData) {
+                        executionData.put(data);
+                        version++;
+                    }
+                });
+                this.reader = Thread.ofVirtual().name("coverage-agent-" + socket.getPort()).start(() -> {
+                    try {
+                        while (remoteReader.read()) {
+                            // One block per dump
+                        }
+                    } catch (IOException e) {
+                        // The agent's JVM went away
+                    }
+                });
+                // The writer sends a header right away, which fails for an agent that already sent its final dump and
+                // left; what it sent is still read
+                RemoteControlWriter remoteWriter;
+                try {
+                    remoteWriter = new RemoteControlWriter(socket.getOutputStream());
+                } catch (IOException e) {
+                    remoteWriter = null;
+                }
+                this.writer = remoteWriter;
+            }
+
+            Thread reader() {
+                return reader;
+            }
+
+            synchronized void requestDump() {
+                if (writer == null) {
+                    return;
+                }
+                try {
+                    writer.visitDumpCommand(true, false);
+                } catch (IOException e) {
+                    // The agent is shutting down and sends its final dump anyway
+                }
+            }
+
+            void close() {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Already closed by the agent
+                }
+            }
+        }
+    }
+}
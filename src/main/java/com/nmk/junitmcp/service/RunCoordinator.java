@@ -0,0 +1,298 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.buildtool.BuildHandle;
+import com.nmk.junitmcp.dto.ExecutionMode;
+import com.nmk.junitmcp.dto.RunRequest;
+import com.nmk.junitmcp.dto.RunResponse;
+import com.nmk.junitmcp.dto.TestResult;
+import com.nmk.junitmcp.util.TestSelection;
+import org.springframework.beans.BeanUtils;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+// Coordinates runs per project: identical requests share one execution, different ones are serialized and,
+// when they queue up behind a running build, merged into a single run. Runs execute on a thread of the project's own
+// and callers only wait for them, so a caller that goes away detaches from its run without affecting the others;
+// a run is cancelled once nobody waits for any part of it any more
+@Service
+public class RunCoordinator {
+
+    @FunctionalInterface
+    public interface RunExecutor {
+        // started is called when the run actually begins, e.g. after waiting for a global slot
+        RunResponse run(RunRequest request, RunListener listener, Runnable started) throws Exception;
+    }
+
+    private final Map<String, ProjectRuns> projects = new ConcurrentHashMap<>();
+
+    // onStarted is called once the run the request ends up in begins. The executor of whichever request a run starts
+    // from executes it, so all executors for a project must be interchangeable
+    public RunResponse execute(String projectKey, RunRequest request, RunListener listener, Runnable onStarted,
+                               RunExecutor executor) throws Exception {
+        ProjectRuns runs = projects.computeIfAbsent(projectKey, key -> new ProjectRuns());
+        String selectionKey = selectionKey(request);
+        Caller caller = new Caller(listener, onStarted);
+
+        PendingRun pending;
+        boolean started;
+        synchronized (runs) {
+            pending = runs.bySelection.get(selectionKey);
+            if (pending == null) {
+                pending = new PendingRun(request, selectionKey, executor);
+                runs.bySelection.put(selectionKey, pending);
+                runs.queue.add(pending);
+                if (runs.runner == null) {
+                    runs.runner = Thread.ofVirtual().name("project-runs").start(() -> runQueued(runs));
+                }
+            }
+            pending.callers.add(caller);
+            started = pending.started;
+        }
+        if (started) {
+            onStarted.run();
+        }
+
+        RunResponse response;
+        try {
+            response = await(pending.result);
+        } catch (InterruptedException e) {
+            detach(runs, pending, caller);
+            throw e;
+        }
+        // Only the caller the run reported to as it happened has seen its progress
+        if (!caller.live) {
+            replay(response, listener);
+        }
+        return response;
+    }
+
+    // Runs everything queued for the project, one batch at a time, until the queue is empty
+    private void runQueued(ProjectRuns runs) {
+        while (true) {
+            Batch batch;
+            synchronized (runs) {
+                if (runs.queue.isEmpty()) {
+                    runs.runner = null;
+                    return;
+                }
+                batch = takeBatch(runs);
+            }
+            runBatch(runs, batch);
+        }
+    }
+
+    // The oldest queued run plus every queued run of the same kind. A fail-fast run stops at the first failure of any
+    // part of it, which would leave the other parts without results, so those only share runs of the same selection
+    private static Batch takeBatch(ProjectRuns runs) {
+        PendingRun leader = runs.queue.getFirst();
+        Batch batch = new Batch(leader, Thread.currentThread());
+        Iterator<PendingRun> iterator = runs.queue.iterator();
+        while (iterator.hasNext()) {
+            PendingRun candidate = iterator.next();
+            if (candidate == leader || !leader.request.isFailFast() && runKind(candidate.request).equals(runKind(leader.request))) {
+                iterator.remove();
+                candidate.batch = batch;
+                batch.runs.add(candidate);
+            }
+        }
+        Caller driver = leader.callers.getFirst();
+        driver.live = true;
+        batch.driver = driver;
+        return batch;
+    }
+
+    private void runBatch(ProjectRuns runs, Batch batch) {
+        PendingRun leader = batch.leader;
+        RunRequest merged = leader.request;
+        if (batch.runs.size() > 1) {
+            merged = new RunRequest();
+            BeanUtils.copyProperties(leader.request, merged);
+            merged.setTests(TestSelection.union(batch.runs.stream().map(run -> run.request.getTests()).toList()));
+        }
+
+        RunListener batchListener = new ForwardingRunListener(RunListener.NONE) {
+            @Override
+            protected RunListener delegate() {
+                Caller driver = batch.driver;
+                return driver != null ? driver.listener : RunListener.NONE;
+            }
+
+            @Override
+            public void buildStarted(BuildHandle handle) {
+                boolean cancelled;
+                synchronized (runs) {
+                    batch.builds.add(handle);
+                    cancelled = batch.cancelled;
+                }
+                if (cancelled) {
+                    handle.cancel();
+                }
+                super.buildStarted(handle);
+            }
+        };
+
+        try {
+            RunResponse response = leader.executor.run(merged, batchListener, () -> started(runs, batch));
+            for (PendingRun run : batch.runs) {
+                run.result.complete(batch.runs.size() == 1 ? response : forSelection(response, run.request.getTests()));
+            }
+        } catch (Throwable e) {
+            batch.runs.forEach(run -> run.result.completeExceptionally(e));
+        } finally {
+            synchronized (runs) {
+                batch.finished = true;
+                batch.runs.forEach(run -> runs.bySelection.remove(run.selectionKey, run));
+            }
+            // A cancel that raced with the end of the batch must not hit the next one
+            Thread.interrupted();
+        }
+    }
+
+    private static void started(ProjectRuns runs, Batch batch) {
+        List<Caller> callers = new ArrayList<>();
+        synchronized (runs) {
+            for (PendingRun run : batch.runs) {
+                run.started = true;
+                callers.addAll(run.callers);
+            }
+        }
+        callers.forEach(caller -> caller.onStarted.run());
+    }
+
+    // A queued run nobody waits for is dropped; a running batch is cancelled once none of its runs has a caller left
+    private static void detach(ProjectRuns runs, PendingRun pending, Caller caller) {
+        List<BuildHandle> builds = List.of();
+        synchronized (runs) {
+            pending.callers.remove(caller);
+            Batch batch = pending.batch;
+            if (batch != null && batch.driver == caller) {
+                batch.driver = null;
+            }
+            if (!pending.callers.isEmpty()) {
+                return;
+            }
+            // Whoever asks for the same selection from now on gets a run of their own
+            runs.bySelection.remove(pending.selectionKey, pending);
+            if (batch == null) {
+                runs.queue.remove(pending);
+                pending.result.completeExceptionally(new CancellationException("Run was cancelled while queued"));
+                return;
+            }
+            if (!batch.finished && !batch.cancelled && batch.runs.stream().allMatch(run -> run.callers.isEmpty())) {
+                batch.cancelled = true;
+                batch.thread.interrupt();
+                builds = new ArrayList<>(batch.builds);
+            }
+        }
+        // Blocking reads on build output do not react to interrupts
+        builds.forEach(BuildHandle::cancel);
+    }
+
+    // A merged run covers a superset of the request; coverage stays that of the whole run
+    private static RunResponse forSelection(RunResponse response, List<String> tests) {
+        RunResponse selected = new RunResponse();
+        BeanUtils.copyProperties(response, selected);
+        if (response.getResults() != null) {
+            selected.setResults(response.getResults().stream()
+                    .filter(result -> TestSelection.matchesAny(tests, result.getTest()))
+                    .toList());
+            selected.setCachedTests((int) selected.getResults().stream().filter(TestResult::isCached).count());
+        }
+        return selected;
+    }
+
+    // Requests that did not drive the run only see its outcome, so hand it to their listener afterwards
+    private static void replay(RunResponse response, RunListener listener) {
+        if (response.getResults() != null) {
+            for (TestResult result : response.getResults()) {
+                listener.testFinished(result);
+            }
+        }
+        listener.coverageReady(response.getCoverage());
+    }
+
+    private static RunResponse await(CompletableFuture<RunResponse> result) throws Exception {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static String selectionKey(RunRequest request) {
+        return runKind(request) + "|" + TestSelection.key(request.getTests());
+    }
+
+    // Only requests of the same kind can share or merge a run
+    private static String runKind(RunRequest request) {
+        ExecutionMode mode = Objects.requireNonNullElse(request.getMode(), ExecutionMode.EXTERNAL);
+        return mode + (request.isPerTestCoverage() ? "+per-test" : "") + (request.isAffectedOnly() ? "+affected" : "")
+                + (request.isFailedFirst() ? "+failed-first" : "") + (request.isFailFast() ? "+fail-fast" : "")
+                + (request.isOmitClassCoverage() ? "+no-class-coverage" : "")
+                + (request.getUncachedTests() != null && !request.getUncachedTests().isEmpty() ? "+uncached=" + TestSelection.key(request.getUncachedTests()) : "")
+                + (request.getModules() != null && !request.getModules().isEmpty() ? "+modules=" + TestSelection.key(request.getModules()) : "");
+    }
+
+    // State is guarded by the ProjectRuns monitor
+    private static class ProjectRuns {
+        private final Map<String, PendingRun> bySelection = new HashMap<>();
+        private final List<PendingRun> queue = new ArrayList<>();
+        private Thread runner;
+    }
+
+    private static class PendingRun {
+        private final RunRequest request;
+        private final String selectionKey;
+        private final RunExecutor executor;
+        private final List<Caller> callers = new ArrayList<>();
+        private final CompletableFuture<RunResponse> result = new CompletableFuture<>();
+        private Batch batch;
+        private boolean started;
+
+        PendingRun(RunRequest request, String selectionKey, RunExecutor executor) {
+            this.request = request;
+            this.selectionKey = selectionKey;
+            this.executor = executor;
+        }
+    }
+
+    private static class Batch {
+        private final PendingRun leader;
+        private final Thread thread;
+        private final List<PendingRun> runs = new ArrayList<>();
+        private final List<BuildHandle> builds = new ArrayList<>();
+        // The caller progress goes to as it happens; once it detaches nobody gets live progress
+        private volatile Caller driver;
+        private boolean cancelled;
+        private boolean finished;
+
+        Batch(PendingRun leader, Thread thread) {
+            this.leader = leader;
+            this.thread = thread;
+        }
+    }
+
+    private static class Caller {
+        private final RunListener listener;
+        private final Runnable onStarted;
+        private volatile boolean live;
+
+        Caller(RunListener listener, Runnable onStarted) {
+            this.listener = listener;
+            this.onStarted = onStarted;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.config.JobProperties;
+import com.nmk.junitmcp.dto.JobStatus;
+import com.nmk.junitmcp.dto.RunJob;
+import com.nmk.junitmcp.dto.RunRequest;
+import com.nmk.junitmcp.dto.RunResponse;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+@Service
+@RequiredArgsConstructor
+public class RunJobService {
+    private final TestRunService testRunService;
+    private final RunCoordinator runCoordinator;
+    private final JobProperties properties;
+
+    // Pending jobs are parked virtual threads waiting on fair locks and semaphores, so a deep queue costs next to nothing
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private Semaphore globalPermits;
+
+    @PostConstruct
+    public void init() {
+        globalPermits = new Semaphore(properties.getMaxConcurrentRuns(), true);
+    }
+
+    public RunJob submit(RunRequest request) {
+        return enqueue(request, RunListener.NONE).snapshot();
+    }
+
+    // Synchronous callers go through the same queue and limits as submitted jobs
+    public RunResponse runAndWait(RunRequest request, RunListener listener) throws Exception {
+        Job job = enqueue(request, listener);
+        try {
+            return job.completion.get();
+        } catch (InterruptedException e) {
+            cancel(job.id);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public Optional<RunJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(Job::snapshot);
+    }
+
+    public Optional<RunResponse> getResult(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(job -> job.response);
+    }
+
+    public Optional<RunJob> cancel(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        synchronized (job) {
+            if (job.status == JobStatus.QUEUED || job.status == JobStatus.RUNNING) {
+                job.status = JobStatus.CANCELLED;
+                job.finishedAt = Instant.now();
+                // Detaches the job from its run; the coordinator stops the run's builds once no other job shares it
+                if (job.future != null) {
+                    job.future.cancel(true);
+                }
+                job.completion.completeExceptionally(new CancellationException("Job " + id + " was cancelled"));
+            }
+        }
+        return Optional.of(job.snapshot());
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void purgeFinishedJobs() {
+        Instant cutoff = Instant.now().minus(properties.getRetention());
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Job enqueue(RunRequest request, RunListener listener) {
+        ProjectPathResolver pathResolver = new ProjectPathResolver(request.getProjectPath());
+        Job job = new Job(UUID.randomUUID().toString(), pathResolver.getCanonicalPath());
+        jobs.put(job.id, job);
+        // Holding the job's monitor makes a cancel that comes in before future is set wait for it
+        synchronized (job) {
+            job.future = executor.submit(() -> execute(job, request, listener));
+        }
+        return job;
+    }
+
+    private void execute(Job job, RunRequest request, RunListener listener) {
+        try {
+            // The coordinator serializes runs per project (merging queued ones), so only the global slot is taken here.
+            // Every job sharing the run turns RUNNING when it gets that slot
+            RunResponse response = runCoordinator.execute(job.projectPath, request, listener, job::start,
+                    (batchRequest, batchListener, started) -> {
+                globalPermits.acquire();
+                try {
+                    started.run();
+                    return testRunService.run(batchRequest, batchListener);
+                } finally {
+                    globalPermits.release();
+                }
+            });
+            job.finish(JobStatus.SUCCEEDED, response, null);
+            job.completion.complete(response);
+        } catch (InterruptedException e) {
+            // Cancelled or shutting down; a run that stopped under a job nobody cancelled fails below instead
+            job.finish(JobStatus.CANCELLED, null, null);
+            job.completion.completeExceptionally(new CancellationException("Job " + job.id + " was cancelled"));
+        } catch (Exception e) {
+            job.finish(JobStatus.FAILED, null, e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+            job.completion.completeExceptionally(e);
+        }
+    }
+
+    private static class Job {
+        private final String id;
+        private final String projectPath;
+        private final Instant submittedAt = Instant.now();
+        private final CompletableFuture<RunResponse> completion = new CompletableFuture<>();
+        private volatile Future<?> future;
+        private JobStatus status = JobStatus.QUEUED;
+        private Instant startedAt;
+        private Instant finishedAt;
+        private String error;
+        private volatile RunResponse response;
+
+        Job(String id, String projectPath) {
+            this.id = id;
+            this.projectPath = projectPath;
+        }
+
+        synchronized void start() {
+            if (status == JobStatus.QUEUED) {
+                status = JobStatus.RUNNING;
+                startedAt = Instant.now();
+            }
+        }
+
+        synchronized void finish(JobStatus finalStatus, RunResponse result, String message) {
+            // A cancel that raced with completion wins
+            if (status == JobStatus.CANCELLED) {
+                return;
+            }
+            status = finalStatus;
+            response = result;
+            error = message;
+            finishedAt = Instant.now();
+        }
+
+        synchronized RunJob snapshot() {
+            RunJob job = new RunJob();
+            job.setId(id);
+            job.setProjectPath(projectPath);
+            job.setStatus(status);
+            job.setSubmittedAt(submittedAt);
+            job.setStartedAt(startedAt);
+            job.setFinishedAt(finishedAt);
+            job.setError(error);
+            return job;
+        }
+    }
+}
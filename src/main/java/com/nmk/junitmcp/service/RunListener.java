@@ -0,0 +1,42 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.buildtool.BuildHandle;
+import com.nmk.junitmcp.dto.BuildTiming;
+import com.nmk.junitmcp.dto.CoverageResult;
+import com.nmk.junitmcp.dto.RunPhase;
+import com.nmk.junitmcp.dto.TestResult;
+
+import java.util.Map;
+
+// Receives progress of a run as it happens; all callbacks are optional
+public interface RunListener {
+    RunListener NONE = new RunListener() {
+    };
+
+    default void phaseStarted(RunPhase phase) {
+    }
+
+    // Lets whoever owns the run terminate it, e.g. when a job is cancelled
+    default void buildStarted(BuildHandle handle) {
+    }
+
+    default void buildFinished(BuildTiming timing) {
+    }
+
+    default void buildProgress(String line) {
+    }
+
+    // Every line the build tool prints, progress lines included
+    default void buildOutput(String line) {
+    }
+
+    default void testFinished(TestResult result) {
+    }
+
+    default void coverageReady(Map<String, CoverageResult> coverage) {
+    }
+
+    // Totals of the coverage collected so far, while tests are still running
+    default void coverageSnapshot(CoverageResult totals) {
+    }
+}
@@ -0,0 +1,76 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.config.LogProperties;
+import com.nmk.junitmcp.dto.LogPage;
+import com.nmk.junitmcp.log.RunLog;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-run output logs, kept in the project's work directory until the retention period after the run has passed
+@Service
+@RequiredArgsConstructor
+public class RunLogService {
+    private final LogProperties properties;
+    private final Map<String, RunLog> logs = new ConcurrentHashMap<>();
+
+    public RunLog open(ProjectPathResolver pathResolver) throws IOException {
+        String id = UUID.randomUUID().toString();
+        RunLog log = RunLog.create(id, Path.of(pathResolver.getWorkDirectory(), "logs", id + ".log"), properties.getTailLines());
+        logs.put(id, log);
+        return log;
+    }
+
+    public Optional<LogPage> getLines(String id, long from, int count) throws IOException {
+        RunLog log = logs.get(id);
+        if (log == null) {
+            return Optional.empty();
+        }
+        // Read the state first so a page never claims completeness for lines it does not contain
+        boolean complete = log.isComplete();
+        LogPage page = new LogPage();
+        page.setLogId(id);
+        page.setFrom(Math.max(0, from));
+        page.setLines(log.readLines(from, Math.min(count, properties.getMaxPageLines())));
+        page.setTotalLines(log.getLineCount());
+        page.setComplete(complete);
+        return Optional.of(page);
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void purgeExpiredLogs() {
+        long cutoff = System.currentTimeMillis() - properties.getRetention().toMillis();
+        logs.values().removeIf(log -> {
+            if (!log.isComplete() || log.getClosedAt() >= cutoff) {
+                return false;
+            }
+            delete(log.getFile());
+            return true;
+        });
+    }
+
+    @PreDestroy
+    public void closeAll() throws IOException {
+        for (RunLog log : logs.values()) {
+            log.close();
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Left for the next clean build of the project
+        }
+    }
+}
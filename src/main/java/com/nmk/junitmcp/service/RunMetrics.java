@@ -0,0 +1,109 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.dto.ExecutionMode;
+import com.nmk.junitmcp.dto.RunPhase;
+import com.nmk.junitmcp.dto.TestResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Run metrics exported through Actuator (GET /actuator/prometheus): time per phase, test outcomes, build output volume,
+// classes analyzed for coverage, and gauges for capacity planning
+@Service
+public class RunMetrics {
+    private final MeterRegistry registry;
+    private final AtomicInteger activeRuns = new AtomicInteger();
+    private final Counter outputBytes;
+    private final Counter classesAnalyzed;
+    private final Counter classesFromCache;
+
+    public RunMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("junit.mcp.runs.active", activeRuns, AtomicInteger::get)
+                .description("Runs currently executing")
+                .register(registry);
+        // Build processes, forked test JVMs and workers; anything this server started that is still alive
+        Gauge.builder("junit.mcp.processes.live", this, metrics -> ProcessHandle.current().descendants().count())
+                .description("Live child processes")
+                .register(registry);
+        outputBytes = Counter.builder("junit.mcp.build.output")
+                .baseUnit("bytes")
+                .description("Build and test output written to run logs")
+                .register(registry);
+        classesAnalyzed = Counter.builder("junit.mcp.coverage.classes")
+                .tag("cache", "miss")
+                .description("Classes analyzed for coverage")
+                .register(registry);
+        classesFromCache = Counter.builder("junit.mcp.coverage.classes")
+                .tag("cache", "hit")
+                .description("Classes analyzed for coverage")
+                .register(registry);
+    }
+
+    public RunTimer startRun(ExecutionMode mode) {
+        activeRuns.incrementAndGet();
+        return new RunTimer(mode);
+    }
+
+    // Times the phases of one run, both into the phase timers and into the run's own breakdown for RunResponse
+    public class RunTimer implements AutoCloseable {
+        private final ExecutionMode mode;
+        private final EnumMap<RunPhase, Long> durationsMs = new EnumMap<>(RunPhase.class);
+        private boolean closed;
+
+        private RunTimer(ExecutionMode mode) {
+            this.mode = mode;
+        }
+
+        // A phase can run more than once, e.g. a failed-first run tests twice; its durations add up
+        public void record(RunPhase phase, long startedAtNanos) {
+            long nanos = System.nanoTime() - startedAtNanos;
+            Timer.builder("junit.mcp.phase")
+                    .tag("phase", phase.name().toLowerCase())
+                    .tag("mode", mode.name().toLowerCase())
+                    .description("Time spent per run phase")
+                    .register(registry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+            synchronized (this) {
+                durationsMs.merge(phase, TimeUnit.NANOSECONDS.toMillis(nanos), Long::sum);
+            }
+        }
+
+        public void testsFinished(List<TestResult> results) {
+            Map<String, Integer> byStatus = new HashMap<>();
+            results.forEach(result -> byStatus.merge(String.valueOf(result.getStatus()), 1, Integer::sum));
+            byStatus.forEach((status, count) -> registry.counter("junit.mcp.tests",
+                    "status", status.toLowerCase(), "mode", mode.name().toLowerCase()).increment(count));
+        }
+
+        public void coverageAnalyzed(CoverageReport report) {
+            classesAnalyzed.increment(report.cacheStats().getMisses());
+            classesFromCache.increment(report.cacheStats().getHits());
+        }
+
+        public void outputWritten(long bytes) {
+            outputBytes.increment(bytes);
+        }
+
+        public synchronized Map<RunPhase, Long> getDurationsMs() {
+            return new EnumMap<>(durationsMs);
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                activeRuns.decrementAndGet();
+            }
+        }
+    }
+}
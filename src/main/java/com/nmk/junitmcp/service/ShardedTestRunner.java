@@ -0,0 +1,299 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.buildtool.BuildHandle;
+import com.nmk.junitmcp.config.ShardingProperties;
+import com.nmk.junitmcp.dto.BuildTiming;
+import com.nmk.junitmcp.dto.CoverageResult;
+import com.nmk.junitmcp.dto.RunPhase;
+import com.nmk.junitmcp.dto.TestResult;
+import com.nmk.junitmcp.util.ProjectModule;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import com.nmk.junitmcp.util.TestClasses;
+import com.nmk.junitmcp.util.TestSelection;
+import lombok.RequiredArgsConstructor;
+import org.jacoco.core.tools.ExecFileLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Splits an external run into shards of whole test classes, balanced by how long each class took last time
+@Service
+@RequiredArgsConstructor
+public class ShardedTestRunner {
+    // Gradle cannot run two builds in one project directory at once, so it gets parallel forks in a single build
+    private static final String GRADLE_FORKS_INIT_SCRIPT = """
+            allprojects {
+                tasks.withType(Test).configureEach {
+                    maxParallelForks = Integer.parseInt(project.findProperty('junitMcpForks') ?: '1')
+                }
+            }
+            """;
+
+    private final ExternalTestRunner externalTestRunner;
+    private final TestReportReader testReportReader;
+    private final ShardingProperties properties;
+
+    // Last known duration per test class, keyed by project
+    private final Map<String, Map<String, Long>> classDurations = new ConcurrentHashMap<>();
+
+    public List<TestResult> runTests(ProjectPathResolver pathResolver, List<String> tests, int shards, RunListener listener) throws Exception {
+        int shardCount = Math.min(shards, properties.getMaxShards());
+        RunListener sharedListener = new SynchronizedRunListener(listener);
+
+        List<TestResult> results;
+        if (pathResolver.getProjectType() == ProjectPathResolver.ProjectType.GRADLE) {
+            results = runGradleForks(pathResolver, tests, shardCount, sharedListener);
+        } else {
+            results = runMavenShards(pathResolver, tests, shardCount, sharedListener);
+        }
+        recordDurations(pathResolver, results);
+        return results;
+    }
+
+    private List<TestResult> runMavenShards(ProjectPathResolver pathResolver, List<String> tests, int shardCount,
+                                            RunListener listener) throws Exception {
+        Map<String, List<String>> selectorsByClass = selectorsByClass(pathResolver, tests);
+        if (selectorsByClass == null || selectorsByClass.size() < 2 || shardCount < 2) {
+            return externalTestRunner.runTests(pathResolver, tests, listener);
+        }
+        List<List<String>> shards = plan(pathResolver, selectorsByClass, Math.min(shardCount, selectorsByClass.size()));
+
+        Path shardsDirectory = Path.of(pathResolver.getWorkDirectory(), "shards");
+        boolean usesJacoco = usesJacoco(pathResolver);
+
+        List<Path> execFiles = new ArrayList<>();
+        List<Path> reportsDirectories = new ArrayList<>();
+        List<Future<ExternalTestRunner.ProcessOutcome>> outcomes = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < shards.size(); i++) {
+                Path shardDirectory = shardsDirectory.resolve("shard-" + i);
+                Files.createDirectories(shardDirectory);
+                Path execFile = shardDirectory.resolve("jacoco.exec");
+                Files.deleteIfExists(execFile);
+                execFiles.add(execFile);
+                // Each shard reports into a directory of its own, so only this run's reports are read back
+                Path reportsDirectory = shardDirectory.resolve("reports");
+                ExternalTestRunner.deleteReports(reportsDirectory);
+                reportsDirectories.add(reportsDirectory);
+
+                // The build already ran, so each shard only needs the agent and Surefire, not the whole lifecycle
+                List<String> args = new ArrayList<>(pathResolver.getModuleArgs());
+                if (usesJacoco) {
+                    args.add("org.jacoco:jacoco-maven-plugin:prepare-agent");
+                }
+                args.add("surefire:test");
+                args.add("-Dtest=" + String.join(",", shards.get(i)));
+                args.add("-Djacoco.destFile=" + execFile);
+                args.add("-DreportsDirectory=" + reportsDirectory);
+                // Relative to each module's build directory; concurrent forks must not share their boot files
+                args.add("-DtempDir=surefire-shard-" + i);
+                args.addAll(pathResolver.getLiveCoverageArgs());
+                args.add("-Dsurefire.failIfNoSpecifiedTests=false");
+                outcomes.add(executor.submit(() -> externalTestRunner.runProcess(pathResolver, args, listener)));
+            }
+
+            int exitCode = 0;
+            List<TestResult> parsedResults = new ArrayList<>();
+            for (Future<ExternalTestRunner.ProcessOutcome> future : outcomes) {
+                ExternalTestRunner.ProcessOutcome outcome = await(future);
+                parsedResults.addAll(outcome.parsedResults());
+                exitCode = Math.max(exitCode, outcome.exitCode());
+            }
+
+            mergeExecFiles(execFiles, Path.of(pathResolver.getJaCoCoExecPath()));
+
+            List<TestResult> reportResults = new ArrayList<>();
+            for (Path reportsDirectory : reportsDirectories) {
+                if (Files.isDirectory(reportsDirectory)) {
+                    reportResults.addAll(testReportReader.readReports(reportsDirectory));
+                }
+            }
+            List<String> allSelectors = shards.stream().flatMap(List::stream).toList();
+            return externalTestRunner.collectResults(allSelectors, new ExternalTestRunner.ProcessOutcome(exitCode, parsedResults),
+                    reportResults, listener);
+        }
+    }
+
+    private List<TestResult> runGradleForks(ProjectPathResolver pathResolver, List<String> tests, int forks,
+                                            RunListener listener) throws Exception {
+        Path initScript = Path.of(pathResolver.getWorkDirectory(), "test-forks.gradle");
+        Files.createDirectories(initScript.getParent());
+        Files.writeString(initScript, GRADLE_FORKS_INIT_SCRIPT);
+
+        List<String> args = new ArrayList<>();
+        args.add("--init-script");
+        args.add(initScript.toString());
+        args.add("-PjunitMcpForks=" + Math.max(1, forks));
+        args.addAll(List.of(pathResolver.getTestArgs(tests)));
+
+        long startedAt = System.currentTimeMillis();
+        ExternalTestRunner.ProcessOutcome outcome = externalTestRunner.runProcess(pathResolver, args, listener);
+        return externalTestRunner.collectResults(pathResolver, tests != null ? tests : List.of(), outcome, startedAt, listener);
+    }
+
+    // Test class -> the selectors that pick tests from it; null when the selection cannot be split by class
+    private Map<String, List<String>> selectorsByClass(ProjectPathResolver pathResolver, List<String> tests) throws IOException {
+        Map<String, List<String>> selectorsByClass = new TreeMap<>();
+        if (TestSelection.selectsAll(tests)) {
+            for (String testClass : TestClasses.find(pathResolver)) {
+                selectorsByClass.put(testClass, List.of(testClass));
+            }
+            return selectorsByClass;
+        }
+        for (String selector : tests) {
+            int hash = selector.indexOf('#');
+            String testClass = hash < 0 ? selector : selector.substring(0, hash);
+            if (testClass.contains("*")) {
+                return null;
+            }
+            selectorsByClass.computeIfAbsent(testClass, key -> new ArrayList<>()).add(selector);
+        }
+        return selectorsByClass;
+    }
+
+    private List<List<String>> plan(ProjectPathResolver pathResolver, Map<String, List<String>> selectorsByClass, int shardCount) throws IOException {
+        return plan(selectorsByClass, getClassDurations(pathResolver), properties.getDefaultClassDurationMs(), shardCount);
+    }
+
+    // Longest-processing-time-first: the slowest remaining class always goes to the least loaded shard. Classes
+    // without a known duration count as the average of the known ones, or defaultDurationMs when none is known
+    static List<List<String>> plan(Map<String, List<String>> selectorsByClass, Map<String, Long> durations,
+                                   long defaultDurationMs, int shardCount) {
+        long fallback = durations.isEmpty() ? defaultDurationMs
+                : (long) durations.values().stream().mapToLong(Long::longValue).average().orElse(0);
+
+        List<String> classes = new ArrayList<>(selectorsByClass.keySet());
+        classes.sort(Comparator.comparingLong((String testClass) -> durations.getOrDefault(testClass, fallback)).reversed());
+
+        PriorityQueue<Shard> shards = new PriorityQueue<>(Comparator.comparingLong(Shard::load));
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new Shard(new ArrayList<>(), 0L));
+        }
+        for (String testClass : classes) {
+            Shard shard = shards.poll();
+            shard.selectors().addAll(selectorsByClass.get(testClass));
+            shards.add(new Shard(shard.selectors(), shard.load() + durations.getOrDefault(testClass, fallback)));
+        }
+        return shards.stream().map(Shard::selectors).filter(selectors -> !selectors.isEmpty()).toList();
+    }
+
+    private Map<String, Long> getClassDurations(ProjectPathResolver pathResolver) throws IOException {
+        Map<String, Long> durations = classDurations.get(pathResolver.getCanonicalPath());
+        if (durations == null) {
+            // First sharded run of this project since startup: fall back to the reports of the last run
+            recordDurations(pathResolver, testReportReader.readReports(pathResolver, 0L));
+            durations = classDurations.getOrDefault(pathResolver.getCanonicalPath(), Map.of());
+        }
+        return durations;
+    }
+
+    private void recordDurations(ProjectPathResolver pathResolver, List<TestResult> results) {
+        Map<String, Long> runDurations = new TreeMap<>();
+        for (TestResult result : results) {
+            String test = result.getTest();
+            int hash = test.indexOf('#');
+            runDurations.merge(hash < 0 ? test : test.substring(0, hash), result.getDurationMs(), Long::sum);
+        }
+        classDurations.computeIfAbsent(pathResolver.getCanonicalPath(), key -> new ConcurrentHashMap<>()).putAll(runDurations);
+    }
+
+    // Any pom of the build may declare the plugin: the root's for every module, a module's for itself
+    private static boolean usesJacoco(ProjectPathResolver pathResolver) throws IOException {
+        for (ProjectModule module : pathResolver.getModules()) {
+            Path pom = module.directory().resolve("pom.xml");
+            if (Files.isRegularFile(pom) && Files.readString(pom).contains("jacoco-maven-plugin")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Shards write separate exec files; the merged one goes where loadExecutionData expects it. Without any, an exec
+    // file left by an earlier run must not pass for this run's coverage
+    private static void mergeExecFiles(List<Path> execFiles, Path target) throws IOException {
+        ExecFileLoader loader = new ExecFileLoader();
+        boolean found = false;
+        for (Path execFile : execFiles) {
+            if (Files.isRegularFile(execFile)) {
+                loader.load(execFile.toFile());
+                found = true;
+            }
+        }
+        if (found) {
+            Files.createDirectories(target.getParent());
+            loader.save(target.toFile(), false);
+        } else {
+            Files.deleteIfExists(target);
+        }
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private record Shard(List<String> selectors, long load) {
+    }
+
+    // Shards report from several threads at once
+    private static class SynchronizedRunListener extends ForwardingRunListener {
+
+        SynchronizedRunListener(RunListener delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public synchronized void phaseStarted(RunPhase phase) {
+            super.phaseStarted(phase);
+        }
+
+        @Override
+        public synchronized void buildStarted(BuildHandle handle) {
+            super.buildStarted(handle);
+        }
+
+        @Override
+        public synchronized void buildFinished(BuildTiming timing) {
+            super.buildFinished(timing);
+        }
+
+        @Override
+        public synchronized void buildProgress(String line) {
+            super.buildProgress(line);
+        }
+
+        @Override
+        public synchronized void buildOutput(String line) {
+            super.buildOutput(line);
+        }
+
+        @Override
+        public synchronized void testFinished(TestResult result) {
+            super.testFinished(result);
+        }
+
+        @Override
+        public synchronized void coverageReady(Map<String, CoverageResult> coverage) {
+            super.coverageReady(coverage);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.buildtool.BuildInvocation;
+import com.nmk.junitmcp.buildtool.BuildListener;
+import com.nmk.junitmcp.buildtool.BuildTools;
+import com.nmk.junitmcp.config.ProcessProperties;
+import com.nmk.junitmcp.util.BoundedLineBuffer;
+import com.nmk.junitmcp.util.BuildFingerprint;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+@RequiredArgsConstructor
+public class TestClasspathResolver {
+    // Enough of the output to explain a failure without holding all of it
+    private static final int OUTPUT_HEAD_LINES = 20;
+    private static final int OUTPUT_TAIL_LINES = 80;
+    private static final int OUTPUT_MAX_LINE_LENGTH = 500;
+
+    private static final String GRADLE_CLASSPATH_INIT_SCRIPT = """
+            rootProject {
+                tasks.register('junitMcpTestClasspath') {
+                    doLast {
+                        def out = file(project.property('junitMcpOutput'))
+                        out.parentFile.mkdirs()
+                        out.text = project.sourceSets.test.runtimeClasspath.files.join(File.pathSeparator)
+                    }
+                }
+                tasks.register('junitMcpMainClasspath') {
+                    doLast {
+                        def out = file(project.property('junitMcpOutput'))
+                        out.parentFile.mkdirs()
+                        out.text = project.sourceSets.main.compileClasspath.files.join(File.pathSeparator)
+                    }
+                }
+            }
+            """;
+
+    private final BuildTools buildTools;
+    private final ProcessProperties processProperties;
+    private final Map<String, ResolvedClasspath> cache = new ConcurrentHashMap<>();
+
+    // Asks the build tool only when the build files (lockfiles included) changed since the last resolution; the
+    // result is also kept in the work directory, so a restarted server does not ask again
+    public List<String> resolve(ProjectPathResolver pathResolver, BuildFingerprint fingerprint) throws IOException, InterruptedException {
+        return resolve(pathResolver, fingerprint, Scope.TEST);
+    }
+
+    // What the main sources compile against: the main output directory and the compile scope, without test classes
+    // or test-scoped jars
+    public List<String> resolveMain(ProjectPathResolver pathResolver, BuildFingerprint fingerprint) throws IOException, InterruptedException {
+        return resolve(pathResolver, fingerprint, Scope.MAIN);
+    }
+
+    private List<String> resolve(ProjectPathResolver pathResolver, BuildFingerprint fingerprint, Scope scope)
+            throws IOException, InterruptedException {
+        String buildFilesHash = fingerprint.getBuildFilesHash();
+        String cacheKey = pathResolver.getCanonicalPath() + "#" + scope;
+        ResolvedClasspath cached = cache.get(cacheKey);
+        if (cached != null && cached.buildFilesHash().equals(buildFilesHash)) {
+            return cached.entries();
+        }
+
+        Path cacheFile = Path.of(pathResolver.getWorkDirectory(), scope.fileName + ".cache");
+        List<String> entries = readCacheFile(cacheFile, buildFilesHash);
+        if (entries == null) {
+            entries = resolveWithBuildTool(pathResolver, scope);
+            writeCacheFile(cacheFile, buildFilesHash, entries);
+        }
+        cache.put(cacheKey, new ResolvedClasspath(buildFilesHash, entries));
+        return entries;
+    }
+
+    // First line is the build files hash the classpath was resolved for, then one entry per line. A jar that is gone
+    // (a cleaned local repository) makes the whole file stale
+    private static List<String> readCacheFile(Path file, String buildFilesHash) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.getFirst().equals(buildFilesHash)) {
+            return null;
+        }
+        List<String> entries = lines.subList(1, lines.size());
+        for (String entry : entries) {
+            if (entry.endsWith(".jar") && !Files.isRegularFile(Path.of(entry))) {
+                return null;
+            }
+        }
+        return List.copyOf(entries);
+    }
+
+    private static void writeCacheFile(Path file, String buildFilesHash, List<String> entries) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(buildFilesHash);
+        lines.addAll(entries);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private List<String> resolveWithBuildTool(ProjectPathResolver pathResolver, Scope scope) throws IOException, InterruptedException {
+        Path outputFile = Path.of(pathResolver.getWorkDirectory(), scope.fileName + ".txt");
+        Files.createDirectories(outputFile.getParent());
+
+        List<String> args = new ArrayList<>();
+        if (pathResolver.getProjectType() == ProjectPathResolver.ProjectType.MAVEN) {
+            args.add("-q");
+            args.add("dependency:build-classpath");
+            args.add("-Dmdep.includeScope=" + scope.mavenScope);
+            args.add("-Dmdep.outputFile=" + outputFile);
+        } else {
+            Path initScript = Path.of(pathResolver.getWorkDirectory(), "test-classpath.gradle");
+            Files.writeString(initScript, GRADLE_CLASSPATH_INIT_SCRIPT);
+            args.add("-q");
+            args.add("--init-script");
+            args.add(initScript.toString());
+            args.add(scope.gradleTask);
+            args.add("-PjunitMcpOutput=" + outputFile);
+        }
+
+        BoundedLineBuffer output = new BoundedLineBuffer(OUTPUT_HEAD_LINES, OUTPUT_TAIL_LINES, OUTPUT_MAX_LINE_LENGTH);
+        BuildInvocation invocation = buildTools.forProject(pathResolver).run(new File(pathResolver.getProjectPath()), args,
+                processProperties.getBuildTimeout(), new BuildListener() {
+                    @Override
+                    public void outputLine(String line) {
+                        output.add(line);
+                    }
+                });
+        if (invocation.exitCode() != 0 || !Files.exists(outputFile)) {
+            throw new RuntimeException("Classpath resolution failed with exit code " + invocation.exitCode() + ". Output: " + output);
+        }
+
+        List<String> entries = new ArrayList<>();
+        // Maven's output lacks the project's own output directories, Gradle's test runtime classpath already contains them
+        if (scope == Scope.TEST) {
+            entries.add(pathResolver.getTestClassesPath());
+        }
+        entries.add(pathResolver.getClassesPath());
+        String classpath = Files.readString(outputFile, StandardCharsets.UTF_8).trim();
+        if (!classpath.isEmpty()) {
+            Arrays.stream(classpath.split(File.pathSeparator))
+                    .filter(entry -> !entries.contains(entry))
+                    .forEach(entries::add);
+        }
+        return List.copyOf(entries);
+    }
+
+    // Maven's compile scope covers compile, provided and system dependencies, like the main compile classpath
+    private enum Scope {
+        TEST("test", "junitMcpTestClasspath", "test-classpath"),
+        MAIN("compile", "junitMcpMainClasspath", "main-classpath");
+
+        private final String mavenScope;
+        private final String gradleTask;
+        private final String fileName;
+
+        Scope(String mavenScope, String gradleTask, String fileName) {
+            this.mavenScope = mavenScope;
+            this.gradleTask = gradleTask;
+            this.fileName = fileName;
+        }
+    }
+
+    private record ResolvedClasspath(String buildFilesHash, List<String> entries) {
+    }
+}
@@ -0,0 +1,135 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.dto.ClassProbeCoverage;
+import com.nmk.junitmcp.dto.CoveringTests;
+import com.nmk.junitmcp.dto.TestCoverage;
+import com.nmk.junitmcp.index.CoveredClass;
+import com.nmk.junitmcp.index.TestCoverageIndex;
+import com.nmk.junitmcp.index.TestCoverageIndexWriter;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+// Owns the per-project test coverage index (test id -> covered classes and probes, plus the reverse mapping)
+@Service
+public class TestCoverageIndexService {
+    private static final String INDEX_FILE = "test-coverage.idx";
+
+    private final Map<String, TestCoverageIndex> indexes = new ConcurrentHashMap<>();
+
+    public Optional<TestCoverageIndex> getIndex(ProjectPathResolver pathResolver) throws IOException {
+        String projectKey = pathResolver.getCanonicalPath();
+        TestCoverageIndex index = indexes.get(projectKey);
+        if (index == null) {
+            Path file = indexFile(pathResolver);
+            if (!Files.isRegularFile(file)) {
+                return Optional.empty();
+            }
+            index = TestCoverageIndex.open(file);
+            indexes.put(projectKey, index);
+        }
+        return Optional.of(index);
+    }
+
+    // Empty when the project has no index or the test is not in it
+    public Optional<TestCoverage> getTestCoverage(ProjectPathResolver pathResolver, String test) throws IOException {
+        Optional<List<CoveredClass>> covered = getIndex(pathResolver).flatMap(index -> index.getCoverage(test));
+        return covered.map(classes -> {
+            TestCoverage coverage = new TestCoverage();
+            coverage.setTest(test);
+            coverage.setClasses(classes.stream().map(TestCoverageIndexService::toProbeCoverage).toList());
+            return coverage;
+        });
+    }
+
+    // Empty when the project has no index; a class no test touched has an empty list
+    public Optional<CoveringTests> getCoveringTests(ProjectPathResolver pathResolver, String className) throws IOException {
+        return getIndex(pathResolver).map(index -> {
+            CoveringTests coveringTests = new CoveringTests();
+            coveringTests.setClassName(className);
+            coveringTests.setTests(index.getTestsCovering(className));
+            return coveringTests;
+        });
+    }
+
+    public Recorder startRecording(ProjectPathResolver pathResolver) throws IOException {
+        return new Recorder(pathResolver);
+    }
+
+    private static ClassProbeCoverage toProbeCoverage(CoveredClass covered) {
+        ClassProbeCoverage coverage = new ClassProbeCoverage();
+        coverage.setClassName(covered.className());
+        coverage.setCoveredProbes(covered.getCoveredProbes());
+        coverage.setTotalProbes(covered.probeCount());
+        return coverage;
+    }
+
+    private static Path indexFile(ProjectPathResolver pathResolver) {
+        return Path.of(pathResolver.getWorkDirectory(), INDEX_FILE);
+    }
+
+    // Receives per-test execution data during a run and rewrites the index once the run is done. Tests that were
+    // not part of the run keep their previous entries
+    public class Recorder implements BiConsumer<String, ExecutionDataStore>, AutoCloseable {
+        private final ProjectPathResolver pathResolver;
+        private final TestCoverageIndexWriter writer;
+        // Parameterized invocations report the same id one after another and are folded into one entry
+        private String pendingTest;
+        private ExecutionDataStore pendingData;
+
+        private Recorder(ProjectPathResolver pathResolver) throws IOException {
+            this.pathResolver = pathResolver;
+            this.writer = new TestCoverageIndexWriter(Path.of(pathResolver.getWorkDirectory()));
+        }
+
+        @Override
+        public synchronized void accept(String testId, ExecutionDataStore testData) {
+            if (testId.equals(pendingTest)) {
+                testData.getContents().forEach(pendingData::visitClassExecution);
+                return;
+            }
+            flush();
+            pendingTest = testId;
+            pendingData = testData;
+        }
+
+        public synchronized void commit() throws IOException {
+            flush();
+            Optional<TestCoverageIndex> previous = getIndex(pathResolver);
+            if (previous.isPresent()) {
+                writer.addMissingTests(previous.get());
+            }
+            Path file = indexFile(pathResolver);
+            writer.finish(file);
+            indexes.put(pathResolver.getCanonicalPath(), TestCoverageIndex.open(file));
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            writer.close();
+        }
+
+        private void flush() {
+            if (pendingTest == null) {
+                return;
+            }
+            try {
+                writer.addTest(pendingTest, pendingData);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            pendingTest = null;
+            pendingData = null;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.config.HistoryProperties;
+import com.nmk.junitmcp.dto.TestHistory;
+import com.nmk.junitmcp.dto.TestResult;
+import com.nmk.junitmcp.history.TestHistoryStore;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import com.nmk.junitmcp.util.TestSelection;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+@RequiredArgsConstructor
+public class TestHistoryService {
+    private final HistoryProperties properties;
+    private final Map<String, TestHistoryStore> stores = new ConcurrentHashMap<>();
+
+    public void record(ProjectPathResolver pathResolver, List<TestResult> results) throws IOException {
+        getStore(pathResolver).append(results, System.currentTimeMillis());
+    }
+
+    // Failing and flaky tests first, then by name
+    public List<TestHistory> getHistory(ProjectPathResolver pathResolver, List<String> tests) throws IOException {
+        return getStore(pathResolver).getAll().stream()
+                .filter(history -> TestSelection.matchesAny(tests, history.getTest()))
+                .sorted(Comparator.comparing((TestHistory history) -> !"FAILED".equals(history.getLastStatus()))
+                        .thenComparing(Comparator.comparingDouble(TestHistory::getFlakiness).reversed())
+                        .thenComparing(TestHistory::getTest))
+                .toList();
+    }
+
+    // Tests within the selection whose last run failed, quickest first so the first red shows up soonest
+    public List<String> getFailingTests(ProjectPathResolver pathResolver, List<String> tests) throws IOException {
+        return getStore(pathResolver).getAll().stream()
+                .filter(history -> "FAILED".equals(history.getLastStatus()))
+                .filter(history -> TestSelection.matchesAny(tests, history.getTest()))
+                .sorted(Comparator.comparingLong(TestHistory::getAverageDurationMs))
+                .map(TestHistory::getTest)
+                .toList();
+    }
+
+    @Scheduled(fixedDelayString = "${junit-mcp.history.compaction-interval:PT10M}")
+    public void compact() {
+        for (TestHistoryStore store : stores.values()) {
+            if (store.needsCompaction()) {
+                try {
+                    store.compact();
+                } catch (IOException e) {
+                    // The uncompacted log is still complete; try again next time
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void closeAll() throws IOException {
+        for (TestHistoryStore store : stores.values()) {
+            store.close();
+        }
+        stores.clear();
+    }
+
+    private TestHistoryStore getStore(ProjectPathResolver pathResolver) throws IOException {
+        try {
+            return stores.computeIfAbsent(pathResolver.getCanonicalPath(), projectKey -> {
+                try {
+                    return TestHistoryStore.open(Path.of(properties.getDirectory(), storeName(projectKey)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // One file per project, named after its canonical path
+    private static String storeName(String projectKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(projectKey.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16) + ".log";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
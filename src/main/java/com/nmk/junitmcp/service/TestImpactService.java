@@ -0,0 +1,169 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.dto.TestImpact;
+import com.nmk.junitmcp.index.TestCoverageIndex;
+import com.nmk.junitmcp.util.BuildFingerprint;
+import com.nmk.junitmcp.util.ClassHashes;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import com.nmk.junitmcp.util.TestSelection;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Picks the tests affected by classes that changed since the last passing run, using the per-test coverage index as
+// the test -> class dependency map. Whenever the map cannot be trusted the full suite runs instead, which includes
+// changes to resources and build files: the map only knows which classes a test executed
+@Service
+@RequiredArgsConstructor
+public class TestImpactService {
+    private static final String BASELINE_FILE = "class-hashes.txt";
+    private static final String FILES_BASELINE_FILE = "file-hashes.txt";
+
+    private final TestCoverageIndexService testCoverageIndexService;
+
+    // scope narrows the affected tests to an explicit selection; null or empty keeps all of them
+    public TestImpact selectAffected(ProjectPathResolver pathResolver, ClassHashes current, BuildFingerprint fingerprint,
+                                     List<String> scope) throws IOException {
+        TestImpact impact = new TestImpact();
+        Path baselineFile = baselineFile(pathResolver);
+        Path filesBaselineFile = filesBaselineFile(pathResolver);
+        if (!Files.isRegularFile(baselineFile) || !Files.isRegularFile(filesBaselineFile) || fingerprint == null) {
+            impact.setFallbackReason("No previous passing run to compare against");
+            return impact;
+        }
+        Optional<TestCoverageIndex> index = testCoverageIndexService.getIndex(pathResolver);
+        if (index.isEmpty()) {
+            impact.setFallbackReason("No per-test coverage recorded yet; run once with perTestCoverage");
+            return impact;
+        }
+
+        ClassHashes baseline = ClassHashes.read(baselineFile);
+        Set<String> changedMain = ClassHashes.changed(baseline.getMainClasses(), current.getMainClasses());
+        Set<String> changedTest = ClassHashes.changed(baseline.getTestClasses(), current.getTestClasses());
+        Set<String> changed = new TreeSet<>(changedMain);
+        changed.addAll(changedTest);
+        impact.setChangedClasses(new ArrayList<>(changed));
+
+        Set<String> changedFiles = ClassHashes.changed(readFileHashes(filesBaselineFile), fingerprint.getNonSourceHashes());
+        if (!changedFiles.isEmpty()) {
+            impact.setFallbackReason("Non-source file " + changedFiles.iterator().next()
+                    + (changedFiles.size() > 1 ? " and " + (changedFiles.size() - 1) + " more" : "")
+                    + " changed since the last passing run");
+            return impact;
+        }
+
+        Set<String> selected = new TreeSet<>();
+        for (String className : changedMain) {
+            // Removed classes still select their former tests, which now have to prove they do not need them
+            selected.addAll(index.get().getTestsCovering(className));
+        }
+        for (String className : changedTest) {
+            String topLevel = topLevelClass(className);
+            if (TestSelection.isTestClassName(topLevel)) {
+                if (current.getTestClasses().containsKey(topLevel)) {
+                    selected.add(topLevel);
+                }
+            } else {
+                List<String> covering = index.get().getTestsCovering(className);
+                if (covering.isEmpty()) {
+                    impact.setFallbackReason("Changed test support class " + className + " is not in the coverage index");
+                    return impact;
+                }
+                selected.addAll(covering);
+            }
+        }
+
+        // A test class the map has never seen could depend on anything
+        for (String className : current.getTestClasses().keySet()) {
+            if (className.indexOf('$') < 0 && TestSelection.isTestClassName(className) && !changedTest.contains(className)
+                    && !index.get().containsTestsOf(className)) {
+                impact.setFallbackReason("Test class " + className + " is not in the coverage index");
+                return impact;
+            }
+        }
+
+        selected.removeIf(test -> !TestSelection.matchesAny(scope, test));
+        impact.setSelectedTests(TestSelection.compact(selected));
+        return impact;
+    }
+
+    // Top-level test classes added or recompiled since the last passing run; empty when there is no baseline yet
+    public Set<String> getChangedTestClasses(ProjectPathResolver pathResolver, ClassHashes current) throws IOException {
+        Path baselineFile = baselineFile(pathResolver);
+        if (!Files.isRegularFile(baselineFile)) {
+            return Set.of();
+        }
+        Set<String> changed = new TreeSet<>();
+        for (String className : ClassHashes.changed(ClassHashes.read(baselineFile).getTestClasses(), current.getTestClasses())) {
+            String topLevel = topLevelClass(className);
+            if (TestSelection.isTestClassName(topLevel) && current.getTestClasses().containsKey(topLevel)) {
+                changed.add(topLevel);
+            }
+        }
+        return changed;
+    }
+
+    // Moves the baseline forward; only called after runs whose selected tests all passed, so failures are retried
+    public void saveBaseline(ProjectPathResolver pathResolver, ClassHashes current, BuildFingerprint fingerprint) throws IOException {
+        current.write(baselineFile(pathResolver));
+        if (fingerprint != null) {
+            writeFileHashes(filesBaselineFile(pathResolver), fingerprint.getNonSourceHashes());
+        } else {
+            Files.deleteIfExists(filesBaselineFile(pathResolver));
+        }
+    }
+
+    // "hash path" per line; the hash goes first since paths may contain spaces
+    private static Map<String, String> readFileHashes(Path file) throws IOException {
+        Map<String, String> hashes = new TreeMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ", 2);
+                if (parts.length != 2) {
+                    throw new IOException("Malformed file hash snapshot " + file);
+                }
+                hashes.put(parts[1], parts[0]);
+            }
+        }
+        return hashes;
+    }
+
+    private static void writeFileHashes(Path file, Map<String, String> hashes) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp)) {
+            for (Map.Entry<String, String> entry : hashes.entrySet()) {
+                writer.write(entry.getValue() + " " + entry.getKey());
+                writer.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String topLevelClass(String className) {
+        int dollar = className.indexOf('$');
+        return dollar < 0 ? className : className.substring(0, dollar);
+    }
+
+    private static Path baselineFile(ProjectPathResolver pathResolver) {
+        return Path.of(pathResolver.getWorkDirectory(), BASELINE_FILE);
+    }
+
+    private static Path filesBaselineFile(ProjectPathResolver pathResolver) {
+        return Path.of(pathResolver.getWorkDirectory(), FILES_BASELINE_FILE);
+    }
+}
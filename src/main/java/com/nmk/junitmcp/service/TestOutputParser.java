@@ -0,0 +1,171 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.dto.TestResult;
+import com.nmk.junitmcp.util.BoundedLineBuffer;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Single-pass parser for build tool output: every line is looked at once and failure context is captured as it streams by
+public abstract class TestOutputParser {
+
+    static final int CONTEXT_HEAD_LINES = 40;
+    static final int CONTEXT_TAIL_LINES = 20;
+    static final int CONTEXT_MAX_LINE_LENGTH = 1000;
+
+    private final Consumer<TestResult> resultListener;
+    private final BoundedLineBuffer failureContext = new BoundedLineBuffer(CONTEXT_HEAD_LINES, CONTEXT_TAIL_LINES, CONTEXT_MAX_LINE_LENGTH);
+    private TestResult pendingFailure;
+
+    protected TestOutputParser(Consumer<TestResult> resultListener) {
+        this.resultListener = resultListener;
+    }
+
+    public static TestOutputParser forProjectType(ProjectPathResolver.ProjectType projectType, Consumer<TestResult> resultListener) {
+        return switch (projectType) {
+            case MAVEN -> new MavenOutputParser(resultListener);
+            case GRADLE -> new GradleOutputParser(resultListener);
+        };
+    }
+
+    public void accept(String line) {
+        if (pendingFailure != null) {
+            if (!endsFailureContext(line)) {
+                failureContext.add(contextLine(line));
+                return;
+            }
+            completePendingFailure();
+        }
+        parseLine(line);
+    }
+
+    // Flushes a failure whose context ran until the end of the output
+    public void finish() {
+        if (pendingFailure != null) {
+            completePendingFailure();
+        }
+    }
+
+    protected abstract void parseLine(String line);
+
+    protected abstract boolean endsFailureContext(String line);
+
+    protected String contextLine(String line) {
+        return line;
+    }
+
+    protected void emit(TestResult result) {
+        resultListener.accept(result);
+    }
+
+    // Holds the result back until the lines describing the failure have been seen
+    protected void emitFailure(TestResult result) {
+        pendingFailure = result;
+        failureContext.clear();
+    }
+
+    private void completePendingFailure() {
+        TestResult result = pendingFailure;
+        pendingFailure = null;
+        result.setError(!failureContext.isEmpty() ? failureContext.toString().trim() : "Test failed");
+        failureContext.clear();
+        emit(result);
+    }
+
+    static class MavenOutputParser extends TestOutputParser {
+        private static final Pattern MAVEN_TEST_PATTERN = Pattern.compile("Tests run: (\\d+), Failures: (\\d+), Errors: (\\d+), Skipped: (\\d+)");
+        private static final Pattern MAVEN_TEST_NAME_PATTERN = Pattern.compile("Running (.+)");
+
+        private String currentTest;
+        private long startTime = System.currentTimeMillis();
+
+        MavenOutputParser(Consumer<TestResult> resultListener) {
+            super(resultListener);
+        }
+
+        @Override
+        protected void parseLine(String line) {
+            Matcher testNameMatcher = MAVEN_TEST_NAME_PATTERN.matcher(line);
+            if (testNameMatcher.find()) {
+                currentTest = testNameMatcher.group(1);
+                startTime = System.currentTimeMillis();
+            }
+
+            Matcher testResultMatcher = MAVEN_TEST_PATTERN.matcher(line);
+            if (testResultMatcher.find() && currentTest != null) {
+                int failures = Integer.parseInt(testResultMatcher.group(2));
+                int errors = Integer.parseInt(testResultMatcher.group(3));
+
+                TestResult result = new TestResult();
+                result.setTest(currentTest);
+                result.setDurationMs(System.currentTimeMillis() - startTime);
+                currentTest = null;
+
+                if (failures > 0 || errors > 0) {
+                    result.setStatus("FAILED");
+                    emitFailure(result);
+                } else {
+                    result.setStatus("PASSED");
+                    emit(result);
+                }
+            }
+        }
+
+        @Override
+        protected boolean endsFailureContext(String line) {
+            return line.trim().isEmpty() || line.contains("Tests run:") || line.contains("Running ");
+        }
+    }
+
+    static class GradleOutputParser extends TestOutputParser {
+        private static final Pattern GRADLE_TEST_PATTERN = Pattern.compile("(.+) > (.+) (STARTED|PASSED|FAILED|SKIPPED)");
+
+        private final Map<String, Long> testStartTimes = new HashMap<>();
+
+        GradleOutputParser(Consumer<TestResult> resultListener) {
+            super(resultListener);
+        }
+
+        @Override
+        protected void parseLine(String line) {
+            Matcher matcher = GRADLE_TEST_PATTERN.matcher(line);
+            if (!matcher.find()) {
+                return;
+            }
+
+            String fullTestName = matcher.group(1) + "#" + matcher.group(2);
+            String event = matcher.group(3);
+            if (event.equals("STARTED")) {
+                testStartTimes.put(fullTestName, System.currentTimeMillis());
+                return;
+            }
+
+            TestResult result = new TestResult();
+            result.setTest(fullTestName);
+            Long startTime = testStartTimes.remove(fullTestName);
+            result.setDurationMs(startTime != null ? System.currentTimeMillis() - startTime : 0L);
+
+            if (event.equals("FAILED")) {
+                result.setStatus("FAILED");
+                emitFailure(result);
+            } else {
+                result.setStatus(event);
+                emit(result);
+            }
+        }
+
+        @Override
+        protected boolean endsFailureContext(String line) {
+            return line.contains(" > ") || line.contains("BUILD FAILED") || line.trim().isEmpty();
+        }
+
+        @Override
+        protected String contextLine(String line) {
+            return line.trim();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.dto.TestResult;
+import com.nmk.junitmcp.util.ProjectModule;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import org.springframework.stereotype.Service;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Service
+public class TestReportReader {
+
+    private static final ThreadLocal<XMLInputFactory> XML_INPUT_FACTORY = ThreadLocal.withInitial(() -> {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    });
+
+    // Reads the Surefire/Gradle XML reports written since the given time, one per test method, from every module
+    public List<TestResult> readReports(ProjectPathResolver pathResolver, long modifiedSince) throws IOException {
+        List<Path> reportFiles = new ArrayList<>();
+        for (ProjectModule module : pathResolver.getModules()) {
+            Path reportsDir = Path.of(pathResolver.forModule(module).getTestReportsPath());
+            if (!Files.isDirectory(reportsDir)) {
+                continue;
+            }
+            try (Stream<Path> files = Files.list(reportsDir)) {
+                files.filter(file -> {
+                            String name = file.getFileName().toString();
+                            return name.startsWith("TEST-") && name.endsWith(".xml");
+                        })
+                        .filter(file -> lastModified(file) >= modifiedSince)
+                        .sorted()
+                        .forEach(reportFiles::add);
+            }
+        }
+
+        try {
+            return reportFiles.parallelStream()
+                    .flatMap(file -> parseReport(file).stream())
+                    .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Every report in one directory, e.g. the JUnit Platform console launcher's
+    public List<TestResult> readReports(Path reportsDir) throws IOException {
+        List<Path> reportFiles;
+        try (Stream<Path> files = Files.list(reportsDir)) {
+            reportFiles = files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith("TEST-") && name.endsWith(".xml");
+                    })
+                    .sorted()
+                    .toList();
+        }
+        List<TestResult> results = new ArrayList<>();
+        try {
+            reportFiles.forEach(file -> results.addAll(parseReport(file)));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return results;
+    }
+
+    List<TestResult> parseReport(Path reportFile) {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(reportFile))) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.get().createXMLStreamReader(in);
+            try {
+                return parseTestCases(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (XMLStreamException e) {
+            // Reports of a crashed fork can be truncated
+            throw new UncheckedIOException(new IOException("Malformed test report " + reportFile, e));
+        }
+    }
+
+    private List<TestResult> parseTestCases(XMLStreamReader reader) throws XMLStreamException {
+        List<TestResult> results = new ArrayList<>();
+        TestResult current = null;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String element = reader.getLocalName();
+                if (element.equals("testcase")) {
+                    current = new TestResult();
+                    String className = reader.getAttributeValue(null, "classname");
+                    String name = reader.getAttributeValue(null, "name");
+                    current.setTest(className != null ? className + "#" + name : name);
+                    current.setStatus("PASSED");
+                    current.setDurationMs(parseSeconds(reader.getAttributeValue(null, "time")));
+                } else if (current != null && (element.equals("failure") || element.equals("error"))) {
+                    current.setStatus("FAILED");
+                    current.setError(failureText(reader.getAttributeValue(null, "message"), reader.getElementText()));
+                } else if (current != null && element.equals("skipped")) {
+                    current.setStatus("SKIPPED");
+                    current.setError(reader.getAttributeValue(null, "message"));
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("testcase")) {
+                results.add(current);
+                current = null;
+            }
+        }
+        return results;
+    }
+
+    private static String failureText(String message, String stackTrace) {
+        String trace = stackTrace != null ? stackTrace.trim() : "";
+        if (!trace.isEmpty()) {
+            return trace;
+        }
+        return message != null ? message : "Test failed";
+    }
+
+    private static long parseSeconds(String time) {
+        if (time == null || time.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Math.round(Double.parseDouble(time.replace(",", "")) * 1000);
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+}
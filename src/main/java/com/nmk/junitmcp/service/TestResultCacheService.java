@@ -0,0 +1,311 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.cache.CachedTestClass;
+import com.nmk.junitmcp.cache.TestCacheKeys;
+import com.nmk.junitmcp.cache.TestResultCache;
+import com.nmk.junitmcp.config.ResultCacheProperties;
+import com.nmk.junitmcp.config.WorkerPoolProperties;
+import com.nmk.junitmcp.dto.ExecutionMode;
+import com.nmk.junitmcp.dto.RunRequest;
+import com.nmk.junitmcp.dto.TestResult;
+import com.nmk.junitmcp.junit_platform.CoverageCut;
+import com.nmk.junitmcp.util.BuildFingerprint;
+import com.nmk.junitmcp.util.ClassHashes;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import com.nmk.junitmcp.util.TestSelection;
+import lombok.RequiredArgsConstructor;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// Replays the outcome of test classes whose bytecode, dependencies and environment are unchanged since they last ran,
+// and runs only the rest. Needs the coverage cuts of IN_PROCESS and WORKER runs to split coverage by class: per test
+// when per-test coverage was asked for, per test class otherwise
+@Service
+@RequiredArgsConstructor
+public class TestResultCacheService {
+    private final ResultCacheProperties properties;
+    private final WorkerPoolProperties workerPoolProperties;
+    private final TestClasspathResolver classpathResolver;
+
+    private TestResultCache cache;
+
+    // coverageListener, when not null, gets the run's execution data cut up as cut says
+    @FunctionalInterface
+    public interface TestExecution {
+        List<TestResult> run(List<String> tests, IExecutionDataVisitor coverageData, Consumer<TestResult> resultListener,
+                             BiConsumer<String, ExecutionDataStore> coverageListener, CoverageCut cut) throws Exception;
+    }
+
+    public List<TestResult> run(RunRequest request, ProjectPathResolver pathResolver, BuildFingerprint fingerprint,
+                                List<String> tests, ExecutionDataStore coverageData, Consumer<TestResult> resultListener,
+                                BiConsumer<String, ExecutionDataStore> recorder, TestExecution execution) throws Exception {
+        List<String> uncachedTests = request.getUncachedTests();
+        if (!properties.isEnabled() || (uncachedTests != null && uncachedTests.contains("*"))) {
+            return execution.run(tests, coverageData, resultListener, recorder, CoverageCut.TEST);
+        }
+
+        TestCacheKeys keys = TestCacheKeys.compute(pathResolver, ClassHashes.compute(pathResolver),
+                environment(request.getMode(), pathResolver, fingerprint));
+        TestResultCache store = getCache();
+
+        // One selector per test class; wildcards, classes outside test-classes and opted-out classes always run
+        Map<String, CachedTestClass> hits = new LinkedHashMap<>();
+        Map<String, String> misses = new HashMap<>();
+        List<String> testsToRun = new ArrayList<>();
+        for (Map.Entry<String, String> selection : selectorsByClass(keys, tests).entrySet()) {
+            String testClass = selection.getKey();
+            String selector = selection.getValue();
+            boolean optedOut = !TestSelection.selectsAll(uncachedTests) && TestSelection.matchesAny(uncachedTests, testClass);
+            if (optedOut || !keys.isTestClass(testClass)) {
+                testsToRun.add(selector);
+                continue;
+            }
+            String key = keys.key(testClass, selector);
+            // Entries stored by runs without per-test coverage cannot feed the per-test coverage index
+            store.get(key).filter(hit -> recorder == null || hit.results().isEmpty() || !hit.testCoverage().isEmpty())
+                    .ifPresentOrElse(hit -> hits.put(testClass, hit), () -> {
+                        misses.put(testClass, key);
+                        testsToRun.add(selector);
+                    });
+        }
+
+        List<TestResult> results = new ArrayList<>();
+        for (CachedTestClass hit : hits.values()) {
+            hit.coverage().getContents().forEach(coverageData::visitClassExecution);
+            if (recorder != null) {
+                hit.testCoverage().forEach(test -> recorder.accept(test.testId(), test.data()));
+            }
+            for (TestResult result : hit.results()) {
+                result.setCached(true);
+                results.add(result);
+                resultListener.accept(result);
+            }
+        }
+        if (testsToRun.isEmpty() || (request.isFailFast() && hasFailures(results))) {
+            return results;
+        }
+
+        // Nothing cached: the selection runs exactly as requested, and only the outcome is split up by class. Coverage
+        // is cut per test only when the per-test coverage index wants it; per class is all the cache needs
+        CoverageCut cut = recorder != null ? CoverageCut.TEST : CoverageCut.TEST_CLASS;
+        CoverageCapture capture = new CoverageCapture(cut, recorder, resultListener);
+        List<TestResult> executed = execution.run(hits.isEmpty() ? tests : testsToRun, capture, capture, capture, cut);
+        capture.getData().getContents().forEach(coverageData::visitClassExecution);
+        results.addAll(executed);
+
+        // A fail-fast run that failed was cut short, so the classes it did not finish would be stored incomplete
+        if (!(request.isFailFast() && hasFailures(executed))) {
+            store(store, keys, misses, executed, capture);
+        }
+        return results;
+    }
+
+    private void store(TestResultCache store, TestCacheKeys keys, Map<String, String> misses, List<TestResult> executed,
+                       CoverageCapture capture) throws IOException {
+        List<Cut> cuts = capture.finish();
+        Map<String, List<TestResult>> resultsByClass = new HashMap<>();
+        Map<String, ExecutionDataStore> coverageByClass = new HashMap<>();
+        Map<String, List<CachedTestClass.TestData>> testCoverageByClass = new HashMap<>();
+        // Classes whose outcome cannot be told apart from the others' are not stored
+        Set<String> unattributed = new HashSet<>();
+
+        if (capture.cut == CoverageCut.TEST_CLASS) {
+            // Tests report their results before their class finishes, so each cut holds its class's results, dynamic
+            // tests without a method source included
+            for (Cut classCut : cuts) {
+                String testClass = keys.testClassOf(classCut.id());
+                if (testClass != null) {
+                    resultsByClass.computeIfAbsent(testClass, key -> new ArrayList<>()).addAll(classCut.results());
+                    classCut.coverage().getContents().forEach(coverageByClass.computeIfAbsent(testClass,
+                            key -> new ExecutionDataStore())::visitClassExecution);
+                }
+            }
+            // Results after the last cut belong to a class that never finished
+            for (TestResult result : capture.trailingResults()) {
+                String testClass = testClassOf(keys, result.getTest());
+                unattributed.add(testClass);
+                if (testClass == null) {
+                    unattributed.addAll(misses.keySet());
+                }
+            }
+        } else {
+            List<String> owners = new ArrayList<>();
+            for (TestResult result : executed) {
+                String testClass = testClassOf(keys, result.getTest());
+                owners.add(testClass);
+                if (testClass != null) {
+                    resultsByClass.computeIfAbsent(testClass, key -> new ArrayList<>()).add(result);
+                }
+            }
+            // Dynamic tests without a method source report display names. Classes run one after the other, so such
+            // a test belongs to the class of the tests around it, or to a class that reported nothing else
+            for (int i = 0; i < owners.size(); i++) {
+                if (owners.get(i) == null) {
+                    unattributed.add(neighbour(owners, i, -1));
+                    unattributed.add(neighbour(owners, i, 1));
+                    misses.keySet().stream().filter(testClass -> !resultsByClass.containsKey(testClass)).forEach(unattributed::add);
+                }
+            }
+            for (Cut testCut : cuts) {
+                String testClass = testClassOf(keys, testCut.id());
+                if (testClass == null) {
+                    continue;
+                }
+                testCut.coverage().getContents().forEach(coverageByClass.computeIfAbsent(testClass,
+                        key -> new ExecutionDataStore())::visitClassExecution);
+                testCoverageByClass.computeIfAbsent(testClass, key -> new ArrayList<>())
+                        .add(new CachedTestClass.TestData(testCut.id(), testCut.testData()));
+            }
+        }
+
+        for (Map.Entry<String, String> miss : misses.entrySet()) {
+            String testClass = miss.getKey();
+            if (!unattributed.contains(testClass)) {
+                store.put(miss.getValue(), new CachedTestClass(resultsByClass.getOrDefault(testClass, List.of()),
+                        coverageByClass.getOrDefault(testClass, new ExecutionDataStore()),
+                        testCoverageByClass.getOrDefault(testClass, List.of())));
+            }
+        }
+    }
+
+    // The nearest known owner before (step -1) or after (step 1) the given position
+    private static String neighbour(List<String> owners, int index, int step) {
+        for (int i = index + step; i >= 0 && i < owners.size(); i += step) {
+            if (owners.get(i) != null) {
+                return owners.get(i);
+            }
+        }
+        return null;
+    }
+
+    // The same grouping Surefire-style selectors get elsewhere: "Class" absorbs its methods, methods merge into one
+    // "Class#m1+m2" selector. A full-suite run expands to every test class in test-classes
+    private static Map<String, String> selectorsByClass(TestCacheKeys keys, List<String> tests) throws IOException {
+        Map<String, String> selectors = new TreeMap<>();
+        if (TestSelection.selectsAll(tests)) {
+            keys.getTestClasses().forEach(testClass -> selectors.put(testClass, testClass));
+            return selectors;
+        }
+        for (String selector : TestSelection.compact(tests)) {
+            int hash = selector.indexOf('#');
+            selectors.put(hash < 0 ? selector : selector.substring(0, hash), selector);
+        }
+        return selectors;
+    }
+
+    private static String testClassOf(TestCacheKeys keys, String testId) throws IOException {
+        int hash = testId.indexOf('#');
+        return hash < 0 ? null : keys.testClassOf(testId.substring(0, hash));
+    }
+
+    // The project's own output directories are hashed class by class; everything else on the classpath by size and mtime
+    private String environment(ExecutionMode mode, ProjectPathResolver pathResolver, BuildFingerprint fingerprint)
+            throws IOException, InterruptedException {
+        StringBuilder environment = new StringBuilder()
+                .append(mode).append('\n')
+                .append(System.getProperty("java.vendor")).append(' ').append(Runtime.version()).append('\n');
+        if (mode == ExecutionMode.WORKER) {
+            environment.append(String.join(" ", workerPoolProperties.getJvmArgs())).append('\n');
+        }
+        Set<Path> outputs = Set.of(Path.of(pathResolver.getClassesPath()).toAbsolutePath().normalize(),
+                Path.of(pathResolver.getTestClassesPath()).toAbsolutePath().normalize());
+        for (String entry : classpathResolver.resolve(pathResolver, fingerprint)) {
+            if (!outputs.contains(Path.of(entry).toAbsolutePath().normalize())) {
+                File file = new File(entry);
+                environment.append(entry).append(' ').append(file.length()).append(' ').append(file.lastModified()).append('\n');
+            }
+        }
+        return environment.toString();
+    }
+
+    private synchronized TestResultCache getCache() throws IOException {
+        if (cache == null) {
+            cache = TestResultCache.open(Path.of(properties.getDirectory()), properties.getMaxSize().toBytes());
+        }
+        return cache;
+    }
+
+    private static boolean hasFailures(List<TestResult> results) {
+        return results.stream().anyMatch(result -> "FAILED".equals(result.getStatus()));
+    }
+
+    // Splits a run's coverage at the cuts the runner makes: whatever was collected since the previous cut (class setup,
+    // static initializers) counts for the test or class of the next one, and whatever runs after the last cut counts
+    // for that one. With class cuts, results are split the same way
+    private static class CoverageCapture implements IExecutionDataVisitor, BiConsumer<String, ExecutionDataStore>,
+            Consumer<TestResult> {
+        private final CoverageCut cut;
+        private final BiConsumer<String, ExecutionDataStore> recorder;
+        private final Consumer<TestResult> resultListener;
+        private final ExecutionDataStore data = new ExecutionDataStore();
+        private final List<Cut> cuts = new ArrayList<>();
+        private ExecutionDataStore pending = new ExecutionDataStore();
+        private List<TestResult> pendingResults = new ArrayList<>();
+
+        CoverageCapture(CoverageCut cut, BiConsumer<String, ExecutionDataStore> recorder,
+                        Consumer<TestResult> resultListener) {
+            this.cut = cut;
+            this.recorder = recorder;
+            this.resultListener = resultListener;
+        }
+
+        @Override
+        public synchronized void visitClassExecution(ExecutionData classData) {
+            data.visitClassExecution(classData);
+            pending.visitClassExecution(new ExecutionData(classData.getId(), classData.getName(), classData.getProbes().clone()));
+        }
+
+        @Override
+        public synchronized void accept(String id, ExecutionDataStore cutData) {
+            cuts.add(new Cut(id, pending, cutData, pendingResults));
+            pending = new ExecutionDataStore();
+            pendingResults = new ArrayList<>();
+            if (recorder != null && cut == CoverageCut.TEST) {
+                recorder.accept(id, cutData);
+            }
+        }
+
+        @Override
+        public void accept(TestResult result) {
+            synchronized (this) {
+                pendingResults.add(result);
+            }
+            resultListener.accept(result);
+        }
+
+        synchronized ExecutionDataStore getData() {
+            return data;
+        }
+
+        synchronized List<Cut> finish() {
+            if (!cuts.isEmpty()) {
+                pending.getContents().forEach(cuts.getLast().coverage()::visitClassExecution);
+            }
+            pending = new ExecutionDataStore();
+            return cuts;
+        }
+
+        synchronized List<TestResult> trailingResults() {
+            return pendingResults;
+        }
+    }
+
+    private record Cut(String id, ExecutionDataStore coverage, ExecutionDataStore testData, List<TestResult> results) {
+    }
+}
@@ -0,0 +1,274 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.dto.BuildMode;
+import com.nmk.junitmcp.dto.BuildTiming;
+import com.nmk.junitmcp.dto.ExecutionMode;
+import com.nmk.junitmcp.dto.RunPhase;
+import com.nmk.junitmcp.dto.RunRequest;
+import com.nmk.junitmcp.dto.RunResponse;
+import com.nmk.junitmcp.dto.TestImpact;
+import com.nmk.junitmcp.dto.TestResult;
+import com.nmk.junitmcp.log.RunLog;
+import com.nmk.junitmcp.util.BuildFingerprint;
+import com.nmk.junitmcp.util.ClassHashes;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import com.nmk.junitmcp.util.TestClasses;
+import com.nmk.junitmcp.util.TestSelection;
+import com.nmk.junitmcp.worker.TestWorkerPool;
+import lombok.RequiredArgsConstructor;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+@RequiredArgsConstructor
+public class TestRunService {
+    // Lines of build output quoted in a build failure, starting a few lines before the first error
+    private static final int FAILURE_CONTEXT_BEFORE = 5;
+    private static final int FAILURE_CONTEXT_LINES = 60;
+
+    private final ExternalProjectService externalProjectService;
+    private final ExternalTestRunner externalTestRunner;
+    private final ShardedTestRunner shardedTestRunner;
+    private final InProcessTestRunner inProcessTestRunner;
+    private final TestClasspathResolver classpathResolver;
+    private final TestWorkerPool testWorkerPool;
+    private final CoverageService coverageService;
+    private final LiveCoverageService liveCoverageService;
+    private final TestCoverageIndexService testCoverageIndexService;
+    private final TestImpactService testImpactService;
+    private final TestHistoryService testHistoryService;
+    private final TestResultCacheService testResultCacheService;
+    private final RunLogService runLogService;
+    private final RunMetrics runMetrics;
+
+    public RunResponse run(RunRequest request) throws Exception {
+        return run(request, RunListener.NONE);
+    }
+
+    public RunResponse run(RunRequest request, RunListener listener) throws Exception {
+        ProjectPathResolver pathResolver = new ProjectPathResolver(request.getProjectPath()).withModules(request.getModules());
+        ExecutionMode mode = request.getMode() != null ? request.getMode() : ExecutionMode.EXTERNAL;
+        if (request.isPerTestCoverage() && mode == ExecutionMode.EXTERNAL) {
+            throw new IllegalArgumentException("Per-test coverage needs mode IN_PROCESS or WORKER");
+        }
+        // IN_PROCESS and WORKER load one set of output directories and one classpath; on an aggregator root those are
+        // empty and the run would pass without running anything
+        if (mode != ExecutionMode.EXTERNAL && pathResolver.isMultiModule()) {
+            throw new IllegalArgumentException("Multi-module builds need mode EXTERNAL");
+        }
+
+        // Build and test output goes to a log file instead of the heap; clients page through it by line range
+        try (RunLog log = runLogService.open(pathResolver); RunMetrics.RunTimer timer = runMetrics.startRun(mode)) {
+            RunResponse response;
+            try {
+                response = run(request, pathResolver, mode, listener, log, timer);
+            } finally {
+                timer.outputWritten(log.getSize());
+            }
+            response.setLogId(log.getId());
+            response.setPhaseDurationsMs(timer.getDurationsMs());
+            if (request.isOmitClassCoverage()) {
+                response.setCoverage(null);
+            }
+            return response;
+        }
+    }
+
+    private RunResponse run(RunRequest request, ProjectPathResolver pathResolver, ExecutionMode mode, RunListener listener,
+                            RunLog log, RunMetrics.RunTimer timer) throws Exception {
+        // Startup vs execution time of every build-tool invocation, to show what warm daemons save
+        List<BuildTiming> buildTimings = Collections.synchronizedList(new ArrayList<>());
+        RunListener runListener = new ForwardingRunListener(request.isFailFast() ? new FailFastRunListener(listener) : listener) {
+            @Override
+            public void buildFinished(BuildTiming timing) {
+                buildTimings.add(timing);
+                super.buildFinished(timing);
+            }
+
+            @Override
+            public void buildOutput(String line) {
+                log.append(line);
+                super.buildOutput(line);
+            }
+        };
+
+        // 1. Build external project if needed
+        runListener.phaseStarted(RunPhase.BUILD);
+        long buildStartedAt = System.nanoTime();
+        BuildMode buildMode;
+        try {
+            buildMode = externalProjectService.buildProject(pathResolver, runListener);
+        } catch (BuildFailedException e) {
+            throw new BuildFailedException(e.getExitCode(), log.getFailureContext(FAILURE_CONTEXT_BEFORE, FAILURE_CONTEXT_LINES)
+                    + "Full output: GET /mcp/junit/logs/" + log.getId());
+        } finally {
+            timer.record(RunPhase.BUILD, buildStartedAt);
+        }
+
+        // Only full-suite runs of every module can move the change-detection baseline forward
+        List<String> tests = request.getTests();
+        boolean fullSuite = TestSelection.selectsAll(tests) && pathResolver.getSelectedModules() == null;
+        ClassHashes classHashes = request.isAffectedOnly() || request.isFailedFirst() || fullSuite
+                ? ClassHashes.compute(pathResolver) : null;
+        TestImpact impact = null;
+        if (request.isAffectedOnly()) {
+            // Narrow the selection to tests affected by classes changed since the last passing run
+            impact = testImpactService.selectAffected(pathResolver, classHashes,
+                    externalProjectService.getBuiltFingerprint(pathResolver), tests);
+            if (impact.getSelectedTests() != null) {
+                if (impact.getSelectedTests().isEmpty()) {
+                    runListener.coverageReady(Map.of());
+                    return createResponse(new ArrayList<>(), CoverageReport.empty(), buildMode, mode, impact, buildTimings);
+                }
+                tests = impact.getSelectedTests();
+            }
+        }
+
+        Execution execution;
+        try (TestCoverageIndexService.Recorder recorder = request.isPerTestCoverage()
+                ? testCoverageIndexService.startRecording(pathResolver) : null) {
+            // 2. Test classes with previously failing tests and recently changed ones go first, in a run of their
+            // own, so a red result shows up without waiting for the rest of the suite; the rest runs without them
+            TestSelection.Split split = request.isFailedFirst() ? prioritize(pathResolver, classHashes, tests) : null;
+            if (split == null || split.matching().isEmpty() || split.rest().isEmpty()) {
+                execution = execute(request, mode, pathResolver, tests, runListener, recorder, timer);
+            } else {
+                execution = execute(request, mode, pathResolver, split.matching(), runListener, recorder, timer);
+                if (!(request.isFailFast() && hasFailures(execution.results()))) {
+                    execution = merge(execution, execute(request, mode, pathResolver, split.rest(), runListener, recorder, timer));
+                }
+            }
+
+            if (recorder != null) {
+                recorder.commit();
+            }
+        }
+
+        // 4. Analyze coverage collected by the instrumenting class loader, dumped by the worker's JaCoCo agent,
+        // streamed by external runs' agents or loaded from their exec files, once for all runs
+        runListener.phaseStarted(RunPhase.COVERAGE);
+        long coverageStartedAt = System.nanoTime();
+        CoverageReport coverage = execution.executionData() != null
+                ? coverageService.analyze(execution.executionData(), pathResolver)
+                : CoverageReport.empty();
+        timer.record(RunPhase.COVERAGE, coverageStartedAt);
+        timer.coverageAnalyzed(coverage);
+
+        // Replayed results say nothing new about how a test behaves
+        testHistoryService.record(pathResolver, execution.results().stream().filter(result -> !result.isCached()).toList());
+        if (fullSuite && !hasFailures(execution.results())) {
+            testImpactService.saveBaseline(pathResolver, classHashes, externalProjectService.getBuiltFingerprint(pathResolver));
+        }
+
+        runListener.coverageReady(coverage.coverage());
+
+        // 5. Create response
+        return createResponse(execution.results(), coverage, buildMode, mode, impact, buildTimings);
+    }
+
+    private Execution execute(RunRequest request, ExecutionMode mode, ProjectPathResolver pathResolver, List<String> tests,
+                              RunListener listener, TestCoverageIndexService.Recorder recorder,
+                              RunMetrics.RunTimer timer) throws Exception {
+        List<TestResult> testResults;
+        ExecutionDataStore executionData = null;
+        listener.phaseStarted(RunPhase.TEST);
+        long testStartedAt = System.nanoTime();
+        if (mode == ExecutionMode.IN_PROCESS || mode == ExecutionMode.WORKER) {
+            // 3. Replay test classes whose outcome is cached, then run the rest in this JVM through the JUnit
+            // Platform launcher, or in a warm forked worker JVM
+            BuildFingerprint fingerprint = externalProjectService.getBuiltFingerprint(pathResolver);
+            executionData = new ExecutionDataStore();
+            testResults = testResultCacheService.run(request, pathResolver, fingerprint, tests, executionData,
+                    listener::testFinished, recorder, (selection, coverageData, resultListener, coverageListener, cut) -> mode == ExecutionMode.IN_PROCESS
+                            ? inProcessTestRunner.runTests(pathResolver, fingerprint, selection, coverageData,
+                                    resultListener, coverageListener, cut, request.isFailFast(), listener::buildStarted)
+                            : testWorkerPool.runTests(pathResolver, classpathResolver.resolve(pathResolver, fingerprint),
+                                    fingerprint.getHash(), selection, coverageData, resultListener,
+                                    coverageListener, cut, request.isFailFast(), listener::buildStarted));
+        } else {
+            // 3. Run tests via external process, optionally split across parallel shards; with failFast the
+            // listener kills the processes at the first failure. With the TCP coverage transport the test JVMs'
+            // agents stream their coverage to this server
+            try (LiveCoverageService.Session liveCoverage = liveCoverageService.start(pathResolver, listener)) {
+                ProjectPathResolver testResolver = liveCoverage != null ? pathResolver.withLiveCoverage(liveCoverage.getPort()) : pathResolver;
+                if (request.getShards() > 1) {
+                    testResults = shardedTestRunner.runTests(testResolver, tests, request.getShards(), listener);
+                } else {
+                    testResults = externalTestRunner.runTests(testResolver, tests, request.isFailFast(), listener);
+                }
+                if (liveCoverage != null) {
+                    executionData = liveCoverage.finish();
+                }
+            }
+        }
+        timer.record(RunPhase.TEST, testStartedAt);
+        timer.testsFinished(testResults);
+
+        // Other external runs left exec files (shards have merged theirs by now); a later run may overwrite them
+        if (executionData == null) {
+            executionData = coverageService.loadExecutionData(pathResolver);
+        }
+        return new Execution(testResults, executionData);
+    }
+
+    // Splits the selection into the test classes that go first and the rest
+    private TestSelection.Split prioritize(ProjectPathResolver pathResolver, ClassHashes classHashes, List<String> tests) throws IOException {
+        Set<String> priority = new LinkedHashSet<>();
+        for (String test : testHistoryService.getFailingTests(pathResolver, tests)) {
+            int hash = test.indexOf('#');
+            priority.add(hash < 0 ? test : test.substring(0, hash));
+        }
+        for (String testClass : testImpactService.getChangedTestClasses(pathResolver, classHashes)) {
+            if (TestSelection.matchesAny(tests, testClass)) {
+                priority.add(testClass);
+            }
+        }
+        if (priority.isEmpty()) {
+            return null;
+        }
+        return TestSelection.split(tests, priority, TestClasses.find(pathResolver));
+    }
+
+    // The runs picked disjoint classes, so both keep all their results
+    private static Execution merge(Execution first, Execution second) {
+        List<TestResult> results = new ArrayList<>(first.results());
+        results.addAll(second.results());
+        ExecutionDataStore executionData = first.executionData();
+        if (executionData == null) {
+            executionData = second.executionData();
+        } else if (second.executionData() != null) {
+            second.executionData().accept(executionData);
+        }
+        return new Execution(results, executionData);
+    }
+
+    private static boolean hasFailures(List<TestResult> results) {
+        return results.stream().anyMatch(result -> "FAILED".equals(result.getStatus()));
+    }
+
+    private static RunResponse createResponse(List<TestResult> testResults, CoverageReport coverage, BuildMode buildMode,
+                                              ExecutionMode mode, TestImpact impact, List<BuildTiming> buildTimings) {
+        RunResponse response = new RunResponse();
+        response.setResults(testResults);
+        response.setCachedTests((int) testResults.stream().filter(TestResult::isCached).count());
+        response.setCoverage(coverage.coverage());
+        response.setCoverageTotals(coverage.totals());
+        response.setCoverageCache(coverage.cacheStats());
+        response.setBuildMode(buildMode);
+        response.setMode(mode);
+        response.setImpact(impact);
+        response.setBuildTimings(List.copyOf(buildTimings));
+        return response;
+    }
+
+    private record Execution(List<TestResult> results, ExecutionDataStore executionData) {
+    }
+}
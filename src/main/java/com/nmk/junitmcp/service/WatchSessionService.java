@@ -0,0 +1,365 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.config.WatchProperties;
+import com.nmk.junitmcp.dto.RunRequest;
+import com.nmk.junitmcp.dto.RunResponse;
+import com.nmk.junitmcp.dto.TestResult;
+import com.nmk.junitmcp.dto.WatchSession;
+import com.nmk.junitmcp.dto.WatchStatus;
+import com.nmk.junitmcp.util.BuildFingerprint;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import com.nmk.junitmcp.util.TestClasses;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.BeanUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Watch sessions take the build and the test run off the client's critical path: the project's sources are watched,
+// every settled burst of changes rebuilds it and re-runs the registered request in the background, and queries get
+// the latest result right away or wait only for the run that picks up the changes seen so far. Runs go through the
+// job queue, so they share and merge with client runs of the same project. Which tests re-run is up to the request:
+// IN_PROCESS and WORKER replay unchanged test classes from the result cache, affectedOnly narrows to affected tests
+@Service
+@RequiredArgsConstructor
+public class WatchSessionService {
+    private final RunJobService runJobService;
+    private final WatchProperties properties;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    // An identical registration for the same project joins the existing session
+    public WatchSession register(RunRequest request) throws IOException {
+        ProjectPathResolver pathResolver = new ProjectPathResolver(request.getProjectPath());
+        synchronized (sessions) {
+            for (Session session : sessions.values()) {
+                if (session.projectPath.equals(pathResolver.getCanonicalPath()) && session.request.equals(request)) {
+                    session.touch();
+                    return session.snapshot();
+                }
+            }
+            RunRequest template = new RunRequest();
+            BeanUtils.copyProperties(request, template);
+            Session session = new Session(UUID.randomUUID().toString(), pathResolver.getCanonicalPath(), template);
+            session.start();
+            sessions.put(session.id, session);
+            return session.snapshot();
+        }
+    }
+
+    public Optional<WatchSession> getSession(String id) {
+        return Optional.ofNullable(sessions.get(id)).map(Session::snapshot);
+    }
+
+    // Empty while no run has finished yet; a failed latest run rethrows its error like a synchronous run would
+    public Optional<RunResponse> getResult(String id, boolean wait) throws Exception {
+        Session session = sessions.get(id);
+        return session == null ? Optional.empty() : Optional.ofNullable(session.awaitResult(wait));
+    }
+
+    public Optional<WatchSession> close(String id) {
+        Session session = sessions.remove(id);
+        if (session == null) {
+            return Optional.empty();
+        }
+        session.close();
+        return Optional.of(session.snapshot());
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void closeIdleSessions() {
+        Instant cutoff = Instant.now().minus(properties.getIdleTimeout());
+        for (Session session : sessions.values()) {
+            if (session.lastAccessedAt().isBefore(cutoff)) {
+                close(session.id);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sessions.keySet().forEach(this::close);
+    }
+
+    // affectedOnly runs report only the tests they picked; the others keep their last known outcome, unless their test
+    // class is gone (testClasses is null when that could not be read) or changed, so earlier results may be stale
+    private static RunResponse merge(RunResponse previous, RunResponse latest, Set<String> testClasses) {
+        if (previous == null || previous.getResults() == null || latest.getResults() == null
+                || latest.getImpact() == null || latest.getImpact().getSelectedTests() == null || testClasses == null) {
+            return latest;
+        }
+        Set<String> changed = latest.getImpact().getChangedClasses() == null ? Set.of()
+                : new HashSet<>(latest.getImpact().getChangedClasses());
+        Set<String> rerun = new HashSet<>();
+        latest.getResults().forEach(result -> rerun.add(result.getTest()));
+        List<TestResult> results = new ArrayList<>(latest.getResults());
+        previous.getResults().stream()
+                .filter(result -> !rerun.contains(result.getTest()))
+                .filter(result -> {
+                    String testClass = testClassOf(result.getTest());
+                    return testClasses.contains(testClass) && !changed.contains(testClass);
+                })
+                .forEach(results::add);
+
+        RunResponse merged = new RunResponse();
+        BeanUtils.copyProperties(latest, merged);
+        merged.setResults(results);
+        merged.setCachedTests((int) results.stream().filter(TestResult::isCached).count());
+        return merged;
+    }
+
+    // "p.OuterTest$Nested#test()" -> "p.OuterTest"
+    private static String testClassOf(String test) {
+        int hash = test.indexOf('#');
+        String className = hash < 0 ? test : test.substring(0, hash);
+        int dollar = className.indexOf('$');
+        return dollar < 0 ? className : className.substring(0, dollar);
+    }
+
+    private class Session {
+        private final String id;
+        private final String projectPath;
+        private final RunRequest request;
+        private final Path root;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition runFinished = lock.newCondition();
+        private WatchService watcher;
+        private Thread thread;
+        // Changes seen so far vs changes the latest finished run had seen when it started
+        private long changes = 1;
+        private long completed;
+        private boolean running;
+        private boolean closed;
+        private int runs;
+        private RunResponse response;
+        private Exception error;
+        private Instant lastChangeAt;
+        private Instant lastRunFinishedAt;
+        private volatile Instant lastAccessedAt = Instant.now();
+
+        Session(String id, String projectPath, RunRequest request) {
+            this.id = id;
+            this.projectPath = projectPath;
+            this.request = request;
+            this.root = Path.of(projectPath);
+        }
+
+        void start() throws IOException {
+            watcher = FileSystems.getDefault().newWatchService();
+            try {
+                registerTree(root);
+            } catch (IOException e) {
+                watcher.close();
+                throw e;
+            }
+            thread = Thread.ofVirtual().name("watch-" + id).start(this::watch);
+        }
+
+        private void watch() {
+            try {
+                runOnce();
+                while (true) {
+                    if (!process(watcher.take())) {
+                        continue;
+                    }
+                    // Let the burst settle before building
+                    WatchKey key;
+                    while ((key = watcher.poll(properties.getDebounce().toMillis(), TimeUnit.MILLISECONDS)) != null) {
+                        process(key);
+                    }
+                    runOnce();
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // Closed
+            }
+        }
+
+        private void runOnce() throws InterruptedException {
+            long generation;
+            lock.lock();
+            try {
+                running = true;
+                generation = changes;
+            } finally {
+                lock.unlock();
+            }
+
+            RunResponse latest = null;
+            Set<String> testClasses = null;
+            Exception failure = null;
+            try {
+                latest = runJobService.runAndWait(request, RunListener.NONE);
+                testClasses = testClasses();
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                failure = e;
+            } finally {
+                lock.lock();
+                try {
+                    running = false;
+                    completed = generation;
+                    runs++;
+                    if (latest != null) {
+                        response = merge(response, latest, testClasses);
+                    }
+                    error = failure;
+                    lastRunFinishedAt = Instant.now();
+                    runFinished.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        // The project's test classes after the run's build; null when they cannot be read
+        private Set<String> testClasses() {
+            try {
+                return new HashSet<>(TestClasses.find(new ProjectPathResolver(projectPath).withModules(request.getModules())));
+            } catch (IOException | RuntimeException e) {
+                return null;
+            }
+        }
+
+        // True when a source or build file changed; new directories are watched from now on
+        private boolean process(WatchKey key) {
+            Path directory = (Path) key.watchable();
+            boolean changed = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    changed = true;
+                    continue;
+                }
+                Path path = directory.resolve((Path) event.context());
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    try {
+                        registerTree(path);
+                    } catch (IOException e) {
+                        // Gone again already
+                    }
+                }
+                changed |= BuildFingerprint.isTracked(root.relativize(path));
+            }
+            key.reset();
+
+            if (changed) {
+                lock.lock();
+                try {
+                    changes++;
+                    lastChangeAt = Instant.now();
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return changed;
+        }
+
+        private void registerTree(Path start) throws IOException {
+            Files.walkFileTree(start, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (!dir.equals(root) && BuildFingerprint.isExcludedDirectory(dir.getFileName().toString())) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+                            StandardWatchEventKinds.ENTRY_MODIFY);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+
+        // Waits for the run that covers the changes seen when the query came in, not for later ones
+        RunResponse awaitResult(boolean wait) throws Exception {
+            touch();
+            lock.lockInterruptibly();
+            try {
+                long target = changes;
+                while (wait && completed < target && !closed) {
+                    runFinished.await();
+                }
+                if (error != null) {
+                    throw error;
+                }
+                return response;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void close() {
+            lock.lock();
+            try {
+                closed = true;
+                runFinished.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                // Nothing more to watch either way
+            }
+            thread.interrupt();
+        }
+
+        void touch() {
+            lastAccessedAt = Instant.now();
+        }
+
+        Instant lastAccessedAt() {
+            return lastAccessedAt;
+        }
+
+        WatchSession snapshot() {
+            lock.lock();
+            try {
+                WatchSession session = new WatchSession();
+                session.setId(id);
+                session.setProjectPath(projectPath);
+                session.setStatus(closed ? WatchStatus.CLOSED
+                        : running ? WatchStatus.RUNNING
+                        : completed < changes ? WatchStatus.PENDING
+                        : error != null ? WatchStatus.FAILED
+                        : WatchStatus.CURRENT);
+                session.setRuns(runs);
+                session.setLastChangeAt(lastChangeAt);
+                session.setLastRunFinishedAt(lastRunFinishedAt);
+                session.setError(error != null ? (error.getMessage() != null ? error.getMessage() : error.getClass().getName()) : null);
+                return session;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.nmk.junitmcp.util;
+
+import java.util.Arrays;
+
+// Keeps the first lines of a block plus a ring of its most recent lines, so memory stays fixed however long the block gets
+public class BoundedLineBuffer {
+    private final int maxLineLength;
+    private final String[] head;
+    private final String[] tail;
+    private int headSize;
+    private int tailStart;
+    private int tailSize;
+    private long omitted;
+
+    public BoundedLineBuffer(int headLines, int tailLines, int maxLineLength) {
+        this.head = new String[headLines];
+        this.tail = new String[tailLines];
+        this.maxLineLength = maxLineLength;
+    }
+
+    public void add(String line) {
+        String bounded = line.length() > maxLineLength ? line.substring(0, maxLineLength) + "..." : line;
+        if (headSize < head.length) {
+            head[headSize++] = bounded;
+            return;
+        }
+        if (tail.length == 0) {
+            omitted++;
+            return;
+        }
+        if (tailSize < tail.length) {
+            tail[(tailStart + tailSize++) % tail.length] = bounded;
+        } else {
+            // Ring is full: overwrite the oldest tail line
+            tail[tailStart] = bounded;
+            tailStart = (tailStart + 1) % tail.length;
+            omitted++;
+        }
+    }
+
+    public boolean isEmpty() {
+        return headSize == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(head, 0, headSize, null);
+        Arrays.fill(tail, null);
+        headSize = 0;
+        tailStart = 0;
+        tailSize = 0;
+        omitted = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < headSize; i++) {
+            text.append(head[i]).append("\n");
+        }
+        if (omitted > 0) {
+            text.append("... ").append(omitted).append(" lines omitted ...\n");
+        }
+        for (int i = 0; i < tailSize; i++) {
+            text.append(tail[(tailStart + i) % tail.length]).append("\n");
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package com.nmk.junitmcp.util;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+@Getter
+public class BuildFingerprint {
+    private static final Set<String> EXCLUDED_DIRS = Set.of("target", "build", "out", "node_modules", ".git", ".gradle", ".idea");
+    private static final Set<String> BUILD_FILES = Set.of(
+            "pom.xml", "build.gradle", "build.gradle.kts", "settings.gradle", "settings.gradle.kts",
+            "gradle.properties", "libs.versions.toml", "gradle.lockfile");
+    private static final Set<String> SOURCE_EXTENSIONS = Set.of(".java", ".kt", ".groovy", ".scala");
+
+    // Content hashes of the most recently fingerprinted projects
+    private static final FileHashCache<String> FILE_HASH_CACHE = new FileHashCache<>(16);
+
+    private final String hash;
+    private final Map<String, String> fileHashes;
+
+    private BuildFingerprint(String hash, Map<String, String> fileHashes) {
+        this.hash = hash;
+        this.fileHashes = fileHashes;
+    }
+
+    public static BuildFingerprint compute(String projectPath) throws IOException {
+        Path root = Path.of(projectPath).toAbsolutePath().normalize();
+        Map<String, String> fileHashes = new TreeMap<>();
+        FileHashCache<String>.Scan scan = FILE_HASH_CACHE.start(root);
+
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!dir.equals(root) && isExcludedDirectory(dir.getFileName().toString())) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path relative = root.relativize(file);
+                if (isTracked(relative)) {
+                    fileHashes.put(relative.toString().replace('\\', '/'), scan.get(file, attrs, BuildFingerprint::hashFile));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        scan.finish();
+
+        return new BuildFingerprint(digestEntries(fileHashes, path -> true), fileHashes);
+    }
+
+    public String getBuildFilesHash() {
+        return digestEntries(fileHashes, BuildFingerprint::isBuildFile);
+    }
+
+    // Tracked files that do not compile to classes: resources, build files and anything else under src
+    public Map<String, String> getNonSourceHashes() {
+        Map<String, String> hashes = new TreeMap<>();
+        fileHashes.forEach((path, hash) -> {
+            if (!isSource(path)) {
+                hashes.put(path, hash);
+            }
+        });
+        return hashes;
+    }
+
+    public static boolean isSource(String relativePath) {
+        int lastDot = relativePath.lastIndexOf('.');
+        return lastDot >= 0 && SOURCE_EXTENSIONS.contains(relativePath.substring(lastDot));
+    }
+
+    public static boolean isBuildFile(String relativePath) {
+        int lastSlash = relativePath.lastIndexOf('/');
+        return BUILD_FILES.contains(relativePath.substring(lastSlash + 1));
+    }
+
+    // Build output, VCS and IDE directories never feed into a build
+    public static boolean isExcludedDirectory(String name) {
+        return EXCLUDED_DIRS.contains(name);
+    }
+
+    // Build files anywhere, and everything below a "src" directory
+    public static boolean isTracked(Path relative) {
+        if (BUILD_FILES.contains(relative.getFileName().toString())) {
+            return true;
+        }
+        for (Path segment : relative) {
+            if (segment.toString().equals("src")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String hashFile(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String digestEntries(Map<String, String> fileHashes, Predicate<String> filter) {
+        MessageDigest digest = newDigest();
+        for (Map.Entry<String, String> entry : fileHashes.entrySet()) {
+            if (filter.test(entry.getKey())) {
+                digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.nmk.junitmcp.util;
+
+import lombok.Getter;
+import org.jacoco.core.internal.data.CRC64;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Snapshot of the compiled main and test classes of a project and all its modules: class name -> JaCoCo class id
+// (a CRC64 of the bytecode)
+@Getter
+public class ClassHashes {
+    private static final String MAIN = "M";
+    private static final String TEST = "T";
+
+    // Class ids of the most recently hashed output directories, two per module
+    private static final FileHashCache<Long> FILE_HASH_CACHE = new FileHashCache<>(128);
+
+    private final Map<String, Long> mainClasses;
+    private final Map<String, Long> testClasses;
+
+    private ClassHashes(Map<String, Long> mainClasses, Map<String, Long> testClasses) {
+        this.mainClasses = mainClasses;
+        this.testClasses = testClasses;
+    }
+
+    public static ClassHashes compute(ProjectPathResolver pathResolver) throws IOException {
+        Map<String, Long> mainClasses = new TreeMap<>();
+        Map<String, Long> testClasses = new TreeMap<>();
+        for (ProjectModule module : pathResolver.getModules()) {
+            ProjectPathResolver moduleResolver = pathResolver.forModule(module);
+            hashClasses(Path.of(moduleResolver.getClassesPath()), mainClasses);
+            hashClasses(Path.of(moduleResolver.getTestClassesPath()), testClasses);
+        }
+        return new ClassHashes(mainClasses, testClasses);
+    }
+
+    public static ClassHashes read(Path file) throws IOException {
+        Map<String, Long> mainClasses = new TreeMap<>();
+        Map<String, Long> testClasses = new TreeMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (parts.length != 3) {
+                    throw new IOException("Malformed class hash snapshot " + file);
+                }
+                (MAIN.equals(parts[0]) ? mainClasses : testClasses).put(parts[1], Long.parseUnsignedLong(parts[2], 16));
+            }
+        }
+        return new ClassHashes(mainClasses, testClasses);
+    }
+
+    public void write(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp)) {
+            writeEntries(writer, MAIN, mainClasses);
+            writeEntries(writer, TEST, testClasses);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Entries that were added, removed or hashed differently since the given snapshot, e.g. classes recompiled to
+    // different bytecode
+    public static <V> Set<String> changed(Map<String, V> previous, Map<String, V> current) {
+        Set<String> changed = new TreeSet<>();
+        current.forEach((name, id) -> {
+            if (!Objects.equals(previous.get(name), id)) {
+                changed.add(name);
+            }
+        });
+        for (String name : previous.keySet()) {
+            if (!current.containsKey(name)) {
+                changed.add(name);
+            }
+        }
+        return changed;
+    }
+
+    private static void hashClasses(Path root, Map<String, Long> classes) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        FileHashCache<Long>.Scan scan = FILE_HASH_CACHE.start(root.toAbsolutePath().normalize());
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String relative = root.relativize(file).toString().replace('\\', '/');
+                if (relative.endsWith(".class") && !relative.endsWith("module-info.class")) {
+                    String name = relative.substring(0, relative.length() - ".class".length()).replace('/', '.');
+                    long id = scan.get(file.toAbsolutePath(), attrs, path -> CRC64.classId(Files.readAllBytes(path)));
+                    // A class name several modules define changes whenever one of their copies does
+                    classes.merge(name, id, (previous, next) -> previous * 31 + next);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        scan.finish();
+    }
+
+    private static void writeEntries(BufferedWriter writer, String kind, Map<String, Long> classes) throws IOException {
+        for (Map.Entry<String, Long> entry : classes.entrySet()) {
+            writer.write(kind + " " + entry.getKey() + " " + Long.toHexString(entry.getValue()));
+            writer.newLine();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.nmk.junitmcp.util;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.Remapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Types a compiled class names anywhere in its bytecode: supertypes, member signatures, annotations (class literals
+// included) and instructions. Parsed once per class file while its size and mtime stay the same
+public record ClassReferences(long size, long modified, Set<String> references, boolean runnable) {
+    private static final Map<Path, ClassReferences> CACHE = new ConcurrentHashMap<>();
+
+    public static ClassReferences read(Path file) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = attrs.size();
+        long modified = attrs.lastModifiedTime().toMillis();
+        ClassReferences cached = CACHE.get(file);
+        if (cached != null && cached.size() == size && cached.modified() == modified) {
+            return cached;
+        }
+
+        ClassReferences parsed = parse(Files.readAllBytes(file), size, modified);
+        CACHE.put(file, parsed);
+        return parsed;
+    }
+
+    // A class file that is not on disk, e.g. a resource of a class loader; not cached
+    public static ClassReferences read(byte[] classFile) {
+        return parse(classFile, classFile.length, 0);
+    }
+
+    private static ClassReferences parse(byte[] classFile, long size, long modified) {
+        ClassReader reader = new ClassReader(classFile);
+        Set<String> references = new HashSet<>();
+        Remapper collector = new Remapper() {
+            @Override
+            public String map(String internalName) {
+                references.add(internalName.replace('/', '.'));
+                return internalName;
+            }
+        };
+        boolean[] staticMember = {false};
+        // The writer only gives the remapper visitors for every method, field and annotation to walk through
+        reader.accept(new ClassRemapper(new ClassVisitor(Opcodes.ASM9, new ClassWriter(0)) {
+            @Override
+            public void visitInnerClass(String name, String outerName, String innerName, int access) {
+                if (name.equals(reader.getClassName()) && outerName != null && (access & Opcodes.ACC_STATIC) != 0) {
+                    staticMember[0] = true;
+                }
+                super.visitInnerClass(name, outerName, innerName, access);
+            }
+        }, collector), ClassReader.SKIP_FRAMES);
+
+        // Concrete top-level and static member classes are what the JUnit Platform can run on their own; inner
+        // (@Nested), local and anonymous classes only run as part of their enclosing class
+        boolean concrete = (reader.getAccess() & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE | Opcodes.ACC_SYNTHETIC)) == 0;
+        boolean runnable = concrete && (reader.getClassName().indexOf('$') < 0 || staticMember[0]);
+        return new ClassReferences(size, modified, Set.copyOf(references), runnable);
+    }
+}
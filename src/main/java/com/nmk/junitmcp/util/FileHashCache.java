@@ -0,0 +1,74 @@
+package com.nmk.junitmcp.util;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Hashes of the files under a root, reused while size and mtime are unchanged. A scan keeps only the files it visited,
+// so deleted files drop out, and only the most recently scanned roots are kept, so a long-lived server switching
+// between projects does not accumulate them
+final class FileHashCache<V> {
+    private final int maxRoots;
+    // Least recently scanned first
+    private final LinkedHashMap<Path, Map<Path, Entry<V>>> roots = new LinkedHashMap<>(16, 0.75f, true);
+
+    @FunctionalInterface
+    interface Hasher<V> {
+        V hash(Path file) throws IOException;
+    }
+
+    FileHashCache(int maxRoots) {
+        this.maxRoots = maxRoots;
+    }
+
+    synchronized Scan start(Path root) {
+        return new Scan(root, roots.getOrDefault(root, Map.of()));
+    }
+
+    synchronized int getRootCount() {
+        return roots.size();
+    }
+
+    private synchronized void finish(Path root, Map<Path, Entry<V>> entries) {
+        roots.put(root, entries);
+        Iterator<Path> iterator = roots.keySet().iterator();
+        while (roots.size() > maxRoots && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    final class Scan {
+        private final Path root;
+        private final Map<Path, Entry<V>> previous;
+        private final Map<Path, Entry<V>> current = new ConcurrentHashMap<>();
+
+        private Scan(Path root, Map<Path, Entry<V>> previous) {
+            this.root = root;
+            this.previous = previous;
+        }
+
+        V get(Path file, BasicFileAttributes attrs, Hasher<V> hasher) throws IOException {
+            long size = attrs.size();
+            long modified = attrs.lastModifiedTime().toMillis();
+            Entry<V> cached = previous.get(file);
+            if (cached == null || cached.size() != size || cached.modified() != modified) {
+                cached = new Entry<>(size, modified, hasher.hash(file));
+            }
+            current.put(file, cached);
+            return cached.value();
+        }
+
+        // Only a completed scan replaces what the root had cached
+        void finish() {
+            FileHashCache.this.finish(root, current);
+        }
+    }
+
+    private record Entry<V>(long size, long modified, V value) {
+    }
+}
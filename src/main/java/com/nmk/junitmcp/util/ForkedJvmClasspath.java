@@ -0,0 +1,208 @@
+package com.nmk.junitmcp.util;
+
+import org.jacoco.agent.AgentJar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Classpaths for test JVMs forked from this server: the project's test classpath plus the jars of this server's own
+// runtime they need to run tests, unless the project brings its own version of an artifact. The JUnit runtime is
+// added only where it matches the version of the project's own JUnit jars. Runtime the server loads from inside its
+// repackaged jar is extracted to a temporary directory first, since a forked JVM cannot read nested jars
+public final class ForkedJvmClasspath {
+    private static volatile File agentJar;
+    // Code source location -> where this server extracted it
+    private static final Map<String, String> EXTRACTED = new ConcurrentHashMap<>();
+    private static final AtomicInteger EXTRACTIONS = new AtomicInteger();
+    private static volatile Path extractDirectory;
+
+    private ForkedJvmClasspath() {
+    }
+
+    // Throws IllegalStateException when the project's JUnit jars cannot be completed without mixing versions
+    public static String build(List<String> projectClasspath, List<String> runtimeClasses) {
+        return build(projectClasspath, runtimeClasses, ForkedJvmClasspath.class.getClassLoader());
+    }
+
+    static String build(List<String> projectClasspath, List<String> runtimeClasses, ClassLoader loader) {
+        Set<String> entries = new LinkedHashSet<>(projectClasspath);
+        Set<String> projectArtifacts = new HashSet<>();
+        Map<String, String> projectJUnitVersions = JUnitVersions.of(projectClasspath);
+        for (String entry : projectClasspath) {
+            projectArtifacts.add(artifactName(entry));
+        }
+
+        for (String className : runtimeClasses) {
+            String location = codeSourceOf(className, loader);
+            if (location == null || projectArtifacts.contains(artifactName(location))) {
+                continue;
+            }
+            JUnitVersions.Jar jar = JUnitVersions.parse(location);
+            String projectVersion = jar != null ? projectJUnitVersions.get(jar.family()) : null;
+            if (projectVersion != null && !projectVersion.equals(jar.version())) {
+                throw new IllegalStateException("The project's " + jar.family() + "* " + projectVersion + " jars lack "
+                        + jar.artifact() + ", which this server only has in version " + jar.version());
+            }
+            entries.add(location);
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    public static boolean isAvailable(String className) {
+        try {
+            Class.forName(className, false, ForkedJvmClasspath.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    // The JaCoCo agent, extracted once from its jar inside this server's classpath
+    public static File getAgentJar() throws IOException {
+        if (agentJar == null) {
+            synchronized (ForkedJvmClasspath.class) {
+                if (agentJar == null) {
+                    agentJar = AgentJar.extractToTempLocation();
+                }
+            }
+        }
+        return agentJar;
+    }
+
+    private static String codeSourceOf(String className, ClassLoader loader) {
+        Class<?> type;
+        try {
+            type = Class.forName(className, false, loader);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+        if (codeSource == null) {
+            return null;
+        }
+        URL location = codeSource.getLocation();
+        try {
+            if ("file".equals(location.getProtocol())) {
+                return new File(location.toURI()).getAbsolutePath();
+            }
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Cannot locate " + className, e);
+        }
+        String spec = nestedSpec(location);
+        // What is taken from a classes directory depends on the class
+        String key = spec.endsWith(".jar") ? spec : spec + "#" + className;
+        return EXTRACTED.computeIfAbsent(key, ignored -> extract(location, spec, className, loader));
+    }
+
+    // "jar:nested:/app.jar/!BOOT-INF/lib/x.jar!/" -> "nested:/app.jar/!BOOT-INF/lib/x.jar",
+    // "jar:file:/app.jar!/BOOT-INF/lib/x.jar!/" -> "file:/app.jar!/BOOT-INF/lib/x.jar"
+    private static String nestedSpec(URL location) {
+        String spec = location.toString();
+        if (spec.startsWith("jar:")) {
+            spec = spec.substring("jar:".length());
+        }
+        if (spec.endsWith("!/")) {
+            spec = spec.substring(0, spec.length() - "!/".length());
+        }
+        return spec;
+    }
+
+    // A jar nested in the server's jar is copied as a whole; a classes directory inside it only with the classes the
+    // runtime class needs from it
+    private static String extract(URL location, String spec, String className, ClassLoader loader) {
+        try {
+            URL source = new URI(spec.contains("!/") ? "jar:" + spec : spec).toURL();
+            if ("file".equals(source.getProtocol()) && spec.endsWith(".jar")) {
+                return new File(source.toURI()).getAbsolutePath();
+            }
+
+            Path target = Files.createDirectories(extractDirectory().resolve(String.valueOf(EXTRACTIONS.incrementAndGet())));
+            target.toFile().deleteOnExit();
+            if (!spec.endsWith(".jar")) {
+                extractClasses(location.toString(), className, loader, target.resolve("classes"));
+                return target.resolve("classes").toString();
+            }
+            Path jar = target.resolve(spec.substring(spec.lastIndexOf('/') + 1));
+            try (InputStream in = source.openStream()) {
+                Files.copy(in, jar, StandardCopyOption.REPLACE_EXISTING);
+            }
+            jar.toFile().deleteOnExit();
+            return jar.toString();
+        } catch (IOException | URISyntaxException e) {
+            throw new IllegalStateException("Cannot extract " + location + " for forked test JVMs", e);
+        }
+    }
+
+    // The class and everything it references that the same code source defines
+    private static void extractClasses(String location, String className, ClassLoader loader, Path target) throws IOException {
+        Set<String> seen = new HashSet<>(Set.of(className));
+        Deque<String> pending = new ArrayDeque<>(seen);
+        while (!pending.isEmpty()) {
+            String resource = pending.poll().replace('.', '/') + ".class";
+            URL url = loader.getResource(resource);
+            if (url == null || !url.toString().startsWith(location)) {
+                continue;
+            }
+            byte[] classFile;
+            try (InputStream in = url.openStream()) {
+                classFile = in.readAllBytes();
+            }
+            Path file = target.resolve(resource);
+            createDirectories(file.getParent(), target);
+            Files.write(file, classFile);
+            file.toFile().deleteOnExit();
+            for (String reference : ClassReferences.read(classFile).references()) {
+                if (seen.add(reference)) {
+                    pending.add(reference);
+                }
+            }
+        }
+    }
+
+    // Registered for deletion before what they contain, so they are empty by then
+    private static void createDirectories(Path directory, Path root) throws IOException {
+        if (directory.startsWith(root) && !Files.isDirectory(directory)) {
+            if (!directory.equals(root)) {
+                createDirectories(directory.getParent(), root);
+            }
+            Files.createDirectory(directory);
+            directory.toFile().deleteOnExit();
+        }
+    }
+
+    private static Path extractDirectory() throws IOException {
+        if (extractDirectory == null) {
+            synchronized (ForkedJvmClasspath.class) {
+                if (extractDirectory == null) {
+                    Path directory = Files.createTempDirectory("junit-mcp-runtime");
+                    directory.toFile().deleteOnExit();
+                    extractDirectory = directory;
+                }
+            }
+        }
+        return extractDirectory;
+    }
+
+    // "junit-platform-launcher-1.10.2.jar" -> "junit-platform-launcher"
+    private static String artifactName(String entry) {
+        String name = new File(entry).getName();
+        return name.replaceFirst("-\\d.*\\.jar$", "");
+    }
+}
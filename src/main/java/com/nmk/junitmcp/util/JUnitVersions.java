@@ -0,0 +1,101 @@
+package com.nmk.junitmcp.util;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.security.CodeSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// JUnit releases, read from jar file names. Platform, Jupiter and Vintage artifacts of one release have to be used
+// together, so versions are kept per family of artifacts
+public final class JUnitVersions {
+    // "junit-platform-launcher-1.10.2.jar" -> "junit-platform-launcher", "1.10.2"
+    private static final Pattern VERSIONED_JAR = Pattern.compile("(.+?)-(\\d[^/]*)\\.jar");
+    private static final List<String> FAMILIES = List.of("junit-platform-", "junit-jupiter-", "junit-vintage-");
+    // A class of this server's own JUnit runtime per family
+    private static final Map<String, String> SERVER_CLASSES = Map.of(
+            "junit-platform-", "org.junit.platform.launcher.core.LauncherFactory",
+            "junit-jupiter-", "org.junit.jupiter.api.Test",
+            "junit-vintage-", "org.junit.vintage.engine.VintageTestEngine");
+
+    private static volatile Map<String, String> serverVersions;
+
+    private JUnitVersions() {
+    }
+
+    // Family -> version of the first JUnit jar of each family on the classpath
+    public static Map<String, String> of(List<String> classpath) {
+        Map<String, String> versions = new HashMap<>();
+        for (String entry : classpath) {
+            Jar jar = parse(entry);
+            if (jar != null) {
+                versions.putIfAbsent(jar.family(), jar.version());
+            }
+        }
+        return versions;
+    }
+
+    // Families this server's JUnit runtime was loaded from a versioned jar for; classes directories have no version
+    public static Map<String, String> ofServer() {
+        if (serverVersions == null) {
+            Map<String, String> versions = new HashMap<>();
+            SERVER_CLASSES.forEach((family, className) -> {
+                Jar jar = parse(codeSourceOf(className));
+                if (jar != null) {
+                    versions.put(family, jar.version());
+                }
+            });
+            serverVersions = Map.copyOf(versions);
+        }
+        return serverVersions;
+    }
+
+    // A description of the first family the classpath uses in another version than this server, or null
+    public static String mismatchWithServer(List<String> classpath) {
+        Map<String, String> server = ofServer();
+        for (Map.Entry<String, String> project : of(classpath).entrySet()) {
+            String serverVersion = server.get(project.getKey());
+            if (serverVersion != null && !serverVersion.equals(project.getValue())) {
+                return "the project uses " + project.getKey() + "* " + project.getValue() + ", this server "
+                        + serverVersion;
+            }
+        }
+        return null;
+    }
+
+    // Null for anything but a versioned JUnit jar; takes file paths as well as nested jar locations
+    public static Jar parse(String location) {
+        if (location == null) {
+            return null;
+        }
+        String path = location.endsWith("!/") ? location.substring(0, location.length() - "!/".length()) : location;
+        String name = path.substring(Math.max(path.lastIndexOf('/'), path.lastIndexOf(File.separatorChar)) + 1);
+        Matcher jar = VERSIONED_JAR.matcher(name);
+        if (!jar.matches()) {
+            return null;
+        }
+        String family = FAMILIES.stream().filter(jar.group(1)::startsWith).findFirst().orElse(null);
+        return family != null ? new Jar(jar.group(1), family, jar.group(2)) : null;
+    }
+
+    private static String codeSourceOf(String className) {
+        try {
+            CodeSource codeSource = Class.forName(className, false, JUnitVersions.class.getClassLoader())
+                    .getProtectionDomain().getCodeSource();
+            if (codeSource == null) {
+                return null;
+            }
+            URL location = codeSource.getLocation();
+            return "file".equals(location.getProtocol()) ? new File(location.toURI()).getPath() : location.toString();
+        } catch (ClassNotFoundException | LinkageError | URISyntaxException e) {
+            return null;
+        }
+    }
+
+    public record Jar(String artifact, String family, String version) {
+    }
+}
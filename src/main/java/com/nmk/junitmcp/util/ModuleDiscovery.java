@@ -0,0 +1,145 @@
+package com.nmk.junitmcp.util;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Finds the modules of a build from its <modules> (recursively, for nested aggregators) or settings.gradle(.kts).
+// The root always comes first; modules whose directory does not exist are left out
+public final class ModuleDiscovery {
+    private static final XMLInputFactory XML_INPUT_FACTORY;
+
+    static {
+        XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private static final Pattern GRADLE_COMMENT = Pattern.compile("//[^\\n]*|/\\*.*?\\*/", Pattern.DOTALL);
+    // include 'a', ':b:c'  |  include(":a", ":b")  — but not includeBuild
+    private static final Pattern GRADLE_INCLUDE = Pattern.compile("\\binclude(?:\\s*\\(|\\s+(?=['\"]))((?:\\s*['\"][^'\"]+['\"]\\s*,?)+)");
+    private static final Pattern GRADLE_QUOTED = Pattern.compile("['\"]([^'\"]+)['\"]");
+    // project(':a').projectDir = file('libs/a')
+    private static final Pattern GRADLE_PROJECT_DIR = Pattern.compile(
+            "project\\s*\\(\\s*['\"]([^'\"]+)['\"]\\s*\\)\\.projectDir\\s*=\\s*file\\s*\\(\\s*['\"]([^'\"]+)['\"]\\s*\\)");
+
+    private ModuleDiscovery() {
+    }
+
+    public static List<ProjectModule> discover(Path root, ProjectPathResolver.ProjectType projectType) throws IOException {
+        List<ProjectModule> modules = new ArrayList<>();
+        modules.add(new ProjectModule("", root));
+        switch (projectType) {
+            case MAVEN -> collectMavenModules(root, root, new HashSet<>(), modules);
+            case GRADLE -> collectGradleModules(root, modules);
+        }
+        return modules;
+    }
+
+    private static void collectMavenModules(Path root, Path aggregator, Set<Path> visited, List<ProjectModule> modules) throws IOException {
+        if (!visited.add(aggregator.toRealPath())) {
+            return;
+        }
+        for (String module : readMavenModules(aggregator.resolve("pom.xml"))) {
+            // <module> may point at the pom itself instead of its directory
+            Path directory = aggregator.resolve(module).normalize();
+            if (Files.isRegularFile(directory)) {
+                directory = directory.getParent();
+            }
+            if (!Files.isRegularFile(directory.resolve("pom.xml"))) {
+                continue;
+            }
+            modules.add(new ProjectModule(root.relativize(directory).toString().replace('\\', '/'), directory));
+            collectMavenModules(root, directory, visited, modules);
+        }
+    }
+
+    // project/modules/module, and project/subprojects/subproject for Maven 4
+    private static List<String> readMavenModules(Path pom) throws IOException {
+        List<String> modules = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(pom)) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                int depth = 0;
+                String section = null;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        depth++;
+                        String name = reader.getLocalName();
+                        if (depth == 2 && (name.equals("modules") || name.equals("subprojects"))) {
+                            section = name;
+                        } else if (depth == 3 && section != null && (name.equals("module") || name.equals("subproject"))) {
+                            modules.add(reader.getElementText().trim());
+                            depth--;
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        if (depth == 2) {
+                            section = null;
+                        }
+                        depth--;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed pom " + pom, e);
+        }
+        return modules;
+    }
+
+    private static void collectGradleModules(Path root, List<ProjectModule> modules) throws IOException {
+        Path settings = Files.isRegularFile(root.resolve("settings.gradle.kts"))
+                ? root.resolve("settings.gradle.kts") : root.resolve("settings.gradle");
+        if (!Files.isRegularFile(settings)) {
+            return;
+        }
+        String script = GRADLE_COMMENT.matcher(Files.readString(settings)).replaceAll("");
+
+        Map<String, String> projectDirs = new HashMap<>();
+        Matcher projectDir = GRADLE_PROJECT_DIR.matcher(script);
+        while (projectDir.find()) {
+            projectDirs.put(projectPath(projectDir.group(1)), projectDir.group(2));
+        }
+
+        // Gradle also creates the intermediate projects of a nested path like "services:api"
+        Map<String, Path> found = new LinkedHashMap<>();
+        Matcher include = GRADLE_INCLUDE.matcher(script);
+        while (include.find()) {
+            Matcher quoted = GRADLE_QUOTED.matcher(include.group(1));
+            while (quoted.find()) {
+                String path = projectPath(quoted.group(1));
+                String[] segments = path.split(":");
+                for (int i = 1; i <= segments.length; i++) {
+                    String name = String.join(":", List.of(segments).subList(0, i));
+                    String directory = projectDirs.getOrDefault(name, name.replace(':', '/'));
+                    found.putIfAbsent(name, root.resolve(directory).normalize());
+                }
+            }
+        }
+        found.forEach((name, directory) -> {
+            if (Files.isDirectory(directory)) {
+                modules.add(new ProjectModule(name, directory));
+            }
+        });
+    }
+
+    private static String projectPath(String path) {
+        return path.startsWith(":") ? path.substring(1) : path;
+    }
+}
@@ -0,0 +1,12 @@
+package com.nmk.junitmcp.util;
+
+import java.nio.file.Path;
+
+// A module of a multi-module build. The name is what the build tool selects it by: the directory relative to the root
+// for Maven ("services/api"), the project path without its leading colon for Gradle ("services:api"). The root is ""
+public record ProjectModule(String name, Path directory) {
+
+    public boolean isRoot() {
+        return name.isEmpty();
+    }
+}
@@ -3,6 +3,10 @@ package com.nmk.junitmcp.util;
 import lombok.Getter;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
@@ -11,6 +15,12 @@ public class ProjectPathResolver {
     private final String projectPath;
     @Getter
     private final ProjectType projectType;
+    // Modules the build and test args are limited to; null builds and tests all of them
+    @Getter
+    private final List<String> selectedModules;
+    private List<ProjectModule> modules;
+    // 0 unless coverage goes to a live coverage server
+    private int liveCoveragePort;
 
     public enum ProjectType {
         MAVEN, GRADLE
@@ -19,6 +29,62 @@ public class ProjectPathResolver {
     public ProjectPathResolver(String projectPath) {
         this.projectPath = projectPath != null ? projectPath.trim() : null;
         this.projectType = detectProjectType();
+        this.selectedModules = null;
+    }
+
+    private ProjectPathResolver(String projectPath, ProjectType projectType, List<String> selectedModules) {
+        this.projectPath = projectPath;
+        this.projectType = projectType;
+        this.selectedModules = selectedModules;
+    }
+
+    // The same project with builds and test runs limited to the given modules (and, for Maven, what they depend on)
+    public ProjectPathResolver withModules(List<String> moduleNames) {
+        if (moduleNames == null || moduleNames.isEmpty()) {
+            return this;
+        }
+        List<String> known = getModules().stream().map(ProjectModule::name).toList();
+        List<String> selected = new ArrayList<>();
+        for (String name : moduleNames) {
+            String moduleName = projectType == ProjectType.GRADLE && name.startsWith(":") ? name.substring(1) : name;
+            if (moduleName.isEmpty() || !known.contains(moduleName)) {
+                throw new IllegalArgumentException("Unknown module '" + name + "', modules of " + projectPath + ": "
+                        + known.stream().filter(module -> !module.isEmpty()).toList());
+            }
+            selected.add(moduleName);
+        }
+        ProjectPathResolver resolver = new ProjectPathResolver(projectPath, projectType, List.copyOf(selected));
+        resolver.modules = modules;
+        return resolver;
+    }
+
+    // The same project with its test JVMs' JaCoCo agents sending coverage to a local TCP server instead of a file
+    public ProjectPathResolver withLiveCoverage(int port) {
+        ProjectPathResolver resolver = new ProjectPathResolver(projectPath, projectType, selectedModules);
+        resolver.modules = modules;
+        resolver.liveCoveragePort = port;
+        return resolver;
+    }
+
+    // The root first, then every module of the build
+    public synchronized List<ProjectModule> getModules() {
+        if (modules == null) {
+            try {
+                modules = List.copyOf(ModuleDiscovery.discover(Path.of(getProjectPath()), projectType));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return modules;
+    }
+
+    public boolean isMultiModule() {
+        return getModules().size() > 1;
+    }
+
+    // Resolves the module's own target/ or build/ paths
+    public ProjectPathResolver forModule(ProjectModule module) {
+        return module.isRoot() ? this : new ProjectPathResolver(module.directory().toString(), projectType, null);
     }
 
     private ProjectType detectProjectType() {
@@ -41,6 +107,14 @@ public class ProjectPathResolver {
         return projectPath != null ? projectPath : System.getProperty("user.dir");
     }
 
+    public String getCanonicalPath() {
+        try {
+            return new File(getProjectPath()).getCanonicalPath();
+        } catch (IOException e) {
+            return new File(getProjectPath()).getAbsolutePath();
+        }
+    }
+
     public String getJaCoCoExecPath() {
         return switch (projectType) {
             case MAVEN -> Paths.get(projectPath, "target", "jacoco.exec").toString();
@@ -55,6 +129,27 @@ public class ProjectPathResolver {
         };
     }
 
+    public String getTestClassesPath() {
+        return switch (projectType) {
+            case MAVEN -> Paths.get(projectPath, "target", "test-classes").toString();
+            case GRADLE -> Paths.get(projectPath, "build", "classes", "java", "test").toString();
+        };
+    }
+
+    public String getTestReportsPath() {
+        return switch (projectType) {
+            case MAVEN -> Paths.get(projectPath, "target", "surefire-reports").toString();
+            case GRADLE -> Paths.get(projectPath, "build", "test-results", "test").toString();
+        };
+    }
+
+    public String getWorkDirectory() {
+        return switch (projectType) {
+            case MAVEN -> Paths.get(projectPath, "target", "junit-mcp").toString();
+            case GRADLE -> Paths.get(projectPath, "build", "junit-mcp").toString();
+        };
+    }
+
     public String getBuildCommand() {
         switch (projectType) {
             case MAVEN:
@@ -72,38 +167,82 @@ public class ProjectPathResolver {
 
     public String[] getBuildArgs() {
         return switch (projectType) {
-            case MAVEN -> new String[]{"clean", "test-compile"};
-            case GRADLE -> new String[]{"clean", "testClasses"};
+            case MAVEN -> {
+                List<String> args = new ArrayList<>(getModuleArgs());
+                args.add("test-compile");
+                yield args.toArray(new String[0]);
+            }
+            case GRADLE -> gradleTasks("testClasses").toArray(new String[0]);
         };
     }
 
     public String[] getTestArgs(List<String> tests) {
         switch (projectType) {
             case MAVEN:
-                List<String> args = new ArrayList<>();
+                List<String> args = new ArrayList<>(getModuleArgs());
                 args.add("test");
                 if (tests != null && !tests.isEmpty()) {
                     String testFilter = String.join(",", tests);
                     args.add("-Dtest=" + testFilter);
+                    if (selectedModules != null) {
+                        // Modules built along with the selected ones do not contain the selected tests
+                        args.add("-Dsurefire.failIfNoSpecifiedTests=false");
+                    }
                 }
+                // One exec file at the root collects the coverage of every module
                 args.add("-Djacoco.destFile=" + getJaCoCoExecPath());
+                args.addAll(getLiveCoverageArgs());
                 return args.toArray(new String[0]);
             case GRADLE:
                 List<String> gradleArgs = new ArrayList<>();
-                gradleArgs.add("test");
-                if (tests != null && !tests.isEmpty()) {
-                    for (String test : tests) {
-                        gradleArgs.add("--tests");
-                        gradleArgs.add(test);
+                // --tests applies to the test task right before it
+                for (String testTask : gradleTasks("test")) {
+                    gradleArgs.add(testTask);
+                    if (tests != null && !tests.isEmpty()) {
+                        for (String test : tests) {
+                            for (String filter : TestSelection.toGradleFilters(test)) {
+                                gradleArgs.add("--tests");
+                                gradleArgs.add(filter);
+                            }
+                        }
                     }
                 }
-                gradleArgs.add("jacocoTestReport");
+                gradleArgs.addAll(gradleTasks("jacocoTestReport"));
                 return gradleArgs.toArray(new String[0]);
             default:
                 return new String[0];
         }
     }
 
+    public int getLiveCoveragePort() {
+        return liveCoveragePort;
+    }
+
+    // jacoco-maven-plugin's prepare-agent takes the agent's output mode from these properties; Gradle's JaCoCo plugin
+    // only from the build script, so Gradle build-tool runs keep writing exec files
+    public List<String> getLiveCoverageArgs() {
+        if (projectType != ProjectType.MAVEN || liveCoveragePort == 0) {
+            return List.of();
+        }
+        return List.of("-Djacoco.output=tcpclient", "-Djacoco.address=" + InetAddress.getLoopbackAddress().getHostAddress(),
+                "-Djacoco.port=" + liveCoveragePort);
+    }
+
+    // Maven's project list for the selected modules; Gradle selects them through task paths instead
+    public List<String> getModuleArgs() {
+        if (projectType != ProjectType.MAVEN || selectedModules == null) {
+            return List.of();
+        }
+        return List.of("-pl", String.join(",", selectedModules), "-am");
+    }
+
+    private List<String> gradleTasks(String task) {
+        if (selectedModules == null) {
+            return List.of(task);
+        }
+        return selectedModules.stream().map(module -> ":" + module + ":" + task).toList();
+    }
+
     private boolean isWindows() {
         return System.getProperty("os.name").toLowerCase().contains("win");
     }
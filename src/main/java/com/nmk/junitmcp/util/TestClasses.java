@@ -0,0 +1,42 @@
+package com.nmk.junitmcp.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// The top-level test classes a full-suite run picks up, as Surefire's default includes see them
+public final class TestClasses {
+
+    private TestClasses() {
+    }
+
+    // Every selected module's test-classes, sorted by module and then by name
+    public static List<String> find(ProjectPathResolver pathResolver) throws IOException {
+        List<String> testClasses = new ArrayList<>();
+        for (ProjectModule module : pathResolver.getModules()) {
+            if (pathResolver.getSelectedModules() != null && !pathResolver.getSelectedModules().contains(module.name())) {
+                continue;
+            }
+            testClasses.addAll(find(Path.of(pathResolver.forModule(module).getTestClassesPath())));
+        }
+        return testClasses;
+    }
+
+    private static List<String> find(Path testClassesDir) throws IOException {
+        if (!Files.isDirectory(testClassesDir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.walk(testClassesDir)) {
+            return files.map(file -> testClassesDir.relativize(file).toString().replace(File.separatorChar, '/'))
+                    .filter(name -> name.endsWith(".class") && !name.contains("$"))
+                    .map(name -> name.substring(0, name.length() - ".class".length()).replace('/', '.'))
+                    .filter(TestSelection::isTestClassName)
+                    .sorted()
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.nmk.junitmcp.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+// Helpers for Surefire-style test selections such as "com.example.FooTest#shouldWork+shouldFail" or "*ServiceTest"
+public final class TestSelection {
+    // Surefire's default includes; other classes under test-classes are support code
+    private static final Pattern TEST_CLASS_NAME = Pattern.compile("(.*\\.)?(Test[^.]*|[^.]*Test|[^.]*Tests|[^.]*TestCase)");
+
+    private TestSelection() {
+    }
+
+    public static boolean selectsAll(List<String> tests) {
+        return tests == null || tests.isEmpty();
+    }
+
+    // Order-insensitive key, so equal selections coalesce however they were written
+    public static String key(List<String> tests) {
+        if (selectsAll(tests)) {
+            return "*";
+        }
+        return String.join(",", new TreeSet<>(tests));
+    }
+
+    public static List<String> union(List<List<String>> selections) {
+        Set<String> union = new LinkedHashSet<>();
+        for (List<String> selection : selections) {
+            if (selectsAll(selection)) {
+                return null;
+            }
+            union.addAll(selection);
+        }
+        return new ArrayList<>(union);
+    }
+
+    public static boolean isTestClassName(String className) {
+        return TEST_CLASS_NAME.matcher(className).matches();
+    }
+
+    // Groups "Class#method" ids into "Class#m1+m2" selectors; a plain "Class" selector absorbs its methods
+    public static List<String> compact(Collection<String> tests) {
+        Map<String, Set<String>> methodsByClass = new TreeMap<>();
+        for (String test : tests) {
+            int hash = test.indexOf('#');
+            if (hash < 0) {
+                methodsByClass.put(test, null);
+            } else {
+                String testClass = test.substring(0, hash);
+                if (!methodsByClass.containsKey(testClass) || methodsByClass.get(testClass) != null) {
+                    methodsByClass.computeIfAbsent(testClass, key -> new TreeSet<>()).add(stripParameters(test.substring(hash + 1)));
+                }
+            }
+        }
+        List<String> selectors = new ArrayList<>();
+        methodsByClass.forEach((testClass, methods) ->
+                selectors.add(methods == null ? testClass : testClass + "#" + String.join("+", methods)));
+        return selectors;
+    }
+
+    // Splits a selection by test class into the part that picks from the given classes and the rest, so the two can run
+    // one after the other without running anything twice. Selectors that do not name their class (the full suite,
+    // wildcards, simple names) are expanded against testClasses; one that matches none of them stays in the rest as is
+    public static Split split(List<String> tests, Set<String> classes, Collection<String> testClasses) {
+        List<String> matching = new ArrayList<>();
+        List<String> rest = new ArrayList<>();
+        for (String selector : selectsAll(tests) ? List.of("*") : tests) {
+            int hash = selector.indexOf('#');
+            String classPattern = hash < 0 ? selector : selector.substring(0, hash);
+            if (classPattern.contains(".") && !classPattern.contains("*")) {
+                (classes.contains(classPattern) ? matching : rest).add(selector);
+                continue;
+            }
+            String methods = hash < 0 ? "" : selector.substring(hash);
+            boolean expanded = false;
+            for (String testClass : testClasses) {
+                if (matches(classPattern, testClass)) {
+                    (classes.contains(testClass) ? matching : rest).add(testClass + methods);
+                    expanded = true;
+                }
+            }
+            if (!expanded) {
+                rest.add(selector);
+            }
+        }
+        return new Split(matching, rest);
+    }
+
+    // Gradle's --tests takes "Class.method" and one method per filter
+    public static List<String> toGradleFilters(String selector) {
+        int hash = selector.indexOf('#');
+        if (hash < 0) {
+            return List.of(selector);
+        }
+        String testClass = selector.substring(0, hash);
+        List<String> filters = new ArrayList<>();
+        for (String method : selector.substring(hash + 1).split("\\+")) {
+            filters.add(testClass + "." + stripParameters(method));
+        }
+        return filters;
+    }
+
+    public static boolean matchesAny(List<String> tests, String testId) {
+        if (selectsAll(tests)) {
+            return true;
+        }
+        for (String selector : tests) {
+            if (matches(selector, testId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // testId is "Class" or "Class#method", optionally with a parameter list after the method name
+    public static boolean matches(String selector, String testId) {
+        int selectorHash = selector.indexOf('#');
+        String classPattern = selectorHash < 0 ? selector : selector.substring(0, selectorHash);
+        int testHash = testId.indexOf('#');
+        String testClass = testHash < 0 ? testId : testId.substring(0, testHash);
+
+        String classToMatch = classPattern.contains(".") ? testClass : testClass.substring(testClass.lastIndexOf('.') + 1);
+        if (!wildcard(classPattern).matcher(classToMatch).matches()) {
+            return false;
+        }
+        if (selectorHash < 0 || testHash < 0) {
+            return true;
+        }
+
+        String testMethod = stripParameters(testId.substring(testHash + 1));
+        for (String methodPattern : selector.substring(selectorHash + 1).split("\\+")) {
+            if (wildcard(methodPattern).matcher(testMethod).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public record Split(List<String> matching, List<String> rest) {
+    }
+
+    private static String stripParameters(String method) {
+        int paren = method.indexOf('(');
+        return paren >= 0 ? method.substring(0, paren) : method;
+    }
+
+    private static Pattern wildcard(String pattern) {
+        String[] parts = pattern.split("\\*", -1);
+        StringBuilder regex = new StringBuilder(Pattern.quote(parts[0]));
+        for (int i = 1; i < parts.length; i++) {
+            regex.append(".*").append(Pattern.quote(parts[i]));
+        }
+        return Pattern.compile(regex.toString());
+    }
+}
@@ -0,0 +1,184 @@
+package com.nmk.junitmcp.worker;
+
+import com.nmk.junitmcp.buildtool.BuildTimeoutException;
+import com.nmk.junitmcp.buildtool.ProcessSupervisor;
+import com.nmk.junitmcp.dto.TestResult;
+import com.nmk.junitmcp.junit_platform.CoverageCut;
+import lombok.Getter;
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.IExecutionDataVisitor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// Server-side handle of one forked worker JVM
+class TestWorker {
+    private final Process process;
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    @Getter
+    private final String classpathKey;
+    @Getter
+    private int runs;
+    @Getter
+    private long lastUsed = System.currentTimeMillis();
+    private volatile boolean killed;
+
+    private TestWorker(Process process, Socket socket, String classpathKey) throws IOException {
+        this.process = process;
+        this.socket = socket;
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.classpathKey = classpathKey;
+    }
+
+    static TestWorker start(List<String> javaOptions, String classpath, String testClassesPath, File projectDir,
+                            File logFile, String classpathKey, Duration startupTimeout) throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            serverSocket.setSoTimeout((int) startupTimeout.toMillis());
+
+            List<String> command = new ArrayList<>();
+            command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+            command.addAll(javaOptions);
+            command.add("-cp");
+            command.add(classpath);
+            command.add(TestWorkerMain.class.getName());
+            command.add(String.valueOf(serverSocket.getLocalPort()));
+            command.add(testClassesPath);
+
+            ProcessBuilder processBuilder = new ProcessBuilder(command);
+            processBuilder.directory(projectDir);
+            processBuilder.redirectErrorStream(true);
+            processBuilder.redirectOutput(ProcessBuilder.Redirect.appendTo(logFile));
+            Process process = processBuilder.start();
+
+            try {
+                return new TestWorker(process, serverSocket.accept(), classpathKey);
+            } catch (SocketTimeoutException e) {
+                process.destroyForcibly();
+                throw new RuntimeException("Test worker did not connect within " + startupTimeout.toSeconds()
+                        + " seconds, see " + logFile);
+            }
+        }
+    }
+
+    // The whole run has one deadline: every read waits at most for what is left of it, so a hung test cannot block
+    // the caller, and a timed out or killed worker is not used again
+    List<TestResult> run(List<String> tests, IExecutionDataVisitor coverageData, Consumer<TestResult> resultListener,
+                         BiConsumer<String, ExecutionDataStore> testCoverageListener, CoverageCut cut,
+                         boolean failFast, Duration timeout) throws IOException {
+        runs++;
+        lastUsed = System.currentTimeMillis();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        WorkerProtocol.writeRun(out, tests != null ? tests : List.of(), testCoverageListener != null ? cut : null, failFast);
+
+        List<TestResult> results = new ArrayList<>();
+        while (true) {
+            byte type;
+            try {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs <= 0) {
+                    throw new SocketTimeoutException();
+                }
+                socket.setSoTimeout((int) Math.min(remainingMs, Integer.MAX_VALUE));
+                type = in.readByte();
+            } catch (SocketTimeoutException e) {
+                kill();
+                throw new BuildTimeoutException("Test worker did not finish within " + ProcessSupervisor.describe(timeout));
+            } catch (IOException e) {
+                if (killed) {
+                    throw new CancellationException("Test worker run was cancelled");
+                }
+                throw e;
+            }
+            switch (type) {
+                case WorkerProtocol.MSG_RESULT -> {
+                    TestResult result = WorkerProtocol.readResult(in);
+                    results.add(result);
+                    resultListener.accept(result);
+                }
+                case WorkerProtocol.MSG_COVERAGE -> readExecutionData(WorkerProtocol.readBytes(in), coverageData);
+                case WorkerProtocol.MSG_TEST_COVERAGE -> {
+                    String testId = WorkerProtocol.readTestId(in);
+                    byte[] data = WorkerProtocol.readBytes(in);
+                    // Read twice so the per-test store and the run's store never share probe arrays
+                    ExecutionDataStore testData = new ExecutionDataStore();
+                    readExecutionData(data, testData);
+                    readExecutionData(data, coverageData);
+                    testCoverageListener.accept(testId, testData);
+                }
+                case WorkerProtocol.MSG_DONE -> {
+                    lastUsed = System.currentTimeMillis();
+                    return results;
+                }
+                default -> throw new IOException("Unexpected message from test worker: " + type);
+            }
+        }
+    }
+
+    boolean isAlive() {
+        return !killed && process.isAlive() && !socket.isClosed();
+    }
+
+    // Ends a run in progress: the worker's process tree goes away and the blocked read fails
+    void kill() {
+        killed = true;
+        ProcessSupervisor.killTree(process.toHandle());
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    void shutdown() {
+        try {
+            if (process.isAlive()) {
+                out.writeByte(WorkerProtocol.CMD_SHUTDOWN);
+                out.flush();
+                process.waitFor(5, TimeUnit.SECONDS);
+            }
+        } catch (IOException e) {
+            // Worker already gone
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Along with anything the tests started
+            ProcessSupervisor.killTree(process.toHandle());
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+
+    private static void readExecutionData(byte[] data, IExecutionDataVisitor coverageData) throws IOException {
+        if (data.length == 0) {
+            return;
+        }
+        ExecutionDataReader reader = new ExecutionDataReader(new ByteArrayInputStream(data));
+        reader.setExecutionDataVisitor(coverageData);
+        reader.setSessionInfoVisitor(info -> {
+        });
+        reader.read();
+    }
+}
@@ -0,0 +1,131 @@
+package com.nmk.junitmcp.worker;
+
+import com.nmk.junitmcp.junit_platform.CoverageCut;
+import com.nmk.junitmcp.junit_platform.TestBoundaryListener;
+import com.nmk.junitmcp.junit_platform.TestResultCollector;
+import com.nmk.junitmcp.junit_platform.TestSelectors;
+import org.junit.platform.engine.CancellationToken;
+import org.junit.platform.launcher.Launcher;
+import org.junit.platform.launcher.LauncherDiscoveryRequest;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherExecutionRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.List;
+
+// Entry point of a forked test worker: connects back to the pool and runs test selections until told to stop
+public final class TestWorkerMain {
+
+    private TestWorkerMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = Integer.parseInt(args[0]);
+        String testClassesPath = args[1];
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            Launcher launcher = LauncherFactory.create();
+            ClassLoader classLoader = TestWorkerMain.class.getClassLoader();
+
+            while (in.readByte() == WorkerProtocol.CMD_RUN) {
+                List<String> tests = WorkerProtocol.readTests(in);
+                CoverageCut cut = WorkerProtocol.readCut(in);
+                boolean failFast = in.readBoolean();
+                LauncherDiscoveryRequest request = LauncherDiscoveryRequestBuilder.request()
+                        .selectors(TestSelectors.create(tests, classLoader, testClassesPath))
+                        .build();
+
+                TestResultCollector collector = new TestResultCollector(result -> {
+                    try {
+                        WorkerProtocol.writeResult(out, result);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, cut != null ? new CoverageCuts(out, cut) : TestBoundaryListener.NONE);
+                CancellationToken cancellationToken = CancellationToken.create();
+                if (failFast) {
+                    collector.cancelOnFailure(cancellationToken);
+                }
+                launcher.execute(LauncherExecutionRequestBuilder.request(request)
+                        .listeners(collector)
+                        .cancellationToken(cancellationToken)
+                        .build());
+
+                WorkerProtocol.writeBytes(out, WorkerProtocol.MSG_COVERAGE, dumpExecutionData());
+                out.writeByte(WorkerProtocol.MSG_DONE);
+                out.flush();
+            }
+        }
+        // Tests may leave non-daemon threads behind
+        System.exit(0);
+    }
+
+    // Cuts the agent's execution data at every test or test class boundary. Per test, whatever ran between tests
+    // (class setup, static initializers) only counts for the run, what ran inside a test is attributed to it; per
+    // class, everything since the previous class is attributed to the class
+    private static class CoverageCuts implements TestBoundaryListener {
+        private final DataOutputStream out;
+        private final CoverageCut cut;
+
+        CoverageCuts(DataOutputStream out, CoverageCut cut) {
+            this.out = out;
+            this.cut = cut;
+        }
+
+        @Override
+        public void testStarted(String testId) {
+            if (cut == CoverageCut.TEST) {
+                write(null);
+            }
+        }
+
+        @Override
+        public void testFinished(String testId) {
+            if (cut == CoverageCut.TEST) {
+                write(testId);
+            }
+        }
+
+        @Override
+        public void classFinished(String className) {
+            if (cut == CoverageCut.TEST_CLASS) {
+                write(className);
+            }
+        }
+
+        // Without an id the data only counts for the run
+        private void write(String id) {
+            try {
+                if (id == null) {
+                    WorkerProtocol.writeBytes(out, WorkerProtocol.MSG_COVERAGE, dumpExecutionData());
+                } else {
+                    WorkerProtocol.writeTestCoverage(out, id, dumpExecutionData());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static byte[] dumpExecutionData() {
+        try {
+            Object agent = Class.forName("org.jacoco.agent.rt.RT").getMethod("getAgent").invoke(null);
+            Method getExecutionData = Class.forName("org.jacoco.agent.rt.IAgent").getMethod("getExecutionData", boolean.class);
+            return (byte[]) getExecutionData.invoke(agent, true);
+        } catch (ReflectiveOperationException e) {
+            // Worker started without the JaCoCo agent
+            return new byte[0];
+        }
+    }
+}
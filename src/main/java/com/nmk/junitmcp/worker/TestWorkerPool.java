@@ -0,0 +1,173 @@
+package com.nmk.junitmcp.worker;
+
+import com.nmk.junitmcp.buildtool.BuildHandle;
+import com.nmk.junitmcp.config.ProcessProperties;
+import com.nmk.junitmcp.config.WorkerPoolProperties;
+import com.nmk.junitmcp.dto.TestResult;
+import com.nmk.junitmcp.junit_platform.CoverageCut;
+import com.nmk.junitmcp.util.ForkedJvmClasspath;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+@Service
+@RequiredArgsConstructor
+public class TestWorkerPool {
+    // Classes whose jars the worker needs in addition to the project's own test classpath
+    private static final List<String> WORKER_RUNTIME_CLASSES = List.of(
+            "com.nmk.junitmcp.worker.TestWorkerMain",
+            "org.junit.platform.launcher.core.LauncherFactory",
+            "org.junit.platform.engine.discovery.DiscoverySelectors",
+            "org.junit.platform.commons.util.ReflectionUtils",
+            "org.junit.jupiter.engine.JupiterTestEngine",
+            "org.opentest4j.AssertionFailedError");
+
+    private final WorkerPoolProperties properties;
+    private final ProcessProperties processProperties;
+    private final Map<String, ProjectWorkers> projects = new ConcurrentHashMap<>();
+
+    public List<TestResult> runTests(ProjectPathResolver pathResolver, List<String> classpath, String classpathKey,
+                                     List<String> tests, IExecutionDataVisitor coverageData,
+                                     Consumer<TestResult> resultListener,
+                                     BiConsumer<String, ExecutionDataStore> testCoverageListener, CoverageCut cut,
+                                     boolean failFast, Consumer<BuildHandle> started) throws Exception {
+        ProjectWorkers workers = projects.computeIfAbsent(pathResolver.getCanonicalPath(),
+                key -> new ProjectWorkers(properties.getMaxWorkersPerProject()));
+
+        workers.permits.acquire();
+        TestWorker worker = null;
+        boolean healthy = false;
+        try {
+            worker = workers.takeIdle(classpathKey);
+            if (worker == null) {
+                worker = startWorker(pathResolver, classpath, classpathKey);
+            }
+            // A job cancel kills the worker while this run uses it, never once it is back in the pool
+            AtomicReference<TestWorker> running = new AtomicReference<>(worker);
+            started.accept(() -> {
+                TestWorker current = running.getAndSet(null);
+                if (current != null) {
+                    current.kill();
+                }
+            });
+            try {
+                List<TestResult> results = worker.run(tests, coverageData, resultListener, testCoverageListener, cut, failFast,
+                        processProperties.getTestTimeout());
+                healthy = true;
+                return results;
+            } finally {
+                running.set(null);
+            }
+        } finally {
+            if (worker != null) {
+                release(workers, worker, healthy);
+            }
+            workers.permits.release();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${junit-mcp.worker-pool.eviction-interval:PT1M}")
+    public void evictIdleWorkers() {
+        long cutoff = System.currentTimeMillis() - properties.getIdleTimeout().toMillis();
+        for (ProjectWorkers workers : projects.values()) {
+            workers.evictIdleSince(cutoff);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ProjectWorkers workers : projects.values()) {
+            workers.evictIdleSince(Long.MAX_VALUE);
+        }
+        projects.clear();
+    }
+
+    private void release(ProjectWorkers workers, TestWorker worker, boolean healthy) {
+        if (!healthy || !worker.isAlive() || worker.getRuns() >= properties.getMaxRunsPerWorker()) {
+            worker.shutdown();
+        } else {
+            workers.returnIdle(worker);
+        }
+    }
+
+    private TestWorker startWorker(ProjectPathResolver pathResolver, List<String> classpath, String classpathKey) throws IOException {
+        Path workDirectory = Path.of(pathResolver.getWorkDirectory());
+        Files.createDirectories(workDirectory);
+
+        List<String> javaOptions = new ArrayList<>();
+        javaOptions.add("-javaagent:" + ForkedJvmClasspath.getAgentJar().getAbsolutePath()
+                + "=output=none,dumponexit=false,excludes=org.junit.*:junit.*:org.opentest4j.*:com.nmk.junitmcp.*");
+        javaOptions.addAll(properties.getJvmArgs());
+
+        Path logFile = workDirectory.resolve("worker.log");
+        rotateLog(logFile);
+        return TestWorker.start(javaOptions, ForkedJvmClasspath.build(classpath, WORKER_RUNTIME_CLASSES), pathResolver.getTestClassesPath(),
+                new File(pathResolver.getProjectPath()), logFile.toFile(), classpathKey, properties.getStartupTimeout());
+    }
+
+    // Workers append to the log for as long as they live; a log past its limit moves aside and the previous one goes.
+    // Workers still writing to it keep writing to the moved file
+    private void rotateLog(Path logFile) throws IOException {
+        if (Files.isRegularFile(logFile) && Files.size(logFile) > properties.getMaxLogSize().toBytes()) {
+            Files.move(logFile, logFile.resolveSibling(logFile.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static class ProjectWorkers {
+        private final Semaphore permits;
+        private final Deque<TestWorker> idle = new ArrayDeque<>();
+
+        ProjectWorkers(int maxWorkers) {
+            this.permits = new Semaphore(maxWorkers, true);
+        }
+
+        synchronized TestWorker takeIdle(String classpathKey) {
+            Iterator<TestWorker> iterator = idle.iterator();
+            while (iterator.hasNext()) {
+                TestWorker worker = iterator.next();
+                // Workers started for an older classpath or build are recycled
+                if (!worker.getClasspathKey().equals(classpathKey) || !worker.isAlive()) {
+                    iterator.remove();
+                    worker.shutdown();
+                }
+            }
+            return idle.pollFirst();
+        }
+
+        synchronized void returnIdle(TestWorker worker) {
+            idle.addFirst(worker);
+        }
+
+        synchronized void evictIdleSince(long cutoff) {
+            Iterator<TestWorker> iterator = idle.iterator();
+            while (iterator.hasNext()) {
+                TestWorker worker = iterator.next();
+                if (worker.getLastUsed() < cutoff) {
+                    iterator.remove();
+                    worker.shutdown();
+                }
+            }
+        }
+    }
+}
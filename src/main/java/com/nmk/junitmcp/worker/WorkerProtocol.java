@@ -0,0 +1,115 @@
+package com.nmk.junitmcp.worker;
+
+import com.nmk.junitmcp.dto.TestResult;
+import com.nmk.junitmcp.junit_platform.CoverageCut;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Binary framing shared by the pool and the forked worker JVMs
+final class WorkerProtocol {
+    static final byte CMD_RUN = 1;
+    static final byte CMD_SHUTDOWN = 2;
+
+    static final byte MSG_RESULT = 10;
+    static final byte MSG_COVERAGE = 11;
+    static final byte MSG_DONE = 12;
+    static final byte MSG_TEST_COVERAGE = 13;
+
+    private WorkerProtocol() {
+    }
+
+    // cut is null when no coverage listener wants the execution data cut up
+    static void writeRun(DataOutputStream out, List<String> tests, CoverageCut cut, boolean failFast) throws IOException {
+        out.writeByte(CMD_RUN);
+        out.writeInt(tests.size());
+        for (String test : tests) {
+            writeString(out, test);
+        }
+        out.writeByte(cut != null ? cut.ordinal() + 1 : 0);
+        out.writeBoolean(failFast);
+        out.flush();
+    }
+
+    static CoverageCut readCut(DataInputStream in) throws IOException {
+        int cut = in.readByte();
+        return cut == 0 ? null : CoverageCut.values()[cut - 1];
+    }
+
+    static List<String> readTests(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> tests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tests.add(readString(in));
+        }
+        return tests;
+    }
+
+    static void writeResult(DataOutputStream out, TestResult result) throws IOException {
+        out.writeByte(MSG_RESULT);
+        writeString(out, result.getTest());
+        writeString(out, result.getStatus());
+        writeString(out, result.getError());
+        out.writeLong(result.getDurationMs());
+        out.flush();
+    }
+
+    static TestResult readResult(DataInputStream in) throws IOException {
+        TestResult result = new TestResult();
+        result.setTest(readString(in));
+        result.setStatus(readString(in));
+        result.setError(readString(in));
+        result.setDurationMs(in.readLong());
+        return result;
+    }
+
+    static void writeBytes(DataOutputStream out, byte type, byte[] data) throws IOException {
+        out.writeByte(type);
+        out.writeInt(data.length);
+        out.write(data);
+        out.flush();
+    }
+
+    static void writeTestCoverage(DataOutputStream out, String testId, byte[] data) throws IOException {
+        out.writeByte(MSG_TEST_COVERAGE);
+        writeString(out, testId);
+        out.writeInt(data.length);
+        out.write(data);
+        out.flush();
+    }
+
+    static String readTestId(DataInputStream in) throws IOException {
+        return readString(in);
+    }
+
+    static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return data;
+    }
+
+    // writeUTF is capped at 64 KB, which long stack traces exceed
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
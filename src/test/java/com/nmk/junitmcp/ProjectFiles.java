@@ -0,0 +1,32 @@
+package com.nmk.junitmcp;
+
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Fixture projects for tests: files written relative to the project root and sources compiled into its output directories
+public final class ProjectFiles {
+
+    private ProjectFiles() {
+    }
+
+    public static Path write(Path project, String relativePath, String content) throws IOException {
+        Path file = project.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+
+    // Sources and the output directory are relative to the project; fails the test when they do not compile
+    public static void javac(Path project, String outputDir, String classpath, String... sources) {
+        List<String> arguments = new ArrayList<>(List.of("-d", project.resolve(outputDir).toString(), "-cp", classpath));
+        for (String source : sources) {
+            arguments.add(project.resolve(source).toString());
+        }
+        assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null, arguments.toArray(String[]::new)));
+    }
+}
@@ -0,0 +1,100 @@
+package com.nmk.junitmcp.buildtool;
+
+import com.nmk.junitmcp.config.ProcessProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProcessSupervisorTests {
+
+    private final ProcessProperties properties = new ProcessProperties();
+    private final ProcessSupervisor supervisor = new ProcessSupervisor(properties);
+    private final List<String> output = new ArrayList<>();
+
+    ProcessSupervisorTests() {
+        properties.setSampleInterval(Duration.ofMillis(50));
+    }
+
+    @Test
+    void forwardsOutputAndTheExitCode() throws Exception {
+        ProcessSupervisor.Outcome outcome = run("echo one; echo two; exit 3", Duration.ofSeconds(30));
+
+        assertEquals(3, outcome.exitCode());
+        assertEquals(List.of("one", "two"), output);
+    }
+
+    @Test
+    void killsABuildThatPrintsNothingForTheIdleTimeout() throws Exception {
+        properties.setIdleTimeout(Duration.ofMillis(500));
+
+        BuildTimeoutException e = assertThrows(BuildTimeoutException.class,
+                () -> run("sleep 30 & echo $!; wait", Duration.ofSeconds(30)));
+
+        assertTrue(e.getMessage().contains("printed nothing"), e.getMessage());
+        assertKilled(Long.parseLong(output.getFirst()));
+    }
+
+    @Test
+    void killsABuildThatKeepsPrintingPastTheWallClockTimeout() throws Exception {
+        properties.setIdleTimeout(Duration.ofSeconds(30));
+
+        BuildTimeoutException e = assertThrows(BuildTimeoutException.class,
+                () -> run("sleep 30 & echo $!; while true; do echo tick; sleep 0.05; done", Duration.ofMillis(500)));
+
+        assertTrue(e.getMessage().contains("did not finish within"), e.getMessage());
+        assertTrue(output.contains("tick"));
+        assertKilled(Long.parseLong(output.getFirst()));
+    }
+
+    @Test
+    void forwardsAllOutputToASlowConsumer() throws Exception {
+        run("seq 1 30", Duration.ofSeconds(30), 100);
+
+        assertEquals(30, output.size());
+        assertEquals("30", output.getLast());
+    }
+
+    @Test
+    void stopsForwardingWhenAProcessThatOutlivedTheBuildHoldsTheOutput() throws Exception {
+        long startedAt = System.nanoTime();
+        run("sleep 30 & echo $!; sleep 0.3", Duration.ofSeconds(30));
+
+        assertTrue(System.nanoTime() - startedAt < Duration.ofSeconds(10).toNanos());
+        assertTrue(output.getLast().startsWith("[junit-mcp] Output truncated"), output.toString());
+        ProcessHandle.of(Long.parseLong(output.getFirst())).ifPresent(ProcessHandle::destroyForcibly);
+    }
+
+    private ProcessSupervisor.Outcome run(String script, Duration timeout) throws Exception {
+        return run(script, timeout, 0);
+    }
+
+    private ProcessSupervisor.Outcome run(String script, Duration timeout, long delayPerLineMs) throws Exception {
+        return supervisor.run(new ProcessBuilder("sh", "-c", script), "test-build", timeout, handle -> {
+        }, line -> {
+            synchronized (output) {
+                output.add(line);
+            }
+            try {
+                Thread.sleep(delayPerLineMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    // Children of the build go down with it
+    private static void assertKilled(long pid) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertFalse(ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false));
+    }
+}
@@ -0,0 +1,81 @@
+package com.nmk.junitmcp.cache;
+
+import com.nmk.junitmcp.util.ClassHashes;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static com.nmk.junitmcp.ProjectFiles.javac;
+import static com.nmk.junitmcp.ProjectFiles.write;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TestCacheKeysTests {
+
+    @TempDir
+    Path project;
+
+    private ProjectPathResolver pathResolver;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        write(project, "pom.xml", "<project/>");
+        write(project, "src/main/java/p/Foo.java", "package p; public class Foo { public String name() { return \"foo\"; } }");
+        write(project, "src/main/java/p/Bar.java", "package p; public class Bar { public String name() { return \"bar\"; } }");
+        write(project, "src/test/java/p/FooTest.java", "package p; public class FooTest { class Inner {} void test() { new Foo().name(); } }");
+        write(project, "src/test/java/p/BarTest.java", "package p; public class BarTest { void test() { new Bar().name(); } }");
+        compileMain();
+        javac(project, "target/test-classes", project.resolve("target/classes").toString(), "src/test/java/p/FooTest.java", "src/test/java/p/BarTest.java");
+        pathResolver = new ProjectPathResolver(project.toString());
+    }
+
+    @Test
+    void changesWithTheClassesATestReaches() throws IOException {
+        String foo = key("p.FooTest", "env");
+        String bar = key("p.BarTest", "env");
+
+        write(project, "src/main/java/p/Foo.java", "package p; public class Foo { public String name() { return \"foo, changed\"; } }");
+        compileMain();
+
+        assertNotEquals(foo, key("p.FooTest", "env"));
+        assertEquals(bar, key("p.BarTest", "env"));
+    }
+
+    @Test
+    void changesWithResourcesTheEnvironmentAndTheSelector() throws IOException {
+        String foo = key("p.FooTest", "env");
+
+        assertEquals(foo, key("p.FooTest", "env"));
+        assertNotEquals(foo, key("p.FooTest", "other env"));
+        assertNotEquals(foo, keys("env").key("p.FooTest", "p.FooTest#test"));
+
+        write(project, "target/classes/app.properties", "greeting=hello");
+        assertNotEquals(foo, key("p.FooTest", "env"));
+    }
+
+    @Test
+    void mapsNestedClassesToTheirTestClass() throws IOException {
+        TestCacheKeys keys = keys("env");
+
+        assertEquals("p.FooTest", keys.testClassOf("p.FooTest$Inner"));
+        assertNull(keys.testClassOf("p.Foo"));
+    }
+
+    private String key(String testClass, String environment) throws IOException {
+        return keys(environment).key(testClass, testClass);
+    }
+
+    private TestCacheKeys keys(String environment) throws IOException {
+        return TestCacheKeys.compute(pathResolver, ClassHashes.compute(pathResolver), environment);
+    }
+
+    private void compileMain() {
+        javac(project, "target/classes", project.resolve("target/classes").toString(), "src/main/java/p/Foo.java", "src/main/java/p/Bar.java");
+    }
+
+}
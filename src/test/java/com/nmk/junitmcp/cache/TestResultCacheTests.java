@@ -0,0 +1,78 @@
+package com.nmk.junitmcp.cache;
+
+import com.nmk.junitmcp.dto.TestResult;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestResultCacheTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsResultsAndCoverage() throws IOException {
+        TestResultCache cache = TestResultCache.open(directory, 1 << 20);
+        cache.put("a", entry("com.example.FooTest"));
+
+        CachedTestClass hit = cache.get("a").orElseThrow();
+
+        assertEquals("com.example.FooTest#works", hit.results().getFirst().getTest());
+        assertEquals("boom", hit.results().getFirst().getError());
+        assertTrue(hit.coverage().get(1L).getProbes()[0]);
+        assertEquals("com.example.FooTest#works", hit.testCoverage().getFirst().testId());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntries() throws IOException {
+        long entrySize = entrySize();
+        TestResultCache cache = TestResultCache.open(directory, entrySize * 2 + entrySize / 2);
+        cache.put("a", entry("com.example.FooTest"));
+        cache.put("b", entry("com.example.FooTest"));
+        cache.get("a");
+        cache.put("c", entry("com.example.FooTest"));
+
+        assertEquals(2, cache.getEntryCount());
+        assertFalse(cache.get("b").isPresent());
+        assertTrue(cache.get("a").isPresent());
+        assertTrue(cache.get("c").isPresent());
+        // The files outlive the instance
+        assertEquals(2, TestResultCache.open(directory, entrySize * 2 + entrySize / 2).getEntryCount());
+    }
+
+    @Test
+    void dropsEntriesLargerThanTheWholeCache() throws IOException {
+        TestResultCache cache = TestResultCache.open(directory, entrySize() - 1);
+        cache.put("a", entry("com.example.FooTest"));
+
+        assertEquals(0, cache.getEntryCount());
+        assertFalse(cache.get("a").isPresent());
+    }
+
+    private long entrySize() throws IOException {
+        TestResultCache probe = TestResultCache.open(directory.resolve("probe"), 1 << 20);
+        probe.put("probe", entry("com.example.FooTest"));
+        return probe.getSize();
+    }
+
+    private static CachedTestClass entry(String testClass) {
+        TestResult result = new TestResult();
+        result.setTest(testClass + "#works");
+        result.setStatus("FAILED");
+        result.setDurationMs(3L);
+        result.setError("boom");
+        ExecutionDataStore coverage = new ExecutionDataStore();
+        coverage.put(new ExecutionData(1L, "com/example/Foo", new boolean[]{true}));
+        return new CachedTestClass(List.of(result), coverage,
+                List.of(new CachedTestClass.TestData(result.getTest(), coverage)));
+    }
+}
@@ -0,0 +1,95 @@
+package com.nmk.junitmcp.history;
+
+import com.nmk.junitmcp.dto.TestHistory;
+import com.nmk.junitmcp.dto.TestResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestHistoryStoreTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void flakinessIsTheShareOfOutcomeFlips() throws IOException {
+        try (TestHistoryStore store = TestHistoryStore.open(directory.resolve("history.log"))) {
+            long timestamp = 1_000L;
+            for (String status : List.of("PASSED", "FAILED", "PASSED", "PASSED", "FAILED")) {
+                store.append(List.of(result("a.ATest#flaky", status, 100L)), timestamp++);
+            }
+
+            TestHistory history = store.get("a.ATest#flaky").orElseThrow();
+            assertEquals("PFPPF", history.getRecentOutcomes());
+            assertEquals(5, history.getRuns());
+            assertEquals(2, history.getFailures());
+            assertEquals("FAILED", history.getLastStatus());
+            // P->F, F->P, P->F: three flips between five runs
+            assertEquals(0.75, history.getFlakiness(), 1e-9);
+        }
+    }
+
+    @Test
+    void skippedTestsAreNotRecorded() throws IOException {
+        try (TestHistoryStore store = TestHistoryStore.open(directory.resolve("history.log"))) {
+            store.append(List.of(result("a.ATest#skipped", "SKIPPED", 0L)), 1L);
+
+            assertFalse(store.get("a.ATest#skipped").isPresent());
+        }
+    }
+
+    @Test
+    void reopeningReplaysTheLogAndCompactionKeepsTheStats() throws IOException {
+        Path file = directory.resolve("history.log");
+        TestHistory before;
+        try (TestHistoryStore store = TestHistoryStore.open(file)) {
+            store.append(List.of(result("a.ATest#one", "PASSED", 100L), result("a.ATest#two", "FAILED", 50L)), 1L);
+            store.append(List.of(result("a.ATest#one", "FAILED", 200L)), 2L);
+            before = store.get("a.ATest#one").orElseThrow();
+        }
+
+        try (TestHistoryStore store = TestHistoryStore.open(file)) {
+            assertEquals(before, store.get("a.ATest#one").orElseThrow());
+            assertEquals(2, store.getAll().size());
+            store.compact();
+        }
+        assertEquals(2, Files.readAllLines(file).size());
+
+        try (TestHistoryStore store = TestHistoryStore.open(file)) {
+            assertEquals(before, store.get("a.ATest#one").orElseThrow());
+            // 0.3 * 200 + 0.7 * 100
+            assertEquals(130L, store.get("a.ATest#one").orElseThrow().getAverageDurationMs());
+        }
+    }
+
+    @Test
+    void aTornLastLineDoesNotLoseEarlierRecords() throws IOException {
+        Path file = directory.resolve("history.log");
+        try (TestHistoryStore store = TestHistoryStore.open(file)) {
+            store.append(List.of(result("a.ATest#one", "PASSED", 10L)), 1L);
+        }
+        Files.writeString(file, "R\t2\tF\t1", StandardOpenOption.APPEND);
+
+        try (TestHistoryStore store = TestHistoryStore.open(file)) {
+            assertTrue(store.get("a.ATest#one").isPresent());
+            assertEquals(1, store.get("a.ATest#one").orElseThrow().getRuns());
+        }
+    }
+
+    private static TestResult result(String test, String status, long durationMs) {
+        TestResult result = new TestResult();
+        result.setTest(test);
+        result.setStatus(status);
+        result.setDurationMs(durationMs);
+        return result;
+    }
+}
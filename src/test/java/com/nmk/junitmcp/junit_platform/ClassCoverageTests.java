@@ -0,0 +1,52 @@
+package com.nmk.junitmcp.junit_platform;
+
+import com.nmk.junitmcp.dto.CoverageCounter;
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.CounterImpl;
+import org.jacoco.core.internal.analysis.MethodCoverageImpl;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ClassCoverageTests {
+
+    @Test
+    void linesBecomeBitsetsRelativeToTheFirstLine() {
+        MethodCoverageImpl method = new MethodCoverageImpl("run", "()V", null);
+        method.incrementMethodCounter();
+        method.increment(CounterImpl.getInstance(0, 2), CounterImpl.COUNTER_0_0, 10);
+        method.increment(CounterImpl.getInstance(3, 0), CounterImpl.COUNTER_0_0, 11);
+        method.increment(CounterImpl.getInstance(1, 1), CounterImpl.getInstance(1, 1), 12);
+        method.increment(CounterImpl.getInstance(0, 1), CounterImpl.COUNTER_0_0, 80);
+        ClassCoverageImpl classCoverage = new ClassCoverageImpl("com/example/Foo", 1L, false);
+        classCoverage.addMethod(method);
+
+        ClassCoverage coverage = ClassCoverage.of(classCoverage);
+
+        assertEquals("com.example.Foo", coverage.name());
+        assertEquals("com.example", coverage.getPackageName());
+        assertEquals(10, coverage.firstLine());
+        // Line 12 is partly covered and set in both; line 80 is bit 70, in the second word
+        assertArrayEquals(new long[]{0b101L, 1L << 6}, coverage.coveredLines());
+        assertArrayEquals(new long[]{0b110L, 0L}, coverage.missedLines());
+
+        assertEquals(3, coverage.getCovered(CoverageCounter.LINE));
+        assertEquals(1, coverage.getMissed(CoverageCounter.LINE));
+        assertEquals(4, coverage.getCovered(CoverageCounter.INSTRUCTION));
+        assertEquals(4, coverage.getMissed(CoverageCounter.INSTRUCTION));
+        assertEquals(1, coverage.getCovered(CoverageCounter.BRANCH));
+        assertEquals(1, coverage.getMissed(CoverageCounter.BRANCH));
+        assertEquals(75.0, coverage.toResult().getCoveragePercent(), 1e-9);
+    }
+
+    @Test
+    void classesWithoutDebugInformationHaveNoLines() {
+        ClassCoverage coverage = ClassCoverage.of(new ClassCoverageImpl("Foo", 1L, false));
+
+        assertEquals("", coverage.getPackageName());
+        assertEquals(0, coverage.coveredLines().length);
+        assertEquals(0, coverage.missedLines().length);
+        assertEquals(0.0, coverage.toResult().getCoveragePercent(), 1e-9);
+    }
+}
@@ -0,0 +1,83 @@
+package com.nmk.junitmcp.log;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RunLogTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void pagesThroughLinesOnDiskAndInTheRing() throws IOException {
+        // 1000 lines against a ring of 10 and an index entry every 64 lines
+        try (RunLog log = RunLog.create("run", directory.resolve("run.log"), 10)) {
+            List<String> written = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                String line = "line " + i + " ü";
+                written.add(line);
+                log.append(line);
+            }
+
+            List<String> read = new ArrayList<>();
+            for (long from = 0; from < log.getLineCount(); from += 37) {
+                read.addAll(log.readLines(from, 37));
+            }
+            assertEquals(written, read);
+
+            // Pages starting and ending right on index entries, and spanning the ring boundary
+            assertEquals(written.subList(64, 128), log.readLines(64, 64));
+            assertEquals(written.subList(985, 1000), log.readLines(985, 20));
+            assertEquals(written.subList(990, 1000), log.readLines(990, 100));
+        }
+    }
+
+    @Test
+    void clampsRangesToWhatWasWritten() throws IOException {
+        try (RunLog log = RunLog.create("run", directory.resolve("run.log"), 4)) {
+            for (int i = 0; i < 5; i++) {
+                log.append("line " + i);
+            }
+
+            assertEquals(List.of("line 0", "line 1"), log.readLines(-3, 2));
+            assertEquals(List.of("line 4"), log.readLines(4, 10));
+            assertTrue(log.readLines(5, 10).isEmpty());
+            assertTrue(log.readLines(2, -1).isEmpty());
+        }
+    }
+
+    @Test
+    void readsBackAfterCloseAndIgnoresLaterLines() throws IOException {
+        RunLog log = RunLog.create("run", directory.resolve("run.log"), 2);
+        for (int i = 0; i < 100; i++) {
+            log.append("line " + i);
+        }
+        log.close();
+        log.append("too late");
+
+        assertTrue(log.isComplete());
+        assertEquals(100, log.getLineCount());
+        assertEquals(List.of("line 0", "line 1", "line 2"), log.readLines(0, 3));
+    }
+
+    @Test
+    void failureContextStartsBeforeTheFirstError() throws IOException {
+        try (RunLog log = RunLog.create("run", directory.resolve("run.log"), 4)) {
+            for (int i = 0; i < 50; i++) {
+                log.append(i == 20 ? "[ERROR] compilation failed" : "line " + i);
+            }
+
+            String context = log.getFailureContext(2, 4);
+            assertEquals("... 18 lines before ...\nline 18\nline 19\n[ERROR] compilation failed\nline 21\n"
+                    + "... 28 lines after ...\n", context);
+        }
+    }
+}
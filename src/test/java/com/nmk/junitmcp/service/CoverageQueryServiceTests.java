@@ -0,0 +1,96 @@
+package com.nmk.junitmcp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nmk.junitmcp.dto.CoverageCounter;
+import com.nmk.junitmcp.dto.CoverageQuery;
+import com.nmk.junitmcp.junit_platform.ClassCoverage;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoverageQueryServiceTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CoverageQueryService queryService = new CoverageQueryService(objectMapper);
+
+    @Test
+    void filtersByPackagePrefixAndClassPattern() throws IOException {
+        CoverageQuery query = new CoverageQuery();
+        query.setPackages(List.of("com.example.service"));
+        query.setClasses(List.of("*Service"));
+
+        JsonNode json = query(query);
+
+        assertEquals(2, json.get("totalClasses").asInt());
+        assertEquals("com.example.service.OrderService", json.get("classes").get(0).get("name").asText());
+        assertEquals("com.example.service.user.UserService", json.get("classes").get(1).get("name").asText());
+    }
+
+    @Test
+    void pagesClassesButTotalsCoverEveryMatch() throws IOException {
+        CoverageQuery query = new CoverageQuery();
+        query.setCounters(List.of(CoverageCounter.LINE, CoverageCounter.BRANCH));
+        query.setOffset(1);
+        query.setLimit(2);
+
+        JsonNode json = query(query);
+
+        assertEquals(4, json.get("totalClasses").asInt());
+        assertEquals(2, json.get("classes").size());
+        assertEquals("com.example.service.OrderService", json.get("classes").get(0).get("name").asText());
+        JsonNode lineTotals = json.get("totals").get("LINE");
+        assertEquals(10, lineTotals.get("covered").asLong());
+        assertEquals(10, lineTotals.get("missed").asLong());
+        assertEquals(50.0, lineTotals.get("percent").asDouble(), 1e-9);
+        assertTrue(json.get("totals").has("BRANCH"));
+        assertFalse(json.get("totals").has("METHOD"));
+        assertFalse(json.get("classes").get(0).has("lines"));
+    }
+
+    @Test
+    void encodesLineBitsetsAsLittleEndianWords() throws IOException {
+        CoverageQuery query = new CoverageQuery();
+        query.setClasses(List.of("com.example.Util"));
+        query.setLines(true);
+
+        JsonNode lines = query(query).get("classes").get(0).get("lines");
+
+        assertEquals(7, lines.get("first").asInt());
+        byte[] covered = Base64.getDecoder().decode(lines.get("covered").asText());
+        assertArrayEquals(new byte[]{0b101, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0}, covered);
+    }
+
+    private JsonNode query(CoverageQuery query) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        queryService.write(coverage(), query, out);
+        return objectMapper.readTree(out.toByteArray());
+    }
+
+    private static SortedMap<String, ClassCoverage> coverage() {
+        SortedMap<String, ClassCoverage> coverage = new TreeMap<>();
+        add(coverage, "com.example.Util", 1, 1, new long[]{0b101L, 1L});
+        add(coverage, "com.example.service.OrderService", 3, 1, new long[0]);
+        add(coverage, "com.example.service.user.UserService", 4, 4, new long[0]);
+        add(coverage, "com.example.serviceless.OtherService", 2, 4, new long[0]);
+        return coverage;
+    }
+
+    private static void add(SortedMap<String, ClassCoverage> coverage, String name, int coveredLines, int missedLines,
+                            long[] lineBits) {
+        int[] counters = new int[CoverageCounter.values().length * 2];
+        counters[CoverageCounter.LINE.ordinal() * 2] = coveredLines;
+        counters[CoverageCounter.LINE.ordinal() * 2 + 1] = missedLines;
+        coverage.put(name, new ClassCoverage(name, counters, 7, lineBits, new long[lineBits.length]));
+    }
+}
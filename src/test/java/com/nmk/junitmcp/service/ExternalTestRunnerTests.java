@@ -0,0 +1,94 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.buildtool.BuildInvocation;
+import com.nmk.junitmcp.buildtool.BuildListener;
+import com.nmk.junitmcp.buildtool.BuildTool;
+import com.nmk.junitmcp.buildtool.BuildTools;
+import com.nmk.junitmcp.config.BuildToolProperties;
+import com.nmk.junitmcp.config.ProcessProperties;
+import com.nmk.junitmcp.dto.TestResult;
+import com.nmk.junitmcp.util.BuildFingerprint;
+import com.nmk.junitmcp.util.ForkedJvmClasspath;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.nmk.junitmcp.ProjectFiles.write;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExternalTestRunnerTests {
+
+    @TempDir
+    Path project;
+
+    private final List<List<String>> builds = new ArrayList<>();
+    private final BuildTools buildTools = new BuildTools(new BuildToolProperties(), null, new ProcessProperties()) {
+        @Override
+        public BuildTool forProject(ProjectPathResolver pathResolver) {
+            return new BuildTool() {
+                @Override
+                public String getName() {
+                    return "fake";
+                }
+
+                @Override
+                public boolean reportsTestEvents() {
+                    return true;
+                }
+
+                @Override
+                public BuildInvocation run(File projectDir, List<String> args, Duration timeout, BuildListener listener) {
+                    builds.add(args);
+                    return new BuildInvocation(0, 0, 0, 0, 0);
+                }
+            };
+        }
+    };
+
+    @Test
+    void fallsBackToTheBuildToolWhenTheProjectsJUnitCannotBeCompleted() throws Exception {
+        write(project, "pom.xml", "<project/>");
+        ProjectPathResolver pathResolver = new ProjectPathResolver(project.toString());
+        BuildFingerprint fingerprint = BuildFingerprint.compute(project.toString());
+        BuildToolProperties properties = new BuildToolProperties();
+        properties.setDirectLaunch(true);
+        ExternalProjectService externalProjectService = new ExternalProjectService(null, null, null) {
+            @Override
+            public BuildFingerprint getBuiltFingerprint(ProjectPathResolver pathResolver) {
+                return fingerprint;
+            }
+        };
+        // JUnit Platform 1.10 without a launcher: the server's own launcher is of another release
+        TestClasspathResolver classpathResolver = new TestClasspathResolver(null, null) {
+            @Override
+            public List<String> resolve(ProjectPathResolver pathResolver, BuildFingerprint fingerprint) {
+                return List.of(pathResolver.getTestClassesPath(), "/repo/junit-platform-engine-1.10.2.jar");
+            }
+        };
+        ExternalTestRunner runner = new ExternalTestRunner(new TestReportReader(), buildTools, new ProcessProperties(),
+                properties, externalProjectService, classpathResolver, null);
+        List<String> output = new ArrayList<>();
+
+        List<TestResult> results = runner.runTests(pathResolver, List.of("p.FooTest"), false, new RunListener() {
+            @Override
+            public void buildOutput(String line) {
+                output.add(line);
+            }
+        });
+
+        assertEquals(1, builds.size());
+        assertTrue(builds.getFirst().contains("-Dtest=p.FooTest"), builds.toString());
+        // Without a console launcher on this server's classpath there is nothing to try in the first place
+        if (ForkedJvmClasspath.isAvailable("org.junit.platform.console.ConsoleLauncher")) {
+            assertTrue(output.getFirst().contains("1.10.2"), output.toString());
+        }
+        assertEquals("PASSED", results.getFirst().getStatus());
+    }
+}
@@ -0,0 +1,155 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.config.BuildToolProperties;
+import com.nmk.junitmcp.util.BuildFingerprint;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.nmk.junitmcp.ProjectFiles.javac;
+import static com.nmk.junitmcp.ProjectFiles.write;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FastCompilerTests {
+
+    @TempDir
+    Path project;
+
+    private final BuildToolProperties properties = new BuildToolProperties();
+    private final List<String> output = new ArrayList<>();
+    private final RunListener listener = new RunListener() {
+        @Override
+        public void buildOutput(String line) {
+            output.add(line);
+        }
+    };
+    private FastCompiler fastCompiler;
+    private ProjectPathResolver pathResolver;
+    private BuildFingerprint previous;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        write(project, "pom.xml", "<project/>");
+        write(project, "src/main/java/p/A.java", "package p; public class A { public static final int X = 1; public int twice(int value) { return value * 2; } }");
+        write(project, "src/main/java/p/B.java", "package p; public class B { public static int x() { return A.X; } public static long y() { return new A().twice(1); } }");
+        write(project, "src/test/java/p/BTest.java", "package p; class BTest { int x() { return B.x(); } }");
+        javac(project, "target/classes", project.resolve("target/classes").toString(), "src/main/java/p/A.java", "src/main/java/p/B.java");
+        javac(project, "target/test-classes", project.resolve("target/classes").toString(), "src/test/java/p/BTest.java");
+
+        pathResolver = new ProjectPathResolver(project.toString());
+        previous = BuildFingerprint.compute(project.toString());
+        TestClasspathResolver classpathResolver = new TestClasspathResolver(null, null) {
+            @Override
+            public List<String> resolve(ProjectPathResolver pathResolver, BuildFingerprint fingerprint) {
+                return List.of(pathResolver.getClassesPath(), pathResolver.getTestClassesPath());
+            }
+
+            @Override
+            public List<String> resolveMain(ProjectPathResolver pathResolver, BuildFingerprint fingerprint) {
+                return List.of(pathResolver.getClassesPath());
+            }
+        };
+        fastCompiler = new FastCompiler(properties, classpathResolver);
+    }
+
+    @Test
+    void recompilesTheClassesUsingAChangedSignature() throws Exception {
+        write(project, "src/main/java/p/A.java", "package p; public class A { public static final int X = 1; public long twice(long value) { return value * 2; } }");
+
+        assertTrue(compile());
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{project.resolve("target/classes").toUri().toURL()}, null)) {
+            assertEquals(2L, loader.loadClass("p.B").getMethod("y").invoke(null));
+        }
+        assertTrue(output.getLast().contains("1 changed source file(s) and 1 dependent(s)"), output.getLast());
+        assertFalse(Files.exists(Path.of(pathResolver.getWorkDirectory(), "fast-compile")));
+    }
+
+    @Test
+    void leavesDependentsAloneWhenOnlyAMethodBodyChanged() throws Exception {
+        write(project, "src/main/java/p/A.java", "package p; public class A { public static final int X = 1; public int twice(int value) { return value + value; } }");
+
+        assertTrue(compile());
+
+        assertTrue(output.getLast().contains("Compiled 1 changed source file(s) in-process"), output.getLast());
+    }
+
+    @Test
+    void leavesChangedConstantsToTheBuildTool() throws Exception {
+        write(project, "src/main/java/p/A.java", "package p; public class A { public static final int X = 42; public int twice(int value) { return value * 2; } }");
+
+        assertFalse(compile());
+    }
+
+    @Test
+    void leavesTheOutputUntouchedWhenTheTestSourcesDoNotCompile() throws Exception {
+        byte[] classBefore = Files.readAllBytes(project.resolve("target/classes/p/A.class"));
+        write(project, "src/main/java/p/A.java", "package p; public class A { public static final int X = 1; public int thrice(int value) { return value * 3; } }");
+        write(project, "src/test/java/p/BTest.java", "package p; class BTest { long y() { return B.y() + new A().twice(1); } }");
+
+        assertFalse(compile());
+
+        assertArrayEquals(classBefore, Files.readAllBytes(project.resolve("target/classes/p/A.class")));
+    }
+
+    @Test
+    void compilesMainSourcesWithoutTheTestClasses() throws Exception {
+        byte[] classBefore = Files.readAllBytes(project.resolve("target/classes/p/A.class"));
+        write(project, "src/main/java/p/A.java", "package p; public class A { public static final int X = 1; public int twice(int value) { return value * 2; } Object test() { return new BTest(); } }");
+
+        assertFalse(compile());
+
+        assertArrayEquals(classBefore, Files.readAllBytes(project.resolve("target/classes/p/A.class")));
+    }
+
+    @Test
+    void leavesChangesItCannotReproduceToTheBuildTool() throws Exception {
+        write(project, "src/main/resources/app.properties", "greeting=hello");
+        assertFalse(compile());
+
+        setUp();
+        Files.delete(project.resolve("src/main/java/p/B.java"));
+        assertFalse(compile());
+
+        setUp();
+        write(project, "pom.xml", "<project><modelVersion>4.0.0</modelVersion></project>");
+        assertFalse(compile());
+
+        setUp();
+        write(project, "src/main/java/module-info.java", "module p {}");
+        assertFalse(compile());
+    }
+
+    @Test
+    void leavesCompilerOptionsOfTheBuildFileToTheBuildTool() throws Exception {
+        write(project, "pom.xml", "<project><build><compilerArgs><arg>-Xlint:all</arg></compilerArgs></build></project>");
+        previous = BuildFingerprint.compute(project.toString());
+        write(project, "src/main/java/p/B.java", "package p; public class B { public static int x() { return A.X + 1; } }");
+
+        assertFalse(compile());
+    }
+
+    @Test
+    void doesNothingWhenDisabled() throws Exception {
+        properties.setFastCompile(false);
+        write(project, "src/main/java/p/B.java", "package p; public class B { public static int x() { return A.X + 1; } }");
+
+        assertFalse(compile());
+    }
+
+    private boolean compile() throws Exception {
+        return fastCompiler.compile(pathResolver, previous, BuildFingerprint.compute(project.toString()), listener);
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.config.CoverageProperties;
+import com.nmk.junitmcp.dto.CoverageResult;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.runtime.RemoteControlReader;
+import org.jacoco.core.runtime.RemoteControlWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LiveCoverageServiceTests {
+
+    @TempDir
+    Path project;
+
+    private final CoverageProperties properties = new CoverageProperties();
+    private final LiveCoverageService service = new LiveCoverageService(properties, new CoverageService());
+    private ProjectPathResolver pathResolver;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.writeString(project.resolve("pom.xml"), "<project/>");
+        pathResolver = new ProjectPathResolver(project.toString());
+        properties.setTransport(CoverageProperties.Transport.TCP);
+        properties.setDumpTimeout(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void collectsTheFinalDumpOfEveryAgent() throws Exception {
+        try (LiveCoverageService.Session session = service.start(pathResolver, RunListener.NONE)) {
+            sendAndExit(session.getPort(), new ExecutionData(1L, "com/example/Foo", new boolean[]{true, false}));
+            sendAndExit(session.getPort(), new ExecutionData(1L, "com/example/Foo", new boolean[]{false, true}));
+
+            ExecutionDataStore data = session.finish();
+
+            assertArrayEquals(new boolean[]{true, true}, data.get(1L).getProbes());
+        }
+    }
+
+    @Test
+    void asksRunningAgentsForSnapshots() throws Exception {
+        properties.setSnapshotInterval(Duration.ofMillis(50));
+        CountDownLatch snapshot = new CountDownLatch(1);
+        RunListener listener = new RunListener() {
+            @Override
+            public void coverageSnapshot(CoverageResult totals) {
+                snapshot.countDown();
+            }
+        };
+
+        try (LiveCoverageService.Session session = service.start(pathResolver, listener);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), session.getPort())) {
+            // Answers every dump request the way the agent does
+            RemoteControlWriter writer = new RemoteControlWriter(socket.getOutputStream());
+            RemoteControlReader reader = new RemoteControlReader(socket.getInputStream());
+            reader.setRemoteCommandVisitor((dump, reset) -> {
+                writer.visitSessionInfo(new SessionInfo("agent", 0, 0));
+                writer.visitClassExecution(new ExecutionData(2L, "com/example/Bar", new boolean[]{true}));
+                writer.sendCmdOk();
+            });
+            Thread.ofVirtual().start(() -> {
+                try {
+                    while (reader.read()) {
+                        // One block per command
+                    }
+                } catch (IOException e) {
+                    // Closed
+                }
+            });
+
+            assertTrue(snapshot.await(10, TimeUnit.SECONDS));
+            socket.close();
+            assertTrue(session.finish().contains("com/example/Bar"));
+        }
+    }
+
+    @Test
+    void leavesExecFilesToBeReadWhenNoAgentConnected() throws Exception {
+        properties.setDumpTimeout(Duration.ofMillis(100));
+        try (LiveCoverageService.Session session = service.start(pathResolver, RunListener.NONE)) {
+            assertNull(session.finish());
+        }
+
+        properties.setTransport(CoverageProperties.Transport.FILE);
+        assertNull(service.start(pathResolver, RunListener.NONE));
+    }
+
+    // What an agent in tcpclient mode sends when its JVM exits
+    private static void sendAndExit(int port, ExecutionData data) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            RemoteControlWriter writer = new RemoteControlWriter(socket.getOutputStream());
+            writer.visitSessionInfo(new SessionInfo("agent", 0, 0));
+            writer.visitClassExecution(data);
+            writer.sendCmdOk();
+        }
+    }
+}
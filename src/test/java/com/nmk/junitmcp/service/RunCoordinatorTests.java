@@ -0,0 +1,265 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.dto.RunRequest;
+import com.nmk.junitmcp.dto.RunResponse;
+import com.nmk.junitmcp.dto.TestResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RunCoordinatorTests {
+    private static final String PROJECT = "/projects/example";
+
+    private final RunCoordinator coordinator = new RunCoordinator();
+    private final List<List<String>> executed = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    void identicalRequestsShareOneExecution() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RunCoordinator.RunExecutor executor = blockingExecutor(release, null);
+
+        Caller first = start(request("com.example.ATest"), executor);
+        awaitExecutions(1);
+        Caller second = start(request("com.example.ATest"), executor);
+        assertTrue(second.started.await(5, TimeUnit.SECONDS), "A joiner of a running run is told it started");
+        release.countDown();
+
+        assertSame(first.result.get(5, TimeUnit.SECONDS), second.result.get(5, TimeUnit.SECONDS));
+        assertEquals(1, executed.size());
+        // Only the caller that drove the run saw its progress as it happened; the joiner gets it replayed
+        assertEquals(0, first.replayed.get());
+        assertEquals(1, second.replayed.get());
+    }
+
+    @Test
+    void queuedRequestsOfTheSameKindMergeIntoOneRun() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RunCoordinator.RunExecutor executor = blockingExecutor(release, null);
+
+        Caller blocking = start(request("com.example.BlockingTest"), executor);
+        awaitExecutions(1);
+        Caller a = start(request("com.example.ATest"), executor);
+        Caller b = start(request("com.example.BTest"), executor);
+        awaitWaiting(a.thread);
+        awaitWaiting(b.thread);
+        release.countDown();
+
+        blocking.result.get(5, TimeUnit.SECONDS);
+        RunResponse aResponse = a.result.get(5, TimeUnit.SECONDS);
+        RunResponse bResponse = b.result.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(List.of("com.example.BlockingTest"), List.of("com.example.ATest", "com.example.BTest")), executed);
+        assertEquals(List.of("com.example.ATest#test"), tests(aResponse));
+        assertEquals(List.of("com.example.BTest#test"), tests(bResponse));
+    }
+
+    @Test
+    void differentKindsRunSeparately() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RunCoordinator.RunExecutor executor = blockingExecutor(release, null);
+
+        Caller blocking = start(request("com.example.BlockingTest"), executor);
+        awaitExecutions(1);
+        RunRequest failFast = request("com.example.BTest");
+        failFast.setFailFast(true);
+        Caller a = start(request("com.example.ATest"), executor);
+        Caller b = start(failFast, executor);
+        awaitWaiting(a.thread);
+        awaitWaiting(b.thread);
+        release.countDown();
+
+        blocking.result.get(5, TimeUnit.SECONDS);
+        a.result.get(5, TimeUnit.SECONDS);
+        b.result.get(5, TimeUnit.SECONDS);
+        assertEquals(3, executed.size());
+    }
+
+    @Test
+    void queuedFailFastRequestsRunOnTheirOwn() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RunCoordinator.RunExecutor executor = blockingExecutor(release, null);
+
+        Caller blocking = start(request("com.example.BlockingTest"), executor);
+        awaitExecutions(1);
+        RunRequest failingFirst = request("com.example.ATest");
+        failingFirst.setFailFast(true);
+        RunRequest other = request("com.example.BTest");
+        other.setFailFast(true);
+        Caller a = start(failingFirst, executor);
+        awaitWaiting(a.thread);
+        Caller b = start(other, executor);
+        awaitWaiting(b.thread);
+        release.countDown();
+
+        blocking.result.get(5, TimeUnit.SECONDS);
+        // Had they merged, a failure in ATest would have stopped the run before BTest ran
+        assertEquals(List.of("com.example.ATest#test"), tests(a.result.get(5, TimeUnit.SECONDS)));
+        assertEquals(List.of("com.example.BTest#test"), tests(b.result.get(5, TimeUnit.SECONDS)));
+        assertEquals(List.of(List.of("com.example.BlockingTest"), List.of("com.example.ATest"), List.of("com.example.BTest")),
+                executed);
+    }
+
+    @Test
+    void cancellingOneCallerLeavesTheSharedRunToTheOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean buildCancelled = new AtomicBoolean();
+        RunCoordinator.RunExecutor executor = blockingExecutor(release, () -> buildCancelled.set(true));
+
+        Caller driver = start(request("com.example.ATest"), executor);
+        awaitExecutions(1);
+        Caller joiner = start(request("com.example.ATest"), executor);
+        assertTrue(joiner.started.await(5, TimeUnit.SECONDS));
+
+        driver.thread.interrupt();
+        assertInstanceOf(InterruptedException.class, failure(driver));
+        release.countDown();
+
+        assertEquals(List.of("com.example.ATest#test"), tests(joiner.result.get(5, TimeUnit.SECONDS)));
+        assertFalse(buildCancelled.get());
+    }
+
+    @Test
+    void cancellingTheLastCallerCancelsTheRun() throws Exception {
+        CountDownLatch never = new CountDownLatch(1);
+        CountDownLatch buildCancelled = new CountDownLatch(1);
+        RunCoordinator.RunExecutor executor = blockingExecutor(never, buildCancelled::countDown);
+
+        Caller first = start(request("com.example.ATest"), executor);
+        awaitExecutions(1);
+        Caller second = start(request("com.example.ATest"), executor);
+        assertTrue(second.started.await(5, TimeUnit.SECONDS));
+
+        first.thread.interrupt();
+        failure(first);
+        assertEquals(1, buildCancelled.getCount(), "Another caller still waits for the run");
+        second.thread.interrupt();
+        failure(second);
+        assertTrue(buildCancelled.await(5, TimeUnit.SECONDS));
+
+        // The project is free again
+        CountDownLatch released = new CountDownLatch(0);
+        Caller next = start(request("com.example.ATest"), blockingExecutor(released, null));
+        assertEquals(List.of("com.example.ATest#test"), tests(next.result.get(5, TimeUnit.SECONDS)));
+    }
+
+    @Test
+    void cancelledQueuedRunDropsOutOfTheMergedBatch() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RunCoordinator.RunExecutor executor = blockingExecutor(release, null);
+
+        Caller blocking = start(request("com.example.BlockingTest"), executor);
+        awaitExecutions(1);
+        Caller leader = start(request("com.example.ATest"), executor);
+        awaitWaiting(leader.thread);
+        Caller survivor = start(request("com.example.BTest"), executor);
+        awaitWaiting(survivor.thread);
+
+        leader.thread.interrupt();
+        failure(leader);
+        release.countDown();
+
+        blocking.result.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("com.example.BTest#test"), tests(survivor.result.get(5, TimeUnit.SECONDS)));
+        assertEquals(List.of("com.example.BTest"), executed.get(1));
+        assertEquals(0, survivor.replayed.get(), "The survivor drives its run");
+    }
+
+    // Waits for release, or for the caller's cancel, then reports one passing test per selected class
+    private RunCoordinator.RunExecutor blockingExecutor(CountDownLatch release, Runnable onBuildCancel) {
+        return (request, listener, started) -> {
+            executed.add(request.getTests());
+            started.run();
+            if (onBuildCancel != null) {
+                listener.buildStarted(onBuildCancel::run);
+            }
+            release.await();
+            RunResponse response = new RunResponse();
+            List<TestResult> results = new ArrayList<>();
+            for (String test : request.getTests()) {
+                TestResult result = new TestResult();
+                result.setTest(test + "#test");
+                result.setStatus("PASSED");
+                results.add(result);
+                listener.testFinished(result);
+            }
+            response.setResults(results);
+            return response;
+        };
+    }
+
+    private Caller start(RunRequest request, RunCoordinator.RunExecutor executor) {
+        Caller caller = new Caller();
+        RunListener listener = new RunListener() {
+            @Override
+            public void coverageReady(java.util.Map<String, com.nmk.junitmcp.dto.CoverageResult> coverage) {
+                caller.replayed.incrementAndGet();
+            }
+        };
+        caller.thread = Thread.ofVirtual().start(() -> {
+            try {
+                caller.result.complete(coordinator.execute(PROJECT, request, listener, caller.started::countDown, executor));
+            } catch (Throwable e) {
+                caller.result.completeExceptionally(e);
+            }
+        });
+        return caller;
+    }
+
+    private void awaitExecutions(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executed.size() < count) {
+            assertTrue(System.nanoTime() < deadline, "Expected " + count + " executions");
+            Thread.sleep(5);
+        }
+    }
+
+    // Parked in the coordinator, i.e. registered with a run
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.WAITING) {
+            assertTrue(System.nanoTime() < deadline, "Caller never started waiting");
+            Thread.sleep(5);
+        }
+    }
+
+    private static Throwable failure(Caller caller) throws InterruptedException {
+        try {
+            caller.result.get(5, TimeUnit.SECONDS);
+        } catch (java.util.concurrent.ExecutionException e) {
+            return e.getCause();
+        } catch (java.util.concurrent.TimeoutException e) {
+            throw new AssertionError("Caller did not give up", e);
+        }
+        throw new AssertionError("Caller completed normally");
+    }
+
+    private static RunRequest request(String... tests) {
+        RunRequest request = new RunRequest();
+        request.setProjectPath(PROJECT);
+        request.setTests(List.of(tests));
+        return request;
+    }
+
+    private static List<String> tests(RunResponse response) {
+        return response.getResults().stream().map(TestResult::getTest).toList();
+    }
+
+    private static class Caller {
+        private final CompletableFuture<RunResponse> result = new CompletableFuture<>();
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final AtomicInteger replayed = new AtomicInteger();
+        private Thread thread;
+    }
+}
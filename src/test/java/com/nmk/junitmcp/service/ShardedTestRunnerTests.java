@@ -0,0 +1,59 @@
+package com.nmk.junitmcp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ShardedTestRunnerTests {
+
+    @Test
+    void slowestClassesGoToTheLeastLoadedShard() {
+        Map<String, List<String>> selectors = selectors("d.DTest", "c.CTest", "b.BTest", "a.ATest");
+        Map<String, Long> durations = Map.of("a.ATest", 10_000L, "b.BTest", 6_000L, "c.CTest", 5_000L, "d.DTest", 4_000L);
+
+        List<List<String>> shards = ShardedTestRunner.plan(selectors, durations, 1_000L, 2);
+
+        // a (10s) and b (6s) open the shards, c joins the lighter b (11s), d then joins a (14s)
+        assertEquals(Set.of(Set.of("a.ATest", "d.DTest"), Set.of("b.BTest", "c.CTest")), asSets(shards));
+    }
+
+    @Test
+    void unknownClassesCountAsTheAverageOfKnownOnes() {
+        Map<String, List<String>> selectors = selectors("a.ATest", "b.BTest", "c.CTest");
+        // c.CTest is new and counts as 6s, so it goes next to the 2s class rather than the 10s one
+        Map<String, Long> durations = Map.of("a.ATest", 10_000L, "b.BTest", 2_000L);
+
+        List<List<String>> shards = ShardedTestRunner.plan(selectors, durations, 1_000L, 2);
+
+        assertEquals(Set.of(Set.of("a.ATest"), Set.of("b.BTest", "c.CTest")), asSets(shards));
+    }
+
+    @Test
+    void keepsEverySelectorOfAClassInOneShardAndDropsEmptyShards() {
+        Map<String, List<String>> selectors = new LinkedHashMap<>();
+        selectors.put("a.ATest", List.of("a.ATest#one", "a.ATest#two"));
+        selectors.put("b.BTest", List.of("b.BTest"));
+
+        List<List<String>> shards = ShardedTestRunner.plan(selectors, Map.of(), 1_000L, 4);
+
+        assertEquals(Set.of(Set.of("a.ATest#one", "a.ATest#two"), Set.of("b.BTest")), asSets(shards));
+    }
+
+    private static Map<String, List<String>> selectors(String... testClasses) {
+        Map<String, List<String>> selectors = new LinkedHashMap<>();
+        for (String testClass : testClasses) {
+            selectors.put(testClass, List.of(testClass));
+        }
+        return selectors;
+    }
+
+    private static Set<Set<String>> asSets(List<List<String>> shards) {
+        return shards.stream().map(Set::copyOf).collect(Collectors.toSet());
+    }
+}
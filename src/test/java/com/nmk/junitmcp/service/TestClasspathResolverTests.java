@@ -0,0 +1,131 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.buildtool.BuildInvocation;
+import com.nmk.junitmcp.buildtool.BuildListener;
+import com.nmk.junitmcp.buildtool.BuildTool;
+import com.nmk.junitmcp.buildtool.BuildTools;
+import com.nmk.junitmcp.config.BuildToolProperties;
+import com.nmk.junitmcp.config.ProcessProperties;
+import com.nmk.junitmcp.util.BuildFingerprint;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TestClasspathResolverTests {
+
+    @TempDir
+    Path project;
+
+    @TempDir
+    Path repository;
+
+    private final AtomicInteger builds = new AtomicInteger();
+    private final List<String> scopes = new ArrayList<>();
+    private final BuildTools buildTools = new BuildTools(new BuildToolProperties(), null, new ProcessProperties()) {
+        @Override
+        public BuildTool forProject(ProjectPathResolver pathResolver) {
+            return new BuildTool() {
+                @Override
+                public String getName() {
+                    return "fake";
+                }
+
+                @Override
+                public boolean reportsTestEvents() {
+                    return false;
+                }
+
+                // Answers dependency:build-classpath with the jars in the repository directory
+                @Override
+                public BuildInvocation run(File projectDir, List<String> args, Duration timeout, BuildListener listener)
+                        throws IOException {
+                    builds.incrementAndGet();
+                    args.stream().filter(arg -> arg.startsWith("-Dmdep.includeScope=")).forEach(scopes::add);
+                    String outputFile = args.stream().filter(arg -> arg.startsWith("-Dmdep.outputFile="))
+                            .findFirst().orElseThrow().substring("-Dmdep.outputFile=".length());
+                    List<String> jars;
+                    try (Stream<Path> files = Files.list(repository)) {
+                        jars = files.map(Path::toString).sorted().toList();
+                    }
+                    Files.writeString(Path.of(outputFile), String.join(File.pathSeparator, jars));
+                    return new BuildInvocation(0, 0, 0, 0, 0);
+                }
+            };
+        }
+    };
+
+    private ProjectPathResolver pathResolver;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.writeString(project.resolve("pom.xml"), "<project/>");
+        Files.writeString(repository.resolve("lib-1.0.jar"), "jar");
+        pathResolver = new ProjectPathResolver(project.toString());
+    }
+
+    @Test
+    void asksTheBuildToolOnceAndPersistsTheAnswer() throws Exception {
+        BuildFingerprint fingerprint = BuildFingerprint.compute(project.toString());
+        List<String> classpath = resolver().resolve(pathResolver, fingerprint);
+
+        assertEquals(List.of(pathResolver.getTestClassesPath(), pathResolver.getClassesPath(),
+                repository.resolve("lib-1.0.jar").toString()), classpath);
+        // A restarted server reads the file instead of asking again
+        assertEquals(classpath, resolver().resolve(pathResolver, fingerprint));
+        assertEquals(1, builds.get());
+    }
+
+    @Test
+    void resolvesAgainWhenTheBuildFilesChange() throws Exception {
+        TestClasspathResolver resolver = resolver();
+        resolver.resolve(pathResolver, BuildFingerprint.compute(project.toString()));
+
+        Files.writeString(project.resolve("pom.xml"), "<project><dependencies/></project>");
+        resolver.resolve(pathResolver, BuildFingerprint.compute(project.toString()));
+
+        assertEquals(2, builds.get());
+    }
+
+    @Test
+    void resolvesAgainWhenAPersistedJarIsGone() throws Exception {
+        BuildFingerprint fingerprint = BuildFingerprint.compute(project.toString());
+        resolver().resolve(pathResolver, fingerprint);
+
+        Files.delete(repository.resolve("lib-1.0.jar"));
+        Files.writeString(repository.resolve("lib-1.1.jar"), "jar");
+
+        assertEquals(repository.resolve("lib-1.1.jar").toString(), resolver().resolve(pathResolver, fingerprint).getLast());
+        assertEquals(2, builds.get());
+    }
+
+    @Test
+    void resolvesTheMainCompileClasspathWithoutTestClasses() throws Exception {
+        BuildFingerprint fingerprint = BuildFingerprint.compute(project.toString());
+        TestClasspathResolver resolver = resolver();
+        resolver.resolve(pathResolver, fingerprint);
+
+        assertEquals(List.of(pathResolver.getClassesPath(), repository.resolve("lib-1.0.jar").toString()),
+                resolver.resolveMain(pathResolver, fingerprint));
+        assertEquals(List.of("-Dmdep.includeScope=test", "-Dmdep.includeScope=compile"), scopes);
+        // Each classpath is kept apart
+        assertEquals(pathResolver.getTestClassesPath(), resolver().resolve(pathResolver, fingerprint).getFirst());
+        assertEquals(2, builds.get());
+    }
+
+    private TestClasspathResolver resolver() {
+        return new TestClasspathResolver(buildTools, new ProcessProperties());
+    }
+}
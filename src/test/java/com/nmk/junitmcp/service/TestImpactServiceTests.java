@@ -0,0 +1,114 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.dto.TestImpact;
+import com.nmk.junitmcp.util.BuildFingerprint;
+import com.nmk.junitmcp.util.ClassHashes;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.nmk.junitmcp.ProjectFiles.write;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestImpactServiceTests {
+
+    @TempDir
+    Path project;
+
+    private ProjectPathResolver pathResolver;
+    private TestImpactService impactService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        write(project, "pom.xml", "<project/>");
+        write(project, "src/main/java/com/example/Foo.java", "class Foo {}");
+        write(project, "src/main/resources/app.properties", "greeting=hello");
+        write(project, "target/classes/com/example/Foo.class", "foo");
+        write(project, "target/test-classes/com/example/FooTest.class", "foo test");
+        pathResolver = new ProjectPathResolver(project.toString());
+
+        TestCoverageIndexService indexService = new TestCoverageIndexService();
+        try (TestCoverageIndexService.Recorder recorder = indexService.startRecording(pathResolver)) {
+            ExecutionDataStore data = new ExecutionDataStore();
+            data.put(new ExecutionData(1L, "com/example/Foo", new boolean[]{true}));
+            recorder.accept("com.example.FooTest#greets", data);
+            recorder.commit();
+        }
+        impactService = new TestImpactService(indexService);
+    }
+
+    @Test
+    void fallsBackWithoutAPassingRunToCompareAgainst() throws IOException {
+        TestImpact impact = select();
+
+        assertNull(impact.getSelectedTests());
+        assertEquals("No previous passing run to compare against", impact.getFallbackReason());
+    }
+
+    @Test
+    void selectsTheTestsCoveringAChangedClass() throws IOException {
+        saveBaseline();
+        write(project, "target/classes/com/example/Foo.class", "recompiled foo");
+
+        TestImpact impact = select();
+        assertNull(impact.getFallbackReason());
+        assertEquals(List.of("com.example.Foo"), impact.getChangedClasses());
+        assertEquals(List.of("com.example.FooTest#greets"), impact.getSelectedTests());
+    }
+
+    @Test
+    void selectsNothingWhenNothingChanged() throws IOException {
+        saveBaseline();
+
+        assertEquals(List.of(), select().getSelectedTests());
+    }
+
+    @Test
+    void fallsBackWhenAResourceChanged() throws IOException {
+        saveBaseline();
+        write(project, "src/main/resources/app.properties", "greeting=bye");
+
+        TestImpact impact = select();
+        assertNull(impact.getSelectedTests());
+        assertTrue(impact.getFallbackReason().contains("src/main/resources/app.properties"), impact.getFallbackReason());
+    }
+
+    @Test
+    void fallsBackWhenABuildFileChanged() throws IOException {
+        saveBaseline();
+        write(project, "pom.xml", "<project><dependencies/></project>");
+
+        TestImpact impact = select();
+        assertNull(impact.getSelectedTests());
+        assertTrue(impact.getFallbackReason().contains("pom.xml"), impact.getFallbackReason());
+    }
+
+    @Test
+    void fallsBackForATestClassTheCoverageIndexHasNotSeen() throws IOException {
+        saveBaseline();
+        write(project, "target/test-classes/com/example/BarTest.class", "bar test");
+        saveBaseline();
+
+        TestImpact impact = select();
+        assertNull(impact.getSelectedTests());
+        assertEquals("Test class com.example.BarTest is not in the coverage index", impact.getFallbackReason());
+    }
+
+    private TestImpact select() throws IOException {
+        return impactService.selectAffected(pathResolver, ClassHashes.compute(pathResolver),
+                BuildFingerprint.compute(project.toString()), null);
+    }
+
+    private void saveBaseline() throws IOException {
+        impactService.saveBaseline(pathResolver, ClassHashes.compute(pathResolver), BuildFingerprint.compute(project.toString()));
+    }
+}
@@ -0,0 +1,85 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Timing and heap readings depend on the JIT, the GC and whatever else runs on the machine, so these stay out of the
+// default build: mvn -P perf test
+@Tag("perf")
+class TestOutputParserPerfTests {
+
+    private static final long MB = 1024L * 1024L;
+
+    @Test
+    void parsesMultiHundredMegabyteLogInLinearTimeAndBoundedHeap() {
+        // Warm up so JIT compilation does not skew the first measurement
+        parseSyntheticMavenLog(16 * MB, 50);
+
+        long smallNanos = parseSyntheticMavenLog(64 * MB, 100);
+        long heapBefore = usedHeapAfterGc();
+        AtomicLong peakHeap = new AtomicLong();
+        long largeNanos = parseSyntheticMavenLog(256 * MB, 400, peakHeap);
+
+        // 4x the input (and 4x the failures) must cost roughly 4x the time, not 16x
+        double ratio = (double) largeNanos / smallNanos;
+        assertTrue(ratio < 8.0, "Parse time grew super-linearly: ratio " + ratio);
+
+        // Nothing proportional to the log may be retained while parsing
+        assertTrue(peakHeap.get() - heapBefore < 64 * MB,
+                "Heap grew by " + (peakHeap.get() - heapBefore) / MB + " MB while parsing");
+    }
+
+    private static long parseSyntheticMavenLog(long totalBytes, int failingClasses) {
+        return parseSyntheticMavenLog(totalBytes, failingClasses, new AtomicLong());
+    }
+
+    // Generates the log line by line so the test itself never holds it in memory
+    private static long parseSyntheticMavenLog(long totalBytes, int failingClasses, AtomicLong peakHeap) {
+        AtomicInteger failures = new AtomicInteger();
+        TestOutputParser parser = TestOutputParser.forProjectType(ProjectPathResolver.ProjectType.MAVEN, result -> {
+            if (result.getStatus().equals("FAILED")) {
+                failures.incrementAndGet();
+            }
+        });
+
+        String filler = "[INFO] some verbose build or test output line that pads the log to realistic sizes ........";
+        long bytesPerClass = totalBytes / failingClasses;
+        long start = System.nanoTime();
+        for (int c = 0; c < failingClasses; c++) {
+            String testClass = "com.example.generated.FailingTest" + c;
+            parser.accept("[INFO] Running " + testClass);
+            long written = 0;
+            while (written < bytesPerClass) {
+                parser.accept(filler);
+                written += filler.length() + 1;
+            }
+            parser.accept("[ERROR] Tests run: 3, Failures: 1, Errors: 0, Skipped: 0, Time elapsed: 0.5 s <<< FAILURE! -- in " + testClass);
+            parser.accept("org.opentest4j.AssertionFailedError: generated failure " + c);
+            for (int frame = 0; frame < 200; frame++) {
+                parser.accept("\tat com.example.generated.Frame" + frame + ".call(Frame.java:" + frame + ")");
+            }
+            parser.accept("");
+            if (c % 50 == 0) {
+                peakHeap.accumulateAndGet(usedHeapAfterGc(), Math::max);
+            }
+        }
+        parser.finish();
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals(failingClasses, failures.get());
+        return elapsed;
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
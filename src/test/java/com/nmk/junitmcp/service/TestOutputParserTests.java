@@ -0,0 +1,87 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.dto.TestResult;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestOutputParserTests {
+
+    @Test
+    void capturesMavenFailureContext() {
+        List<TestResult> results = new ArrayList<>();
+        TestOutputParser parser = TestOutputParser.forProjectType(ProjectPathResolver.ProjectType.MAVEN, results::add);
+
+        feed(parser,
+                "[INFO] Running com.example.PassingTest",
+                "[INFO] Tests run: 2, Failures: 0, Errors: 0, Skipped: 0, Time elapsed: 0.1 s -- in com.example.PassingTest",
+                "[INFO] Running com.example.FailingTest",
+                "[ERROR] Tests run: 1, Failures: 1, Errors: 0, Skipped: 0, Time elapsed: 0.2 s <<< FAILURE! -- in com.example.FailingTest",
+                "[ERROR] com.example.FailingTest.shouldWork -- Time elapsed: 0.1 s <<< FAILURE!",
+                "org.opentest4j.AssertionFailedError: expected: <1> but was: <2>",
+                "\tat com.example.FailingTest.shouldWork(FailingTest.java:12)",
+                "",
+                "[INFO] Results:");
+        parser.finish();
+
+        assertEquals(2, results.size());
+        assertEquals("PASSED", results.get(0).getStatus());
+        assertEquals("com.example.FailingTest", results.get(1).getTest());
+        assertEquals("FAILED", results.get(1).getStatus());
+        assertTrue(results.get(1).getError().contains("expected: <1> but was: <2>"));
+    }
+
+    @Test
+    void capturesGradleFailureContext() {
+        List<TestResult> results = new ArrayList<>();
+        TestOutputParser parser = TestOutputParser.forProjectType(ProjectPathResolver.ProjectType.GRADLE, results::add);
+
+        feed(parser,
+                "com.example.CalculatorTest > adds() STARTED",
+                "com.example.CalculatorTest > adds() PASSED",
+                "com.example.CalculatorTest > divides() STARTED",
+                "com.example.CalculatorTest > divides() FAILED",
+                "    java.lang.ArithmeticException: / by zero",
+                "        at com.example.CalculatorTest.divides(CalculatorTest.java:20)",
+                "com.example.CalculatorTest > skipped() SKIPPED");
+        parser.finish();
+
+        assertEquals(3, results.size());
+        assertEquals("com.example.CalculatorTest#divides()", results.get(1).getTest());
+        assertEquals("FAILED", results.get(1).getStatus());
+        assertTrue(results.get(1).getError().startsWith("java.lang.ArithmeticException: / by zero"));
+        assertEquals("SKIPPED", results.get(2).getStatus());
+    }
+
+    @Test
+    void failureContextKeepsHeadAndTailOfLongTraces() {
+        List<TestResult> results = new ArrayList<>();
+        TestOutputParser parser = TestOutputParser.forProjectType(ProjectPathResolver.ProjectType.GRADLE, results::add);
+
+        parser.accept("com.example.HugeTest > explodes() FAILED");
+        int frames = 1000;
+        for (int i = 0; i < frames; i++) {
+            parser.accept("    at frame" + i + "(" + "x".repeat(2 * TestOutputParser.CONTEXT_MAX_LINE_LENGTH) + ")");
+        }
+        parser.finish();
+
+        List<String> lines = results.get(0).getError().lines().toList();
+        assertEquals(TestOutputParser.CONTEXT_HEAD_LINES + 1 + TestOutputParser.CONTEXT_TAIL_LINES, lines.size());
+        assertTrue(lines.get(0).startsWith("at frame0("));
+        assertEquals("... " + (frames - TestOutputParser.CONTEXT_HEAD_LINES - TestOutputParser.CONTEXT_TAIL_LINES)
+                + " lines omitted ...", lines.get(TestOutputParser.CONTEXT_HEAD_LINES));
+        assertTrue(lines.getLast().startsWith("at frame" + (frames - 1) + "("));
+        assertTrue(lines.stream().allMatch(line -> line.length() <= TestOutputParser.CONTEXT_MAX_LINE_LENGTH + 3));
+    }
+
+    private static void feed(TestOutputParser parser, String... lines) {
+        for (String line : lines) {
+            parser.accept(line);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.config.ResultCacheProperties;
+import com.nmk.junitmcp.config.WorkerPoolProperties;
+import com.nmk.junitmcp.dto.ExecutionMode;
+import com.nmk.junitmcp.dto.RunRequest;
+import com.nmk.junitmcp.dto.TestResult;
+import com.nmk.junitmcp.junit_platform.CoverageCut;
+import com.nmk.junitmcp.util.BuildFingerprint;
+import com.nmk.junitmcp.util.ProjectPathResolver;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static com.nmk.junitmcp.ProjectFiles.javac;
+import static com.nmk.junitmcp.ProjectFiles.write;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestResultCacheServiceTests {
+
+    @TempDir
+    Path project;
+
+    @TempDir
+    Path cacheDirectory;
+
+    private ProjectPathResolver pathResolver;
+    private BuildFingerprint fingerprint;
+    private TestResultCacheService service;
+    private final RunRequest request = new RunRequest();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        write(project, "pom.xml", "<project/>");
+        write(project, "src/test/java/p/FooTest.java", "package p; public class FooTest {}");
+        write(project, "src/test/java/p/BarTest.java", "package p; public class BarTest {}");
+        javac(project, "target/test-classes", "", "src/test/java/p/FooTest.java", "src/test/java/p/BarTest.java");
+        pathResolver = new ProjectPathResolver(project.toString());
+        fingerprint = BuildFingerprint.compute(project.toString());
+        request.setMode(ExecutionMode.IN_PROCESS);
+
+        ResultCacheProperties properties = new ResultCacheProperties();
+        properties.setDirectory(cacheDirectory.toString());
+        TestClasspathResolver classpathResolver = new TestClasspathResolver(null, null) {
+            @Override
+            public List<String> resolve(ProjectPathResolver pathResolver, BuildFingerprint fingerprint) {
+                return List.of();
+            }
+        };
+        service = new TestResultCacheService(properties, new WorkerPoolProperties(), classpathResolver);
+    }
+
+    @Test
+    void cutsCoverageByClassWithoutPerTestCoverage() throws Exception {
+        AtomicReference<CoverageCut> cut = new AtomicReference<>();
+        run(new ExecutionDataStore(), null, (tests, coverageData, resultListener, coverageListener, requestedCut) -> {
+            cut.set(requestedCut);
+            List<TestResult> results = new ArrayList<>();
+            // A dynamic test without a method source reports its display name
+            results.add(report(resultListener, "p.FooTest#works"));
+            results.add(report(resultListener, "dynamic [1]"));
+            coverageData.visitClassExecution(new ExecutionData(1L, "p/Foo", new boolean[]{true}));
+            coverageListener.accept("p.FooTest", new ExecutionDataStore());
+            results.add(report(resultListener, "p.BarTest#works"));
+            coverageListener.accept("p.BarTest", new ExecutionDataStore());
+            return results;
+        });
+        assertEquals(CoverageCut.TEST_CLASS, cut.get());
+
+        ExecutionDataStore coverage = new ExecutionDataStore();
+        List<TestResult> replayed = run(coverage, null, (tests, coverageData, resultListener, coverageListener, requestedCut) -> {
+            throw new AssertionError("Ran " + tests);
+        });
+
+        assertEquals(List.of("p.BarTest#works", "p.FooTest#works", "dynamic [1]"),
+                replayed.stream().map(TestResult::getTest).toList());
+        assertTrue(replayed.stream().allMatch(TestResult::isCached));
+        assertTrue(coverage.get(1L).getProbes()[0]);
+    }
+
+    @Test
+    void leavesOnlyTheClassOfAnUnattributableTestUncachedWithPerTestCoverage() throws Exception {
+        List<String> recorded = new ArrayList<>();
+        run(new ExecutionDataStore(), (testId, data) -> recorded.add(testId), (tests, coverageData, resultListener, coverageListener, cut) -> {
+            assertEquals(CoverageCut.TEST, cut);
+            List<TestResult> results = new ArrayList<>();
+            for (String test : List.of("p.BarTest#works", "p.FooTest#works", "dynamic [1]")) {
+                coverageListener.accept(test, new ExecutionDataStore());
+                results.add(report(resultListener, test));
+            }
+            return results;
+        });
+        assertEquals(List.of("p.BarTest#works", "p.FooTest#works", "dynamic [1]"), recorded);
+
+        List<List<String>> selections = new ArrayList<>();
+        run(new ExecutionDataStore(), (testId, data) -> {
+        }, (tests, coverageData, resultListener, coverageListener, cut) -> {
+            selections.add(tests);
+            return List.of(report(resultListener, "p.FooTest#works"));
+        });
+
+        assertEquals(List.of(List.of("p.FooTest")), selections);
+    }
+
+    @Test
+    void runsClassesCachedWithoutPerTestCoverageAgainWhenItIsAskedFor() throws Exception {
+        run(new ExecutionDataStore(), null, (tests, coverageData, resultListener, coverageListener, cut) -> {
+            List<TestResult> results = new ArrayList<>();
+            results.add(report(resultListener, "p.BarTest#works"));
+            coverageListener.accept("p.BarTest", new ExecutionDataStore());
+            results.add(report(resultListener, "p.FooTest#works"));
+            coverageListener.accept("p.FooTest", new ExecutionDataStore());
+            return results;
+        });
+
+        List<List<String>> selections = new ArrayList<>();
+        run(new ExecutionDataStore(), (testId, data) -> {
+        }, (tests, coverageData, resultListener, coverageListener, cut) -> {
+            selections.add(tests);
+            return List.of();
+        });
+
+        assertEquals(List.of(List.of("p.BarTest", "p.FooTest")), selections);
+    }
+
+    private List<TestResult> run(ExecutionDataStore coverage, BiConsumer<String, ExecutionDataStore> recorder,
+                                 TestResultCacheService.TestExecution execution) throws Exception {
+        return service.run(request, pathResolver, fingerprint, List.of("p.BarTest", "p.FooTest"), coverage, result -> {
+        }, recorder, execution);
+    }
+
+    private static TestResult report(Consumer<TestResult> resultListener, String test) {
+        TestResult result = new TestResult();
+        result.setTest(test);
+        result.setStatus("PASSED");
+        result.setDurationMs(1L);
+        resultListener.accept(result);
+        return result;
+    }
+}
@@ -0,0 +1,42 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.dto.ExecutionMode;
+import com.nmk.junitmcp.dto.RunRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.nmk.junitmcp.ProjectFiles.write;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TestRunServiceTests {
+
+    @TempDir
+    Path project;
+
+    // Requests are checked before anything is built or run
+    private final TestRunService service = new TestRunService(null, null, null, null, null, null, null, null, null, null,
+            null, null, null, null);
+
+    @Test
+    void leavesMultiModuleBuildsToTheBuildTool() throws Exception {
+        write(project, "pom.xml", "<project><modules><module>core</module><module>web</module></modules></project>");
+        write(project, "core/pom.xml", "<project/>");
+        write(project, "core/target/test-classes/com/example/FooTest.class", "foo test");
+        write(project, "web/pom.xml", "<project/>");
+
+        for (ExecutionMode mode : new ExecutionMode[]{ExecutionMode.IN_PROCESS, ExecutionMode.WORKER}) {
+            RunRequest request = new RunRequest();
+            request.setProjectPath(project.toString());
+            request.setMode(mode);
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> service.run(request));
+            assertEquals("Multi-module builds need mode EXTERNAL", e.getMessage());
+
+            request.setModules(List.of("core"));
+            assertThrows(IllegalArgumentException.class, () -> service.run(request));
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.nmk.junitmcp.service;
+
+import com.nmk.junitmcp.config.WatchProperties;
+import com.nmk.junitmcp.dto.RunRequest;
+import com.nmk.junitmcp.dto.RunResponse;
+import com.nmk.junitmcp.dto.TestImpact;
+import com.nmk.junitmcp.dto.TestResult;
+import com.nmk.junitmcp.dto.WatchSession;
+import com.nmk.junitmcp.dto.WatchStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.nmk.junitmcp.ProjectFiles.write;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WatchSessionServiceTests {
+
+    @TempDir
+    Path project;
+
+    private final WatchProperties properties = new WatchProperties();
+    private final AtomicInteger runs = new AtomicInteger();
+    private volatile RunResponse response = new RunResponse();
+    private volatile Exception failure;
+    private final RunJobService runJobService = new RunJobService(null, null, null) {
+        @Override
+        public RunResponse runAndWait(RunRequest request, RunListener listener) throws Exception {
+            runs.incrementAndGet();
+            if (failure != null) {
+                throw failure;
+            }
+            return response;
+        }
+    };
+    private final WatchSessionService service = new WatchSessionService(runJobService, properties);
+
+    WatchSessionServiceTests() {
+        properties.setDebounce(Duration.ofMillis(200));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void runsOnceForABurstOfChanges() throws Exception {
+        write(project, "pom.xml", "<project/>");
+        write(project, "src/main/java/p/A.java", "package p; class A {}");
+        WatchSession session = service.register(request());
+        assertSame(response, service.getResult(session.getId(), true).orElseThrow());
+        assertEquals(1, runs.get());
+
+        for (int i = 0; i < 5; i++) {
+            write(project, "src/main/java/p/A.java", "package p; class A { int x = " + i + "; }");
+            write(project, "src/main/java/p/B" + i + ".java", "package p; class B" + i + " {}");
+            Thread.sleep(20);
+        }
+        awaitRuns(session.getId(), 2);
+        // Nothing of the burst is left to pick up
+        Thread.sleep(properties.getDebounce().toMillis() * 3);
+        assertEquals(2, runs.get());
+        assertEquals(WatchStatus.CURRENT, service.getSession(session.getId()).orElseThrow().getStatus());
+
+        // Files outside the sources and build files do not trigger a run
+        write(project, "README.md", "notes");
+        write(project, "target/classes/p/A.class", "stale");
+        Thread.sleep(properties.getDebounce().toMillis() * 3);
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void reportsTheFailureOfTheLatestRun() throws Exception {
+        write(project, "pom.xml", "<project/>");
+        failure = new IllegalStateException("Compilation failed");
+        WatchSession session = service.register(request());
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> service.getResult(session.getId(), true));
+        assertEquals("Compilation failed", e.getMessage());
+        WatchSession failed = service.getSession(session.getId()).orElseThrow();
+        assertEquals(WatchStatus.FAILED, failed.getStatus());
+        assertEquals("Compilation failed", failed.getError());
+
+        failure = null;
+        write(project, "pom.xml", "<project><modelVersion>4.0.0</modelVersion></project>");
+        awaitRuns(session.getId(), 2);
+        assertSame(response, service.getResult(session.getId(), true).orElseThrow());
+        assertEquals(WatchStatus.CLOSED, service.close(session.getId()).orElseThrow().getStatus());
+        assertTrue(service.getSession(session.getId()).isEmpty());
+    }
+
+    @Test
+    void dropsEarlierResultsOfTestClassesThatAreGoneOrChanged() throws Exception {
+        write(project, "pom.xml", "<project/>");
+        write(project, "target/test-classes/p/ATest.class", "class");
+        write(project, "target/test-classes/p/KeptTest.class", "class");
+        write(project, "target/test-classes/p/ChangedTest.class", "class");
+        response = response(null, "p.ATest#a()", "p.KeptTest$Nested#k()", "p.GoneTest#g()", "p.ChangedTest#removed()");
+        WatchSession session = service.register(request());
+        assertEquals(4, service.getResult(session.getId(), true).orElseThrow().getResults().size());
+
+        TestImpact impact = new TestImpact();
+        impact.setSelectedTests(List.of("p.ATest#a()"));
+        impact.setChangedClasses(List.of("p.ChangedTest", "p.A"));
+        response = response(impact, "p.ATest#a()");
+        write(project, "src/main/java/p/A.java", "package p; class A {}");
+        awaitRuns(session.getId(), 2);
+
+        assertEquals(List.of("p.ATest#a()", "p.KeptTest$Nested#k()"), service.getResult(session.getId(), true)
+                .orElseThrow().getResults().stream().map(TestResult::getTest).toList());
+    }
+
+    private static RunResponse response(TestImpact impact, String... tests) {
+        RunResponse response = new RunResponse();
+        response.setImpact(impact);
+        response.setResults(Arrays.stream(tests).map(test -> {
+            TestResult result = new TestResult();
+            result.setTest(test);
+            result.setStatus("PASSED");
+            return result;
+        }).toList());
+        return response;
+    }
+
+    private RunRequest request() {
+        RunRequest request = new RunRequest();
+        request.setProjectPath(project.toString());
+        return request;
+    }
+
+    private void awaitRuns(String id, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (service.getSession(id).orElseThrow().getRuns() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, service.getSession(id).orElseThrow().getRuns());
+    }
+}
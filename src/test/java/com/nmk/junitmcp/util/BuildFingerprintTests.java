@@ -0,0 +1,100 @@
+package com.nmk.junitmcp.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.nmk.junitmcp.ProjectFiles.write;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BuildFingerprintTests {
+
+    @TempDir
+    Path project;
+
+    @Test
+    void changesWithSourcesButNotWithBuildOutput() throws IOException {
+        write(project, "pom.xml", "<project/>");
+        write(project, "src/main/java/com/example/Foo.java", "class Foo {}");
+        write(project, "target/classes/com/example/Foo.class", "bytes");
+        BuildFingerprint before = BuildFingerprint.compute(project.toString());
+
+        write(project, "target/classes/com/example/Foo.class", "other bytes");
+        write(project, "README.md", "not part of the build");
+        assertEquals(before.getHash(), BuildFingerprint.compute(project.toString()).getHash());
+
+        write(project, "src/main/java/com/example/Foo.java", "class Foo { int x; }");
+        BuildFingerprint after = BuildFingerprint.compute(project.toString());
+        assertNotEquals(before.getHash(), after.getHash());
+        assertEquals(before.getBuildFilesHash(), after.getBuildFilesHash());
+        assertEquals(2, after.getFileHashes().size());
+    }
+
+    @Test
+    void buildFilesHashTracksOnlyBuildFiles() throws IOException {
+        write(project, "build.gradle", "plugins {}");
+        write(project, "src/main/java/Foo.java", "class Foo {}");
+        String before = BuildFingerprint.compute(project.toString()).getBuildFilesHash();
+
+        write(project, "build.gradle", "plugins { id 'java' }");
+        assertNotEquals(before, BuildFingerprint.compute(project.toString()).getBuildFilesHash());
+        assertTrue(BuildFingerprint.isBuildFile("services/api/build.gradle"));
+        assertFalse(BuildFingerprint.isBuildFile("src/main/java/Foo.java"));
+    }
+
+    @Test
+    void fileHashCacheRehashesOnlyChangedFilesAndForgetsDeletedOnes() throws IOException {
+        Path a = write(project, "a.txt", "a");
+        Path b = write(project, "b.txt", "b");
+        FileHashCache<String> cache = new FileHashCache<>(4);
+        AtomicInteger hashed = new AtomicInteger();
+        FileHashCache.Hasher<String> hasher = file -> {
+            hashed.incrementAndGet();
+            return Files.readString(file);
+        };
+
+        FileHashCache<String>.Scan scan = cache.start(project);
+        scan.get(a, attrs(a), hasher);
+        scan.get(b, attrs(b), hasher);
+        scan.finish();
+        assertEquals(2, hashed.get());
+
+        Files.writeString(a, "changed");
+        Files.setLastModifiedTime(a, FileTime.fromMillis(Files.getLastModifiedTime(a).toMillis() + 2000));
+        scan = cache.start(project);
+        assertEquals("changed", scan.get(a, attrs(a), hasher));
+        scan.finish();
+        assertEquals(3, hashed.get());
+
+        // b was not visited by the last scan, so it is hashed again
+        scan = cache.start(project);
+        scan.get(b, attrs(b), hasher);
+        scan.finish();
+        assertEquals(4, hashed.get());
+    }
+
+    @Test
+    void fileHashCacheKeepsOnlyRecentRoots() throws IOException {
+        Path file = write(project, "a.txt", "a");
+        FileHashCache<String> cache = new FileHashCache<>(2);
+        for (int i = 0; i < 5; i++) {
+            FileHashCache<String>.Scan scan = cache.start(project.resolve("root" + i));
+            scan.get(file, attrs(file), Files::readString);
+            scan.finish();
+        }
+        assertEquals(2, cache.getRootCount());
+    }
+
+    private static BasicFileAttributes attrs(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+}
@@ -0,0 +1,69 @@
+package com.nmk.junitmcp.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+
+import static com.nmk.junitmcp.ProjectFiles.write;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClassHashesTests {
+
+    @TempDir
+    Path project;
+
+    @Test
+    void changedReportsAddedRemovedAndModifiedEntries() {
+        Map<String, Long> previous = Map.of("a.Kept", 1L, "a.Modified", 2L, "a.Removed", 3L);
+        Map<String, Long> current = Map.of("a.Kept", 1L, "a.Modified", 20L, "a.Added", 4L);
+
+        assertEquals(Set.of("a.Modified", "a.Removed", "a.Added"), ClassHashes.changed(previous, current));
+        assertTrue(ClassHashes.changed(current, current).isEmpty());
+    }
+
+    @Test
+    void snapshotSurvivesWriteAndReadAndSeesOnlyClassFiles() throws IOException {
+        write(project, "pom.xml", "<project/>");
+        write(project, "target/classes/com/example/Foo.class", "foo");
+        write(project, "target/classes/com/example/Foo$Inner.class", "inner");
+        write(project, "target/classes/application.properties", "not a class");
+        write(project, "target/test-classes/com/example/FooTest.class", "test");
+        ClassHashes hashes = ClassHashes.compute(new ProjectPathResolver(project.toString()));
+
+        assertEquals(Set.of("com.example.Foo", "com.example.Foo$Inner"), hashes.getMainClasses().keySet());
+        assertEquals(Set.of("com.example.FooTest"), hashes.getTestClasses().keySet());
+
+        Path file = project.resolve("snapshot.txt");
+        hashes.write(file);
+        ClassHashes read = ClassHashes.read(file);
+        assertEquals(hashes.getMainClasses(), read.getMainClasses());
+        assertEquals(hashes.getTestClasses(), read.getTestClasses());
+
+        write(project, "target/classes/com/example/Foo.class", "recompiled");
+        ClassHashes recompiled = ClassHashes.compute(new ProjectPathResolver(project.toString()));
+        assertEquals(Set.of("com.example.Foo"), ClassHashes.changed(read.getMainClasses(), recompiled.getMainClasses()));
+    }
+
+    @Test
+    void coversTheClassesOfEveryModule() throws IOException {
+        write(project, "pom.xml", "<project><modules><module>core</module><module>web</module></modules></project>");
+        write(project, "core/pom.xml", "<project/>");
+        write(project, "core/target/classes/com/example/Foo.class", "foo");
+        write(project, "core/target/test-classes/com/example/FooTest.class", "foo test");
+        write(project, "web/pom.xml", "<project/>");
+        write(project, "web/target/classes/com/example/Web.class", "web");
+        ClassHashes hashes = ClassHashes.compute(new ProjectPathResolver(project.toString()));
+
+        assertEquals(Set.of("com.example.Foo", "com.example.Web"), hashes.getMainClasses().keySet());
+        assertEquals(Set.of("com.example.FooTest"), hashes.getTestClasses().keySet());
+
+        write(project, "web/target/classes/com/example/Web.class", "recompiled");
+        ClassHashes recompiled = ClassHashes.compute(new ProjectPathResolver(project.toString()));
+        assertEquals(Set.of("com.example.Web"), ClassHashes.changed(hashes.getMainClasses(), recompiled.getMainClasses()));
+    }
+}
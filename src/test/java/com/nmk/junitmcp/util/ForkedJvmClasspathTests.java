@@ -0,0 +1,130 @@
+package com.nmk.junitmcp.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.platform.launcher.core.LauncherFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.security.cert.Certificate;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static com.nmk.junitmcp.ProjectFiles.javac;
+import static com.nmk.junitmcp.ProjectFiles.write;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ForkedJvmClasspathTests {
+
+    @TempDir
+    Path project;
+
+    @Test
+    void addsServerJarsTheProjectDoesNotBringItself() {
+        String projectJupiter = new File("/repo/junit-jupiter-api-5.0.0.jar").getAbsolutePath();
+        List<String> entries = List.of(ForkedJvmClasspath.build(List.of("/project/target/test-classes", projectJupiter),
+                List.of("org.junit.jupiter.api.Test", "org.jacoco.core.data.ExecutionData")).split(File.pathSeparator));
+
+        assertEquals(List.of("/project/target/test-classes", projectJupiter), entries.subList(0, 2));
+        // The project's own version wins over the server's
+        assertFalse(entries.stream().skip(2).anyMatch(entry -> entry.contains("junit-jupiter-api")), entries.toString());
+        assertTrue(entries.stream().skip(2).anyMatch(entry -> entry.contains("jacoco")), entries.toString());
+    }
+
+    @Test
+    void skipsClassesTheServerDoesNotHave() {
+        assertEquals("/project/target/test-classes",
+                ForkedJvmClasspath.build(List.of("/project/target/test-classes"), List.of("com.example.Missing")));
+        assertFalse(ForkedJvmClasspath.isAvailable("com.example.Missing"));
+        assertTrue(ForkedJvmClasspath.isAvailable("org.junit.jupiter.api.Test"));
+    }
+
+    @Test
+    void addsTheServersJUnitOnlyInTheProjectsVersion() throws Exception {
+        String launcher = new File(LauncherFactory.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getName();
+        String serverVersion = launcher.substring("junit-platform-launcher-".length(), launcher.length() - ".jar".length());
+        List<String> runtime = List.of("org.junit.platform.launcher.core.LauncherFactory");
+
+        String sameVersion = ForkedJvmClasspath.build(List.of("/repo/junit-platform-engine-" + serverVersion + ".jar"), runtime);
+        assertTrue(sameVersion.contains(launcher), sameVersion);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> ForkedJvmClasspath.build(List.of("/repo/junit-platform-engine-1.10.2.jar"), runtime));
+        assertTrue(e.getMessage().contains("junit-platform-launcher"), e.getMessage());
+
+        // A project without JUnit of its own gets the server's whole set
+        assertTrue(ForkedJvmClasspath.build(List.of("/project/target/test-classes"), runtime).contains(launcher));
+    }
+
+    @Test
+    void extractsRuntimeTheServerLoadsFromItsRepackagedJar() throws Exception {
+        write(project, "src/p/Main.java", "package p; public class Main { Helper helper; }");
+        write(project, "src/p/Helper.java", "package p; class Helper {}");
+        write(project, "src/p/Unused.java", "package p; class Unused {}");
+        write(project, "src/q/Lib.java", "package q; public class Lib {}");
+        javac(project, "classes", "", "src/p/Main.java", "src/p/Helper.java", "src/p/Unused.java", "src/q/Lib.java");
+        Path lib = project.resolve("lib-1.0.jar");
+        jar(lib, "q/Lib.class");
+        byte[] libBytes = Files.readAllBytes(lib);
+        Path server = project.resolve("server.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(server))) {
+            for (String name : List.of("p/Main.class", "p/Helper.class", "p/Unused.class")) {
+                out.putNextEntry(new JarEntry("BOOT-INF/classes/" + name));
+                out.write(Files.readAllBytes(project.resolve("classes").resolve(name)));
+            }
+            out.putNextEntry(new JarEntry("BOOT-INF/lib/lib-1.0.jar"));
+            out.write(libBytes);
+        }
+
+        String serverJar = server.toUri().toString();
+        URLClassLoader classes = new URLClassLoader(new URL[]{URI.create("jar:" + serverJar + "!/BOOT-INF/classes/").toURL()}, null);
+        // Classes of a nested jar come with that jar as their code source
+        ClassLoader loader = new ClassLoader(classes) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                if (!name.equals("q.Lib")) {
+                    throw new ClassNotFoundException(name);
+                }
+                try {
+                    byte[] bytes = Files.readAllBytes(project.resolve("classes/q/Lib.class"));
+                    CodeSource codeSource = new CodeSource(URI.create("jar:" + serverJar + "!/BOOT-INF/lib/lib-1.0.jar!/").toURL(), (Certificate[]) null);
+                    return defineClass(name, bytes, 0, bytes.length, new ProtectionDomain(codeSource, null));
+                } catch (IOException e) {
+                    throw new ClassNotFoundException(name, e);
+                }
+            }
+        };
+
+        List<String> entries = List.of(ForkedJvmClasspath.build(List.of("/project/target/test-classes"),
+                List.of("p.Main", "q.Lib"), loader).split(File.pathSeparator));
+
+        assertEquals(3, entries.size(), entries.toString());
+        Path extractedClasses = Path.of(entries.get(1));
+        assertTrue(Files.isRegularFile(extractedClasses.resolve("p/Main.class")));
+        assertTrue(Files.isRegularFile(extractedClasses.resolve("p/Helper.class")));
+        assertFalse(Files.exists(extractedClasses.resolve("p/Unused.class")));
+        assertEquals("lib-1.0.jar", Path.of(entries.get(2)).getFileName().toString());
+        assertArrayEquals(libBytes, Files.readAllBytes(Path.of(entries.get(2))));
+    }
+
+    private void jar(Path jar, String... classFiles) throws IOException {
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (String name : classFiles) {
+                out.putNextEntry(new JarEntry(name));
+                out.write(Files.readAllBytes(project.resolve("classes").resolve(name)));
+            }
+        }
+    }
+}
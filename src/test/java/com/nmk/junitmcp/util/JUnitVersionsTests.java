@@ -0,0 +1,34 @@
+package com.nmk.junitmcp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JUnitVersionsTests {
+
+    @Test
+    void readsVersionsPerFamily() {
+        assertEquals(Map.of("junit-jupiter-", "5.10.2", "junit-platform-", "1.10.2"), JUnitVersions.of(List.of(
+                "/project/target/test-classes",
+                "/repo/junit-jupiter-api-5.10.2.jar",
+                "/repo/junit-platform-commons-1.10.2.jar",
+                "/repo/opentest4j-1.3.0.jar")));
+        assertEquals(new JUnitVersions.Jar("junit-platform-launcher", "junit-platform-", "1.10.2"),
+                JUnitVersions.parse("jar:nested:/app.jar/!BOOT-INF/lib/junit-platform-launcher-1.10.2.jar!/"));
+    }
+
+    @Test
+    void findsProjectsOnAnotherReleaseThanTheServer() {
+        String serverVersion = JUnitVersions.ofServer().get("junit-jupiter-");
+        assertNotNull(serverVersion);
+
+        assertNull(JUnitVersions.mismatchWithServer(List.of("/repo/junit-jupiter-params-" + serverVersion + ".jar")));
+        assertEquals("the project uses junit-jupiter-* 5.0.0, this server " + serverVersion,
+                JUnitVersions.mismatchWithServer(List.of("/repo/junit-jupiter-params-5.0.0.jar")));
+    }
+}
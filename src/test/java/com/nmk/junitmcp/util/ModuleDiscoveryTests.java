@@ -0,0 +1,78 @@
+package com.nmk.junitmcp.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.nmk.junitmcp.ProjectFiles.write;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModuleDiscoveryTests {
+
+    @TempDir
+    Path project;
+
+    @Test
+    void findsNestedMavenModulesAndSkipsMissingOnes() throws IOException {
+        write(project, "pom.xml", pom("<modules><module>core</module><module>services</module><module>gone</module></modules>"));
+        write(project, "core/pom.xml", pom(""));
+        write(project, "services/pom.xml", pom("<modules><module>api/pom.xml</module></modules>"
+                + "<build><plugins><plugin><modules><module>not-a-module</module></modules></plugin></plugins></build>"));
+        write(project, "services/api/pom.xml", pom(""));
+
+        List<ProjectModule> modules = ModuleDiscovery.discover(project, ProjectPathResolver.ProjectType.MAVEN);
+
+        assertEquals(List.of("", "core", "services", "services/api"), modules.stream().map(ProjectModule::name).toList());
+        assertEquals(project.resolve("services/api"), modules.get(3).directory());
+        assertTrue(modules.get(0).isRoot());
+    }
+
+    @Test
+    void readsGradleIncludesInEveryForm() throws IOException {
+        write(project, "build.gradle", "");
+        write(project, "settings.gradle", """
+                rootProject.name = 'demo'
+                include 'app', ':services:api'
+                include(":libs:util")
+                // include 'commented'
+                /* include 'also-commented' */
+                includeBuild 'build-logic'
+                project(':libs:util').projectDir = file('third-party/util')
+                """);
+        for (String directory : List.of("app", "services/api", "libs", "third-party/util", "commented", "build-logic")) {
+            Files.createDirectories(project.resolve(directory));
+        }
+
+        List<ProjectModule> modules = ModuleDiscovery.discover(project, ProjectPathResolver.ProjectType.GRADLE);
+
+        // Intermediate projects ("services", "libs") count too; nothing commented out or included as a build does
+        assertEquals(List.of("", "app", "services", "services:api", "libs", "libs:util"),
+                modules.stream().map(ProjectModule::name).toList());
+        assertEquals(project.resolve("third-party/util"), modules.get(5).directory());
+    }
+
+    @Test
+    void withModulesAcceptsGradlePathsAndRejectsUnknownModules() throws IOException {
+        write(project, "build.gradle", "");
+        write(project, "settings.gradle", "include 'app'");
+        Files.createDirectories(project.resolve("app"));
+        ProjectPathResolver resolver = new ProjectPathResolver(project.toString());
+
+        assertTrue(resolver.isMultiModule());
+        assertEquals(List.of("app"), resolver.withModules(List.of(":app")).getSelectedModules());
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> resolver.withModules(List.of("web")));
+        assertTrue(error.getMessage().contains("[app]"), error.getMessage());
+        assertSame(resolver, resolver.withModules(List.of()));
+    }
+
+    private static String pom(String body) {
+        return "<project><modelVersion>4.0.0</modelVersion>" + body + "</project>";
+    }
+}
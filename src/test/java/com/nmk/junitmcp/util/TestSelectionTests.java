@@ -0,0 +1,91 @@
+package com.nmk.junitmcp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestSelectionTests {
+
+    @Test
+    void keyIsOrderInsensitive() {
+        assertEquals(TestSelection.key(List.of("b.BTest", "a.ATest")), TestSelection.key(List.of("a.ATest", "b.BTest")));
+        assertEquals("*", TestSelection.key(null));
+        assertEquals("*", TestSelection.key(List.of()));
+    }
+
+    @Test
+    void unionKeepsFirstOccurrenceOrder() {
+        assertEquals(List.of("a.ATest", "b.BTest", "c.CTest"),
+                TestSelection.union(List.of(List.of("a.ATest", "b.BTest"), List.of("b.BTest", "c.CTest"))));
+    }
+
+    @Test
+    void unionWithFullSuiteIsFullSuite() {
+        assertNull(TestSelection.union(Arrays.asList(List.of("a.ATest"), null)));
+        assertNull(TestSelection.union(List.of(List.of("a.ATest"), List.of())));
+    }
+
+    @Test
+    void matchesClassesMethodsAndWildcards() {
+        assertTrue(TestSelection.matchesAny(null, "com.example.FooTest#works"));
+        assertTrue(TestSelection.matchesAny(List.of("com.example.FooTest"), "com.example.FooTest#works"));
+        assertTrue(TestSelection.matchesAny(List.of("FooTest"), "com.example.FooTest#works"));
+        assertTrue(TestSelection.matchesAny(List.of("*ServiceTest"), "com.example.UserServiceTest#creates"));
+        assertTrue(TestSelection.matchesAny(List.of("com.example.FooTest#works+fails"), "com.example.FooTest#fails()"));
+        assertTrue(TestSelection.matchesAny(List.of("com.example.FooTest#work*"), "com.example.FooTest#worksFine"));
+
+        assertFalse(TestSelection.matchesAny(List.of("com.example.FooTest#works"), "com.example.FooTest#fails"));
+        assertFalse(TestSelection.matchesAny(List.of("com.example.FooTest"), "com.example.FooTestHelper#works"));
+        assertFalse(TestSelection.matchesAny(List.of("com.other.FooTest"), "com.example.FooTest#works"));
+    }
+
+    @Test
+    void compactGroupsMethodsPerClass() {
+        assertEquals(List.of("a.ATest#one+two", "b.BTest"),
+                TestSelection.compact(List.of("a.ATest#two", "b.BTest#x", "a.ATest#one(int)", "b.BTest")));
+        assertEquals(List.of("b.BTest"), TestSelection.compact(List.of("b.BTest", "b.BTest#x")));
+    }
+
+    @Test
+    void gradleFiltersTakeOneMethodEach() {
+        assertEquals(List.of("a.ATest"), TestSelection.toGradleFilters("a.ATest"));
+        assertEquals(List.of("a.ATest.one", "a.ATest.two"), TestSelection.toGradleFilters("a.ATest#one+two(int)"));
+    }
+
+    @Test
+    void splitSeparatesNamedClassesWithoutOverlap() {
+        TestSelection.Split split = TestSelection.split(List.of("a.ATest#one+two", "b.BTest", "c.CTest"),
+                Set.of("a.ATest", "c.CTest"), List.of("a.ATest", "b.BTest", "c.CTest"));
+
+        assertEquals(List.of("a.ATest#one+two", "c.CTest"), split.matching());
+        assertEquals(List.of("b.BTest"), split.rest());
+    }
+
+    @Test
+    void splitExpandsTheFullSuiteAndWildcardsAgainstTheTestClasses() {
+        List<String> testClasses = List.of("a.ATest", "a.UserServiceTest", "b.OrderServiceTest");
+
+        TestSelection.Split all = TestSelection.split(null, Set.of("a.UserServiceTest"), testClasses);
+        assertEquals(List.of("a.UserServiceTest"), all.matching());
+        assertEquals(List.of("a.ATest", "b.OrderServiceTest"), all.rest());
+
+        TestSelection.Split wildcard = TestSelection.split(List.of("*ServiceTest#create*"), Set.of("a.UserServiceTest"), testClasses);
+        assertEquals(List.of("a.UserServiceTest#create*"), wildcard.matching());
+        assertEquals(List.of("b.OrderServiceTest#create*"), wildcard.rest());
+    }
+
+    @Test
+    void splitKeepsSelectorsMatchingNoKnownClassInTheRest() {
+        TestSelection.Split split = TestSelection.split(List.of("*Spec"), Set.of("a.ATest"), List.of("a.ATest"));
+
+        assertTrue(split.matching().isEmpty());
+        assertEquals(List.of("*Spec"), split.rest());
+    }
+}